@@ -0,0 +1,116 @@
+package android.santosh.com.codechallenge.views;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks offsets, and the index at the first and last offset of every span, against a linear prefix
+ * sum of the sizes while the tree grows and sizes go back to the default. Runs on a device, the
+ * sizes are kept in a SparseIntArray.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AxisSizesTest {
+    private static final int DEFAULT_SIZE = 40;
+    private static final int INDEX_COUNT = 3000;
+
+    @Test
+    public void unresized_isTheDefaultSizeEverywhere() throws Exception {
+        AxisSizes axisSizes = new AxisSizes(DEFAULT_SIZE);
+        assertEquals(0, axisSizes.getOffset(0));
+        assertEquals(DEFAULT_SIZE * 999999, axisSizes.getOffset(999999));
+        assertEquals(0, axisSizes.getIndexAt(-5));
+        assertEquals(0, axisSizes.getIndexAt(DEFAULT_SIZE - 1));
+        assertEquals(1, axisSizes.getIndexAt(DEFAULT_SIZE));
+        assertEquals(999999, axisSizes.getIndexAt(DEFAULT_SIZE * 999999 + 1));
+    }
+
+    @Test
+    public void resizedCell_holdsEveryOffsetOfItsSpan() throws Exception {
+        AxisSizes axisSizes = new AxisSizes(DEFAULT_SIZE);
+        axisSizes.setSize(5, 100);
+        axisSizes.setSize(0, 1);
+        int[] sizes = defaultSizes(10);
+        sizes[5] = 100;
+        sizes[0] = 1;
+        assertMatches(axisSizes, sizes);
+        int offset = axisSizes.getOffset(5);
+        assertEquals(1 + 4 * DEFAULT_SIZE, offset);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(5, axisSizes.getIndexAt(offset + i));
+        }
+        assertEquals(6, axisSizes.getIndexAt(offset + 100));
+        //Smaller than a pixel is one pixel.
+        axisSizes.setSize(7, 0);
+        assertEquals(1, axisSizes.getSize(7));
+    }
+
+    @Test
+    public void setSize_growsTheTreePastItsLength() throws Exception {
+        AxisSizes axisSizes = new AxisSizes(DEFAULT_SIZE);
+        int[] sizes = defaultSizes(INDEX_COUNT);
+        //Each index past the tree's length rebuilds it, the ones inside it only update it.
+        for (int index : new int[]{3, 63, 64, 200, 1023, 1024, INDEX_COUNT - 1, 10, 64}) {
+            int size = index % 2 == 0 ? DEFAULT_SIZE * 3 : 7;
+            axisSizes.setSize(index, size);
+            sizes[index] = size;
+            assertMatches(axisSizes, sizes);
+        }
+    }
+
+    @Test
+    public void randomSizes_matchAPrefixSum() throws Exception {
+        Random random = new Random(25);
+        AxisSizes axisSizes = new AxisSizes(DEFAULT_SIZE);
+        int[] sizes = defaultSizes(INDEX_COUNT);
+        for (int round = 0; round < 500; round++) {
+            int index = random.nextInt(INDEX_COUNT);
+            //A third of the edits put a size back to the default.
+            int size = random.nextInt(3) == 0 ? DEFAULT_SIZE : 1 + random.nextInt(DEFAULT_SIZE * 4);
+            axisSizes.setSize(index, size);
+            sizes[index] = size;
+            if (round % 50 == 0) {
+                assertMatches(axisSizes, sizes);
+            }
+        }
+        assertMatches(axisSizes, sizes);
+
+        axisSizes.clear();
+        assertTrue(axisSizes.isEmpty());
+        assertMatches(axisSizes, defaultSizes(INDEX_COUNT));
+    }
+
+    private static int[] defaultSizes(int count) {
+        int[] sizes = new int[count];
+        Arrays.fill(sizes, DEFAULT_SIZE);
+        return sizes;
+    }
+
+    /**
+     * Every index of the sizes, then a few default sized indices after them.
+     */
+    private static void assertMatches(AxisSizes axisSizes, int[] sizes) {
+        int offset = 0;
+        for (int index = 0; index < sizes.length; index++) {
+            assertEquals("size of " + index, sizes[index], axisSizes.getSize(index));
+            assertEquals("offset of " + index, offset, axisSizes.getOffset(index));
+            assertEquals("index at " + offset, index, axisSizes.getIndexAt(offset));
+            assertEquals("index at " + (offset + sizes[index] - 1), index, axisSizes.getIndexAt(offset + sizes[index] - 1));
+            offset += sizes[index];
+        }
+        assertEquals(offset, axisSizes.getTotalSize(sizes.length));
+        for (int index = sizes.length; index < sizes.length + 3; index++) {
+            assertEquals("offset of " + index, offset, axisSizes.getOffset(index));
+            assertEquals("index at " + offset, index, axisSizes.getIndexAt(offset));
+            assertEquals(index, axisSizes.getIndexAt(offset + DEFAULT_SIZE - 1));
+            offset += DEFAULT_SIZE;
+        }
+    }
+}
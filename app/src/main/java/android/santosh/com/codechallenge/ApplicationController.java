@@ -1,63 +1,140 @@
 package android.santosh.com.codechallenge;
 
+import android.os.Build;
 import android.os.Handler;
+import android.os.SystemClock;
+import android.santosh.com.codechallenge.filter.ColumnFilter;
+import android.santosh.com.codechallenge.filter.RowFilter;
+import android.santosh.com.codechallenge.formula.FormulaEngine;
 import android.santosh.com.codechallenge.interfaces.ExcelSheetListener;
+import android.santosh.com.codechallenge.interfaces.ExcelSheetLoadListener;
 import android.santosh.com.codechallenge.model.ColumnTitle;
+import android.santosh.com.codechallenge.model.ColumnTitleList;
+import android.santosh.com.codechallenge.model.EditHistory;
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
 import android.santosh.com.codechallenge.model.HeaderTitle;
-import android.santosh.com.codechallenge.model.TableData;
+import android.santosh.com.codechallenge.model.HeaderTitleList;
+import android.santosh.com.codechallenge.model.RowOrder;
+import android.santosh.com.codechallenge.model.Selection;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+import android.santosh.com.codechallenge.search.SearchIndexer;
+import android.santosh.com.codechallenge.search.SearchQuery;
+import android.santosh.com.codechallenge.sort.RowSorter;
+import android.santosh.com.codechallenge.storage.ExcelSheetFile;
+import android.santosh.com.codechallenge.storage.ExcelSheetJsonCodec;
+import android.santosh.com.codechallenge.storage.ExcelSheetStorage;
 import android.text.TextUtils;
 import android.util.Log;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
-
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 /**
  * Created by Santosh on 8/13/17.
+ * <p>
+ * Sheet mutations run on the single thread executor. Each one builds a new {@link ExcelSheetSnapshot}
+ * and publishes it through a volatile field, so the UI and background jobs read a consistent version
+ * without locking.
  */
 
 public class ApplicationController {
     private static String TAG = ApplicationController.class.getSimpleName();
-    private String alphabets = "abcdefghijklmnopqrstuvwxyz";
-    private static int ROW_SIZE = 8;
-    private static int COLUMN_SIZE = 8;
-    private int currentlySelectedRowIndex = 0;
-    private int currentlySelectedColumnIndex = 0;
+    public static final int ROW_SIZE = 1000000;
+    public static final int COLUMN_SIZE = 16384;
+    public static final long DEFAULT_CELL_DATA_FLUSH_WINDOW = 16;
+    //A legacy sheet is shown once its parse gets past this many rows or cells, the rest streams in after.
+    private static final int FIRST_PAINT_ROW_COUNT = 64;
+    private static final int FIRST_PAINT_CELL_COUNT = 2048;
+    //Leaves a core for the UI thread, formula levels and sorts rarely scale past a handful of threads anyway.
+    private static final int MAX_PARALLELISM = 4;
+    //Cells replaced per executor task, edits and other tasks run between two chunks.
+    private static final int REPLACE_CHUNK_SIZE = 1024;
 
     private Handler uiHandler;
     private SharedPreferencesWrapper sharedPreferencesWrapper;
-    private Gson gson;
+    private ExcelSheetStorage excelSheetStorage;
+    private ExcelSheetJsonCodec excelSheetJsonCodec;
     private ExecutorService executorService;
-    private List<List<TableData.CellData>> tableDataList;
+    private volatile ExcelSheetSnapshot excelSheetSnapshot;
+    //Owned by the executor like the snapshot, never saved with the sheet.
+    private volatile Selection selection = Selection.NONE;
+    private EditHistory editHistory = new EditHistory();
+    private FormulaEngine formulaEngine;
+    private RowSorter rowSorter;
+    private RowFilter rowFilter = new RowFilter();
+    private SearchIndexer searchIndexer;
+    //Repeated by findNext(), set from the UI thread.
+    private volatile SearchQuery searchQuery;
+    //Owned by the executor, volatile so the UI can cancel it.
+    private volatile ReplaceJob replaceJob;
+    //Owned by the executor like the selection, a view of the cells that never moves them.
+    private volatile RowOrder rowOrder = RowOrder.IDENTITY;
     private List<HeaderTitle> headerTitleList;
     private List<ColumnTitle> columnTitleList;
     private List<ExcelSheetListener> excelSheetListeners = Collections.synchronizedList(new ArrayList<ExcelSheetListener>());
+    private ExcelSheetLoadListener excelSheetLoadListener;
+    private boolean firstCellsPublished;
+    private final Object pendingCellDataLock = new Object();
+    private SparseCellStore<String> pendingCellData = new SparseCellStore<>();
+    private boolean cellDataFlushScheduled;
+    private long cellDataFlushWindow = DEFAULT_CELL_DATA_FLUSH_WINDOW;
+    private Runnable flushCellDataRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushPendingCellData();
+        }
+    };
 
-    public ApplicationController(Handler uiHandler, SharedPreferencesWrapper sharedPreferencesWrapper) {
+    public ApplicationController(Handler uiHandler, SharedPreferencesWrapper sharedPreferencesWrapper, ExcelSheetStorage excelSheetStorage) {
         this.executorService = Executors.newSingleThreadExecutor();
         this.uiHandler = uiHandler;
-        this.gson = new GsonBuilder().create();
+        this.excelSheetJsonCodec = new ExcelSheetJsonCodec();
         this.sharedPreferencesWrapper = sharedPreferencesWrapper;
+        this.excelSheetStorage = excelSheetStorage;
+        this.formulaEngine = new FormulaEngine(ROW_SIZE, COLUMN_SIZE, getParallelism());
+        this.rowSorter = new RowSorter(getParallelism());
+        this.searchIndexer = new SearchIndexer(executorService);
+    }
+
+    private static int getParallelism() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return 1;
+        }
+        return Math.max(1, Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors() - 1));
     }
 
     public void fetchExcelSheetData() {
+        final long loadStartTime = SystemClock.elapsedRealtime();
         if (executorService != null && !executorService.isShutdown()) {
             executorService.execute(new Runnable() {
                 @Override
                 public void run() {
-                    if (tableDataList == null || tableDataList.size() < 0) {
+                    if (excelSheetSnapshot == null) {
                         generateHeaderData();
                         generateColumnData();
-                        loadExcelSheetData();
+                        loadExcelSheetData(loadStartTime);
+                    } else {
+                        notifyExcelSheetLoaded(loadStartTime);
+                        notifyExcelSheetFullyLoaded(loadStartTime);
+                        ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_SELECTION);
+                        addSelectionToChange(selection, excelSheetChange);
+                        notifyExcelSheetSelectionChanged(excelSheetChange);
+                        if (!rowOrder.isIdentity()) {
+                            notifyExcelSheetRowOrderChanged();
+                        }
                     }
-                    notifyExcelSheetLoaded();
                 }
             });
         }
@@ -65,15 +142,48 @@ public class ApplicationController {
     }
 
     public void saveExcelSheetData(){
+        flushPendingCellData();
         if(executorService!=null && !executorService.isShutdown()){
             executorService.execute(new Runnable() {
                 @Override
                 public void run() {
-                    if(tableDataList!=null && tableDataList.size()>0){
-                        clearSelected();
-                        String excelDataString = gson.toJson(tableDataList,tableDataList.getClass());
-                        sharedPreferencesWrapper.saveExcelSheetDataAsString(excelDataString);
-                        notifyExcelSheetCellDataRefresh();
+                    if(excelSheetSnapshot!=null){
+                        //Selection is not part of the saved data, so it is left as it is.
+                        try {
+                            if (excelSheetStorage.commit()) {
+                                excelSheetStorage.compact(excelSheetSnapshot);
+                            }
+                        } catch (IOException e) {
+                            Log.e(TAG, "unable to save excel sheet", e);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Streams the sheet to the file as JSON, in the format read back from the "table_data" preference.
+     */
+    public void exportExcelSheetData(final File file) {
+        flushPendingCellData();
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ExcelSheetSnapshot exportedSnapshot = excelSheetSnapshot;
+                    if (exportedSnapshot == null) {
+                        return;
+                    }
+                    try {
+                        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+                        try {
+                            excelSheetJsonCodec.write(writer, exportedSnapshot);
+                        } finally {
+                            writer.close();
+                        }
+                    } catch (IOException e) {
+                        Log.e(TAG, "unable to export excel sheet to " + file, e);
                     }
                 }
             });
@@ -81,131 +191,808 @@ public class ApplicationController {
     }
 
     public void clearExcelSheet(){
+        flushPendingCellData();
         if(executorService!=null && !executorService.isShutdown()){
             executorService.execute(new Runnable() {
                 @Override
                 public void run() {
-                    if(tableDataList!=null && tableDataList.size()>0){
-                        for(List<TableData.CellData> rowData : tableDataList){
-                            for(TableData.CellData cellData : rowData){
-                                cellData.setData(null);
-                                cellData.setSelected(false);
-                            }
-                        }
+                    finishReplaceJob();
+                    if(excelSheetSnapshot!=null){
+                        editHistory.record(new EditHistory.ClearEntry(excelSheetSnapshot));
+                    }
+                    clearSheet(ExcelSheetChange.PAYLOAD_CELL_DATA);
+                }
+            });
+        }
+    }
+
+    private void clearSheet(String payload) {
+        if(excelSheetSnapshot!=null){
+            //O(1): the snapshot starts a new generation and the journal gets one clear record.
+            excelSheetSnapshot = excelSheetSnapshot.cleared();
+            formulaEngine.clear();
+            try {
+                excelSheetStorage.appendClear();
+            } catch (IOException e) {
+                Log.e(TAG, "unable to append to excel sheet journal", e);
+            }
+        }
+        ExcelSheetChange selectionChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_SELECTION);
+        clearSelected(selectionChange);
+        notifyExcelSheetSelectionChanged(selectionChange);
+        rowFilter.clear();
+        setRowOrder(RowOrder.IDENTITY);
+        notifyExcelSheetCellDataChanged(new ExcelSheetChange(payload).addRows(0, ROW_SIZE - 1));
+    }
+
+    public void undo() {
+        flushPendingCellData();
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    finishReplaceJob();
+                    EditHistory.Entry entry = editHistory.undo();
+                    if (excelSheetSnapshot != null && entry != null) {
+                        applyHistoryEntry(entry, true);
+                    }
+                }
+            });
+        }
+    }
+
+    public void redo() {
+        flushPendingCellData();
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    finishReplaceJob();
+                    EditHistory.Entry entry = editHistory.redo();
+                    if (excelSheetSnapshot != null && entry != null) {
+                        applyHistoryEntry(entry, false);
+                    }
+                }
+            });
+        }
+    }
+
+    public void setUndoMemoryLimit(final long undoMemoryLimit) {
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    editHistory.setMemoryLimit(undoMemoryLimit);
+                }
+            });
+        }
+    }
+
+    /**
+     * Lets formulas aggregate ranges of the column in O(log n) at the cost of memory proportional to
+     * the column's last used row. Kept across loads and clears.
+     */
+    public void setColumnAggregateIndexed(final int column, final boolean indexed) {
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    formulaEngine.setColumnIndexed(excelSheetSnapshot, column, indexed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Shows the rows ordered by the columns, the first column deciding first. The cells are not
+     * moved, edits keep the order up to date until {@link #clearSort()}.
+     */
+    public void sortByColumns(final int[] sortColumns, final boolean[] ascending) {
+        flushPendingCellData();
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (excelSheetSnapshot != null) {
+                        setRowOrder(rowSorter.sort(excelSheetSnapshot, sortColumns, ascending)
+                                .withVisibleRows(rowFilter.getVisibleRows()));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Sorts by the column of the selected cell, does nothing without a selection.
+     */
+    public void sortBySelectedColumn(final boolean ascending) {
+        flushPendingCellData();
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (excelSheetSnapshot != null && !selection.isEmpty()) {
+                        setRowOrder(rowSorter.sort(excelSheetSnapshot, new int[]{selection.getFirstColumn()}, new boolean[]{ascending})
+                                .withVisibleRows(rowFilter.getVisibleRows()));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Shows the rows in their own order again. O(1), the cells never moved. Filters stay applied.
+     */
+    public void clearSort() {
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    setRowOrder(RowOrder.IDENTITY.withVisibleRows(rowFilter.getVisibleRows()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Hides the rows that do not meet the filter, on top of the filters already applied. The filter
+     * is tested on the executor against the rows with a value in its column, edits keep the visible
+     * rows up to date until {@link #clearFilters()}.
+     */
+    public void addColumnFilter(final ColumnFilter columnFilter) {
+        flushPendingCellData();
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (excelSheetSnapshot != null) {
+                        setRowOrder(rowOrder.withVisibleRows(rowFilter.addColumnFilter(excelSheetSnapshot, columnFilter)));
                     }
-                    currentlySelectedRowIndex = 0;
-                    currentlySelectedColumnIndex = 0;
-                    notifyExcelSheetCellDataRefresh();
                 }
             });
         }
     }
 
-    private synchronized void clearSelected(){
-        if(tableDataList!=null && tableDataList.size()>0){
-            for(List<TableData.CellData> rowData : tableDataList){
-                for(TableData.CellData cellData : rowData){
-                    if(cellData.isSelected()){
-                        cellData.setSelected(false);
+    /**
+     * Filters by the column of the selected cell, does nothing without a selection.
+     *
+     * @param condition as read by {@link ColumnFilter#parse(int, String)}.
+     * @return false when the condition can not be read.
+     */
+    public boolean filterBySelectedColumn(final String condition) {
+        if (ColumnFilter.parse(0, condition) == null) {
+            return false;
+        }
+        flushPendingCellData();
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (excelSheetSnapshot != null && !selection.isEmpty()) {
+                        ColumnFilter columnFilter = ColumnFilter.parse(selection.getFirstColumn(), condition);
+                        setRowOrder(rowOrder.withVisibleRows(rowFilter.addColumnFilter(excelSheetSnapshot, columnFilter)));
                     }
                 }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Shows every row again, keeping the sort. No cell is tested.
+     */
+    public void clearFilters() {
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    rowFilter.clear();
+                    setRowOrder(rowOrder.withVisibleRows(null));
+                }
+            });
+        }
+    }
+
+    private void setRowOrder(RowOrder newRowOrder) {
+        if (newRowOrder != rowOrder) {
+            rowOrder = newRowOrder;
+            notifyExcelSheetRowOrderChanged();
+        }
+    }
+
+    /**
+     * Costs O(cells the entry changed) and refreshes only those cells. Undoing a clear costs one
+     * journal record and refreshes the whole sheet, which is indexed for search again once.
+     */
+    private void applyHistoryEntry(EditHistory.Entry entry, boolean undo) {
+        if (entry instanceof EditHistory.ClearEntry && !undo) {
+            clearSheet(ExcelSheetChange.PAYLOAD_HISTORY);
+            return;
+        }
+        ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_HISTORY);
+        if (entry instanceof EditHistory.CellChangeEntry) {
+            EditHistory.CellChangeEntry cellChangeEntry = (EditHistory.CellChangeEntry) entry;
+            ExcelSheetSnapshot historySnapshot = excelSheetSnapshot;
+            for (int i = 0; i < cellChangeEntry.getCellCount(); i++) {
+                int row = cellChangeEntry.getRow(i);
+                int column = cellChangeEntry.getColumn(i);
+                String data = undo ? cellChangeEntry.getOldData(i) : cellChangeEntry.getNewData(i);
+                historySnapshot = historySnapshot.withData(row, column, data);
+                appendToJournal(row, column, data);
+                excelSheetChange.addCell(row, column);
+            }
+            excelSheetSnapshot = formulaEngine.onCellsChanged(historySnapshot, excelSheetChange);
+            if (entry instanceof EditHistory.BulkEditEntry) {
+                //Search re-indexes only the replaced cells, as each chunk of the replace did. Sorting,
+                //filtering and the listeners take the rows as a whole rather than cell by cell.
+                searchIndexer.update(excelSheetSnapshot, excelSheetChange);
+                ExcelSheetChange rowRangeChange = toRowRangeChange(excelSheetChange);
+                updateRowOrder(rowRangeChange);
+                postExcelSheetCellDataChanged(rowRangeChange);
+                return;
             }
+        } else if (entry instanceof EditHistory.ClearEntry) {
+            ExcelSheetSnapshot clearedSnapshot = ((EditHistory.ClearEntry) entry).getClearedSnapshot();
+            //The restored cells keep their computed values, their formulas are registered afterwards.
+            excelSheetSnapshot = excelSheetSnapshot.restored(clearedSnapshot);
+            formulaEngine.clear();
+            queueFormulaRebuild(null);
+            try {
+                //A saved clear was compacted together with the cells it hid, so the restored sheet is
+                //written as the next sheet file in the background instead.
+                if (!excelSheetStorage.appendRestore()) {
+                    excelSheetStorage.compact(excelSheetSnapshot);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "unable to append to excel sheet journal", e);
+            }
+            excelSheetChange.addRows(0, ROW_SIZE - 1);
+        }
+        notifyExcelSheetCellDataChanged(excelSheetChange);
+    }
+
+    private void clearSelected(ExcelSheetChange excelSheetChange){
+        addSelectionToChange(selection, excelSheetChange);
+        selection = Selection.NONE;
+    }
+
+    private void addSelectionToChange(Selection selection, ExcelSheetChange excelSheetChange) {
+        if (selection.isSingleCell()) {
+            excelSheetChange.addCell(selection.getFirstRow(), selection.getFirstColumn());
+        } else if (!selection.isEmpty()) {
+            excelSheetChange.addRows(selection.getFirstRow(), selection.getLastRow());
         }
-        currentlySelectedRowIndex = 0;
-        currentlySelectedColumnIndex = 0;
     }
 
     public synchronized void reloadExcelSheet(){
+        final long loadStartTime = SystemClock.elapsedRealtime();
+        flushPendingCellData();
         if(executorService!=null && !executorService.isShutdown()){
             executorService.execute(new Runnable() {
                 @Override
                 public void run() {
                     generateHeaderData();
                     generateColumnData();
-                    loadExcelSheetData();
-                    notifyExcelSheetLoaded();
+                    loadExcelSheetData(loadStartTime);
                 }
             });
         }
     }
 
     public void updateCellSelectedStatus(final int row, final int column) {
+        //The last keys typed in the previous cell belong to its undo entry, not a new one.
+        flushPendingCellData();
         if (executorService != null && !executorService.isShutdown()) {
             executorService.execute(new Runnable() {
                 @Override
                 public void run() {
-                    if (tableDataList != null && tableDataList.size() > 0) {
-                        //Un-select previously selected Cell Data
-                        tableDataList.get(currentlySelectedRowIndex).get(currentlySelectedColumnIndex).setSelected(false);
-                        //Set select for Cell Data with the new row and column value.
-                        tableDataList.get(row).get(column).setSelected(true);
-                        currentlySelectedRowIndex = row;
-                        currentlySelectedColumnIndex = column;
-                        notifyExcelSheetCellDataRefresh();
+                    if (excelSheetSnapshot != null) {
+                        selectCell(row, column);
                     }
                 }
             });
         }
     }
 
-    public void updateCellData(final String data, final int row, final int column) {
+    private void selectCell(int row, int column) {
+        ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_SELECTION);
+        //Typing in another cell starts a new undo entry.
+        editHistory.seal();
+        //Un-select previously selected Cell Data
+        clearSelected(excelSheetChange);
+        //Select the cell with the new row and column value.
+        selection = Selection.cell(row, column);
+        addSelectionToChange(selection, excelSheetChange);
+        notifyExcelSheetSelectionChanged(excelSheetChange);
+    }
+
+    /**
+     * Selects the first cell after the selected one, in row-major order, whose shown value contains
+     * the text, or starts with it for a prefix search. Wraps around past the last cell and skips
+     * filtered rows. Listeners hear about the cell found, or a row of -1 when there is none.
+     */
+    public void find(String text, boolean prefix) {
+        searchQuery = new SearchQuery(text, prefix);
+        findNext();
+    }
+
+    /**
+     * Repeats the last {@link #find(String, boolean)} from the selected cell.
+     */
+    public void findNext() {
+        final SearchQuery query = searchQuery;
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        flushPendingCellData();
         if (executorService != null && !executorService.isShutdown()) {
             executorService.execute(new Runnable() {
                 @Override
                 public void run() {
-                    if (tableDataList != null && tableDataList.size() > 0) {
-                        tableDataList.get(row).get(column).setData(data);
-                        currentlySelectedRowIndex = row;
-                        notifyExcelSheetCellDataRefresh();
+                    if (excelSheetSnapshot == null) {
+                        return;
+                    }
+                    final long startKey = selection.isEmpty() ? 0
+                            : SparseCellStore.key(selection.getFirstRow(), selection.getFirstColumn()) + 1;
+                    final long[] foundKey = {-1};
+                    SearchIndexer.MatchVisitor matchVisitor = new SearchIndexer.MatchVisitor() {
+                        @Override
+                        public boolean onMatch(int row, int column) {
+                            if (rowOrder.getViewRow(row) < 0) {
+                                return true;
+                            }
+                            foundKey[0] = SparseCellStore.key(row, column);
+                            return false;
+                        }
+                    };
+                    searchIndexer.forEachMatch(query, excelSheetSnapshot, startKey, matchVisitor);
+                    if (foundKey[0] < 0 && startKey > 0) {
+                        searchIndexer.forEachMatch(query, excelSheetSnapshot, 0, matchVisitor);
+                    }
+                    if (foundKey[0] >= 0) {
+                        selectCell(SparseCellStore.row(foundKey[0]), SparseCellStore.column(foundKey[0]));
+                        notifyExcelSheetCellFound(query, SparseCellStore.row(foundKey[0]), SparseCellStore.column(foundKey[0]));
+                    } else {
+                        notifyExcelSheetCellFound(query, -1, -1);
                     }
                 }
             });
         }
     }
 
-    private void generateHeaderData() {
-        headerTitleList = new LinkedList<>();
-        for (int i = 0; i < COLUMN_SIZE; i++) {
-            HeaderTitle headerTitle = new HeaderTitle();
-            headerTitle.setTitle(Character.toString(Character.toUpperCase(alphabets.charAt(i))));
-            headerTitleList.add(headerTitle);
+    /**
+     * Bounds the search index, a bigger index is dropped and searches scan the cells. Applies from
+     * the next load.
+     */
+    public void setSearchIndexMemoryLimit(long searchIndexMemoryLimit) {
+        searchIndexer.setMemoryLimit(searchIndexMemoryLimit);
+    }
+
+    /**
+     * @return the estimated size of the search index, 0 while it is built or once it was dropped.
+     */
+    public long getSearchIndexMemoryBytes() {
+        return searchIndexer.getMemoryBytes();
+    }
+
+    /**
+     * Replaces the text, ignoring case, in the data of every cell holding it. Formulas are left as
+     * they are. Runs on the executor one chunk of cells per task, so edits go on meanwhile, and each
+     * chunk refreshes the rows it touched in one change. Sorting and filters catch up once it is
+     * done. The whole replace is undone in one step, the undo memory limit permitting. Listeners
+     * hear the progress after every chunk.
+     */
+    public void replaceAll(String text, final String replacement) {
+        final SearchQuery query = new SearchQuery(text, false);
+        if (query.isEmpty()) {
+            return;
+        }
+        flushPendingCellData();
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (excelSheetSnapshot == null) {
+                        return;
+                    }
+                    finishReplaceJob();
+                    final ReplaceJob job = new ReplaceJob(query, replacement == null ? "" : replacement);
+                    //Matching cells are listed once, the chunks then walk the list in row-major order.
+                    searchIndexer.forEachMatch(query, excelSheetSnapshot, 0, new SearchIndexer.MatchVisitor() {
+                        @Override
+                        public boolean onMatch(int row, int column) {
+                            job.addCell(SparseCellStore.key(row, column));
+                            return true;
+                        }
+                    });
+                    replaceJob = job;
+                    replaceChunk(job);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops the running replace after its current chunk. What was replaced stays, and can be undone.
+     */
+    public void cancelReplaceAll() {
+        ReplaceJob job = replaceJob;
+        if (job != null) {
+            job.cancelled = true;
+        }
+    }
+
+    private void replaceChunk(final ReplaceJob job) {
+        if (job != replaceJob) {
+            return;
+        }
+        if (job.cancelled || job.position >= job.cellCount) {
+            finishReplace(job);
+            return;
+        }
+        int end = Math.min(job.position + REPLACE_CHUNK_SIZE, job.cellCount);
+        ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_REPLACE);
+        ExcelSheetSnapshot oldSnapshot = excelSheetSnapshot;
+        ExcelSheetSnapshot chunkSnapshot = oldSnapshot;
+        long[] chunkCells = new long[end - job.position];
+        int chunkCellCount = 0;
+        for (int i = job.position; i < end; i++) {
+            int row = SparseCellStore.row(job.cells[i]);
+            int column = SparseCellStore.column(job.cells[i]);
+            //Read again, the cell may have been edited since it was listed.
+            String data = chunkSnapshot.getData(row, column);
+            if (data == null || FormulaEngine.isFormula(data)) {
+                continue;
+            }
+            String newData = job.query.replaceIn(data, job.replacement);
+            if (newData.equals(data)) {
+                continue;
+            }
+            newData = newData.length() == 0 ? null : newData;
+            chunkSnapshot = chunkSnapshot.withData(row, column, newData);
+            appendToJournal(row, column, newData);
+            excelSheetChange.addCell(row, column);
+            chunkCells[chunkCellCount++] = job.cells[i];
+        }
+        job.position = end;
+        if (chunkCellCount > 0) {
+            excelSheetSnapshot = formulaEngine.onCellsChanged(chunkSnapshot, excelSheetChange);
+            job.bulkEditEntry.addChunk(chunkCells, chunkCellCount, oldSnapshot, excelSheetSnapshot);
+            job.firstRow = Math.min(job.firstRow, SparseCellStore.row(chunkCells[0]));
+            job.lastRow = Math.max(job.lastRow, SparseCellStore.row(chunkCells[chunkCellCount - 1]));
+            searchIndexer.update(excelSheetSnapshot, excelSheetChange);
+            postExcelSheetCellDataChanged(toRowRangeChange(excelSheetChange));
+        }
+        notifyExcelSheetReplaceProgress(job.bulkEditEntry.getCellCount(), job.position, job.cellCount, false);
+        executorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                replaceChunk(job);
+            }
+        });
+    }
+
+    /**
+     * Stops the running replace and records what it replaced, so undo sees it before anything older.
+     */
+    private void finishReplaceJob() {
+        if (replaceJob != null) {
+            finishReplace(replaceJob);
+        }
+    }
+
+    /**
+     * Drops the running replace without recording it, the sheet it worked on is going away.
+     */
+    private void cancelReplaceJob() {
+        ReplaceJob job = replaceJob;
+        if (job != null) {
+            replaceJob = null;
+            notifyExcelSheetReplaceProgress(job.bulkEditEntry.getCellCount(), job.position, job.cellCount, true);
+        }
+    }
+
+    private void finishReplace(ReplaceJob job) {
+        replaceJob = null;
+        if (job.bulkEditEntry.getCellCount() > 0) {
+            editHistory.record(job.bulkEditEntry);
+            //The chunks only refreshed their rows, rows that moved or got hidden are caught up here.
+            updateRowOrder(new ExcelSheetChange(ExcelSheetChange.PAYLOAD_REPLACE).addRows(job.firstRow, job.lastRow));
+        }
+        notifyExcelSheetReplaceProgress(job.bulkEditEntry.getCellCount(), job.position, job.cellCount, true);
+    }
+
+    /**
+     * @return a change of the rows spanning every cell of the change, refreshed with one range
+     * notification per column instead of one per cell.
+     */
+    private static ExcelSheetChange toRowRangeChange(ExcelSheetChange excelSheetChange) {
+        ExcelSheetChange rowRangeChange = new ExcelSheetChange(excelSheetChange.getPayload());
+        for (int i = 0; i < excelSheetChange.getCellCount(); i++) {
+            rowRangeChange.addRows(excelSheetChange.getCellRow(i), excelSheetChange.getCellRow(i));
+        }
+        if (excelSheetChange.hasRows()) {
+            rowRangeChange.addRows(excelSheetChange.getFirstRow(), excelSheetChange.getLastRow());
+        }
+        if (excelSheetChange.hasColumns()) {
+            rowRangeChange.addColumns(excelSheetChange.getFirstColumn(), excelSheetChange.getLastColumn());
+        }
+        return rowRangeChange;
+    }
+
+    private static class ReplaceJob {
+        private final SearchQuery query;
+        private final String replacement;
+        private final EditHistory.BulkEditEntry bulkEditEntry = new EditHistory.BulkEditEntry();
+        private long[] cells = new long[16];
+        private int cellCount;
+        private int position;
+        private int firstRow = Integer.MAX_VALUE;
+        private int lastRow = -1;
+        private volatile boolean cancelled;
+
+        ReplaceJob(SearchQuery query, String replacement) {
+            this.query = query;
+            this.replacement = replacement;
+        }
+
+        void addCell(long key) {
+            if (cellCount == cells.length) {
+                cells = Arrays.copyOf(cells, cellCount << 1);
+            }
+            cells[cellCount++] = key;
+        }
+    }
+
+    /**
+     * Edits are queued and applied together once per flush window. A newer value for the same cell
+     * replaces the queued one, so fast typing costs one executor task and one refresh per window.
+     */
+    public void updateCellData(String data, int row, int column) {
+        synchronized (pendingCellDataLock) {
+            //Empty string marks a cleared cell, the pending store drops null values.
+            pendingCellData.put(row, column, data == null ? "" : data);
+            if (!cellDataFlushScheduled) {
+                cellDataFlushScheduled = true;
+                uiHandler.postDelayed(flushCellDataRunnable, cellDataFlushWindow);
+            }
         }
     }
 
+    public void setCellDataFlushWindow(long cellDataFlushWindow) {
+        this.cellDataFlushWindow = cellDataFlushWindow;
+    }
+
+    /**
+     * Hands the queued edits to the executor. Called when the flush window ends and before any
+     * operation that has to see every edit made so far.
+     */
+    private void flushPendingCellData() {
+        synchronized (pendingCellDataLock) {
+            if (cellDataFlushScheduled) {
+                uiHandler.removeCallbacks(flushCellDataRunnable);
+                cellDataFlushScheduled = false;
+            }
+            if (pendingCellData.isEmpty() || executorService == null || executorService.isShutdown()) {
+                return;
+            }
+            final SparseCellStore<String> cellDataBatch = pendingCellData;
+            pendingCellData = new SparseCellStore<>();
+            //Queued while holding the lock so batches reach the executor in flush order.
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (excelSheetSnapshot != null) {
+                        final ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA);
+                        final EditHistory.CellEditEntry cellEditEntry = new EditHistory.CellEditEntry();
+                        final ExcelSheetSnapshot[] batchSnapshot = {excelSheetSnapshot};
+                        cellDataBatch.forEach(new SparseCellStore.CellVisitor<String>() {
+                            @Override
+                            public void onVisitCell(int row, int column, String value) {
+                                String data = TextUtils.isEmpty(value) ? null : value;
+                                String oldData = batchSnapshot[0].getData(row, column);
+                                if (!TextUtils.equals(oldData, data)) {
+                                    cellEditEntry.addCell(row, column, oldData, data);
+                                }
+                                batchSnapshot[0] = batchSnapshot[0].withData(row, column, data);
+                                appendToJournal(row, column, data);
+                                excelSheetChange.addCell(row, column);
+                            }
+                        });
+                        //The whole batch, with the formulas it affects recalculated, becomes visible as one version.
+                        excelSheetSnapshot = formulaEngine.onCellsChanged(batchSnapshot[0], excelSheetChange);
+                        if (cellEditEntry.getCellCount() > 0) {
+                            editHistory.record(cellEditEntry);
+                        }
+                        notifyExcelSheetCellDataChanged(excelSheetChange);
+                    }
+                }
+            });
+        }
+    }
+
+    private void generateHeaderData() {
+        headerTitleList = new HeaderTitleList(COLUMN_SIZE);
+    }
+
     private void generateColumnData() {
-        columnTitleList = new LinkedList<>();
-        for (int i = 0; i < ROW_SIZE; i++) {
-            ColumnTitle columnTitle = new ColumnTitle();
-            columnTitle.setTitle(Integer.toString(i));
-            columnTitleList.add(columnTitle);
+        columnTitleList = new ColumnTitleList(ROW_SIZE);
+    }
+
+    /**
+     * Loads the sheet and publishes it. The cells are handed to the listeners as soon as the first
+     * screen of them is known, and once more with a full refresh if more were loaded after that.
+     * Runs as a single executor task, so edits made while the rest streams in are applied after it.
+     * Formula results follow as a change of their own, see {@link #queueFormulaRebuild(Runnable)}.
+     */
+    private void loadExcelSheetData(final long loadStartTime) {
+        firstCellsPublished = false;
+        selection = Selection.NONE;
+        rowOrder = RowOrder.IDENTITY;
+        rowFilter.clear();
+        cancelReplaceJob();
+        editHistory.clear();
+        ExcelSheetSnapshot loadedSnapshot;
+        if (excelSheetStorage.hasData()) {
+            //Replayed records are collected first, a clear record also hides the saved file.
+            final SparseCellStore<String> replayedCellData = new SparseCellStore<>();
+            final boolean[] cleared = {false};
+            ExcelSheetFile excelSheetFile = null;
+            try {
+                excelSheetFile = excelSheetStorage.load(new ExcelSheetStorage.ReplayCallback() {
+                    @Override
+                    public void onCellDataReplayed(int row, int column, String data) {
+                        if (isInBounds(row, column)) {
+                            replayedCellData.put(row, column, data == null ? "" : data);
+                        }
+                    }
+
+                    @Override
+                    public void onSheetCleared() {
+                        replayedCellData.clear();
+                        cleared[0] = true;
+                    }
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "unable to load excel sheet journal", e);
+            }
+            //The saved file is mapped and the journal is bounded by the compaction threshold, so this is
+            //cheap enough to show in one go.
+            loadedSnapshot = applyLoadedCellData(ExcelSheetSnapshot.empty().withExcelSheetFile(cleared[0] ? null : excelSheetFile),
+                    replayedCellData);
+        } else {
+            loadedSnapshot = loadLegacyExcelSheetData(loadStartTime);
+        }
+        excelSheetSnapshot = loadedSnapshot;
+        //Formulas of the previous sheet must not be recalculated against this one.
+        formulaEngine.clear();
+        if (firstCellsPublished) {
+            //The full refresh also indexes the sheet for search.
+            notifyExcelSheetCellDataChanged(new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addRows(0, ROW_SIZE - 1));
+        } else {
+            searchIndexer.rebuild(excelSheetSnapshot);
+            notifyExcelSheetLoaded(loadStartTime);
         }
+        queueFormulaRebuild(new Runnable() {
+            @Override
+            public void run() {
+                notifyExcelSheetFullyLoaded(loadStartTime);
+            }
+        });
+    }
+
+    /**
+     * Registers the formulas of the published sheet and publishes their results as a change of
+     * their cells. Finding them reads every cell, so it runs as its own task after the sheet was
+     * shown instead of delaying the first paint; until then formula cells show their formula.
+     *
+     * @param onRebuilt run on the executor once the results are published, may be null.
+     */
+    private void queueFormulaRebuild(final Runnable onRebuilt) {
+        if (executorService != null && !executorService.isShutdown()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (excelSheetSnapshot != null) {
+                        ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA);
+                        excelSheetSnapshot = formulaEngine.rebuild(excelSheetSnapshot, excelSheetChange);
+                        notifyExcelSheetCellDataChanged(excelSheetChange);
+                    }
+                    if (onRebuilt != null) {
+                        onRebuilt.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private void publishFirstCells(ExcelSheetSnapshot firstSnapshot, long loadStartTime) {
+        excelSheetSnapshot = firstSnapshot;
+        firstCellsPublished = true;
+        notifyExcelSheetLoaded(loadStartTime);
     }
 
-    private void loadExcelSheetData() {
-        tableDataList = new LinkedList<>();
+    /**
+     * Sheets saved before the journal live in shared preferences as JSON. They are loaded once and
+     * written as the first journal snapshot.
+     */
+    private ExcelSheetSnapshot loadLegacyExcelSheetData(final long loadStartTime) {
         String excelDataAsString = sharedPreferencesWrapper.getExcelSheetDataAsString();
         if (TextUtils.isEmpty(excelDataAsString)) {
-            generateDefaultCellData();
-        } else {
-            tableDataList = gson.fromJson(excelDataAsString, new TypeToken<List<List<TableData.CellData>>>() {}.getType());
+            return ExcelSheetSnapshot.empty();
+        }
+        final SparseCellStore<String> legacyCellData = new SparseCellStore<>();
+        final ExcelSheetSnapshot[] legacySnapshot = {ExcelSheetSnapshot.empty()};
+        try {
+            excelSheetJsonCodec.read(new StringReader(excelDataAsString), new SparseCellStore.CellVisitor<String>() {
+                @Override
+                public void onVisitCell(int row, int column, String value) {
+                    //Legacy sheets are written row by row, so the top rows are complete once the parse is past them.
+                    if (!firstCellsPublished && (row >= FIRST_PAINT_ROW_COUNT || legacyCellData.size() >= FIRST_PAINT_CELL_COUNT)) {
+                        legacySnapshot[0] = applyLoadedCellData(legacySnapshot[0], legacyCellData);
+                        legacyCellData.clear();
+                        publishFirstCells(legacySnapshot[0], loadStartTime);
+                    }
+                    if (isInBounds(row, column)) {
+                        legacyCellData.put(row, column, value);
+                    }
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "unable to read excel sheet from shared preferences", e);
         }
+        legacySnapshot[0] = applyLoadedCellData(legacySnapshot[0], legacyCellData);
+        try {
+            excelSheetStorage.compact(legacySnapshot[0]);
+        } catch (IOException e) {
+            Log.e(TAG, "unable to migrate excel sheet to the journal", e);
+        }
+        return legacySnapshot[0];
     }
 
-    private void generateDefaultCellData() {
-        tableDataList = new LinkedList<>();
-        TableData tableData = new TableData();
-        for (int i = 0; i < ROW_SIZE; i++) {
-            List<TableData.CellData> cellDataList = new LinkedList<>();
-            tableDataList.add(cellDataList);
-            for (int j = 0; j < COLUMN_SIZE; j++) {
-                TableData.CellData cellData = tableData.new CellData();
-                cellData.setSelected(false);
-                cellData.setData(null);
-                cellDataList.add(cellData);
+    private ExcelSheetSnapshot applyLoadedCellData(ExcelSheetSnapshot loadedSnapshot, SparseCellStore<String> loadedCellData) {
+        final ExcelSheetSnapshot[] snapshot = {loadedSnapshot};
+        loadedCellData.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                snapshot[0] = snapshot[0].withData(row, column, value);
             }
+        });
+        return snapshot[0];
+    }
+
+    private boolean isInBounds(int row, int column) {
+        return row >= 0 && row < ROW_SIZE && column >= 0 && column < COLUMN_SIZE;
+    }
+
+    private void appendToJournal(int row, int column, String data) {
+        try {
+            excelSheetStorage.appendCellData(row, column, TextUtils.isEmpty(data) ? null : data);
+        } catch (IOException e) {
+            Log.e(TAG, "unable to append to excel sheet journal", e);
         }
     }
 
+    /**
+     * @return the latest published version of the sheet, or null before the sheet is loaded. The
+     * returned snapshot never changes, later edits publish a new one.
+     */
+    public ExcelSheetSnapshot getExcelSheetSnapshot() {
+        return excelSheetSnapshot;
+    }
+
+    public Selection getSelection() {
+        return selection;
+    }
+
+    public RowOrder getRowOrder() {
+        return rowOrder;
+    }
+
+    public void setExcelSheetLoadListener(ExcelSheetLoadListener excelSheetLoadListener) {
+        this.excelSheetLoadListener = excelSheetLoadListener;
+    }
+
     public void addExcelSheetListener(ExcelSheetListener excelSheetListener) {
         if (excelSheetListener != null && !excelSheetListeners.contains(excelSheetListener)) {
             excelSheetListeners.add(excelSheetListener);
@@ -218,30 +1005,130 @@ public class ApplicationController {
         }
     }
 
-    private void notifyExcelSheetLoaded() {
+    private void notifyExcelSheetLoaded(final long loadStartTime) {
+        final ExcelSheetSnapshot loadedSnapshot = excelSheetSnapshot;
         if (excelSheetListeners != null & excelSheetListeners.size() > 0) {
             for (final ExcelSheetListener excelSheetListener : excelSheetListeners) {
-                uiHandler.postDelayed(new Runnable() {
+                uiHandler.post(new Runnable() {
                     @Override
                     public void run() {
-                        Log.d(TAG, "headerTitleList.size(): " + headerTitleList.size() + ", columnTitleList.size(): " + columnTitleList.size() + ", tableDataList.size(): " + tableDataList.size());
-                        excelSheetListener.onExcelSheetLoaded(headerTitleList, columnTitleList, tableDataList);
+                        Log.d(TAG, "headerTitleList.size(): " + headerTitleList.size() + ", columnTitleList.size(): " + columnTitleList.size() + ", edited cells: " + loadedSnapshot.getEditedCellCount());
+                        excelSheetListener.onExcelSheetLoaded(headerTitleList, columnTitleList, loadedSnapshot);
                     }
-                }, 1000);
+                });
+            }
+        }
+        //Posted after the listeners, so it runs once the cells have been handed to the UI.
+        uiHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                long elapsedMillis = SystemClock.elapsedRealtime() - loadStartTime;
+                Log.i(TAG, "time to first cell: " + elapsedMillis + " ms");
+                if (excelSheetLoadListener != null) {
+                    excelSheetLoadListener.onExcelSheetFirstCellsShown(elapsedMillis);
+                }
+            }
+        });
+    }
+
+    private void notifyExcelSheetFullyLoaded(final long loadStartTime) {
+        uiHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                long elapsedMillis = SystemClock.elapsedRealtime() - loadStartTime;
+                Log.i(TAG, "time to fully loaded: " + elapsedMillis + " ms");
+                if (excelSheetLoadListener != null) {
+                    excelSheetLoadListener.onExcelSheetFullyLoaded(elapsedMillis);
+                }
             }
+        });
+    }
+
+    private void notifyExcelSheetCellDataChanged(final ExcelSheetChange excelSheetChange) {
+        if (excelSheetChange.isEmpty()) {
+            return;
         }
+        //Rows whose sort key changed move, and rows whose filtered cells changed are shown or hidden,
+        //before the listeners see the change.
+        updateRowOrder(excelSheetChange);
+        searchIndexer.update(excelSheetSnapshot, excelSheetChange);
+        postExcelSheetCellDataChanged(excelSheetChange);
     }
 
-    private void notifyExcelSheetCellDataRefresh() {
+    private void updateRowOrder(ExcelSheetChange excelSheetChange) {
+        setRowOrder(rowSorter.update(rowOrder, excelSheetSnapshot, excelSheetChange)
+                .withVisibleRows(rowFilter.update(excelSheetSnapshot, excelSheetChange)));
+    }
+
+    private void postExcelSheetCellDataChanged(final ExcelSheetChange excelSheetChange) {
+        //Captured here so every listener binds the version this change was made in.
+        final ExcelSheetSnapshot changedSnapshot = excelSheetSnapshot;
+        if (excelSheetListeners != null & excelSheetListeners.size() > 0) {
+            for (final ExcelSheetListener excelSheetListener : excelSheetListeners) {
+                uiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        excelSheetListener.onExcelSheetCellDataChanged(changedSnapshot, excelSheetChange);
+                    }
+                });
+            }
+        }
+    }
+
+    private void notifyExcelSheetRowOrderChanged() {
+        final RowOrder changedRowOrder = rowOrder;
+        if (excelSheetListeners != null & excelSheetListeners.size() > 0) {
+            for (final ExcelSheetListener excelSheetListener : excelSheetListeners) {
+                uiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        excelSheetListener.onExcelSheetRowOrderChanged(changedRowOrder);
+                    }
+                });
+            }
+        }
+    }
+
+    private void notifyExcelSheetReplaceProgress(final int replacedCount, final int checkedCount, final int matchCount, final boolean finished) {
+        if (excelSheetListeners != null & excelSheetListeners.size() > 0) {
+            for (final ExcelSheetListener excelSheetListener : excelSheetListeners) {
+                uiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        excelSheetListener.onExcelSheetReplaceProgress(replacedCount, checkedCount, matchCount, finished);
+                    }
+                });
+            }
+        }
+    }
+
+    private void notifyExcelSheetCellFound(final SearchQuery query, final int row, final int column) {
+        if (excelSheetListeners != null & excelSheetListeners.size() > 0) {
+            for (final ExcelSheetListener excelSheetListener : excelSheetListeners) {
+                uiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        excelSheetListener.onExcelSheetCellFound(query, row, column);
+                    }
+                });
+            }
+        }
+    }
+
+    private void notifyExcelSheetSelectionChanged(final ExcelSheetChange excelSheetChange) {
+        if (excelSheetChange.isEmpty()) {
+            return;
+        }
+        final Selection changedSelection = selection;
         if (excelSheetListeners != null & excelSheetListeners.size() > 0) {
             for (final ExcelSheetListener excelSheetListener : excelSheetListeners) {
                 uiHandler.post(new Runnable() {
                     @Override
                     public void run() {
-                        excelSheetListener.onExcelSheetCellDataRefreshed(tableDataList);
+                        excelSheetListener.onExcelSheetSelectionChanged(changedSelection, excelSheetChange);
                     }
                 });
             }
         }
     }
-}
+}
\ No newline at end of file
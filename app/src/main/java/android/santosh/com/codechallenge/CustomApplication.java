@@ -2,6 +2,7 @@ package android.santosh.com.codechallenge;
 
 import android.app.Application;
 import android.os.Handler;
+import android.santosh.com.codechallenge.storage.ExcelSheetJournal;
 
 /**
  * Created by Santosh on 8/13/17.
@@ -15,7 +16,7 @@ public class CustomApplication extends Application {
         super.onCreate();
 
         SharedPreferencesWrapper sharedPreferencesWrapper = new SharedPreferencesWrapper(this);
-        ApplicationController applicationController = new ApplicationController(new Handler(),sharedPreferencesWrapper);
+        ApplicationController applicationController = new ApplicationController(new Handler(),sharedPreferencesWrapper, new ExcelSheetJournal(getFilesDir()));
         applicationAPI = new ApplicationAPI(sharedPreferencesWrapper, applicationController);
     }
 
@@ -14,6 +14,41 @@ public class Utils {
         return (int) (dp * context.getResources().getDisplayMetrics().density);
     }
 
+    /**
+     * Converts a zero based column index to its spreadsheet label, 0 -> A, 25 -> Z, 26 -> AA.
+     */
+    public static String columnLabel(int column) {
+        char[] buffer = new char[8];
+        int position = buffer.length;
+        int value = column + 1;
+        while (value > 0) {
+            value--;
+            buffer[--position] = (char) ('A' + value % 26);
+            value /= 26;
+        }
+        return new String(buffer, position, buffer.length - position);
+    }
+
+    /**
+     * Converts a spreadsheet column label back to its zero based index, A -> 0, AA -> 26.
+     *
+     * @return -1 when the label is not made of letters only.
+     */
+    public static int columnIndex(String label) {
+        if (label == null || label.isEmpty() || label.length() > 7) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < label.length(); i++) {
+            char letter = Character.toUpperCase(label.charAt(i));
+            if (letter < 'A' || letter > 'Z') {
+                return -1;
+            }
+            value = value * 26 + (letter - 'A' + 1);
+        }
+        return value - 1;
+    }
+
     public static <T> boolean isEmpty(List<T> list) {
         return list == null || list.isEmpty();
     }
@@ -1,16 +1,22 @@
 package android.santosh.com.codechallenge.activity;
 
 import android.santosh.com.codechallenge.R;
+import android.santosh.com.codechallenge.views.ExcelSheetView;
 import android.support.annotation.NonNull;
 import android.support.design.widget.NavigationView;
 import android.support.v4.view.GravityCompat;
 import android.support.v4.widget.DrawerLayout;
 import android.support.v7.app.ActionBarDrawerToggle;
+import android.support.v7.app.AlertDialog;
+import android.content.DialogInterface;
 import android.os.Bundle;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.Toast;
 
 public class MainActivity extends BaseActivity implements NavigationView.OnNavigationItemSelectedListener {
     private static String TAG = MainActivity.class.getSimpleName();
@@ -72,6 +78,54 @@ public class MainActivity extends BaseActivity implements NavigationView.OnNavig
                 Log.d(TAG,"clear");
                 applicationAPI.getApplicationController().clearExcelSheet();
                 break;
+            case R.id.undo:
+                Log.d(TAG,"undo");
+                applicationAPI.getApplicationController().undo();
+                break;
+            case R.id.redo:
+                Log.d(TAG,"redo");
+                applicationAPI.getApplicationController().redo();
+                break;
+            case R.id.sort_ascending:
+                Log.d(TAG,"sort_ascending");
+                applicationAPI.getApplicationController().sortBySelectedColumn(true);
+                break;
+            case R.id.sort_descending:
+                Log.d(TAG,"sort_descending");
+                applicationAPI.getApplicationController().sortBySelectedColumn(false);
+                break;
+            case R.id.clear_sort:
+                Log.d(TAG,"clear_sort");
+                applicationAPI.getApplicationController().clearSort();
+                break;
+            case R.id.filter:
+                Log.d(TAG,"filter");
+                showFilterDialog();
+                break;
+            case R.id.clear_filters:
+                Log.d(TAG,"clear_filters");
+                applicationAPI.getApplicationController().clearFilters();
+                break;
+            case R.id.find:
+                Log.d(TAG,"find");
+                showFindDialog();
+                break;
+            case R.id.find_next:
+                Log.d(TAG,"find_next");
+                applicationAPI.getApplicationController().findNext();
+                break;
+            case R.id.replace_all:
+                Log.d(TAG,"replace_all");
+                showReplaceDialog();
+                break;
+            case R.id.cancel_replace:
+                Log.d(TAG,"cancel_replace");
+                applicationAPI.getApplicationController().cancelReplaceAll();
+                break;
+            case R.id.read_only:
+                Log.d(TAG,"read_only");
+                toggleReadOnly();
+                break;
             case R.id.reload:
                 Log.d(TAG,"reload");
                 applicationAPI.getApplicationController().reloadExcelSheet();
@@ -82,4 +136,80 @@ public class MainActivity extends BaseActivity implements NavigationView.OnNavig
         drawer.closeDrawer(GravityCompat.END);
         return true;
     }
+
+    private void toggleReadOnly() {
+        ExcelSheetView excelSheetView = (ExcelSheetView) findViewById(R.id.excel_sheet_view);
+        if (excelSheetView != null) {
+            excelSheetView.setRenderMode(excelSheetView.getRenderMode() == ExcelSheetView.RENDER_MODE_CANVAS
+                    ? ExcelSheetView.RENDER_MODE_VIEWS : ExcelSheetView.RENDER_MODE_CANVAS);
+        }
+    }
+
+    private void showFilterDialog() {
+        final EditText conditionEditText = new EditText(this);
+        conditionEditText.setSingleLine();
+        conditionEditText.setHint(R.string.filter_hint);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.filter_title)
+                .setView(conditionEditText)
+                .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        String condition = conditionEditText.getText().toString();
+                        if (!applicationAPI.getApplicationController().filterBySelectedColumn(condition)) {
+                            Toast.makeText(MainActivity.this, R.string.filter_invalid, Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void showFindDialog() {
+        final EditText queryEditText = new EditText(this);
+        queryEditText.setSingleLine();
+        queryEditText.setHint(R.string.find_hint);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.find_title)
+                .setView(queryEditText)
+                .setPositiveButton(R.string.find_contains, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        applicationAPI.getApplicationController().find(queryEditText.getText().toString(), false);
+                    }
+                })
+                .setNeutralButton(R.string.find_starts_with, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        applicationAPI.getApplicationController().find(queryEditText.getText().toString(), true);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void showReplaceDialog() {
+        LinearLayout fieldsLayout = new LinearLayout(this);
+        fieldsLayout.setOrientation(LinearLayout.VERTICAL);
+        final EditText findEditText = new EditText(this);
+        findEditText.setSingleLine();
+        findEditText.setHint(R.string.find_hint);
+        fieldsLayout.addView(findEditText);
+        final EditText replacementEditText = new EditText(this);
+        replacementEditText.setSingleLine();
+        replacementEditText.setHint(R.string.replace_hint);
+        fieldsLayout.addView(replacementEditText);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.replace_title)
+                .setView(fieldsLayout)
+                .setPositiveButton(R.string.replace_all, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        applicationAPI.getApplicationController().replaceAll(findEditText.getText().toString(),
+                                replacementEditText.getText().toString());
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
 }
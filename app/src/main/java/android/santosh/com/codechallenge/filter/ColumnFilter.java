@@ -0,0 +1,144 @@
+package android.santosh.com.codechallenge.filter;
+
+import android.santosh.com.codechallenge.model.CellValue;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+
+/**
+ * Created by Santosh on 9/1/17.
+ * <p>
+ * Condition on one column that a row has to meet to stay visible. Formula cells are tested by their
+ * result. An empty cell never meets a condition, so only the rows with a value in the column are
+ * ever tested. Immutable.
+ */
+
+public final class ColumnFilter {
+    public static final int GREATER_THAN = 0;
+    public static final int LESS_THAN = 1;
+    public static final int EQUAL_TO = 2;
+    public static final int CONTAINS = 3;
+
+    private final int column;
+    private final int operator;
+    private final String text;
+    private final int textType;
+    private final double number;
+
+    private ColumnFilter(int column, int operator, String text) {
+        this.column = column;
+        this.operator = operator;
+        this.text = text.trim();
+        this.textType = CellValue.typeOf(this.text);
+        this.number = textType == CellValue.TYPE_NUMBER ? CellValue.toNumber(this.text, textType) : 0;
+    }
+
+    public static ColumnFilter greaterThan(int column, double number) {
+        return new ColumnFilter(column, GREATER_THAN, CellValue.formatNumber(number));
+    }
+
+    public static ColumnFilter lessThan(int column, double number) {
+        return new ColumnFilter(column, LESS_THAN, CellValue.formatNumber(number));
+    }
+
+    /**
+     * Numbers are equal by value, anything else ignoring case.
+     */
+    public static ColumnFilter equalTo(int column, String value) {
+        return new ColumnFilter(column, EQUAL_TO, value);
+    }
+
+    /**
+     * Ignores case.
+     */
+    public static ColumnFilter contains(int column, String text) {
+        return new ColumnFilter(column, CONTAINS, text);
+    }
+
+    /**
+     * Reads a condition as typed by the user: "&gt;100", "&lt;100", "=foo", anything else is text the
+     * cell has to contain.
+     *
+     * @return null for a comparison with something that is not a number, or no condition at all.
+     */
+    public static ColumnFilter parse(int column, String condition) {
+        String trimmed = condition == null ? "" : condition.trim();
+        if (trimmed.length() == 0) {
+            return null;
+        }
+        char operator = trimmed.charAt(0);
+        if (operator == '>' || operator == '<') {
+            String operand = trimmed.substring(1).trim();
+            if (CellValue.typeOf(operand) != CellValue.TYPE_NUMBER) {
+                return null;
+            }
+            double number = CellValue.toNumber(operand, CellValue.TYPE_NUMBER);
+            return operator == '>' ? greaterThan(column, number) : lessThan(column, number);
+        }
+        if (operator == '=') {
+            String operand = trimmed.substring(1).trim();
+            return operand.length() == 0 ? null : equalTo(column, operand);
+        }
+        return contains(column, trimmed);
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public int getOperator() {
+        return operator;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean matches(ExcelSheetSnapshot snapshot, int row) {
+        int type = snapshot.getType(row, column);
+        if (type == CellValue.TYPE_EMPTY) {
+            return false;
+        }
+        String value = null;
+        double cellNumber = 0;
+        if (type == CellValue.TYPE_NUMBER || type == CellValue.TYPE_BOOLEAN) {
+            cellNumber = snapshot.getNumber(row, column);
+        } else {
+            //Formulas are text until their result is looked at.
+            value = snapshot.getDisplayData(row, column);
+            type = CellValue.typeOf(value);
+            if (type == CellValue.TYPE_NUMBER) {
+                cellNumber = CellValue.toNumber(value, type);
+            } else if (type == CellValue.TYPE_EMPTY) {
+                return false;
+            }
+        }
+        switch (operator) {
+            case GREATER_THAN:
+                return type == CellValue.TYPE_NUMBER && cellNumber > number;
+            case LESS_THAN:
+                return type == CellValue.TYPE_NUMBER && cellNumber < number;
+            case EQUAL_TO:
+                if (type == CellValue.TYPE_NUMBER || textType == CellValue.TYPE_NUMBER) {
+                    return type == textType && cellNumber == number;
+                }
+                return text.equalsIgnoreCase(valueOf(snapshot, row, value).trim());
+            default:
+                return containsIgnoreCase(valueOf(snapshot, row, value), text);
+        }
+    }
+
+    /**
+     * @return the value shown in the cell, read only once a condition needs it as text.
+     */
+    private String valueOf(ExcelSheetSnapshot snapshot, int row, String value) {
+        return value != null ? value : snapshot.getDisplayData(row, column);
+    }
+
+    private static boolean containsIgnoreCase(String value, String text) {
+        for (int i = 0; i + text.length() <= value.length(); i++) {
+            if (value.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,192 @@
+package android.santosh.com.codechallenge.filter;
+
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+import android.santosh.com.codechallenge.model.VisibleRows;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Created by Santosh on 9/1/17.
+ * <p>
+ * The column filters applied to the sheet, each with the bitset of the rows it lets through. The
+ * visible rows are the AND of those bitsets, so adding or removing a filter never tests a cell of
+ * the other filters again. An edit only tests the rows it touched. Only used from the controller's
+ * executor.
+ */
+
+public class RowFilter {
+    //Changes touching more rows than this test every filter again instead of row by row.
+    private static final int MAX_INCREMENTAL_ROW_COUNT = 256;
+
+    private final List<ColumnFilter> columnFilters = new ArrayList<>();
+    private final List<BitSet> matchingRows = new ArrayList<>();
+    private BitSet visibleRowBits;
+    private VisibleRows visibleRows;
+
+    /**
+     * @return the rows left visible, null when no filter is applied.
+     */
+    public VisibleRows getVisibleRows() {
+        return visibleRows;
+    }
+
+    public int getColumnFilterCount() {
+        return columnFilters.size();
+    }
+
+    public ColumnFilter getColumnFilter(int index) {
+        return columnFilters.get(index);
+    }
+
+    /**
+     * Tests the rows with a value in the filter's column, then narrows the visible rows with one AND.
+     */
+    public VisibleRows addColumnFilter(ExcelSheetSnapshot snapshot, ColumnFilter columnFilter) {
+        BitSet rows = evaluate(snapshot, columnFilter);
+        columnFilters.add(columnFilter);
+        matchingRows.add(rows);
+        if (visibleRowBits == null) {
+            visibleRowBits = (BitSet) rows.clone();
+        } else {
+            visibleRowBits.and(rows);
+        }
+        visibleRows = VisibleRows.of(visibleRowBits);
+        return visibleRows;
+    }
+
+    /**
+     * Removes every filter on the column.
+     */
+    public VisibleRows removeColumnFilters(int column) {
+        boolean removed = false;
+        for (int i = columnFilters.size() - 1; i >= 0; i--) {
+            if (columnFilters.get(i).getColumn() == column) {
+                columnFilters.remove(i);
+                matchingRows.remove(i);
+                removed = true;
+            }
+        }
+        if (removed) {
+            combine(false);
+        }
+        return visibleRows;
+    }
+
+    public void clear() {
+        columnFilters.clear();
+        matchingRows.clear();
+        visibleRowBits = null;
+        visibleRows = null;
+    }
+
+    /**
+     * Tests again the rows whose filtered cells the change touched.
+     *
+     * @param snapshot the snapshot with the change applied.
+     * @return the same instance when no row was shown or hidden.
+     */
+    public VisibleRows update(ExcelSheetSnapshot snapshot, ExcelSheetChange excelSheetChange) {
+        if (columnFilters.isEmpty() || excelSheetChange.isEmpty()) {
+            return visibleRows;
+        }
+        if (excelSheetChange.hasRows() && excelSheetChange.getLastRow() - excelSheetChange.getFirstRow() >= MAX_INCREMENTAL_ROW_COUNT) {
+            for (int i = 0; i < columnFilters.size(); i++) {
+                matchingRows.set(i, evaluate(snapshot, columnFilters.get(i)));
+            }
+            return combine(false);
+        }
+        boolean changed = false;
+        for (int i = 0; i < excelSheetChange.getCellCount(); i++) {
+            changed |= retest(snapshot, excelSheetChange.getCellRow(i), excelSheetChange.getCellColumn(i));
+        }
+        if (excelSheetChange.hasRows()) {
+            for (int row = excelSheetChange.getFirstRow(); row <= excelSheetChange.getLastRow(); row++) {
+                changed |= retest(snapshot, row, -1);
+            }
+        }
+        boolean reevaluated = false;
+        if (excelSheetChange.hasColumns()) {
+            for (int i = 0; i < columnFilters.size(); i++) {
+                int column = columnFilters.get(i).getColumn();
+                if (column >= excelSheetChange.getFirstColumn() && column <= excelSheetChange.getLastColumn()) {
+                    matchingRows.set(i, evaluate(snapshot, columnFilters.get(i)));
+                    reevaluated = true;
+                }
+            }
+        }
+        if (reevaluated) {
+            return combine(changed);
+        }
+        if (changed) {
+            visibleRows = VisibleRows.of(visibleRowBits);
+        }
+        return visibleRows;
+    }
+
+    /**
+     * Tests the row against the filters on the column, or against all of them for column -1.
+     *
+     * @return true when the row was shown or hidden.
+     */
+    private boolean retest(ExcelSheetSnapshot snapshot, int row, int column) {
+        boolean tested = false;
+        for (int i = 0; i < columnFilters.size(); i++) {
+            ColumnFilter columnFilter = columnFilters.get(i);
+            if (column < 0 || columnFilter.getColumn() == column) {
+                matchingRows.get(i).set(row, columnFilter.matches(snapshot, row));
+                tested = true;
+            }
+        }
+        if (!tested) {
+            return false;
+        }
+        boolean visible = true;
+        for (int i = 0; i < matchingRows.size() && visible; i++) {
+            visible = matchingRows.get(i).get(row);
+        }
+        if (visibleRowBits.get(row) == visible) {
+            return false;
+        }
+        visibleRowBits.set(row, visible);
+        return true;
+    }
+
+    /**
+     * @param changed true when the visible rows were already changed row by row.
+     */
+    private VisibleRows combine(boolean changed) {
+        if (columnFilters.isEmpty()) {
+            clear();
+            return null;
+        }
+        BitSet combinedRows = (BitSet) matchingRows.get(0).clone();
+        for (int i = 1; i < matchingRows.size(); i++) {
+            combinedRows.and(matchingRows.get(i));
+        }
+        if (changed || !combinedRows.equals(visibleRowBits)) {
+            visibleRowBits = combinedRows;
+            visibleRows = VisibleRows.of(visibleRowBits);
+        }
+        return visibleRows;
+    }
+
+    /**
+     * O(cells), only cells in the filter's column are tested.
+     */
+    private static BitSet evaluate(final ExcelSheetSnapshot snapshot, final ColumnFilter columnFilter) {
+        final BitSet rows = new BitSet();
+        snapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                if (column == columnFilter.getColumn() && columnFilter.matches(snapshot, row)) {
+                    rows.set(row);
+                }
+            }
+        });
+        return rows;
+    }
+}
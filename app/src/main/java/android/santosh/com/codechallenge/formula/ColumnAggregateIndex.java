@@ -0,0 +1,255 @@
+package android.santosh.com.codechallenge.formula;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by Santosh on 8/29/17.
+ * <p>
+ * Sum, count, min and max of the numbers of opted in columns, kept in a segment tree per column so a
+ * range like SUM(A1:A1000000) is answered in O(log n) instead of reading every cell. The tree is
+ * built over blocks of {@link #BLOCK_SIZE} rows and only as tall as the last number in the column,
+ * a column costs about 11 bytes per row up to that row.
+ * <p>
+ * A range holding a failed formula is not answered here, the caller reads the cells to find the
+ * error. Writes happen on the engine's thread between levels, reads may come from several
+ * evaluation threads at once.
+ */
+
+class ColumnAggregateIndex {
+    private static final int BLOCK_SIZE = 32;
+    private static final int MIN_CAPACITY = 1024;
+    private static final byte STATE_EMPTY = 0;
+    private static final byte STATE_NUMBER = 1;
+    private static final byte STATE_ERROR = 2;
+
+    private final int maxCapacity;
+    private final Map<Integer, ColumnTree> columnTrees = new HashMap<>();
+
+    ColumnAggregateIndex(int rowCount) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < rowCount) {
+            capacity <<= 1;
+        }
+        this.maxCapacity = capacity;
+    }
+
+    boolean isIndexed(int column) {
+        return columnTrees.containsKey(column);
+    }
+
+    boolean hasIndexedColumns() {
+        return !columnTrees.isEmpty();
+    }
+
+    /**
+     * Starts an empty index for the column, the caller puts the column's values.
+     */
+    void addColumn(int column) {
+        columnTrees.put(column, new ColumnTree());
+    }
+
+    void removeColumn(int column) {
+        columnTrees.remove(column);
+    }
+
+    /**
+     * Empties every index but keeps the columns opted in.
+     */
+    void clearValues() {
+        for (Map.Entry<Integer, ColumnTree> entry : columnTrees.entrySet()) {
+            entry.setValue(new ColumnTree());
+        }
+    }
+
+    void putNumber(int row, int column, double value) {
+        ColumnTree columnTree = columnTrees.get(column);
+        if (columnTree != null) {
+            columnTree.set(row, STATE_NUMBER, value);
+        }
+    }
+
+    void putError(int row, int column) {
+        ColumnTree columnTree = columnTrees.get(column);
+        if (columnTree != null) {
+            columnTree.set(row, STATE_ERROR, 0);
+        }
+    }
+
+    void remove(int row, int column) {
+        ColumnTree columnTree = columnTrees.get(column);
+        if (columnTree != null) {
+            columnTree.set(row, STATE_EMPTY, 0);
+        }
+    }
+
+    /**
+     * Adds the numbers of the rows of the column to the aggregate.
+     *
+     * @return false, leaving the aggregate untouched, when the column is not indexed or a cell of
+     * the range holds an error.
+     */
+    boolean aggregate(int column, int firstRow, int lastRow, Expression.Aggregate aggregate) {
+        ColumnTree columnTree = columnTrees.get(column);
+        return columnTree != null && columnTree.aggregate(firstRow, lastRow, aggregate);
+    }
+
+    private class ColumnTree {
+        private int capacity;
+        private int blockCount;
+        private byte[] states;
+        private double[] values;
+        //Segment tree over the blocks, node 1 is the root and block b is node blockCount + b.
+        private double[] sums;
+        private double[] mins;
+        private double[] maxs;
+        private int[] counts;
+        private int[] errorCounts;
+
+        ColumnTree() {
+            allocate(MIN_CAPACITY);
+        }
+
+        private void allocate(int newCapacity) {
+            capacity = newCapacity;
+            blockCount = newCapacity / BLOCK_SIZE;
+            states = new byte[newCapacity];
+            values = new double[newCapacity];
+            sums = new double[2 * blockCount];
+            mins = new double[2 * blockCount];
+            maxs = new double[2 * blockCount];
+            counts = new int[2 * blockCount];
+            errorCounts = new int[2 * blockCount];
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        }
+
+        void set(int row, byte state, double value) {
+            if (row >= capacity) {
+                if (state == STATE_EMPTY || row >= maxCapacity) {
+                    return;
+                }
+                grow(row);
+            }
+            states[row] = state;
+            values[row] = value;
+            int node = updateBlock(row / BLOCK_SIZE);
+            for (node >>= 1; node > 0; node >>= 1) {
+                combine(node);
+            }
+        }
+
+        private void grow(int row) {
+            byte[] oldStates = states;
+            double[] oldValues = values;
+            int newCapacity = capacity;
+            while (newCapacity <= row) {
+                newCapacity <<= 1;
+            }
+            allocate(newCapacity);
+            System.arraycopy(oldStates, 0, states, 0, oldStates.length);
+            System.arraycopy(oldValues, 0, values, 0, oldValues.length);
+            for (int block = 0; block < oldStates.length / BLOCK_SIZE; block++) {
+                updateBlock(block);
+            }
+            for (int node = blockCount - 1; node > 0; node--) {
+                combine(node);
+            }
+        }
+
+        /**
+         * @return the tree node of the block.
+         */
+        private int updateBlock(int block) {
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            int count = 0;
+            int errorCount = 0;
+            int end = (block + 1) * BLOCK_SIZE;
+            for (int row = block * BLOCK_SIZE; row < end; row++) {
+                if (states[row] == STATE_NUMBER) {
+                    double value = values[row];
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                    count++;
+                } else if (states[row] == STATE_ERROR) {
+                    errorCount++;
+                }
+            }
+            int node = blockCount + block;
+            sums[node] = sum;
+            mins[node] = min;
+            maxs[node] = max;
+            counts[node] = count;
+            errorCounts[node] = errorCount;
+            return node;
+        }
+
+        private void combine(int node) {
+            int left = 2 * node;
+            int right = left + 1;
+            sums[node] = sums[left] + sums[right];
+            mins[node] = Math.min(mins[left], mins[right]);
+            maxs[node] = Math.max(maxs[left], maxs[right]);
+            counts[node] = counts[left] + counts[right];
+            errorCounts[node] = errorCounts[left] + errorCounts[right];
+        }
+
+        boolean aggregate(int firstRow, int lastRow, Expression.Aggregate aggregate) {
+            lastRow = Math.min(lastRow, capacity - 1);
+            if (firstRow > lastRow) {
+                return true;
+            }
+            Expression.Aggregate rangeAggregate = new Expression.Aggregate();
+            int firstBlock = firstRow / BLOCK_SIZE;
+            int lastBlock = lastRow / BLOCK_SIZE;
+            if (firstBlock == lastBlock) {
+                if (!aggregateRows(firstRow, lastRow, rangeAggregate)) {
+                    return false;
+                }
+            } else {
+                if (!aggregateRows(firstRow, (firstBlock + 1) * BLOCK_SIZE - 1, rangeAggregate)
+                        || !aggregateRows(lastBlock * BLOCK_SIZE, lastRow, rangeAggregate)) {
+                    return false;
+                }
+                //Whole blocks in between, bottom up over the tree.
+                int low = blockCount + firstBlock + 1;
+                int high = blockCount + lastBlock;
+                while (low < high) {
+                    if ((low & 1) == 1 && !aggregateNode(low++, rangeAggregate)) {
+                        return false;
+                    }
+                    if ((high & 1) == 1 && !aggregateNode(--high, rangeAggregate)) {
+                        return false;
+                    }
+                    low >>= 1;
+                    high >>= 1;
+                }
+            }
+            aggregate.merge(rangeAggregate);
+            return true;
+        }
+
+        private boolean aggregateRows(int firstRow, int lastRow, Expression.Aggregate aggregate) {
+            for (int row = firstRow; row <= lastRow; row++) {
+                if (states[row] == STATE_NUMBER) {
+                    aggregate.onVisitNumber(values[row]);
+                } else if (states[row] == STATE_ERROR) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean aggregateNode(int node, Expression.Aggregate aggregate) {
+            if (errorCounts[node] > 0) {
+                return false;
+            }
+            aggregate.merge(sums[node], counts[node], mins[node], maxs[node]);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by Santosh on 8/27/17.
+ * <p>
+ * Which formulas read which cells. A single cell reference is an edge from that cell to the
+ * formula. A range is stored once, indexed by the columns it covers, so SUM(A1:A1000000) is one
+ * entry and not a million edges. Ranges wider than {@link #WIDE_RANGE_COLUMNS} columns are kept in
+ * a list that every lookup scans.
+ */
+
+public class DependencyGraph {
+    private static final int WIDE_RANGE_COLUMNS = 64;
+
+    private final SparseCellStore<Set<Long>> cellDependents = new SparseCellStore<>();
+    private final Map<Integer, List<RangeDependency>> rangeDependentsByColumn = new HashMap<>();
+    private final List<RangeDependency> wideRangeDependents = new ArrayList<>();
+
+    private static final class RangeDependency {
+        final int firstRow;
+        final int firstColumn;
+        final int lastRow;
+        final int lastColumn;
+        final long formulaKey;
+
+        RangeDependency(int firstRow, int firstColumn, int lastRow, int lastColumn, long formulaKey) {
+            this.firstRow = firstRow;
+            this.firstColumn = firstColumn;
+            this.lastRow = lastRow;
+            this.lastColumn = lastColumn;
+            this.formulaKey = formulaKey;
+        }
+
+        boolean contains(int row, int column) {
+            return row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn;
+        }
+
+        boolean isWide() {
+            return lastColumn - firstColumn >= WIDE_RANGE_COLUMNS;
+        }
+    }
+
+    public void addFormula(final long formulaKey, Expression expression) {
+        expression.visitReferences(new Expression.ReferenceVisitor() {
+            @Override
+            public void onCellReference(int row, int column) {
+                Set<Long> dependents = cellDependents.get(row, column);
+                if (dependents == null) {
+                    dependents = new HashSet<>();
+                    cellDependents.put(row, column, dependents);
+                }
+                dependents.add(formulaKey);
+            }
+
+            @Override
+            public void onRangeReference(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+                RangeDependency rangeDependency = new RangeDependency(firstRow, firstColumn, lastRow, lastColumn, formulaKey);
+                if (rangeDependency.isWide()) {
+                    wideRangeDependents.add(rangeDependency);
+                    return;
+                }
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    List<RangeDependency> rangeDependencies = rangeDependentsByColumn.get(column);
+                    if (rangeDependencies == null) {
+                        rangeDependencies = new ArrayList<>();
+                        rangeDependentsByColumn.put(column, rangeDependencies);
+                    }
+                    rangeDependencies.add(rangeDependency);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param expression the expression the formula was added with.
+     */
+    public void removeFormula(final long formulaKey, Expression expression) {
+        expression.visitReferences(new Expression.ReferenceVisitor() {
+            @Override
+            public void onCellReference(int row, int column) {
+                Set<Long> dependents = cellDependents.get(row, column);
+                if (dependents != null) {
+                    dependents.remove(formulaKey);
+                    if (dependents.isEmpty()) {
+                        cellDependents.remove(row, column);
+                    }
+                }
+            }
+
+            @Override
+            public void onRangeReference(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+                if (lastColumn - firstColumn >= WIDE_RANGE_COLUMNS) {
+                    removeRange(wideRangeDependents, formulaKey, firstRow, firstColumn, lastRow, lastColumn);
+                    return;
+                }
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    List<RangeDependency> rangeDependencies = rangeDependentsByColumn.get(column);
+                    if (rangeDependencies != null) {
+                        removeRange(rangeDependencies, formulaKey, firstRow, firstColumn, lastRow, lastColumn);
+                        if (rangeDependencies.isEmpty()) {
+                            rangeDependentsByColumn.remove(column);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds the formulas reading the cell directly or through a range to the list.
+     */
+    public void collectDependents(int row, int column, List<Long> dependents) {
+        Set<Long> cellFormulas = cellDependents.get(row, column);
+        if (cellFormulas != null) {
+            dependents.addAll(cellFormulas);
+        }
+        List<RangeDependency> rangeDependencies = rangeDependentsByColumn.get(column);
+        if (rangeDependencies != null) {
+            for (RangeDependency rangeDependency : rangeDependencies) {
+                if (rangeDependency.contains(row, column)) {
+                    dependents.add(rangeDependency.formulaKey);
+                }
+            }
+        }
+        for (RangeDependency rangeDependency : wideRangeDependents) {
+            if (rangeDependency.contains(row, column)) {
+                dependents.add(rangeDependency.formulaKey);
+            }
+        }
+    }
+
+    public void clear() {
+        cellDependents.clear();
+        rangeDependentsByColumn.clear();
+        wideRangeDependents.clear();
+    }
+
+    private static void removeRange(List<RangeDependency> rangeDependencies, long formulaKey,
+                                    int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        Iterator<RangeDependency> iterator = rangeDependencies.iterator();
+        while (iterator.hasNext()) {
+            RangeDependency rangeDependency = iterator.next();
+            if (rangeDependency.formulaKey == formulaKey && rangeDependency.firstRow == firstRow
+                    && rangeDependency.firstColumn == firstColumn && rangeDependency.lastRow == lastRow
+                    && rangeDependency.lastColumn == lastColumn) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+}
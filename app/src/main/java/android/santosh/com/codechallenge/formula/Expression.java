@@ -0,0 +1,265 @@
+package android.santosh.com.codechallenge.formula;
+
+import java.util.List;
+
+/**
+ * Created by Santosh on 8/27/17.
+ * <p>
+ * Parsed formula. A formula is parsed once and the tree is kept with the cell, recalculating it
+ * only walks the tree. Ranges stay a single node so the dependency graph can store them as ranges.
+ */
+
+public abstract class Expression {
+
+    public interface EvaluationContext {
+        /**
+         * @return null for an empty cell, a Double for a number, a Boolean or the text of the cell.
+         * @throws FormulaException when the cell is a formula that failed.
+         */
+        Object getValue(int row, int column) throws FormulaException;
+
+        /**
+         * Visits the numbers in the range, empty, boolean and text cells are skipped.
+         */
+        void visitRange(int firstRow, int firstColumn, int lastRow, int lastColumn, RangeVisitor rangeVisitor) throws FormulaException;
+    }
+
+    public interface RangeVisitor {
+        void onVisitNumber(double value);
+    }
+
+    public interface ReferenceVisitor {
+        void onCellReference(int row, int column);
+
+        void onRangeReference(int firstRow, int firstColumn, int lastRow, int lastColumn);
+    }
+
+    public abstract double evaluate(EvaluationContext evaluationContext) throws FormulaException;
+
+    public void visitReferences(ReferenceVisitor referenceVisitor) {
+    }
+
+    static double toNumber(Object value) throws FormulaException {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        throw new FormulaException(FormulaException.ERROR_VALUE);
+    }
+
+    static final class NumberExpression extends Expression {
+        private final double value;
+
+        NumberExpression(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double evaluate(EvaluationContext evaluationContext) {
+            return value;
+        }
+    }
+
+    static final class CellReference extends Expression {
+        private final int row;
+        private final int column;
+
+        CellReference(int row, int column) {
+            this.row = row;
+            this.column = column;
+        }
+
+        @Override
+        public double evaluate(EvaluationContext evaluationContext) throws FormulaException {
+            return toNumber(evaluationContext.getValue(row, column));
+        }
+
+        @Override
+        public void visitReferences(ReferenceVisitor referenceVisitor) {
+            referenceVisitor.onCellReference(row, column);
+        }
+    }
+
+    static final class RangeReference extends Expression {
+        final int firstRow;
+        final int firstColumn;
+        final int lastRow;
+        final int lastColumn;
+
+        RangeReference(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+            this.firstRow = Math.min(firstRow, lastRow);
+            this.firstColumn = Math.min(firstColumn, lastColumn);
+            this.lastRow = Math.max(firstRow, lastRow);
+            this.lastColumn = Math.max(firstColumn, lastColumn);
+        }
+
+        /**
+         * A range only has a value as a function argument.
+         */
+        @Override
+        public double evaluate(EvaluationContext evaluationContext) throws FormulaException {
+            throw new FormulaException(FormulaException.ERROR_VALUE);
+        }
+
+        @Override
+        public void visitReferences(ReferenceVisitor referenceVisitor) {
+            referenceVisitor.onRangeReference(firstRow, firstColumn, lastRow, lastColumn);
+        }
+    }
+
+    static final class NegateExpression extends Expression {
+        private final Expression operand;
+
+        NegateExpression(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public double evaluate(EvaluationContext evaluationContext) throws FormulaException {
+            return -operand.evaluate(evaluationContext);
+        }
+
+        @Override
+        public void visitReferences(ReferenceVisitor referenceVisitor) {
+            operand.visitReferences(referenceVisitor);
+        }
+    }
+
+    static final class BinaryExpression extends Expression {
+        private final char operator;
+        private final Expression left;
+        private final Expression right;
+
+        BinaryExpression(char operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(EvaluationContext evaluationContext) throws FormulaException {
+            double leftValue = left.evaluate(evaluationContext);
+            double rightValue = right.evaluate(evaluationContext);
+            double result;
+            switch (operator) {
+                case '+':
+                    result = leftValue + rightValue;
+                    break;
+                case '-':
+                    result = leftValue - rightValue;
+                    break;
+                case '*':
+                    result = leftValue * rightValue;
+                    break;
+                case '/':
+                    if (rightValue == 0) {
+                        throw new FormulaException(FormulaException.ERROR_DIV_ZERO);
+                    }
+                    result = leftValue / rightValue;
+                    break;
+                case '^':
+                    result = Math.pow(leftValue, rightValue);
+                    break;
+                default:
+                    throw new FormulaException(FormulaException.ERROR_SYNTAX);
+            }
+            if (Double.isNaN(result) || Double.isInfinite(result)) {
+                throw new FormulaException(FormulaException.ERROR_NUM);
+            }
+            return result;
+        }
+
+        @Override
+        public void visitReferences(ReferenceVisitor referenceVisitor) {
+            left.visitReferences(referenceVisitor);
+            right.visitReferences(referenceVisitor);
+        }
+    }
+
+    static final class FunctionExpression extends Expression {
+        static final String SUM = "SUM";
+        static final String AVERAGE = "AVERAGE";
+        static final String MIN = "MIN";
+        static final String MAX = "MAX";
+        static final String COUNT = "COUNT";
+
+        private final String name;
+        private final List<Expression> arguments;
+
+        FunctionExpression(String name, List<Expression> arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        static boolean isSupported(String name) {
+            return SUM.equals(name) || AVERAGE.equals(name) || MIN.equals(name) || MAX.equals(name) || COUNT.equals(name);
+        }
+
+        @Override
+        public double evaluate(EvaluationContext evaluationContext) throws FormulaException {
+            Aggregate aggregate = new Aggregate();
+            for (Expression argument : arguments) {
+                if (argument instanceof RangeReference) {
+                    RangeReference range = (RangeReference) argument;
+                    evaluationContext.visitRange(range.firstRow, range.firstColumn, range.lastRow, range.lastColumn, aggregate);
+                } else {
+                    aggregate.onVisitNumber(argument.evaluate(evaluationContext));
+                }
+            }
+            if (SUM.equals(name)) {
+                return aggregate.sum;
+            } else if (COUNT.equals(name)) {
+                return aggregate.count;
+            } else if (aggregate.count == 0) {
+                //Excel gives 0 for MIN and MAX of nothing, AVERAGE has nothing to divide by.
+                if (AVERAGE.equals(name)) {
+                    throw new FormulaException(FormulaException.ERROR_DIV_ZERO);
+                }
+                return 0;
+            } else if (AVERAGE.equals(name)) {
+                return aggregate.sum / aggregate.count;
+            } else if (MIN.equals(name)) {
+                return aggregate.min;
+            }
+            return aggregate.max;
+        }
+
+        @Override
+        public void visitReferences(ReferenceVisitor referenceVisitor) {
+            for (Expression argument : arguments) {
+                argument.visitReferences(referenceVisitor);
+            }
+        }
+    }
+
+    static final class Aggregate implements RangeVisitor {
+        double sum;
+        long count;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        @Override
+        public void onVisitNumber(double value) {
+            sum += value;
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        void merge(double sum, long count, double min, double max) {
+            this.sum += sum;
+            this.count += count;
+            this.min = Math.min(this.min, min);
+            this.max = Math.max(this.max, max);
+        }
+
+        void merge(Aggregate aggregate) {
+            merge(aggregate.sum, aggregate.count, aggregate.min, aggregate.max);
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.santosh.com.codechallenge.model.CellValue;
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Created by Santosh on 8/27/17.
+ * <p>
+ * Evaluates the formula cells of the sheet. Every formula is parsed once when its cell is set and
+ * registered in the {@link DependencyGraph}. When cells change only the formulas that depend on
+ * them, directly or transitively, are evaluated again, in topological order. Formulas that are part
+ * of a cycle, or depend on one, evaluate to {@link FormulaException#ERROR_CYCLE}.
+ * <p>
+ * Formulas are evaluated level by level, a level being the formulas whose inputs are all up to
+ * date. Large levels are split across a {@link ParallelEvaluator} when the engine was created with a
+ * parallelism above one. Results are written to the snapshot as computed values once a level is
+ * done, the caller publishes the final snapshot as one change. Only used from the controller's
+ * executor.
+ */
+
+public class FormulaEngine {
+    private final FormulaParser formulaParser;
+    private final DependencyGraph dependencyGraph = new DependencyGraph();
+    private final SparseCellStore<Formula> formulas = new SparseCellStore<>();
+    private final SnapshotEvaluationContext evaluationContext = new SnapshotEvaluationContext();
+    private final ParallelEvaluator parallelEvaluator;
+    private final ColumnAggregateIndex aggregateIndex;
+    private int recalculationStamp;
+
+    //Smaller levels are evaluated on the calling thread, splitting them costs more than it saves.
+    static final int MIN_PARALLEL_LEVEL_SIZE = 256;
+
+    static final class Formula {
+        final int row;
+        final int column;
+        final Expression expression;
+        final String parseError;
+        double value;
+        String error;
+        //Scratch state of the recalculation that last touched this formula.
+        int stamp;
+        int pendingPrecedents;
+        List<Long> dependents;
+
+        Formula(int row, int column, Expression expression, String parseError) {
+            this.row = row;
+            this.column = column;
+            this.expression = expression;
+            this.parseError = parseError;
+        }
+    }
+
+    public FormulaEngine(int rowCount, int columnCount) {
+        this(rowCount, columnCount, 1);
+    }
+
+    /**
+     * @param parallelism threads evaluating a level, 1 evaluates everything on the calling thread.
+     *                    Anything above 1 needs ForkJoinPool, so Lollipop or later.
+     */
+    public FormulaEngine(int rowCount, int columnCount, int parallelism) {
+        this.formulaParser = new FormulaParser(rowCount, columnCount);
+        this.aggregateIndex = new ColumnAggregateIndex(rowCount);
+        if (parallelism > 1) {
+            this.parallelEvaluator = new ParallelEvaluator(parallelism);
+        } else {
+            this.parallelEvaluator = null;
+        }
+    }
+
+    public static boolean isFormula(String data) {
+        return data != null && data.length() > 1 && data.charAt(0) == '=';
+    }
+
+    /**
+     * Forgets every formula and registers the ones in the snapshot, then evaluates all of them.
+     * Used after a load or when the whole sheet was replaced. It reads every cell of the snapshot.
+     *
+     * @param excelSheetChange gets the cells whose results were published, may be null.
+     */
+    public ExcelSheetSnapshot rebuild(final ExcelSheetSnapshot snapshot, ExcelSheetChange excelSheetChange) {
+        clear();
+        final List<Long> formulaKeys = new ArrayList<>();
+        snapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                if (isFormula(value)) {
+                    register(row, column, value);
+                    formulaKeys.add(SparseCellStore.key(row, column));
+                } else if (aggregateIndex.isIndexed(column)) {
+                    indexValue(snapshot, row, column);
+                }
+            }
+        });
+        return recalculate(snapshot.withoutComputedValues(), formulaKeys, excelSheetChange);
+    }
+
+    /**
+     * Updates the formulas of the cells named by the change, which already hold their new data in
+     * the snapshot, and recalculates their dependents. Recalculated cells are added to the change.
+     */
+    public ExcelSheetSnapshot onCellsChanged(ExcelSheetSnapshot snapshot, ExcelSheetChange excelSheetChange) {
+        int changedCellCount = excelSheetChange.getCellCount();
+        List<Long> changedKeys = new ArrayList<>(changedCellCount);
+        for (int i = 0; i < changedCellCount; i++) {
+            int row = excelSheetChange.getCellRow(i);
+            int column = excelSheetChange.getCellColumn(i);
+            Formula previousFormula = formulas.remove(row, column);
+            if (previousFormula != null) {
+                if (previousFormula.expression != null) {
+                    dependencyGraph.removeFormula(SparseCellStore.key(row, column), previousFormula.expression);
+                }
+                snapshot = snapshot.withComputedValue(row, column, null);
+            }
+            String data = snapshot.getData(row, column);
+            if (isFormula(data)) {
+                register(row, column, data);
+            } else if (aggregateIndex.isIndexed(column)) {
+                indexValue(snapshot, row, column);
+            }
+            changedKeys.add(SparseCellStore.key(row, column));
+        }
+        if (formulas.isEmpty()) {
+            return snapshot;
+        }
+        return recalculate(snapshot, changedKeys, excelSheetChange);
+    }
+
+    public void clear() {
+        formulas.clear();
+        dependencyGraph.clear();
+        aggregateIndex.clearValues();
+    }
+
+    /**
+     * Opts the column in or out of the aggregate index. An indexed column answers SUM, AVERAGE,
+     * MIN, MAX and COUNT over any of its ranges in O(log n), at about 11 bytes per row up to its last
+     * number. Results do not change, so nothing needs to be recalculated.
+     */
+    public void setColumnIndexed(final ExcelSheetSnapshot snapshot, final int column, boolean indexed) {
+        if (!indexed) {
+            aggregateIndex.removeColumn(column);
+            return;
+        }
+        if (aggregateIndex.isIndexed(column)) {
+            return;
+        }
+        aggregateIndex.addColumn(column);
+        snapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int cellColumn, String value) {
+                if (cellColumn != column) {
+                    return;
+                }
+                Formula formula = formulas.get(row, cellColumn);
+                if (formula != null) {
+                    indexFormula(formula);
+                } else {
+                    indexValue(snapshot, row, cellColumn);
+                }
+            }
+        });
+    }
+
+    public boolean isColumnIndexed(int column) {
+        return aggregateIndex.isIndexed(column);
+    }
+
+    /**
+     * Stops the evaluation threads, the engine must not be used afterwards.
+     */
+    public void shutdown() {
+        if (parallelEvaluator != null) {
+            parallelEvaluator.shutdown();
+        }
+    }
+
+    private void register(int row, int column, String data) {
+        Formula formula;
+        try {
+            formula = new Formula(row, column, formulaParser.parse(data), null);
+            dependencyGraph.addFormula(SparseCellStore.key(row, column), formula.expression);
+        } catch (FormulaException e) {
+            formula = new Formula(row, column, null, e.getErrorCode());
+        }
+        formulas.put(row, column, formula);
+    }
+
+    /**
+     * Evaluates the changed formulas and everything downstream of the changed cells once each,
+     * every formula after the formulas it reads (Kahn's algorithm, one level at a time).
+     */
+    private ExcelSheetSnapshot recalculate(ExcelSheetSnapshot snapshot, List<Long> changedKeys, ExcelSheetChange excelSheetChange) {
+        int stamp = ++recalculationStamp;
+        List<Formula> affectedFormulas = collectAffectedFormulas(changedKeys, stamp);
+
+        //Count, for every affected formula, the affected formulas it reads.
+        for (Formula formula : affectedFormulas) {
+            for (Long dependentKey : formula.dependents) {
+                formulas.get(dependentKey).pendingPrecedents++;
+            }
+        }
+        List<Formula> level = new ArrayList<>();
+        for (Formula formula : affectedFormulas) {
+            if (formula.pendingPrecedents == 0) {
+                level.add(formula);
+            }
+        }
+
+        evaluationContext.snapshot = snapshot;
+        int evaluatedCount = 0;
+        while (!level.isEmpty()) {
+            evaluateLevel(level);
+            evaluatedCount += level.size();
+            List<Formula> nextLevel = new ArrayList<>();
+            for (Formula formula : level) {
+                snapshot = publish(snapshot, formula, excelSheetChange);
+                for (Long dependentKey : formula.dependents) {
+                    Formula dependent = formulas.get(dependentKey);
+                    if (--dependent.pendingPrecedents == 0) {
+                        nextLevel.add(dependent);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        evaluationContext.snapshot = null;
+
+        if (evaluatedCount < affectedFormulas.size()) {
+            for (Formula formula : affectedFormulas) {
+                if (formula.pendingPrecedents > 0) {
+                    formula.pendingPrecedents = 0;
+                    formula.error = FormulaException.ERROR_CYCLE;
+                    snapshot = publish(snapshot, formula, excelSheetChange);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Changed formulas plus every formula reachable from a changed cell. Also fills in the
+     * dependents of each affected formula that are affected themselves.
+     */
+    private List<Formula> collectAffectedFormulas(List<Long> changedKeys, int stamp) {
+        List<Formula> affectedFormulas = new ArrayList<>();
+        Deque<Long> pendingKeys = new ArrayDeque<>();
+        for (Long changedKey : changedKeys) {
+            Formula formula = formulas.get(changedKey);
+            if (formula != null && formula.stamp != stamp) {
+                markAffected(formula, stamp, affectedFormulas);
+            }
+            pendingKeys.add(changedKey);
+        }
+        List<Long> dependents = new ArrayList<>();
+        SparseCellStore<Boolean> visitedKeys = new SparseCellStore<>();
+        while (!pendingKeys.isEmpty()) {
+            long key = pendingKeys.poll();
+            if (visitedKeys.put(key, Boolean.TRUE) != null) {
+                continue;
+            }
+            dependents.clear();
+            dependencyGraph.collectDependents(SparseCellStore.row(key), SparseCellStore.column(key), dependents);
+            Formula formula = formulas.get(key);
+            for (Long dependentKey : dependents) {
+                Formula dependent = formulas.get(dependentKey);
+                if (dependent == null) {
+                    continue;
+                }
+                if (dependent.stamp != stamp) {
+                    markAffected(dependent, stamp, affectedFormulas);
+                    pendingKeys.add(dependentKey);
+                }
+                if (formula != null && formula.stamp == stamp) {
+                    formula.dependents.add(dependentKey);
+                }
+            }
+        }
+        return affectedFormulas;
+    }
+
+    private static void markAffected(Formula formula, int stamp, List<Formula> affectedFormulas) {
+        formula.stamp = stamp;
+        formula.pendingPrecedents = 0;
+        formula.dependents = new ArrayList<>();
+        affectedFormulas.add(formula);
+    }
+
+    private void evaluateLevel(List<Formula> level) {
+        if (parallelEvaluator != null && level.size() >= MIN_PARALLEL_LEVEL_SIZE) {
+            parallelEvaluator.evaluate(this, level);
+            return;
+        }
+        for (Formula formula : level) {
+            evaluate(formula);
+        }
+    }
+
+    /**
+     * Safe to call from several threads for formulas of the same level, it only writes the formula
+     * and reads formulas of earlier levels.
+     */
+    void evaluate(Formula formula) {
+        if (formula.parseError != null) {
+            formula.error = formula.parseError;
+            return;
+        }
+        try {
+            formula.value = formula.expression.evaluate(evaluationContext);
+            formula.error = null;
+        } catch (FormulaException e) {
+            formula.error = e.getErrorCode();
+        }
+    }
+
+    private ExcelSheetSnapshot publish(ExcelSheetSnapshot snapshot, Formula formula, ExcelSheetChange excelSheetChange) {
+        indexFormula(formula);
+        String displayValue = formula.error != null ? formula.error : CellValue.formatNumber(formula.value);
+        ExcelSheetSnapshot newSnapshot = snapshot.withComputedValue(formula.row, formula.column, displayValue);
+        if (newSnapshot != snapshot && excelSheetChange != null) {
+            excelSheetChange.addCell(formula.row, formula.column);
+        }
+        return newSnapshot;
+    }
+
+    private void indexFormula(Formula formula) {
+        if (formula.error != null) {
+            aggregateIndex.putError(formula.row, formula.column);
+        } else {
+            aggregateIndex.putNumber(formula.row, formula.column, formula.value);
+        }
+    }
+
+    private void indexValue(ExcelSheetSnapshot snapshot, int row, int column) {
+        if (snapshot.getType(row, column) == CellValue.TYPE_NUMBER) {
+            aggregateIndex.putNumber(row, column, snapshot.getNumber(row, column));
+        } else {
+            aggregateIndex.remove(row, column);
+        }
+    }
+
+    /**
+     * Reads plain cells from the snapshot being recalculated and formula cells from their last result.
+     */
+    private class SnapshotEvaluationContext implements Expression.EvaluationContext {
+        ExcelSheetSnapshot snapshot;
+
+        @Override
+        public Object getValue(int row, int column) throws FormulaException {
+            Formula formula = formulas.get(row, column);
+            if (formula != null) {
+                if (formula.error != null) {
+                    throw new FormulaException(formula.error);
+                }
+                return formula.value;
+            }
+            switch (snapshot.getType(row, column)) {
+                case CellValue.TYPE_NUMBER:
+                    return snapshot.getNumber(row, column);
+                case CellValue.TYPE_BOOLEAN:
+                    return snapshot.getNumber(row, column) != 0;
+                case CellValue.TYPE_TEXT:
+                    return snapshot.getData(row, column);
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public void visitRange(int firstRow, int firstColumn, int lastRow, int lastColumn,
+                               Expression.RangeVisitor rangeVisitor) throws FormulaException {
+            if (!(rangeVisitor instanceof Expression.Aggregate) || !aggregateIndex.hasIndexedColumns()) {
+                scanRange(firstRow, firstColumn, lastRow, lastColumn, rangeVisitor);
+                return;
+            }
+            Expression.Aggregate aggregate = (Expression.Aggregate) rangeVisitor;
+            int column = firstColumn;
+            while (column <= lastColumn) {
+                if (aggregateIndex.aggregate(column, firstRow, lastRow, aggregate)) {
+                    column++;
+                    continue;
+                }
+                //Scan the run of columns the index cannot answer, an indexed column holding an
+                //error is scanned alone to find the error.
+                int lastScannedColumn = column;
+                while (lastScannedColumn < lastColumn && !aggregateIndex.isIndexed(lastScannedColumn + 1)) {
+                    lastScannedColumn++;
+                }
+                scanRange(firstRow, column, lastRow, lastScannedColumn, rangeVisitor);
+                column = lastScannedColumn + 1;
+            }
+        }
+
+        private void scanRange(final int firstRow, final int firstColumn, final int lastRow, final int lastColumn,
+                               final Expression.RangeVisitor rangeVisitor) throws FormulaException {
+            long area = (long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+            if (area <= snapshot.getCellCountEstimate()) {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        visitValue(getValue(row, column), rangeVisitor);
+                    }
+                }
+                return;
+            }
+            //A range larger than the data is cheaper to answer by walking the populated cells.
+            final FormulaException[] rangeError = new FormulaException[1];
+            snapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+                @Override
+                public void onVisitCell(int row, int column, String value) {
+                    if (rangeError[0] == null && row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn) {
+                        try {
+                            visitValue(getValue(row, column), rangeVisitor);
+                        } catch (FormulaException e) {
+                            rangeError[0] = e;
+                        }
+                    }
+                }
+            });
+            if (rangeError[0] != null) {
+                throw rangeError[0];
+            }
+        }
+
+        private void visitValue(Object value, Expression.RangeVisitor rangeVisitor) {
+            if (value instanceof Double) {
+                rangeVisitor.onVisitNumber((Double) value);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package android.santosh.com.codechallenge.formula;
+
+/**
+ * Created by Santosh on 8/27/17.
+ * <p>
+ * Raised while parsing or evaluating a formula. The error code is what the cell shows.
+ */
+
+public class FormulaException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public static final String ERROR_SYNTAX = "#ERROR!";
+    public static final String ERROR_NAME = "#NAME?";
+    public static final String ERROR_REF = "#REF!";
+    public static final String ERROR_VALUE = "#VALUE!";
+    public static final String ERROR_DIV_ZERO = "#DIV/0!";
+    public static final String ERROR_NUM = "#NUM!";
+    public static final String ERROR_CYCLE = "#CYCLE!";
+
+    private final String errorCode;
+
+    public FormulaException(String errorCode) {
+        super(errorCode);
+        this.errorCode = errorCode;
+    }
+
+    public FormulaException(String errorCode, String message) {
+        super(errorCode + " " + message);
+        this.errorCode = errorCode;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,248 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.santosh.com.codechallenge.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Created by Santosh on 8/27/17.
+ * <p>
+ * Recursive descent parser for formulas such as "=A1+B2*SUM(C1:C100)". Supports numbers, A1 style
+ * cell references ($ markers are accepted and ignored), ranges as function arguments, + - * / ^,
+ * unary minus, parentheses and SUM, AVERAGE, MIN, MAX and COUNT, with Excel's precedence. Not thread safe, one parser parses
+ * one formula at a time.
+ */
+
+public class FormulaParser {
+    private final int rowCount;
+    private final int columnCount;
+    private String source;
+    private int position;
+
+    public FormulaParser(int rowCount, int columnCount) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+    }
+
+    /**
+     * @param formula the cell text including the leading '='.
+     */
+    public Expression parse(String formula) throws FormulaException {
+        source = formula;
+        position = 1;
+        Expression expression = parseAdditive(false);
+        skipWhitespace();
+        if (position < source.length()) {
+            throw new FormulaException(FormulaException.ERROR_SYNTAX, "unexpected '" + source.charAt(position) + "'");
+        }
+        return expression;
+    }
+
+    private Expression parseAdditive(boolean allowRange) throws FormulaException {
+        Expression expression = parseMultiplicative(allowRange);
+        while (true) {
+            char operator = peek();
+            if (operator != '+' && operator != '-') {
+                return expression;
+            }
+            position++;
+            expression = new Expression.BinaryExpression(operator, expression, parseMultiplicative(false));
+        }
+    }
+
+    private Expression parseMultiplicative(boolean allowRange) throws FormulaException {
+        Expression expression = parsePower(allowRange);
+        while (true) {
+            char operator = peek();
+            if (operator != '*' && operator != '/') {
+                return expression;
+            }
+            position++;
+            expression = new Expression.BinaryExpression(operator, expression, parsePower(false));
+        }
+    }
+
+    /**
+     * As in Excel, ^ is left associative and binds looser than unary minus: 2^3^2 is 64 and -2^2 is 4.
+     */
+    private Expression parsePower(boolean allowRange) throws FormulaException {
+        Expression expression = parseUnary(allowRange);
+        while (peek() == '^') {
+            position++;
+            expression = new Expression.BinaryExpression('^', expression, parseUnary(false));
+        }
+        return expression;
+    }
+
+    private Expression parseUnary(boolean allowRange) throws FormulaException {
+        char sign = peek();
+        if (sign == '-') {
+            position++;
+            return new Expression.NegateExpression(parseUnary(false));
+        }
+        if (sign == '+') {
+            position++;
+            return parseUnary(false);
+        }
+        return parsePrimary(allowRange);
+    }
+
+    private Expression parsePrimary(boolean allowRange) throws FormulaException {
+        char next = peek();
+        if (next == '(') {
+            position++;
+            Expression expression = parseAdditive(false);
+            expect(')');
+            return expression;
+        }
+        if ((next >= '0' && next <= '9') || next == '.') {
+            return parseNumber();
+        }
+        if (next == '$' || Character.isLetter(next)) {
+            return parseReferenceOrFunction(allowRange);
+        }
+        if (next == 0) {
+            throw new FormulaException(FormulaException.ERROR_SYNTAX, "unexpected end of formula");
+        }
+        throw new FormulaException(FormulaException.ERROR_SYNTAX, "unexpected '" + next + "'");
+    }
+
+    private Expression parseNumber() throws FormulaException {
+        int start = position;
+        while (position < source.length() && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+            position++;
+        }
+        if (position < source.length() && (source.charAt(position) == 'e' || source.charAt(position) == 'E')) {
+            position++;
+            if (position < source.length() && (source.charAt(position) == '+' || source.charAt(position) == '-')) {
+                position++;
+            }
+            while (position < source.length() && Character.isDigit(source.charAt(position))) {
+                position++;
+            }
+        }
+        double value;
+        try {
+            value = Double.parseDouble(source.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw new FormulaException(FormulaException.ERROR_SYNTAX, "bad number " + source.substring(start, position));
+        }
+        //A literal like 1e400 overflows to infinity, which is not a number a cell can hold.
+        if (Double.isInfinite(value) || Double.isNaN(value)) {
+            throw new FormulaException(FormulaException.ERROR_NUM, "number out of range " + source.substring(start, position));
+        }
+        return new Expression.NumberExpression(value);
+    }
+
+    private Expression parseReferenceOrFunction(boolean allowRange) throws FormulaException {
+        int start = position;
+        int[] cell = readCell();
+        if (cell == null) {
+            position = start;
+            String name = readLetters().toUpperCase(Locale.US);
+            if (peek() != '(') {
+                throw new FormulaException(FormulaException.ERROR_NAME, name);
+            }
+            if (!Expression.FunctionExpression.isSupported(name)) {
+                throw new FormulaException(FormulaException.ERROR_NAME, name);
+            }
+            position++;
+            List<Expression> arguments = new ArrayList<>();
+            if (peek() != ')') {
+                do {
+                    arguments.add(parseAdditive(true));
+                } while (consume(','));
+            }
+            expect(')');
+            return new Expression.FunctionExpression(name, arguments);
+        }
+        if (peek() == ':') {
+            if (!allowRange) {
+                throw new FormulaException(FormulaException.ERROR_VALUE, "range outside of a function");
+            }
+            position++;
+            skipWhitespace();
+            int[] lastCell = readCell();
+            if (lastCell == null) {
+                throw new FormulaException(FormulaException.ERROR_SYNTAX, "bad range end");
+            }
+            return new Expression.RangeReference(cell[0], cell[1], lastCell[0], lastCell[1]);
+        }
+        return new Expression.CellReference(cell[0], cell[1]);
+    }
+
+    /**
+     * @return {row, column} of an A1 style reference at the current position, or null when there is
+     * none. Leaves the position after the reference.
+     */
+    private int[] readCell() throws FormulaException {
+        skipWhitespace();
+        int start = position;
+        skipDollar();
+        String letters = readLetters();
+        skipDollar();
+        int digitsStart = position;
+        while (position < source.length() && Character.isDigit(source.charAt(position))) {
+            position++;
+        }
+        if (letters.isEmpty() || digitsStart == position) {
+            position = start;
+            return null;
+        }
+        int column = Utils.columnIndex(letters);
+        long row;
+        try {
+            row = Long.parseLong(source.substring(digitsStart, position)) - 1;
+        } catch (NumberFormatException e) {
+            row = -1;
+        }
+        if (column < 0 || column >= columnCount || row < 0 || row >= rowCount) {
+            throw new FormulaException(FormulaException.ERROR_REF, source.substring(start, position));
+        }
+        return new int[]{(int) row, column};
+    }
+
+    private void skipDollar() {
+        if (position < source.length() && source.charAt(position) == '$') {
+            position++;
+        }
+    }
+
+    private String readLetters() {
+        int start = position;
+        while (position < source.length() && Character.isLetter(source.charAt(position))) {
+            position++;
+        }
+        return source.substring(start, position);
+    }
+
+    /**
+     * @return the next non whitespace character without consuming it, 0 at the end.
+     */
+    private char peek() {
+        skipWhitespace();
+        return position < source.length() ? source.charAt(position) : 0;
+    }
+
+    private boolean consume(char expected) {
+        if (peek() == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char expected) throws FormulaException {
+        if (!consume(expected)) {
+            throw new FormulaException(FormulaException.ERROR_SYNTAX, "expected '" + expected + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+}
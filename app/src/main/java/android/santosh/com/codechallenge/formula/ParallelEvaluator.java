@@ -0,0 +1,68 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Created by Santosh on 8/28/17.
+ * <p>
+ * Evaluates the formulas of one recalculation level on a bounded ForkJoinPool. Formulas of the same
+ * level never read each other, so they can be evaluated in any order and on any thread.
+ * ForkJoinPool is only available from Lollipop, the engine evaluates on its own thread before that.
+ */
+
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class ParallelEvaluator {
+    //Formulas one task evaluates without splitting further.
+    private static final int TASK_SIZE = 64;
+
+    private final ForkJoinPool forkJoinPool;
+
+    ParallelEvaluator(int parallelism) {
+        this.forkJoinPool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Evaluates every formula of the level and returns once all of them are done.
+     */
+    void evaluate(FormulaEngine formulaEngine, List<FormulaEngine.Formula> level) {
+        forkJoinPool.invoke(new EvaluateTask(formulaEngine, level, 0, level.size()));
+    }
+
+    void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    private static class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FormulaEngine formulaEngine;
+        private final List<FormulaEngine.Formula> level;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(FormulaEngine formulaEngine, List<FormulaEngine.Formula> level, int from, int to) {
+            this.formulaEngine = formulaEngine;
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    formulaEngine.evaluate(level.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(formulaEngine, level, from, middle),
+                    new EvaluateTask(formulaEngine, level, middle, to));
+        }
+    }
+}
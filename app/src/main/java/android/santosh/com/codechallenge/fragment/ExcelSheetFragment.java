@@ -3,11 +3,17 @@ package android.santosh.com.codechallenge.fragment;
 import android.os.Bundle;
 import android.santosh.com.codechallenge.R;
 import android.santosh.com.codechallenge.interfaces.ExcelSheetClickListener;
+import android.santosh.com.codechallenge.interfaces.ExcelSheetContent;
 import android.santosh.com.codechallenge.interfaces.ExcelSheetListener;
+import android.santosh.com.codechallenge.interfaces.ExcelSheetLoadListener;
 import android.santosh.com.codechallenge.model.ColumnTitle;
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
 import android.santosh.com.codechallenge.model.HeaderTitle;
+import android.santosh.com.codechallenge.model.RowOrder;
+import android.santosh.com.codechallenge.model.Selection;
 import android.santosh.com.codechallenge.model.TableData;
 import android.santosh.com.codechallenge.recyclerviewadapters.CustomAdapter;
+import android.santosh.com.codechallenge.search.SearchQuery;
 import android.santosh.com.codechallenge.views.ExcelSheetEditText;
 import android.santosh.com.codechallenge.views.ExcelSheetView;
 import android.support.annotation.Nullable;
@@ -16,6 +22,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ProgressBar;
+import android.widget.Toast;
 
 import java.util.List;
 
@@ -23,7 +30,8 @@ import java.util.List;
  * Created by Santosh on 8/13/17.
  */
 
-public class ExcelSheetFragment extends BaseFragment implements ExcelSheetListener, ExcelSheetClickListener {
+public class ExcelSheetFragment extends BaseFragment implements ExcelSheetListener, ExcelSheetClickListener,
+        ExcelSheetLoadListener {
     private static String TAG = ExcelSheetFragment.class.getSimpleName();
 
     private ProgressBar progress;
@@ -35,6 +43,7 @@ public class ExcelSheetFragment extends BaseFragment implements ExcelSheetListen
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         applicationAPI.getApplicationController().addExcelSheetListener(this);
+        applicationAPI.getApplicationController().setExcelSheetLoadListener(this);
     }
 
     @Nullable
@@ -60,22 +69,35 @@ public class ExcelSheetFragment extends BaseFragment implements ExcelSheetListen
     public void onDestroy() {
         super.onDestroy();
         applicationAPI.getApplicationController().removeExcelSheetListener(this);
+        applicationAPI.getApplicationController().setExcelSheetLoadListener(null);
     }
 
     @Override
-    public void onExcelSheetLoaded(List<HeaderTitle> headerTitleList, List<ColumnTitle> columnTitleList, List<List<TableData.CellData>> tableDataList) {
-        progress.setVisibility(View.GONE);
+    public void onExcelSheetLoaded(List<HeaderTitle> headerTitleList, List<ColumnTitle> columnTitleList, ExcelSheetContent<TableData.CellData> excelSheetContent) {
+        //The progress stays up until the rest of the sheet is loaded, see onExcelSheetFullyLoaded.
         excelSheetEditText.setVisibility(View.VISIBLE);
         excelSheetEditText.setText("");
         excelSheetEditText.clearFocus();
-        customAdapter.setAllData(headerTitleList, columnTitleList, tableDataList);
+        customAdapter.setAllData(headerTitleList, columnTitleList, excelSheetContent);
+    }
+
+    @Override
+    public void onExcelSheetFirstCellsShown(long elapsedMillis) {
+        Log.d(TAG, "onExcelSheetFirstCellsShown, elapsedMillis: " + elapsedMillis);
+    }
+
+    @Override
+    public void onExcelSheetFullyLoaded(long elapsedMillis) {
+        Log.d(TAG, "onExcelSheetFullyLoaded, elapsedMillis: " + elapsedMillis);
+        progress.setVisibility(View.GONE);
     }
 
     @Override
     public void onExcelSheetContentClicked(TableData.CellData cellData, int row, int column) {
-        Log.d(TAG, "cellData.getData(): " + cellData.getData() + ", row: " + row + ", column: " + column);
+        String data = cellData != null ? cellData.getData() : null;
+        Log.d(TAG, "cellData.getData(): " + data + ", row: " + row + ", column: " + column);
         applicationAPI.getApplicationController().updateCellSelectedStatus(row, column);
-        excelSheetEditText.setInfo(cellData.getData(), row, column);
+        excelSheetEditText.setInfo(data, row, column);
     }
 
     @Override
@@ -85,7 +107,44 @@ public class ExcelSheetFragment extends BaseFragment implements ExcelSheetListen
     }
 
     @Override
-    public void onExcelSheetCellDataRefreshed(List<List<TableData.CellData>> tableDataList) {
-        customAdapter.setContentData(tableDataList);
+    public void onExcelSheetCellDataChanged(ExcelSheetContent<TableData.CellData> excelSheetContent, ExcelSheetChange excelSheetChange) {
+        customAdapter.notifyContentChanged(excelSheetContent, excelSheetChange);
+        //Typed changes already show in the edit text, undo, redo and replace have to be pushed to it.
+        if ((ExcelSheetChange.PAYLOAD_HISTORY.equals(excelSheetChange.getPayload())
+                || ExcelSheetChange.PAYLOAD_REPLACE.equals(excelSheetChange.getPayload()))
+                && excelSheetChange.contains(excelSheetEditText.getRow(), excelSheetEditText.getColumn())) {
+            TableData.CellData cellData = excelSheetContent.get(excelSheetEditText.getRow(), excelSheetEditText.getColumn());
+            excelSheetEditText.refreshData(cellData != null ? cellData.getData() : null);
+        }
+    }
+
+    @Override
+    public void onExcelSheetSelectionChanged(Selection selection, ExcelSheetChange excelSheetChange) {
+        customAdapter.notifySelectionChanged(selection, excelSheetChange);
+    }
+
+    @Override
+    public void onExcelSheetRowOrderChanged(RowOrder rowOrder) {
+        customAdapter.setRowOrder(rowOrder);
+    }
+
+    @Override
+    public void onExcelSheetCellFound(SearchQuery query, int row, int column) {
+        if (row < 0) {
+            Toast.makeText(getContext(), getString(R.string.find_no_match, query.getText()), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        excelSheetView.scrollToCell(customAdapter.getViewRow(row), column);
+        ExcelSheetContent<TableData.CellData> excelSheetContent = applicationAPI.getApplicationController().getExcelSheetSnapshot();
+        TableData.CellData cellData = excelSheetContent != null ? excelSheetContent.get(row, column) : null;
+        excelSheetEditText.setInfo(cellData != null ? cellData.getData() : null, row, column);
+    }
+
+    @Override
+    public void onExcelSheetReplaceProgress(int replacedCount, int checkedCount, int matchCount, boolean finished) {
+        Log.d(TAG, "onExcelSheetReplaceProgress, replaced: " + replacedCount + ", checked: " + checkedCount + " of " + matchCount);
+        if (finished) {
+            Toast.makeText(getContext(), getString(R.string.replace_finished, replacedCount), Toast.LENGTH_SHORT).show();
+        }
     }
 }
@@ -0,0 +1,13 @@
+package android.santosh.com.codechallenge.interfaces;
+
+/**
+ * Created by Santosh on 8/22/17.
+ */
+
+public interface ExcelSheetContent<V> {
+
+    /**
+     * @return the cell at the given position or null when the cell is empty.
+     */
+    V get(int row, int column);
+}
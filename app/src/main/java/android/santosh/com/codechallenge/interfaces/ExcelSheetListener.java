@@ -1,8 +1,12 @@
 package android.santosh.com.codechallenge.interfaces;
 
 import android.santosh.com.codechallenge.model.ColumnTitle;
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
 import android.santosh.com.codechallenge.model.HeaderTitle;
+import android.santosh.com.codechallenge.model.RowOrder;
+import android.santosh.com.codechallenge.model.Selection;
 import android.santosh.com.codechallenge.model.TableData;
+import android.santosh.com.codechallenge.search.SearchQuery;
 
 import java.util.List;
 
@@ -13,7 +17,27 @@ import java.util.List;
 public interface ExcelSheetListener {
     void onExcelSheetLoaded(List<HeaderTitle> headerTitleList,
                             List<ColumnTitle> columnTitleList,
-                            List<List<TableData.CellData>> tableDataList);
+                            ExcelSheetContent<TableData.CellData> excelSheetContent);
 
-    void onExcelSheetCellDataRefreshed(List<List<TableData.CellData>> tableDataList);
+    void onExcelSheetCellDataChanged(ExcelSheetContent<TableData.CellData> excelSheetContent, ExcelSheetChange excelSheetChange);
+
+    void onExcelSheetSelectionChanged(Selection selection, ExcelSheetChange excelSheetChange);
+
+    /**
+     * The rows are shown in a new order, every shown row has to be bound again.
+     */
+    void onExcelSheetRowOrderChanged(RowOrder rowOrder);
+
+    /**
+     * The cell matching the query was selected, row and column are -1 when no cell matches.
+     */
+    void onExcelSheetCellFound(SearchQuery query, int row, int column);
+
+    /**
+     * Called after every chunk of a replace-all and once more with finished set when it is done or
+     * cancelled.
+     *
+     * @param checkedCount cells checked so far out of the matchCount cells found at the start.
+     */
+    void onExcelSheetReplaceProgress(int replacedCount, int checkedCount, int matchCount, boolean finished);
 }
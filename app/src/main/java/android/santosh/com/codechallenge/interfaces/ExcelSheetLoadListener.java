@@ -0,0 +1,15 @@
+package android.santosh.com.codechallenge.interfaces;
+
+/**
+ * Created by Santosh on 8/25/17.
+ * <p>
+ * Load timings, measured from the fetch or reload call. Called on the UI thread.
+ */
+
+public interface ExcelSheetLoadListener {
+
+    void onExcelSheetFirstCellsShown(long elapsedMillis);
+
+    void onExcelSheetFullyLoaded(long elapsedMillis);
+
+}
@@ -4,6 +4,8 @@ import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.util.List;
+
 /**
  * Created by Santosh on 8/11/17.
  */
@@ -14,6 +16,11 @@ public interface ExcelSheetRecyclerViewListener {
 
     void onBindCellDataViewHolder(RecyclerView.ViewHolder holder, int horizontalPosition, int verticalPosition);
 
+    /**
+     * Partial bind for notifyItemChanged calls made with a payload, payloads is empty for a full bind.
+     */
+    void onBindCellDataViewHolder(RecyclerView.ViewHolder holder, int horizontalPosition, int verticalPosition, List<Object> payloads);
+
     RecyclerView.ViewHolder onCreateHeaderViewHolder(ViewGroup parent, int viewType);
 
     void onBindHeaderViewHolder(RecyclerView.ViewHolder holder, int position);
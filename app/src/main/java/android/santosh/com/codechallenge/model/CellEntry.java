@@ -0,0 +1,31 @@
+package android.santosh.com.codechallenge.model;
+
+/**
+ * Created by Santosh on 8/20/17.
+ * <p>
+ * A populated cell with its position, used to save the sheet sparsely.
+ */
+
+public class CellEntry {
+    private int row;
+    private int column;
+    private String data;
+
+    public CellEntry(int row, int column, String data) {
+        this.row = row;
+        this.column = column;
+        this.data = data;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getData() {
+        return data;
+    }
+}
@@ -0,0 +1,88 @@
+package android.santosh.com.codechallenge.model;
+
+/**
+ * Created by Santosh on 8/30/17.
+ * <p>
+ * Detects the type of cell data when it is written, so readers get numbers without parsing them
+ * again. A number is plain decimal or scientific notation, "NaN", "Infinity", hex and a trailing d
+ * or f stay text as in a sheet. Formulas are text here, the formula engine evaluates them.
+ */
+
+public final class CellValue {
+    public static final int TYPE_EMPTY = 0;
+    public static final int TYPE_NUMBER = 1;
+    public static final int TYPE_BOOLEAN = 2;
+    public static final int TYPE_TEXT = 3;
+
+    public static final String TRUE = "TRUE";
+    public static final String FALSE = "FALSE";
+
+    private CellValue() {
+    }
+
+    public static int typeOf(String data) {
+        if (data == null || data.length() == 0) {
+            return TYPE_EMPTY;
+        }
+        String trimmed = data.trim();
+        if (isNumber(trimmed)) {
+            return TYPE_NUMBER;
+        }
+        if (TRUE.equalsIgnoreCase(trimmed) || FALSE.equalsIgnoreCase(trimmed)) {
+            return TYPE_BOOLEAN;
+        }
+        return TYPE_TEXT;
+    }
+
+    /**
+     * @return the number of data typed {@link #TYPE_NUMBER}, 1 or 0 for {@link #TYPE_BOOLEAN}.
+     */
+    public static double toNumber(String data, int type) {
+        if (type == TYPE_BOOLEAN) {
+            return TRUE.equalsIgnoreCase(data.trim()) ? 1 : 0;
+        }
+        return Double.parseDouble(data.trim());
+    }
+
+    /**
+     * @return how the number is shown, integers without a fraction.
+     */
+    public static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * @return how a number or boolean is shown when it was typed in its usual spelling. Data typed
+     * any other way, "1.50" or "true", has to be kept as it was typed.
+     */
+    public static String format(double value, int type) {
+        if (type == TYPE_BOOLEAN) {
+            return value != 0 ? TRUE : FALSE;
+        }
+        return formatNumber(value);
+    }
+
+    private static boolean isNumber(String trimmed) {
+        boolean hasDigit = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') {
+                return false;
+            }
+        }
+        if (!hasDigit) {
+            return false;
+        }
+        try {
+            double value = Double.parseDouble(trimmed);
+            return !Double.isInfinite(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
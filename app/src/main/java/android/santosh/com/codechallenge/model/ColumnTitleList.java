@@ -0,0 +1,35 @@
+package android.santosh.com.codechallenge.model;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Created by Santosh on 8/20/17.
+ * <p>
+ * Virtual list of row titles. Titles are created on demand, so the list costs
+ * the same whatever the row count is. Rows are numbered from 1 so the titles match
+ * A1 style references in formulas.
+ */
+
+public class ColumnTitleList extends AbstractList<ColumnTitle> implements RandomAccess {
+    private final int size;
+
+    public ColumnTitleList(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public ColumnTitle get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        ColumnTitle columnTitle = new ColumnTitle();
+        columnTitle.setTitle(Integer.toString(index + 1));
+        return columnTitle;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,312 @@
+package android.santosh.com.codechallenge.model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Created by Santosh on 8/26/17.
+ * <p>
+ * Undo and redo log of the sheet. Cell edits are stored as deltas, the old and new value of every
+ * cell they touched, and a clear keeps a reference to the snapshot it replaced, which shares its
+ * cells with the sheet instead of copying them. Consecutive edits of the same single cell merge
+ * into one entry until the log is sealed.
+ * <p>
+ * The estimated size of all entries is kept under the memory limit by dropping the oldest undo
+ * entries first. Only used from the controller's executor.
+ */
+
+public class EditHistory {
+    public static final long DEFAULT_MEMORY_LIMIT = 4 * 1024 * 1024;
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int CELL_OVERHEAD = 24;
+    private static final int STRING_OVERHEAD = 40;
+
+    private final Deque<Entry> undoEntries = new ArrayDeque<>();
+    private final Deque<Entry> redoEntries = new ArrayDeque<>();
+    private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+    private long memorySize;
+    private boolean sealed = true;
+
+    public abstract static class Entry {
+        abstract long estimateSize();
+    }
+
+    /**
+     * Old and new values of the cells changed by one entry, null meaning empty.
+     */
+    public abstract static class CellChangeEntry extends Entry {
+        public abstract int getCellCount();
+
+        public abstract int getRow(int index);
+
+        public abstract int getColumn(int index);
+
+        public abstract String getOldData(int index);
+
+        public abstract String getNewData(int index);
+    }
+
+    /**
+     * Old and new values of the cells changed by one edit, null meaning empty.
+     */
+    public static final class CellEditEntry extends CellChangeEntry {
+        private long[] cells = new long[1];
+        private String[] oldData = new String[1];
+        private String[] newData = new String[1];
+        private int cellCount;
+
+        public void addCell(int row, int column, String oldValue, String newValue) {
+            if (cellCount == cells.length) {
+                cells = Arrays.copyOf(cells, cellCount << 1);
+                oldData = Arrays.copyOf(oldData, cellCount << 1);
+                newData = Arrays.copyOf(newData, cellCount << 1);
+            }
+            cells[cellCount] = SparseCellStore.key(row, column);
+            oldData[cellCount] = oldValue;
+            newData[cellCount] = newValue;
+            cellCount++;
+        }
+
+        @Override
+        public int getCellCount() {
+            return cellCount;
+        }
+
+        @Override
+        public int getRow(int index) {
+            return SparseCellStore.row(cells[index]);
+        }
+
+        @Override
+        public int getColumn(int index) {
+            return SparseCellStore.column(cells[index]);
+        }
+
+        @Override
+        public String getOldData(int index) {
+            return oldData[index];
+        }
+
+        @Override
+        public String getNewData(int index) {
+            return newData[index];
+        }
+
+        @Override
+        long estimateSize() {
+            long size = ENTRY_OVERHEAD + (long) cells.length * CELL_OVERHEAD;
+            for (int i = 0; i < cellCount; i++) {
+                size += estimateSize(oldData[i]) + estimateSize(newData[i]);
+            }
+            return size;
+        }
+
+        private static long estimateSize(String value) {
+            return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+        }
+    }
+
+    /**
+     * Cells changed by one bulk operation, a replace-all. Their values are read from the snapshots
+     * taken before and after each chunk of the operation, which share their cells with the sheet, so
+     * the entry itself only stores the cell keys instead of two strings per cell.
+     */
+    public static final class BulkEditEntry extends CellChangeEntry {
+        private long[] cells = new long[16];
+        private int cellCount;
+        //Index after the last cell of each chunk, with the snapshots around it.
+        private int[] chunkEnds = new int[4];
+        private ExcelSheetSnapshot[] oldSnapshots = new ExcelSheetSnapshot[4];
+        private ExcelSheetSnapshot[] newSnapshots = new ExcelSheetSnapshot[4];
+        private int chunkCount;
+        //Replaced cells that were already edited, their old values stay on the heap.
+        private int editedCellCount;
+
+        /**
+         * @param oldSnapshot the sheet before the chunk changed the cells.
+         * @param newSnapshot the sheet after.
+         */
+        public void addChunk(long[] chunkCells, int chunkCellCount, ExcelSheetSnapshot oldSnapshot, ExcelSheetSnapshot newSnapshot) {
+            if (cellCount + chunkCellCount > cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(cells.length << 1, cellCount + chunkCellCount));
+            }
+            System.arraycopy(chunkCells, 0, cells, cellCount, chunkCellCount);
+            cellCount += chunkCellCount;
+            if (chunkCount == chunkEnds.length) {
+                chunkEnds = Arrays.copyOf(chunkEnds, chunkCount << 1);
+                oldSnapshots = Arrays.copyOf(oldSnapshots, chunkCount << 1);
+                newSnapshots = Arrays.copyOf(newSnapshots, chunkCount << 1);
+            }
+            chunkEnds[chunkCount] = cellCount;
+            oldSnapshots[chunkCount] = oldSnapshot;
+            newSnapshots[chunkCount] = newSnapshot;
+            chunkCount++;
+            //Cells taken from the saved file become edited cells, the others were edited already.
+            int newlyEditedCount = newSnapshot.getEditedCellCount() - oldSnapshot.getEditedCellCount();
+            editedCellCount += Math.max(0, chunkCellCount - newlyEditedCount);
+        }
+
+        @Override
+        public int getCellCount() {
+            return cellCount;
+        }
+
+        @Override
+        public int getRow(int index) {
+            return SparseCellStore.row(cells[index]);
+        }
+
+        @Override
+        public int getColumn(int index) {
+            return SparseCellStore.column(cells[index]);
+        }
+
+        @Override
+        public String getOldData(int index) {
+            return oldSnapshots[chunkOf(index)].getData(getRow(index), getColumn(index));
+        }
+
+        @Override
+        public String getNewData(int index) {
+            return newSnapshots[chunkOf(index)].getData(getRow(index), getColumn(index));
+        }
+
+        private int chunkOf(int index) {
+            int chunk = Arrays.binarySearch(chunkEnds, 0, chunkCount, index);
+            //An exact hit is the end of the previous chunk, so the cell starts the next one.
+            return chunk >= 0 ? chunk + 1 : -chunk - 1;
+        }
+
+        @Override
+        long estimateSize() {
+            return ENTRY_OVERHEAD + (long) cells.length * 8 + (long) chunkCount * ENTRY_OVERHEAD
+                    + (long) editedCellCount * (CELL_OVERHEAD + STRING_OVERHEAD);
+        }
+    }
+
+    public static final class ClearEntry extends Entry {
+        private final ExcelSheetSnapshot clearedSnapshot;
+
+        public ClearEntry(ExcelSheetSnapshot clearedSnapshot) {
+            this.clearedSnapshot = clearedSnapshot;
+        }
+
+        /**
+         * @return the snapshot from right before the clear.
+         */
+        public ExcelSheetSnapshot getClearedSnapshot() {
+            return clearedSnapshot;
+        }
+
+        @Override
+        long estimateSize() {
+            //The saved file is mapped, only the edited cells held by the snapshot are on the heap.
+            return ENTRY_OVERHEAD + (long) clearedSnapshot.getEditedCellCount() * (CELL_OVERHEAD + ENTRY_OVERHEAD);
+        }
+    }
+
+    public void setMemoryLimit(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+        evict();
+    }
+
+    /**
+     * Records a new entry and drops everything that could be redone. An edit of a single cell is
+     * merged into the previous entry when that was an unsealed edit of the same cell.
+     */
+    public void record(Entry entry) {
+        for (Entry redoEntry : redoEntries) {
+            memorySize -= redoEntry.estimateSize();
+        }
+        redoEntries.clear();
+        Entry lastEntry = undoEntries.peekLast();
+        if (!sealed && lastEntry != null && canMerge(lastEntry, entry)) {
+            CellEditEntry lastCellEditEntry = (CellEditEntry) lastEntry;
+            memorySize -= lastCellEditEntry.estimateSize();
+            lastCellEditEntry.newData[0] = ((CellEditEntry) entry).newData[0];
+            memorySize += lastCellEditEntry.estimateSize();
+        } else {
+            undoEntries.addLast(entry);
+            memorySize += entry.estimateSize();
+        }
+        sealed = !(entry instanceof CellEditEntry);
+        evict();
+    }
+
+    /**
+     * The next edit starts a new entry even if it is for the same cell.
+     */
+    public void seal() {
+        sealed = true;
+    }
+
+    public boolean canUndo() {
+        return !undoEntries.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoEntries.isEmpty();
+    }
+
+    /**
+     * @return the entry to revert, moved to the redo side, or null when there is nothing to undo.
+     */
+    public Entry undo() {
+        Entry entry = undoEntries.pollLast();
+        if (entry != null) {
+            redoEntries.addLast(entry);
+        }
+        sealed = true;
+        evict();
+        return entry;
+    }
+
+    /**
+     * @return the entry to apply again, moved to the undo side, or null when there is nothing to redo.
+     */
+    public Entry redo() {
+        Entry entry = redoEntries.pollLast();
+        if (entry != null) {
+            undoEntries.addLast(entry);
+        }
+        sealed = true;
+        evict();
+        return entry;
+    }
+
+    public void clear() {
+        undoEntries.clear();
+        redoEntries.clear();
+        memorySize = 0;
+        sealed = true;
+    }
+
+    public long getMemorySize() {
+        return memorySize;
+    }
+
+    private static boolean canMerge(Entry lastEntry, Entry entry) {
+        if (!(lastEntry instanceof CellEditEntry) || !(entry instanceof CellEditEntry)) {
+            return false;
+        }
+        CellEditEntry lastCellEditEntry = (CellEditEntry) lastEntry;
+        CellEditEntry cellEditEntry = (CellEditEntry) entry;
+        return lastCellEditEntry.cellCount == 1 && cellEditEntry.cellCount == 1
+                && lastCellEditEntry.cells[0] == cellEditEntry.cells[0];
+    }
+
+    /**
+     * Drops the oldest undo entries first. Once none are left the redo entries go too, starting
+     * with the one that would be redone last, so undoing a large edit cannot keep the history
+     * over its limit.
+     */
+    private void evict() {
+        while (memorySize > memoryLimit && !undoEntries.isEmpty()) {
+            memorySize -= undoEntries.pollFirst().estimateSize();
+        }
+        while (memorySize > memoryLimit && !redoEntries.isEmpty()) {
+            memorySize -= redoEntries.pollFirst().estimateSize();
+        }
+    }
+}
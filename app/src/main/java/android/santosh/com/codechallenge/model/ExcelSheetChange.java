@@ -0,0 +1,116 @@
+package android.santosh.com.codechallenge.model;
+
+import java.util.Arrays;
+
+/**
+ * Created by Santosh on 8/24/17.
+ * <p>
+ * Describes which part of the sheet changed: single cells, a range of rows and/or a range of
+ * columns. The payload tells the adapters what to rebind. Built on the controller's executor and
+ * not modified once it is handed to the listeners.
+ */
+
+public class ExcelSheetChange {
+    public static final String PAYLOAD_CELL_DATA = "cell_data";
+    public static final String PAYLOAD_SELECTION = "selection";
+    //Cell data changed by undo or redo rather than by typing.
+    public static final String PAYLOAD_HISTORY = "history";
+    //Cell data changed by a replace-all.
+    public static final String PAYLOAD_REPLACE = "replace";
+
+    private final String payload;
+    private long[] cells = new long[4];
+    private int cellCount;
+    private int firstRow = -1;
+    private int lastRow = -1;
+    private int firstColumn = -1;
+    private int lastColumn = -1;
+
+    public ExcelSheetChange(String payload) {
+        this.payload = payload;
+    }
+
+    public ExcelSheetChange addCell(int row, int column) {
+        if (cellCount == cells.length) {
+            cells = Arrays.copyOf(cells, cellCount << 1);
+        }
+        cells[cellCount++] = SparseCellStore.key(row, column);
+        return this;
+    }
+
+    /**
+     * Rows are merged into one range spanning every row added.
+     */
+    public ExcelSheetChange addRows(int firstRow, int lastRow) {
+        this.firstRow = this.firstRow < 0 ? firstRow : Math.min(this.firstRow, firstRow);
+        this.lastRow = Math.max(this.lastRow, lastRow);
+        return this;
+    }
+
+    /**
+     * Columns are merged into one range spanning every column added.
+     */
+    public ExcelSheetChange addColumns(int firstColumn, int lastColumn) {
+        this.firstColumn = this.firstColumn < 0 ? firstColumn : Math.min(this.firstColumn, firstColumn);
+        this.lastColumn = Math.max(this.lastColumn, lastColumn);
+        return this;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public int getCellRow(int index) {
+        return SparseCellStore.row(cells[index]);
+    }
+
+    public int getCellColumn(int index) {
+        return SparseCellStore.column(cells[index]);
+    }
+
+    public boolean hasRows() {
+        return firstRow >= 0;
+    }
+
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public boolean hasColumns() {
+        return firstColumn >= 0;
+    }
+
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    public int getLastColumn() {
+        return lastColumn;
+    }
+
+    public boolean contains(int row, int column) {
+        if ((hasRows() && row >= firstRow && row <= lastRow)
+                || (hasColumns() && column >= firstColumn && column <= lastColumn)) {
+            return true;
+        }
+        long key = SparseCellStore.key(row, column);
+        for (int i = 0; i < cellCount; i++) {
+            if (cells[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return cellCount == 0 && !hasRows() && !hasColumns();
+    }
+}
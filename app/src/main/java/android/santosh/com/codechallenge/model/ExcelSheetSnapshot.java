@@ -0,0 +1,209 @@
+package android.santosh.com.codechallenge.model;
+
+import android.santosh.com.codechallenge.interfaces.ExcelSheetContent;
+import android.santosh.com.codechallenge.storage.ExcelSheetFile;
+
+/**
+ * Created by Santosh on 8/24/17.
+ * <p>
+ * One immutable version of the open sheet: the saved sheet file, read lazily through its mapping,
+ * plus the cells edited since it was opened. Every change returns a new snapshot that shares all
+ * untouched cells with this one, so a snapshot handed to the UI or to a background job never
+ * changes underneath it.
+ * <p>
+ * Edited cells are kept typed in a {@link TypedCellStore}, so numbers cost a double rather than a
+ * String and readers get them without parsing. An edited cell that became empty while the file
+ * still has a value is kept as an empty string so it hides the saved value. Formula cells hold the formula as their data and the formatted result
+ * in a separate layer of computed values, which is never saved.
+ * <p>
+ * Clearing starts a new generation with no file and no edits instead of emptying cells one by one,
+ * so it is O(1). The cells of older generations stay reachable from the snapshots that hold them,
+ * which is what lets a clear be undone, and are garbage collected once those are dropped.
+ */
+
+public final class ExcelSheetSnapshot implements ExcelSheetContent<TableData.CellData> {
+    private static final ExcelSheetSnapshot EMPTY = new ExcelSheetSnapshot(0, 0, null,
+            TypedCellStore.empty(), PersistentCellMap.<String>empty());
+
+    private final long version;
+    private final int generation;
+    private final ExcelSheetFile excelSheetFile;
+    private final TypedCellStore editedCells;
+    private final PersistentCellMap<String> computedValues;
+
+    private ExcelSheetSnapshot(long version, int generation, ExcelSheetFile excelSheetFile,
+                               TypedCellStore editedCells, PersistentCellMap<String> computedValues) {
+        this.version = version;
+        this.generation = generation;
+        this.excelSheetFile = excelSheetFile;
+        this.editedCells = editedCells;
+        this.computedValues = computedValues;
+    }
+
+    public static ExcelSheetSnapshot empty() {
+        return EMPTY;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return a counter bumped every time the whole sheet is replaced, by a clear or by undoing one.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return a new CellData for the cell, or null when the cell is empty.
+     */
+    @Override
+    public TableData.CellData get(int row, int column) {
+        String data = getData(row, column);
+        if (data == null) {
+            return null;
+        }
+        TableData.CellData cellData = new TableData.CellData();
+        cellData.setData(data);
+        cellData.setDisplayData(computedValues.get(row, column));
+        return cellData;
+    }
+
+    /**
+     * @return the cell value or null when the cell is empty.
+     */
+    public String getData(int row, int column) {
+        String data = editedCells.get(row, column);
+        if (data == null && excelSheetFile != null) {
+            data = excelSheetFile.get(row, column);
+        }
+        return isEmpty(data) ? null : data;
+    }
+
+    /**
+     * @return the {@link CellValue} type detected when the cell was written.
+     */
+    public int getType(int row, int column) {
+        int type = editedCells.getType(row, column);
+        if (type != TypedCellStore.NOT_STORED) {
+            return type;
+        }
+        return excelSheetFile != null ? excelSheetFile.getType(row, column) : CellValue.TYPE_EMPTY;
+    }
+
+    /**
+     * @return the value of a number or boolean cell without parsing it, 0 for any other cell.
+     */
+    public double getNumber(int row, int column) {
+        if (editedCells.containsKey(row, column)) {
+            return editedCells.getNumber(row, column);
+        }
+        return excelSheetFile != null ? excelSheetFile.getNumber(row, column) : 0;
+    }
+
+    /**
+     * @return the formatted result when the cell holds a formula, otherwise its data.
+     */
+    public String getDisplayData(int row, int column) {
+        String computedValue = computedValues.get(row, column);
+        return computedValue != null ? computedValue : getData(row, column);
+    }
+
+    public int getEditedCellCount() {
+        return editedCells.size();
+    }
+
+    /**
+     * @return an upper bound of the number of cells holding data.
+     */
+    public int getCellCountEstimate() {
+        return editedCells.size() + (excelSheetFile != null ? excelSheetFile.getCellCount() : 0);
+    }
+
+    public ExcelSheetSnapshot withExcelSheetFile(ExcelSheetFile excelSheetFile) {
+        return new ExcelSheetSnapshot(version + 1, generation, excelSheetFile, editedCells, computedValues);
+    }
+
+    /**
+     * A null or empty data clears the cell.
+     */
+    public ExcelSheetSnapshot withData(int row, int column, String data) {
+        TypedCellStore newEditedCells;
+        if (!isEmpty(data)) {
+            newEditedCells = editedCells.put(row, column, data);
+        } else if (excelSheetFile != null && excelSheetFile.contains(row, column)) {
+            newEditedCells = editedCells.put(row, column, "");
+        } else {
+            newEditedCells = editedCells.remove(row, column);
+        }
+        if (newEditedCells == editedCells) {
+            return this;
+        }
+        return new ExcelSheetSnapshot(version + 1, generation, excelSheetFile, newEditedCells, computedValues);
+    }
+
+    /**
+     * A null value removes the computed value of the cell.
+     */
+    public ExcelSheetSnapshot withComputedValue(int row, int column, String value) {
+        PersistentCellMap<String> newComputedValues = computedValues.put(row, column, value);
+        if (newComputedValues == computedValues) {
+            return this;
+        }
+        return new ExcelSheetSnapshot(version + 1, generation, excelSheetFile, editedCells, newComputedValues);
+    }
+
+    public ExcelSheetSnapshot withoutComputedValues() {
+        if (computedValues.isEmpty()) {
+            return this;
+        }
+        return new ExcelSheetSnapshot(version + 1, generation, excelSheetFile, editedCells, PersistentCellMap.<String>empty());
+    }
+
+    /**
+     * Starts the next generation, every cell of this snapshot reads as empty in the returned one.
+     */
+    public ExcelSheetSnapshot cleared() {
+        return new ExcelSheetSnapshot(version + 1, generation + 1, null, TypedCellStore.empty(),
+                PersistentCellMap.<String>empty());
+    }
+
+    /**
+     * Brings back the cells of an older snapshot, used to undo a clear. The version and generation
+     * keep counting up from this snapshot.
+     */
+    public ExcelSheetSnapshot restored(ExcelSheetSnapshot previousSnapshot) {
+        return new ExcelSheetSnapshot(version + 1, generation + 1, previousSnapshot.excelSheetFile, previousSnapshot.editedCells,
+                previousSnapshot.computedValues);
+    }
+
+    /**
+     * Visits every cell holding data, edited cells first and then the untouched cells of the file.
+     */
+    public void forEach(final SparseCellStore.CellVisitor<String> cellVisitor) {
+        editedCells.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                if (!isEmpty(value)) {
+                    cellVisitor.onVisitCell(row, column, value);
+                }
+            }
+        });
+        if (excelSheetFile != null) {
+            excelSheetFile.forEach(new SparseCellStore.CellVisitor<String>() {
+                @Override
+                public void onVisitCell(int row, int column, String value) {
+                    if (!editedCells.containsKey(row, column)) {
+                        cellVisitor.onVisitCell(row, column, value);
+                    }
+                }
+            });
+        }
+    }
+
+    //Not TextUtils, the model is also used by the JVM benchmarks where android.jar only has stubs.
+    private static boolean isEmpty(String data) {
+        return data == null || data.length() == 0;
+    }
+}
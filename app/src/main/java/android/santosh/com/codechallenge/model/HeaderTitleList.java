@@ -0,0 +1,36 @@
+package android.santosh.com.codechallenge.model;
+
+import android.santosh.com.codechallenge.Utils;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Created by Santosh on 8/20/17.
+ * <p>
+ * Virtual list of column headers (A..Z, AA..XFD). Titles are created on demand,
+ * so the list costs the same whatever the column count is.
+ */
+
+public class HeaderTitleList extends AbstractList<HeaderTitle> implements RandomAccess {
+    private final int size;
+
+    public HeaderTitleList(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public HeaderTitle get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        HeaderTitle headerTitle = new HeaderTitle();
+        headerTitle.setTitle(Utils.columnLabel(index));
+        return headerTitle;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
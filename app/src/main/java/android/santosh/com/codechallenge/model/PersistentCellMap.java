@@ -0,0 +1,220 @@
+package android.santosh.com.codechallenge.model;
+
+/**
+ * Created by Santosh on 8/24/17.
+ * <p>
+ * Immutable map from a packed (row, column) key to a value, stored as a hash array mapped trie.
+ * put and remove copy only the path from the root to the changed cell, at most eleven small nodes,
+ * and share everything else with the map they were called on, so old versions stay valid and can be
+ * read from any thread without locking.
+ * <p>
+ * Keys are scrambled with a bijective mix, so two cells never share a full 64 bit hash and the
+ * trie needs no collision nodes.
+ */
+
+public final class PersistentCellMap<V> {
+    private static final int BITS = 6;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentCellMap<Object> EMPTY = new PersistentCellMap<>(Node.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentCellMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentCellMap<V> empty() {
+        return (PersistentCellMap<V>) EMPTY;
+    }
+
+    public V get(int row, int column) {
+        return get(SparseCellStore.key(row, column));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = mix(key);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            long bit = 1L << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[Long.bitCount(node.bitmap & (bit - 1))];
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                return leaf.key == key ? (V) leaf.value : null;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    public boolean containsKey(int row, int column) {
+        return get(row, column) != null;
+    }
+
+    /**
+     * Putting a null value removes the cell.
+     *
+     * @return a map with the cell set, or this map when the cell already holds the value.
+     */
+    public PersistentCellMap<V> put(int row, int column, V value) {
+        long key = SparseCellStore.key(row, column);
+        if (value == null) {
+            return remove(key);
+        }
+        V previous = get(key);
+        if (previous == value) {
+            return this;
+        }
+        Node newRoot = put(root, 0, new Leaf(key, mix(key), value));
+        return new PersistentCellMap<>(newRoot, previous == null ? size + 1 : size);
+    }
+
+    public PersistentCellMap<V> remove(int row, int column) {
+        return remove(SparseCellStore.key(row, column));
+    }
+
+    public PersistentCellMap<V> remove(long key) {
+        if (get(key) == null) {
+            return this;
+        }
+        Node newRoot = remove(root, 0, key, mix(key));
+        return new PersistentCellMap<>(newRoot, size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(SparseCellStore.CellVisitor<V> cellVisitor) {
+        forEach(root, cellVisitor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Node node, SparseCellStore.CellVisitor<V> cellVisitor) {
+        for (Object slot : node.slots) {
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                cellVisitor.onVisitCell(SparseCellStore.row(leaf.key), SparseCellStore.column(leaf.key), (V) leaf.value);
+            } else {
+                forEach((Node) slot, cellVisitor);
+            }
+        }
+    }
+
+    private static Node put(Node node, int shift, Leaf leaf) {
+        long bit = 1L << ((leaf.hash >>> shift) & MASK);
+        int position = Long.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            return node.insert(position, bit, leaf);
+        }
+        Object slot = node.slots[position];
+        if (slot instanceof Leaf) {
+            Leaf existing = (Leaf) slot;
+            if (existing.key == leaf.key) {
+                return node.replace(position, leaf);
+            }
+            return node.replace(position, merge(existing, leaf, shift + BITS));
+        }
+        return node.replace(position, put((Node) slot, shift + BITS, leaf));
+    }
+
+    private static Node merge(Leaf first, Leaf second, int shift) {
+        int firstIndex = (int) ((first.hash >>> shift) & MASK);
+        int secondIndex = (int) ((second.hash >>> shift) & MASK);
+        if (firstIndex == secondIndex) {
+            return new Node(1L << firstIndex, new Object[]{merge(first, second, shift + BITS)});
+        }
+        long bitmap = (1L << firstIndex) | (1L << secondIndex);
+        return new Node(bitmap, firstIndex < secondIndex ? new Object[]{first, second} : new Object[]{second, first});
+    }
+
+    /**
+     * Expects the key to be present. Nodes left holding a single leaf are folded into their parent.
+     */
+    private static Node remove(Node node, int shift, long key, long hash) {
+        long bit = 1L << ((hash >>> shift) & MASK);
+        int position = Long.bitCount(node.bitmap & (bit - 1));
+        Object slot = node.slots[position];
+        if (slot instanceof Leaf) {
+            return node.delete(position, bit);
+        }
+        Node child = remove((Node) slot, shift + BITS, key, hash);
+        if (child.slots.length == 0) {
+            return node.delete(position, bit);
+        }
+        if (child.slots.length == 1 && child.slots[0] instanceof Leaf) {
+            return node.replace(position, child.slots[0]);
+        }
+        return node.replace(position, child);
+    }
+
+    /**
+     * fmix64 from MurmurHash3, a bijection on 64 bit values.
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Node {
+        static final Node EMPTY = new Node(0, new Object[0]);
+
+        final long bitmap;
+        //Leaf or Node for every set bit of the bitmap, in bit order.
+        final Object[] slots;
+
+        Node(long bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Node insert(int position, long bit, Object slot) {
+            Object[] newSlots = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, position);
+            newSlots[position] = slot;
+            System.arraycopy(slots, position, newSlots, position + 1, slots.length - position);
+            return new Node(bitmap | bit, newSlots);
+        }
+
+        Node replace(int position, Object slot) {
+            Object[] newSlots = slots.clone();
+            newSlots[position] = slot;
+            return new Node(bitmap, newSlots);
+        }
+
+        Node delete(int position, long bit) {
+            if (slots.length == 1) {
+                return EMPTY;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, position);
+            System.arraycopy(slots, position + 1, newSlots, position, slots.length - position - 1);
+            return new Node(bitmap & ~bit, newSlots);
+        }
+    }
+
+    private static final class Leaf {
+        final long key;
+        final long hash;
+        final Object value;
+
+        Leaf(long key, long hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+}
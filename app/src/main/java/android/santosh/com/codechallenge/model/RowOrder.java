@@ -0,0 +1,253 @@
+package android.santosh.com.codechallenge.model;
+
+import java.util.Arrays;
+
+/**
+ * Created by Santosh on 8/31/17.
+ * <p>
+ * Order in which the rows of the sheet are shown. The cells stay where they are stored, a sort only
+ * maps the rows shown on screen, view rows, to the rows they read from, model rows. Only rows with a
+ * value in a sort column are ordered; they come first and every other row follows in its own order,
+ * so the permutation costs memory for the sorted rows only and not for the whole sheet.
+ * <p>
+ * Filters hide the rows missing from {@link VisibleRows}. Unsorted, a view row is the rank of its
+ * model row among the visible rows; sorted, the visible rows are listed once in view order.
+ * <p>
+ * Immutable, the UI and the executor may read the same instance at once. Edits, selections and
+ * formulas always use model rows.
+ */
+
+public final class RowOrder {
+    public static final RowOrder IDENTITY = new RowOrder(new int[0], new boolean[0], new int[0]);
+
+    //Above this many rows a row range is refreshed whole, its rows are scattered once sorted.
+    private static final int MAX_TRANSLATED_ROW_RANGE = 256;
+
+    private final int[] sortColumns;
+    private final boolean[] ascending;
+    //Model rows in view order for the first sortedRows.length view rows.
+    private final int[] sortedRows;
+    //The same rows in ascending order with the view row of each.
+    private final int[] rowSet;
+    private final int[] rowSetPositions;
+    //Null when no row is hidden.
+    private final VisibleRows visibleRows;
+    //Only when sorted and filtered: the visible model rows in view order, then ascending with the
+    //view row of each.
+    private final int[] filteredRows;
+    private final int[] filteredRowSet;
+    private final int[] filteredRowSetPositions;
+
+    private RowOrder(int[] sortColumns, boolean[] ascending, int[] sortedRows) {
+        this.sortColumns = sortColumns;
+        this.ascending = ascending;
+        this.sortedRows = sortedRows;
+        this.rowSet = sortedRows.clone();
+        Arrays.sort(rowSet);
+        this.rowSetPositions = positionsOf(sortedRows, rowSet);
+        this.visibleRows = null;
+        this.filteredRows = null;
+        this.filteredRowSet = null;
+        this.filteredRowSetPositions = null;
+    }
+
+    private RowOrder(RowOrder rowOrder, VisibleRows visibleRows) {
+        this.sortColumns = rowOrder.sortColumns;
+        this.ascending = rowOrder.ascending;
+        this.sortedRows = rowOrder.sortedRows;
+        this.rowSet = rowOrder.rowSet;
+        this.rowSetPositions = rowOrder.rowSetPositions;
+        this.visibleRows = visibleRows;
+        if (visibleRows != null && sortedRows.length > 0) {
+            filteredRows = new int[visibleRows.getCount()];
+            int filteredRowCount = 0;
+            for (int sortedRow : sortedRows) {
+                if (visibleRows.contains(sortedRow)) {
+                    filteredRows[filteredRowCount++] = sortedRow;
+                }
+            }
+            for (int row = visibleRows.nextRow(0); row >= 0; row = visibleRows.nextRow(row + 1)) {
+                if (Arrays.binarySearch(rowSet, row) < 0) {
+                    filteredRows[filteredRowCount++] = row;
+                }
+            }
+            filteredRowSet = filteredRows.clone();
+            Arrays.sort(filteredRowSet);
+            filteredRowSetPositions = positionsOf(filteredRows, filteredRowSet);
+        } else {
+            filteredRows = null;
+            filteredRowSet = null;
+            filteredRowSetPositions = null;
+        }
+    }
+
+    /**
+     * @param sortedRows the model rows with a value in a sort column, in the order they are shown.
+     */
+    public static RowOrder of(int[] sortColumns, boolean[] ascending, int[] sortedRows) {
+        if (sortColumns.length == 0) {
+            return IDENTITY;
+        }
+        return new RowOrder(sortColumns.clone(), ascending.clone(), sortedRows);
+    }
+
+    /**
+     * @return the order with only the visible rows shown, null shows every row. O(1) unless the order
+     * is sorted, then O(sorted rows + visible rows).
+     */
+    public RowOrder withVisibleRows(VisibleRows visibleRows) {
+        if (visibleRows == this.visibleRows) {
+            return this;
+        }
+        return new RowOrder(this, visibleRows);
+    }
+
+    public boolean isIdentity() {
+        return sortColumns.length == 0 && visibleRows == null;
+    }
+
+    public boolean isSorted() {
+        return sortColumns.length > 0;
+    }
+
+    public boolean isFiltered() {
+        return visibleRows != null;
+    }
+
+    /**
+     * @return the number of rows shown out of the rowCount rows of the sheet.
+     */
+    public int getRowCount(int rowCount) {
+        return visibleRows != null ? Math.min(visibleRows.getCount(), rowCount) : rowCount;
+    }
+
+    public int getSortColumnCount() {
+        return sortColumns.length;
+    }
+
+    public int getSortColumn(int index) {
+        return sortColumns[index];
+    }
+
+    public boolean isAscending(int index) {
+        return ascending[index];
+    }
+
+    public boolean isSortColumn(int column) {
+        for (int sortColumn : sortColumns) {
+            if (sortColumn == column) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getSortedRowCount() {
+        return sortedRows.length;
+    }
+
+    /**
+     * @return the model row of the sorted view row, valid below {@link #getSortedRowCount()}.
+     */
+    public int getSortedRow(int viewRow) {
+        return sortedRows[viewRow];
+    }
+
+    /**
+     * O(log n) for rows after the sorted ones and for filtered rows.
+     *
+     * @return -1 past the last visible row.
+     */
+    public int getModelRow(int viewRow) {
+        if (viewRow < 0) {
+            return viewRow;
+        }
+        if (filteredRows != null) {
+            return viewRow < filteredRows.length ? filteredRows[viewRow] : -1;
+        }
+        if (visibleRows != null) {
+            return visibleRows.select(viewRow);
+        }
+        if (viewRow < sortedRows.length) {
+            return viewRow < 0 ? viewRow : sortedRows[viewRow];
+        }
+        //The rows after the sorted ones are every other row in order: find the rank of the row
+        //among the rows missing from rowSet.
+        int missingIndex = viewRow - sortedRows.length;
+        int low = 0;
+        int high = rowSet.length - 1;
+        int lastBefore = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (rowSet[middle] - middle <= missingIndex) {
+                lastBefore = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return missingIndex + lastBefore + 1;
+    }
+
+    /**
+     * @return -1 for a row hidden by the filters.
+     */
+    public int getViewRow(int modelRow) {
+        if (filteredRows != null) {
+            int index = Arrays.binarySearch(filteredRowSet, modelRow);
+            return index >= 0 ? filteredRowSetPositions[index] : -1;
+        }
+        if (visibleRows != null) {
+            return visibleRows.contains(modelRow) ? visibleRows.rank(modelRow) : -1;
+        }
+        if (sortedRows.length == 0 || modelRow < 0) {
+            return modelRow;
+        }
+        int index = Arrays.binarySearch(rowSet, modelRow);
+        if (index >= 0) {
+            return rowSetPositions[index];
+        }
+        return sortedRows.length + modelRow - (-index - 1);
+    }
+
+    /**
+     * @return the change with its rows moved to where they are shown, hidden rows left out.
+     */
+    public ExcelSheetChange toViewChange(ExcelSheetChange excelSheetChange) {
+        if (isIdentity() || excelSheetChange == null) {
+            return excelSheetChange;
+        }
+        ExcelSheetChange viewChange = new ExcelSheetChange(excelSheetChange.getPayload());
+        for (int i = 0; i < excelSheetChange.getCellCount(); i++) {
+            int viewRow = getViewRow(excelSheetChange.getCellRow(i));
+            if (viewRow >= 0) {
+                viewChange.addCell(viewRow, excelSheetChange.getCellColumn(i));
+            }
+        }
+        if (excelSheetChange.hasRows()) {
+            if (excelSheetChange.getLastRow() - excelSheetChange.getFirstRow() < MAX_TRANSLATED_ROW_RANGE) {
+                //The range grows to span every moved row, still far less than the whole sheet.
+                for (int row = excelSheetChange.getFirstRow(); row <= excelSheetChange.getLastRow(); row++) {
+                    int viewRow = getViewRow(row);
+                    if (viewRow >= 0) {
+                        viewChange.addRows(viewRow, viewRow);
+                    }
+                }
+            } else {
+                viewChange.addRows(0, Integer.MAX_VALUE);
+            }
+        }
+        if (excelSheetChange.hasColumns()) {
+            viewChange.addColumns(excelSheetChange.getFirstColumn(), excelSheetChange.getLastColumn());
+        }
+        return viewChange;
+    }
+
+    private static int[] positionsOf(int[] rows, int[] rowSet) {
+        int[] positions = new int[rows.length];
+        for (int viewRow = 0; viewRow < rows.length; viewRow++) {
+            positions[Arrays.binarySearch(rowSet, rows[viewRow])] = viewRow;
+        }
+        return positions;
+    }
+}
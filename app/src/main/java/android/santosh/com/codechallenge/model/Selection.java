@@ -0,0 +1,64 @@
+package android.santosh.com.codechallenge.model;
+
+/**
+ * Created by Santosh on 8/25/17.
+ * <p>
+ * Immutable rectangle of selected cells, a single cell is a one by one range. Kept apart from the
+ * cell data and never saved, so changing it costs the same whatever the size of the sheet.
+ */
+
+public final class Selection {
+    public static final Selection NONE = new Selection(-1, -1, -1, -1);
+
+    private final int firstRow;
+    private final int firstColumn;
+    private final int lastRow;
+    private final int lastColumn;
+
+    private Selection(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        this.firstRow = firstRow;
+        this.firstColumn = firstColumn;
+        this.lastRow = lastRow;
+        this.lastColumn = lastColumn;
+    }
+
+    public static Selection cell(int row, int column) {
+        return new Selection(row, column, row, column);
+    }
+
+    /**
+     * The corners can be given in any order.
+     */
+    public static Selection range(int row, int column, int otherRow, int otherColumn) {
+        return new Selection(Math.min(row, otherRow), Math.min(column, otherColumn),
+                Math.max(row, otherRow), Math.max(column, otherColumn));
+    }
+
+    public boolean isEmpty() {
+        return firstRow < 0;
+    }
+
+    public boolean isSingleCell() {
+        return !isEmpty() && firstRow == lastRow && firstColumn == lastColumn;
+    }
+
+    public boolean contains(int row, int column) {
+        return row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn;
+    }
+
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public int getLastColumn() {
+        return lastColumn;
+    }
+}
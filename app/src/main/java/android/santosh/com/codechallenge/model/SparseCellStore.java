@@ -0,0 +1,188 @@
+package android.santosh.com.codechallenge.model;
+
+import android.santosh.com.codechallenge.interfaces.ExcelSheetContent;
+
+import java.util.Arrays;
+
+/**
+ * Created by Santosh on 8/19/17.
+ * <p>
+ * Sparse cell storage keyed by a packed (row, column) long. Backed by an open-addressing
+ * table with linear probing, so get/put/remove are O(1) and empty cells take no memory.
+ * Not thread safe, writes are expected to happen on the controller's executor.
+ */
+
+public class SparseCellStore<V> implements ExcelSheetContent<V> {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public interface CellVisitor<V> {
+        void onVisitCell(int row, int column, V value);
+    }
+
+    public SparseCellStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SparseCellStore(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    public static int row(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int column(long key) {
+        return (int) key;
+    }
+
+    @Override
+    public V get(int row, int column) {
+        return get(key(row, column));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = indexOf(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean contains(int row, int column) {
+        return indexOf(key(row, column)) >= 0;
+    }
+
+    /**
+     * Putting a null value removes the cell.
+     */
+    public V put(int row, int column, V value) {
+        return put(key(row, column), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            return remove(key);
+        }
+        int slot = slotFor(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    public V remove(int row, int column) {
+        return remove(key(row, column));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = indexOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        //Backward shift deletion keeps probe chains intact without tombstones.
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (values[next] != null) {
+            int home = slotFor(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[hole] = null;
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(CellVisitor<V> cellVisitor) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                cellVisitor.onVisitCell(row(keys[i]), column(keys[i]), (V) values[i]);
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        int slot = slotFor(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotFor(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotFor(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(capacity, 2);
+    }
+}
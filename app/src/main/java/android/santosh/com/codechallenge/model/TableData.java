@@ -13,7 +13,7 @@ public class TableData {
         return rowDatas;
     }
 
-    public class RowData {
+    public static class RowData {
         private List<CellData> cellDatas;
 
         public List<CellData> getCellDatas() {
@@ -21,9 +21,9 @@ public class TableData {
         }
     }
 
-    public class CellData{
+    public static class CellData {
         private String data;
-        private boolean isSelected;
+        private transient String displayData;
 
         public void setData(String data) {
             this.data = data;
@@ -33,12 +33,15 @@ public class TableData {
             return data;
         }
 
-        public boolean isSelected() {
-            return isSelected;
+        public void setDisplayData(String displayData) {
+            this.displayData = displayData;
         }
 
-        public void setSelected(boolean selected) {
-            isSelected = selected;
+        /**
+         * @return the formula result for formula cells, otherwise the data.
+         */
+        public String getDisplayData() {
+            return displayData != null ? displayData : data;
         }
     }
 
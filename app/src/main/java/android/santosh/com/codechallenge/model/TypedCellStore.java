@@ -0,0 +1,240 @@
+package android.santosh.com.codechallenge.model;
+
+/**
+ * Created by Santosh on 8/30/17.
+ * <p>
+ * Immutable cell store keeping each value in its detected {@link CellValue} type. Cells are grouped
+ * into segments of {@link #SEGMENT_SIZE} rows of one column. A segment holds bitmaps of which rows
+ * are set and of their types, a packed double[] of its numbers and booleans, and a packed String[]
+ * of its text only when it has any. A number takes 8 bytes instead of a String and its map entry.
+ * Numbers and booleans written in an unusual spelling, "1.50" or "true", keep that spelling in the
+ * text array so the cell reads back exactly as it was typed.
+ * <p>
+ * Segments live in a {@link PersistentCellMap} and are copied on write, so like that map every
+ * version stays valid and can be read from any thread. An empty string is stored as a set cell
+ * without a value, the snapshot uses it to hide a cell of the sheet file.
+ */
+
+public final class TypedCellStore {
+    public static final int NOT_STORED = -1;
+
+    private static final int SEGMENT_SHIFT = 6;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final double[] NO_NUMBERS = new double[0];
+    private static final String[] NO_TEXTS = new String[0];
+    private static final TypedCellStore EMPTY = new TypedCellStore(PersistentCellMap.<Segment>empty(), 0);
+
+    private final PersistentCellMap<Segment> segments;
+    private final int size;
+
+    private TypedCellStore(PersistentCellMap<Segment> segments, int size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    public static TypedCellStore empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the cell data, an empty string for an emptied cell or null when the cell is not stored.
+     */
+    public String get(int row, int column) {
+        Segment segment = segments.get(row >>> SEGMENT_SHIFT, column);
+        return segment != null ? segment.get(row & (SEGMENT_SIZE - 1)) : null;
+    }
+
+    /**
+     * @return the {@link CellValue} type of the cell or {@link #NOT_STORED}.
+     */
+    public int getType(int row, int column) {
+        Segment segment = segments.get(row >>> SEGMENT_SHIFT, column);
+        return segment != null ? segment.getType(row & (SEGMENT_SIZE - 1)) : NOT_STORED;
+    }
+
+    /**
+     * @return the value of a number or boolean cell, 0 for any other cell.
+     */
+    public double getNumber(int row, int column) {
+        Segment segment = segments.get(row >>> SEGMENT_SHIFT, column);
+        return segment != null ? segment.getNumber(row & (SEGMENT_SIZE - 1)) : 0;
+    }
+
+    public boolean containsKey(int row, int column) {
+        return getType(row, column) != NOT_STORED;
+    }
+
+    /**
+     * A null data removes the cell.
+     *
+     * @return this store when the cell already holds the data.
+     */
+    public TypedCellStore put(int row, int column, String data) {
+        int segmentRow = row >>> SEGMENT_SHIFT;
+        int offset = row & (SEGMENT_SIZE - 1);
+        Segment segment = segments.get(segmentRow, column);
+        String previousData = segment != null ? segment.get(offset) : null;
+        if (previousData == null ? data == null : previousData.equals(data)) {
+            return this;
+        }
+        Segment newSegment = (segment != null ? segment : Segment.EMPTY).with(offset, data);
+        int newSize = size + (data != null ? 1 : 0) - (previousData != null ? 1 : 0);
+        return new TypedCellStore(segments.put(segmentRow, column, newSegment), newSize);
+    }
+
+    public TypedCellStore remove(int row, int column) {
+        return put(row, column, null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(final SparseCellStore.CellVisitor<String> cellVisitor) {
+        segments.forEach(new SparseCellStore.CellVisitor<Segment>() {
+            @Override
+            public void onVisitCell(int segmentRow, int column, Segment segment) {
+                long presentBits = segment.presentBits;
+                while (presentBits != 0) {
+                    int offset = Long.numberOfTrailingZeros(presentBits);
+                    presentBits &= presentBits - 1;
+                    cellVisitor.onVisitCell((segmentRow << SEGMENT_SHIFT) | offset, column, segment.get(offset));
+                }
+            }
+        });
+    }
+
+    private static final class Segment {
+        static final Segment EMPTY = new Segment(0, 0, 0, 0, NO_NUMBERS, NO_TEXTS);
+
+        final long presentBits;
+        //Rows with a value in numbers, booleans are numbers flagged in booleanBits.
+        final long numberBits;
+        final long booleanBits;
+        //Rows with a string in texts, the text itself or the spelling of a number or boolean.
+        final long textBits;
+        final double[] numbers;
+        final String[] texts;
+
+        Segment(long presentBits, long numberBits, long booleanBits, long textBits, double[] numbers, String[] texts) {
+            this.presentBits = presentBits;
+            this.numberBits = numberBits;
+            this.booleanBits = booleanBits;
+            this.textBits = textBits;
+            this.numbers = numbers;
+            this.texts = texts;
+        }
+
+        String get(int offset) {
+            long bit = 1L << offset;
+            if ((presentBits & bit) == 0) {
+                return null;
+            }
+            if ((textBits & bit) != 0) {
+                return texts[rank(textBits, offset)];
+            }
+            if ((numberBits & bit) != 0) {
+                return CellValue.format(numbers[rank(numberBits, offset)], (booleanBits & bit) != 0
+                        ? CellValue.TYPE_BOOLEAN : CellValue.TYPE_NUMBER);
+            }
+            return "";
+        }
+
+        int getType(int offset) {
+            long bit = 1L << offset;
+            if ((presentBits & bit) == 0) {
+                return NOT_STORED;
+            }
+            if ((booleanBits & bit) != 0) {
+                return CellValue.TYPE_BOOLEAN;
+            }
+            if ((numberBits & bit) != 0) {
+                return CellValue.TYPE_NUMBER;
+            }
+            return (textBits & bit) != 0 ? CellValue.TYPE_TEXT : CellValue.TYPE_EMPTY;
+        }
+
+        double getNumber(int offset) {
+            return (numberBits & (1L << offset)) != 0 ? numbers[rank(numberBits, offset)] : 0;
+        }
+
+        /**
+         * @return a copy with the row set to the data, or null when the copy would hold nothing.
+         */
+        Segment with(int offset, String data) {
+            long bit = 1L << offset;
+            long newPresentBits = presentBits & ~bit;
+            long newNumberBits = numberBits & ~bit;
+            long newBooleanBits = booleanBits & ~bit;
+            long newTextBits = textBits & ~bit;
+            double[] newNumbers = (numberBits & bit) != 0 ? removeNumber(numbers, rank(numberBits, offset)) : numbers;
+            String[] newTexts = (textBits & bit) != 0 ? removeText(texts, rank(textBits, offset)) : texts;
+            if (data != null) {
+                newPresentBits |= bit;
+                int type = CellValue.typeOf(data);
+                boolean keepSpelling = type == CellValue.TYPE_TEXT;
+                if (type == CellValue.TYPE_NUMBER || type == CellValue.TYPE_BOOLEAN) {
+                    double value = CellValue.toNumber(data, type);
+                    newNumbers = insertNumber(newNumbers, rank(newNumberBits, offset), value);
+                    newNumberBits |= bit;
+                    if (type == CellValue.TYPE_BOOLEAN) {
+                        newBooleanBits |= bit;
+                    }
+                    keepSpelling = !CellValue.format(value, type).equals(data);
+                }
+                if (keepSpelling) {
+                    newTexts = insertText(newTexts, rank(newTextBits, offset), data);
+                    newTextBits |= bit;
+                }
+            }
+            if (newPresentBits == 0) {
+                return null;
+            }
+            return new Segment(newPresentBits, newNumberBits, newBooleanBits, newTextBits, newNumbers, newTexts);
+        }
+
+        private static int rank(long bits, int offset) {
+            return Long.bitCount(bits & ((1L << offset) - 1));
+        }
+
+        private static double[] insertNumber(double[] numbers, int index, double value) {
+            double[] newNumbers = new double[numbers.length + 1];
+            System.arraycopy(numbers, 0, newNumbers, 0, index);
+            newNumbers[index] = value;
+            System.arraycopy(numbers, index, newNumbers, index + 1, numbers.length - index);
+            return newNumbers;
+        }
+
+        private static double[] removeNumber(double[] numbers, int index) {
+            if (numbers.length == 1) {
+                return NO_NUMBERS;
+            }
+            double[] newNumbers = new double[numbers.length - 1];
+            System.arraycopy(numbers, 0, newNumbers, 0, index);
+            System.arraycopy(numbers, index + 1, newNumbers, index, newNumbers.length - index);
+            return newNumbers;
+        }
+
+        private static String[] insertText(String[] texts, int index, String text) {
+            String[] newTexts = new String[texts.length + 1];
+            System.arraycopy(texts, 0, newTexts, 0, index);
+            newTexts[index] = text;
+            System.arraycopy(texts, index, newTexts, index + 1, texts.length - index);
+            return newTexts;
+        }
+
+        private static String[] removeText(String[] texts, int index) {
+            if (texts.length == 1) {
+                return NO_TEXTS;
+            }
+            String[] newTexts = new String[texts.length - 1];
+            System.arraycopy(texts, 0, newTexts, 0, index);
+            System.arraycopy(texts, index + 1, newTexts, index, newTexts.length - index);
+            return newTexts;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package android.santosh.com.codechallenge.model;
+
+import java.util.BitSet;
+
+/**
+ * Created by Santosh on 9/1/17.
+ * <p>
+ * Rows left visible by the filters, a bitset with the number of visible rows before each block of
+ * 512 rows. The n-th visible row is found by a binary search over the blocks and a scan of at most
+ * eight words, the position of a visible row by one block lookup and a few popcounts, so the
+ * adapters read through it without a list of the visible rows.
+ * <p>
+ * Immutable, the UI and the executor may read the same instance at once.
+ */
+
+public final class VisibleRows {
+    private static final int WORDS_PER_BLOCK = 8;
+
+    private final long[] words;
+    //Visible rows before each block of WORDS_PER_BLOCK words.
+    private final int[] blockRanks;
+    private final int count;
+
+    private VisibleRows(long[] words) {
+        this.words = words;
+        this.blockRanks = new int[(words.length + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK];
+        int rank = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (i % WORDS_PER_BLOCK == 0) {
+                blockRanks[i / WORDS_PER_BLOCK] = rank;
+            }
+            rank += Long.bitCount(words[i]);
+        }
+        this.count = rank;
+    }
+
+    /**
+     * O(highest visible row / 64), the bitset is copied so later changes to it are not seen.
+     */
+    public static VisibleRows of(BitSet rows) {
+        return new VisibleRows(rows.toLongArray());
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean contains(int row) {
+        if (row < 0) {
+            return false;
+        }
+        int wordIndex = row >>> 6;
+        return wordIndex < words.length && (words[wordIndex] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return the number of visible rows before the row, its position when it is visible.
+     */
+    public int rank(int row) {
+        if (row <= 0) {
+            return 0;
+        }
+        int wordIndex = row >>> 6;
+        if (wordIndex >= words.length) {
+            return count;
+        }
+        int rank = blockRanks[wordIndex / WORDS_PER_BLOCK];
+        for (int i = wordIndex - wordIndex % WORDS_PER_BLOCK; i < wordIndex; i++) {
+            rank += Long.bitCount(words[i]);
+        }
+        return rank + Long.bitCount(words[wordIndex] & ((1L << row) - 1));
+    }
+
+    /**
+     * @return the visible row at the position, -1 past the last one.
+     */
+    public int select(int index) {
+        if (index < 0 || index >= count) {
+            return -1;
+        }
+        int low = 0;
+        int high = blockRanks.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blockRanks[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int remaining = index - blockRanks[low];
+        int wordIndex = low * WORDS_PER_BLOCK;
+        int wordCount = Long.bitCount(words[wordIndex]);
+        while (remaining >= wordCount) {
+            remaining -= wordCount;
+            wordCount = Long.bitCount(words[++wordIndex]);
+        }
+        long word = words[wordIndex];
+        for (int i = 0; i < remaining; i++) {
+            word &= word - 1;
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @return the first visible row at or after the row, -1 if there is none.
+     */
+    public int nextRow(int row) {
+        int wordIndex = Math.max(row, 0) >>> 6;
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+        long word = words[wordIndex] & (-1L << Math.max(row, 0));
+        while (word == 0) {
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+}
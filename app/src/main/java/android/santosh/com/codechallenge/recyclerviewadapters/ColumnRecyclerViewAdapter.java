@@ -2,6 +2,7 @@ package android.santosh.com.codechallenge.recyclerviewadapters;
 
 import android.content.Context;
 import android.santosh.com.codechallenge.interfaces.ExcelSheetRecyclerViewListener;
+import android.santosh.com.codechallenge.views.AxisSizes;
 import android.support.v7.widget.RecyclerView;
 import android.view.ViewGroup;
 
@@ -12,13 +13,39 @@ import java.util.List;
  */
 
 public class ColumnRecyclerViewAdapter<C> extends ExcelSheetRecyclerViewAdapter<C> {
+    public static final int ALL_ROWS = -1;
+
     private ExcelSheetRecyclerViewListener excelSheetRecyclerViewListener;
+    private int rowCount = ALL_ROWS;
+    private AxisSizes rowSizes;
 
     public ColumnRecyclerViewAdapter(Context context, List<C> excelSheetData, ExcelSheetRecyclerViewListener excelSheetRecyclerViewListener) {
         super(context, excelSheetData);
         this.excelSheetRecyclerViewListener = excelSheetRecyclerViewListener;
     }
 
+    /**
+     * @param rowCount the number of row titles shown while filtered, {@link #ALL_ROWS} for a title
+     *                 per item of the data.
+     */
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+        this.notifyDataSetChanged();
+    }
+
+    /**
+     * Titles are as high as their row.
+     */
+    public void setRowSizes(AxisSizes rowSizes) {
+        this.rowSizes = rowSizes;
+        this.notifyDataSetChanged();
+    }
+
+    @Override
+    protected int getExcelSheetDataSize() {
+        return rowCount == ALL_ROWS ? super.getExcelSheetDataSize() : rowCount;
+    }
+
     @Override
     public int getItemViewType(int position) {
         int viewType = super.getItemViewType(position);
@@ -39,6 +66,14 @@ public class ColumnRecyclerViewAdapter<C> extends ExcelSheetRecyclerViewAdapter<
 
     @Override
     public void onBindExcelSheetViewHolder(RecyclerView.ViewHolder holder, int position) {
+        if (rowSizes != null) {
+            ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
+            int height = rowSizes.getSize(position);
+            if (layoutParams.height != height) {
+                layoutParams.height = height;
+                holder.itemView.setLayoutParams(layoutParams);
+            }
+        }
         if (excelSheetRecyclerViewListener != null) {
             excelSheetRecyclerViewListener.onBindColumnViewHolder(holder, position);
         }
@@ -1,102 +1,154 @@
 package android.santosh.com.codechallenge.recyclerviewadapters;
 
 import android.content.Context;
-import android.santosh.com.codechallenge.Utils;
 import android.santosh.com.codechallenge.interfaces.ExcelSheetRecyclerViewListener;
-import android.santosh.com.codechallenge.views.ExcelSheetView;
-import android.support.v7.widget.LinearLayoutManager;
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.views.CellGridLayoutManager;
 import android.support.v7.widget.RecyclerView;
-import android.view.View;
 import android.view.ViewGroup;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
  * Created by Santosh on 8/11/17.
+ * <p>
+ * Binds the cells of the content, all of them in the one RecyclerView laid out by
+ * {@link CellGridLayoutManager}. A position stands for a cell on screen, the layout manager maps it
+ * to its row and column.
  */
 
 public class ContentHolderRecyclerViewAdapter<CH> extends ExcelSheetRecyclerViewAdapter<CH> {
     private ExcelSheetRecyclerViewListener excelSheetRecyclerViewListener;
-    private Context context;
-    private int amountAxisY = 0;
-    private List<String> list;
-    private RecyclerView.OnScrollListener onScrollListener;
-    private List<RecyclerView.Adapter> adapterList;
+    private CellGridLayoutManager cellGridLayoutManager;
+    private int rowCount;
+    private int columnCount;
 
     public ContentHolderRecyclerViewAdapter(Context context,
-                                            List<CH> excelSheetData,
                                             ExcelSheetRecyclerViewListener excelSheetRecyclerViewListener) {
-        super(context, excelSheetData);
-        this.context = context;
+        super(context);
         this.excelSheetRecyclerViewListener = excelSheetRecyclerViewListener;
-        this.adapterList = new LinkedList<>();
     }
 
-    public void setOnScrollListener(RecyclerView.OnScrollListener onScrollListener) {
-        this.onScrollListener = onScrollListener;
+    public void setContentSize(int rowCount, int columnCount) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        if (cellGridLayoutManager != null) {
+            cellGridLayoutManager.setGridSize(rowCount, columnCount);
+        }
+        this.notifyDataSetChanged();
     }
 
     @Override
-    public void setExcelSheetData(List<CH> excelSheetData) {
-        super.setExcelSheetData(excelSheetData != null ? ((List) excelSheetData.get(0)) : null);
-        if (excelSheetData != null) {
-            if (list == null || list.size() >= excelSheetData.size()) {//refresh or first time
-                list = new LinkedList<>();
-            }
-            for (int i = list.size(); i < excelSheetData.size(); i++) {
-                list.add("");
-            }
-        } else {
-            list = null;
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        if (recyclerView.getLayoutManager() instanceof CellGridLayoutManager) {
+            cellGridLayoutManager = (CellGridLayoutManager) recyclerView.getLayoutManager();
+            cellGridLayoutManager.setGridSize(rowCount, columnCount);
         }
     }
 
     @Override
-    public RecyclerView.ViewHolder onCreateExcelSheetViewHolder(ViewGroup parent, int viewType) {
-        RecyclerView recyclerView = new RecyclerView(context);
-        LinearLayoutManager layoutManager = new LinearLayoutManager(context);
-        layoutManager.setOrientation(LinearLayoutManager.VERTICAL);
-        recyclerView.setLayoutManager(layoutManager);
-        return new RecyclerViewViewHolder(recyclerView);
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        cellGridLayoutManager = null;
     }
 
     @Override
-    public void onBindExcelSheetViewHolder(RecyclerView.ViewHolder holder, int position) {
-        if (!(holder instanceof RecyclerViewViewHolder)) {
-            return;
-        }
+    protected int getExcelSheetDataSize() {
+        return cellGridLayoutManager != null ? cellGridLayoutManager.getPositionCount() : 0;
+    }
 
-        RecyclerViewViewHolder viewHolder = (RecyclerViewViewHolder) holder;
-        CellRecyclerViewAdapter cellRecyclerViewAdapter =
-                new CellRecyclerViewAdapter(context, excelSheetRecyclerViewListener, position);
-        adapterList.add(cellRecyclerViewAdapter);
-        cellRecyclerViewAdapter.setExcelSheetData(list);
-        viewHolder.recyclerView.setAdapter(cellRecyclerViewAdapter);
+    @Override
+    public int getItemViewType(int position) {
+        int viewType = super.getItemViewType(position);
+        if (viewType == TYPE_NORMAL) {
+            viewType = excelSheetRecyclerViewListener.getCellDataItemViewType(
+                    cellGridLayoutManager.rowOf(position), cellGridLayoutManager.columnOf(position));
+        }
+        return viewType;
+    }
 
-        viewHolder.recyclerView.removeOnScrollListener(onScrollListener);
-        viewHolder.recyclerView.addOnScrollListener(onScrollListener);
-        ExcelSheetView.fastScrollVertical(amountAxisY, viewHolder.recyclerView);
+    @Override
+    public RecyclerView.ViewHolder onCreateExcelSheetViewHolder(ViewGroup parent, int viewType) {
+        if (excelSheetRecyclerViewListener != null) {
+            return excelSheetRecyclerViewListener.onCreateCellDataViewHolder(parent, viewType);
+        } else {
+            return null;
+        }
     }
 
-    private static class RecyclerViewViewHolder extends RecyclerView.ViewHolder {
-        public final RecyclerView recyclerView;
+    @Override
+    public void onBindExcelSheetViewHolder(RecyclerView.ViewHolder holder, int position) {
+        if (excelSheetRecyclerViewListener != null) {
+            excelSheetRecyclerViewListener.onBindCellDataViewHolder(holder,
+                    cellGridLayoutManager.rowOf(position), cellGridLayoutManager.columnOf(position));
+        }
+    }
 
-        public RecyclerViewViewHolder(View itemView) {
-            super(itemView);
-            recyclerView = (RecyclerView) itemView;
+    @Override
+    public void onBindExcelSheetViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        if (excelSheetRecyclerViewListener != null) {
+            excelSheetRecyclerViewListener.onBindCellDataViewHolder(holder,
+                    cellGridLayoutManager.rowOf(position), cellGridLayoutManager.columnOf(position), payloads);
         }
     }
 
-    public void setAmountAxisY(int amountAxisY) {
-        this.amountAxisY = amountAxisY;
+    /**
+     * Cells that are not on screen are bound on their own when they scroll in, so only the cells
+     * laid out are notified.
+     */
+    public void notifyContentChanged(ExcelSheetChange excelSheetChange) {
+        if (excelSheetChange == null || excelSheetChange.isEmpty() || cellGridLayoutManager == null) {
+            return;
+        }
+        Object payload = excelSheetChange.getPayload();
+        int firstRow = cellGridLayoutManager.getFirstRow();
+        int lastRow = cellGridLayoutManager.getLastRow();
+        int firstColumn = cellGridLayoutManager.getFirstColumn();
+        int lastColumn = cellGridLayoutManager.getLastColumn();
+        for (int i = 0; i < excelSheetChange.getCellCount(); i++) {
+            int row = excelSheetChange.getCellRow(i);
+            int column = excelSheetChange.getCellColumn(i);
+            if (row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn) {
+                notifyItemChanged(cellGridLayoutManager.positionOf(row, column), payload);
+            }
+        }
+        if (excelSheetChange.hasRows()) {
+            int lastChangedRow = Math.min(excelSheetChange.getLastRow(), lastRow);
+            for (int row = Math.max(excelSheetChange.getFirstRow(), firstRow); row <= lastChangedRow; row++) {
+                notifyRowChanged(row, firstColumn, lastColumn, payload);
+            }
+        }
+        if (excelSheetChange.hasColumns()) {
+            int changedFirstColumn = Math.max(excelSheetChange.getFirstColumn(), firstColumn);
+            int changedLastColumn = Math.min(excelSheetChange.getLastColumn(), lastColumn);
+            for (int row = firstRow; row <= lastRow && changedFirstColumn <= changedLastColumn; row++) {
+                notifyRowChanged(row, changedFirstColumn, changedLastColumn, payload);
+            }
+        }
     }
 
-    public void contentHolderNotifyDataSetChanged() {
-        if (!Utils.isEmpty(adapterList)) {
-            for (RecyclerView.Adapter adapter : adapterList) {
-                adapter.notifyDataSetChanged();
+    /**
+     * Notifies the cells of a row in runs of consecutive positions, a run only breaks where the
+     * positions of the columns wrap.
+     */
+    private void notifyRowChanged(int row, int firstColumn, int lastColumn, Object payload) {
+        int runStart = 0;
+        int runLength = 0;
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            int position = cellGridLayoutManager.positionOf(row, column);
+            if (runLength > 0 && position == runStart + runLength) {
+                runLength++;
+                continue;
+            }
+            if (runLength > 0) {
+                notifyItemRangeChanged(runStart, runLength, payload);
             }
+            runStart = position;
+            runLength = 1;
+        }
+        if (runLength > 0) {
+            notifyItemRangeChanged(runStart, runLength, payload);
         }
     }
 }
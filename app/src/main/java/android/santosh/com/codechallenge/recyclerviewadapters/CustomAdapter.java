@@ -4,8 +4,11 @@ import android.content.Context;
 import android.santosh.com.codechallenge.R;
 import android.santosh.com.codechallenge.interfaces.ExcelSheetClickListener;
 import android.santosh.com.codechallenge.model.ColumnTitle;
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
 import android.santosh.com.codechallenge.model.HeaderTitle;
 import android.santosh.com.codechallenge.model.TableData;
+import android.santosh.com.codechallenge.views.CellTextView;
 import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -13,6 +16,8 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import java.util.List;
+
 /**
  * Created by Santosh on 8/13/17.
  */
@@ -31,41 +36,103 @@ public class CustomAdapter extends MainExcelSheetRecyclerViewAdapter<HeaderTitle
     @Override
     public RecyclerView.ViewHolder onCreateCellDataViewHolder(ViewGroup parent, int viewType) {
         View layout = LayoutInflater.from(parent.getContext()).inflate(R.layout.content_layout_view, parent, false);
-        ContentViewHolder contentViewHolder = new ContentViewHolder(layout);
+        final ContentViewHolder contentViewHolder = new ContentViewHolder(layout);
+        //Set once per view, the holder knows the cell it is bound to when clicked.
+        contentViewHolder.textViewHolder.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                onCellClicked(contentViewHolder.row, contentViewHolder.column);
+            }
+        });
         return contentViewHolder;
     }
 
     @Override
-    public void onBindCellDataViewHolder(RecyclerView.ViewHolder holder, final int horizontalPosition, final int verticalPosition) {
-        final TableData.CellData cellData = getContentItem(horizontalPosition, verticalPosition);
-        if (null == holder || !(holder instanceof ContentViewHolder) || cellData == null) {
+    public void onBindCellDataViewHolder(RecyclerView.ViewHolder holder, int horizontalPosition, int verticalPosition) {
+        if (null == holder || !(holder instanceof ContentViewHolder)) {
             return;
         }
+        //Read like the canvas does, binding while scrolling allocates no CellData.
+        CharSequence cellText = getCellText(horizontalPosition, verticalPosition);
         ContentViewHolder contentViewHolder = (ContentViewHolder) holder;
-        if (!TextUtils.isEmpty(cellData.getData())) {
-            contentViewHolder.titleTextView.setText(cellData.getData());
+        contentViewHolder.row = horizontalPosition;
+        contentViewHolder.column = verticalPosition;
+        //Empty cells are not stored, so a null text still has to reset the recycled view.
+        if (!TextUtils.isEmpty(cellText)) {
+            contentViewHolder.titleTextView.setText(cellText);
+        } else {
+            contentViewHolder.titleTextView.setText("");
         }
-        if (cellData.isSelected()) {
+        if (isCellSelected(horizontalPosition, verticalPosition)) {
             contentViewHolder.selectedView.setVisibility(View.VISIBLE);
         } else {
             contentViewHolder.selectedView.setVisibility(View.GONE);
         }
-        contentViewHolder.textViewHolder.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                excelSheetClickListener.onExcelSheetContentClicked(cellData, horizontalPosition, verticalPosition);
+    }
+
+    @Override
+    public void onBindCellDataViewHolder(RecyclerView.ViewHolder holder, int horizontalPosition, int verticalPosition, List<Object> payloads) {
+        if (!isSelectionOnly(payloads) || !(holder instanceof ContentViewHolder)) {
+            onBindCellDataViewHolder(holder, horizontalPosition, verticalPosition);
+            return;
+        }
+        //Only the selection moved, the text and click listener of the cell are still valid.
+        ((ContentViewHolder) holder).selectedView.setVisibility(isCellSelected(horizontalPosition, verticalPosition) ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public void onCellClicked(int row, int column) {
+        excelSheetClickListener.onExcelSheetContentClicked(getContentItem(row, column), getModelRow(row), column);
+    }
+
+    @Override
+    public CharSequence getCellText(int row, int column) {
+        //Called for every visible cell each frame, read the text straight from the snapshot instead
+        //of building a CellData for it.
+        if (contentData instanceof ExcelSheetSnapshot) {
+            if (row < 0 || row >= getRowCount() || column < 0 || column >= getColumnCount()) {
+                return null;
             }
-        });
+            return ((ExcelSheetSnapshot) contentData).getDisplayData(getModelRow(row), column);
+        }
+        TableData.CellData cellData = getContentItem(row, column);
+        return cellData != null ? cellData.getDisplayData() : null;
+    }
+
+    @Override
+    public CharSequence getHeaderText(int position) {
+        HeaderTitle headerTitle = getHeaderItem(position);
+        return headerTitle != null ? headerTitle.getTitle() : null;
+    }
+
+    @Override
+    public CharSequence getColumnText(int position) {
+        ColumnTitle columnTitle = getColumnItem(position);
+        return columnTitle != null ? columnTitle.getTitle() : null;
+    }
+
+    private boolean isSelectionOnly(List<Object> payloads) {
+        if (payloads == null || payloads.isEmpty()) {
+            return false;
+        }
+        for (Object payload : payloads) {
+            if (!ExcelSheetChange.PAYLOAD_SELECTION.equals(payload)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     class ContentViewHolder extends RecyclerView.ViewHolder {
-        public TextView titleTextView;
+        public CellTextView titleTextView;
         public View textViewHolder;
         public View selectedView;
+        public int row;
+        public int column;
 
         public ContentViewHolder(View itemview) {
             super(itemview);
-            titleTextView = (TextView) itemview.findViewById(R.id.cell_textview);
+            titleTextView = (CellTextView) itemview.findViewById(R.id.cell_textview);
             textViewHolder = itemview.findViewById(R.id.cell_container);
             selectedView = itemview.findViewById(R.id.selected_background);
         }
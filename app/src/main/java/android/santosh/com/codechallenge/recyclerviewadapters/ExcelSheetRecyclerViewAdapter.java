@@ -6,7 +6,6 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -33,9 +32,6 @@ public abstract class ExcelSheetRecyclerViewAdapter<T> extends RecyclerView.Adap
 
     public ExcelSheetRecyclerViewAdapter(Context context, List<T> excelSheetData) {
         this.excelSheetData = excelSheetData;
-        if (excelSheetData != null) {
-            this.excelSheetData = new LinkedList<>(excelSheetData);
-        }
         this.context = context;
         this.layoutInflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
     }
@@ -50,12 +46,13 @@ public abstract class ExcelSheetRecyclerViewAdapter<T> extends RecyclerView.Adap
 
     public abstract void onBindExcelSheetViewHolder(RecyclerView.ViewHolder holder, int position);
 
+    public void onBindExcelSheetViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        onBindExcelSheetViewHolder(holder, position);
+    }
+
     public void setExcelSheetData(List<T> excelSheetData) {
-        if (excelSheetData != null) {
-            this.excelSheetData = new LinkedList<>(excelSheetData);
-        } else {
-            this.excelSheetData = null;
-        }
+        //Header and row titles are virtual lists sized to the whole sheet, so keep the reference instead of copying.
+        this.excelSheetData = excelSheetData;
         this.notifyDataSetChanged();
     }
 
@@ -90,16 +87,26 @@ public abstract class ExcelSheetRecyclerViewAdapter<T> extends RecyclerView.Adap
         }
     }
 
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position, List<Object> payloads) {
+        int viewType = getItemViewType(position);
+        if (viewType == TYPE_NORMAL) {
+            onBindExcelSheetViewHolder(holder, position - getHeaderViewsCount(), payloads);
+        }
+    }
+
     @Override
     public int getItemCount() {
         int size = getHeaderViewsCount();
         size += getFooterViewsCount();
-        if (null != excelSheetData) {
-            size += excelSheetData.size();
-        }
+        size += getExcelSheetDataSize();
         return size;
     }
 
+    protected int getExcelSheetDataSize() {
+        return null == excelSheetData ? 0 : excelSheetData.size();
+    }
+
     public int getHeaderViewsCount() {
         return null == header ? 0 : 1;
     }
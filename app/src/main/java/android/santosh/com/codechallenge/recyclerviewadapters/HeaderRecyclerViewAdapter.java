@@ -2,6 +2,7 @@ package android.santosh.com.codechallenge.recyclerviewadapters;
 
 import android.content.Context;
 import android.santosh.com.codechallenge.interfaces.ExcelSheetRecyclerViewListener;
+import android.santosh.com.codechallenge.views.AxisSizes;
 import android.support.v7.widget.RecyclerView;
 import android.view.ViewGroup;
 
@@ -13,12 +14,21 @@ import java.util.List;
 
 public class HeaderRecyclerViewAdapter<H> extends ExcelSheetRecyclerViewAdapter<H> {
     private ExcelSheetRecyclerViewListener excelSheetRecyclerViewListener;
+    private AxisSizes columnSizes;
 
     public HeaderRecyclerViewAdapter(Context context, List<H> list, ExcelSheetRecyclerViewListener excelSheetRecyclerViewListener) {
         super(context, list);
         this.excelSheetRecyclerViewListener = excelSheetRecyclerViewListener;
     }
 
+    /**
+     * Titles are as wide as their column.
+     */
+    public void setColumnSizes(AxisSizes columnSizes) {
+        this.columnSizes = columnSizes;
+        this.notifyDataSetChanged();
+    }
+
     @Override
     public int getItemViewType(int position) {
         int viewType = super.getItemViewType(position);
@@ -39,6 +49,14 @@ public class HeaderRecyclerViewAdapter<H> extends ExcelSheetRecyclerViewAdapter<
 
     @Override
     public void onBindExcelSheetViewHolder(RecyclerView.ViewHolder holder, int position) {
+        if (columnSizes != null) {
+            ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
+            int width = columnSizes.getSize(position);
+            if (layoutParams.width != width) {
+                layoutParams.width = width;
+                holder.itemView.setLayoutParams(layoutParams);
+            }
+        }
         if (excelSheetRecyclerViewListener != null) {
             excelSheetRecyclerViewListener.onBindHeaderViewHolder(holder, position);
         }
@@ -2,15 +2,16 @@ package android.santosh.com.codechallenge.recyclerviewadapters;
 
 import android.content.Context;
 import android.santosh.com.codechallenge.Utils;
+import android.santosh.com.codechallenge.interfaces.ExcelSheetContent;
 import android.santosh.com.codechallenge.interfaces.ExcelSheetRecyclerViewListener;
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.RowOrder;
+import android.santosh.com.codechallenge.model.Selection;
+import android.santosh.com.codechallenge.views.AxisSizes;
 import android.santosh.com.codechallenge.views.ExcelSheetView;
 import android.support.v7.widget.RecyclerView;
-import android.view.Gravity;
 import android.view.View;
-import android.view.ViewGroup;
 import android.widget.FrameLayout;
-import android.widget.LinearLayout;
-import android.widget.ProgressBar;
 
 import java.util.List;
 
@@ -20,21 +21,19 @@ import java.util.List;
 
 public abstract class MainExcelSheetRecyclerViewAdapter<H, C, CH> implements ExcelSheetRecyclerViewListener {
 
-    private static final int LOADING_VIEW_WIDTH = 30;
-
     private Context context;
     private ExcelSheetRecyclerViewAdapter headerRecyclerViewAdapter;
     private ExcelSheetRecyclerViewAdapter columnRecyclerViewAdapter;
     private ExcelSheetRecyclerViewAdapter contentRecyclerViewAdapter;
     private View leftTopView;
     private ExcelSheetView excelSheetView;
-    protected RecyclerView.OnScrollListener onScrollListener;
     protected List<H> headerData;
     protected List<C> columnData;
-    protected List<List<CH>> contentData;
+    protected ExcelSheetContent<CH> contentData;
+    private Selection selection = Selection.NONE;
+    private RowOrder rowOrder = RowOrder.IDENTITY;
     private int columnWidth;
     private int headerHeight;
-    private int amountAxisY = 0;
 
     public MainExcelSheetRecyclerViewAdapter(Context context) {
         this.context = context;
@@ -44,7 +43,7 @@ public abstract class MainExcelSheetRecyclerViewAdapter<H, C, CH> implements Exc
     private void initRecyclerViewAdapter() {
         headerRecyclerViewAdapter = new HeaderRecyclerViewAdapter(context, headerData, this);
         columnRecyclerViewAdapter = new ColumnRecyclerViewAdapter(context, columnData, this);
-        contentRecyclerViewAdapter = new ContentHolderRecyclerViewAdapter(context, contentData, this);
+        contentRecyclerViewAdapter = new ContentHolderRecyclerViewAdapter(context, this);
     }
 
     private void setHeaderData(List<H> headerData) {
@@ -57,19 +56,113 @@ public abstract class MainExcelSheetRecyclerViewAdapter<H, C, CH> implements Exc
         columnRecyclerViewAdapter.setExcelSheetData(columnData);
     }
 
-    public void setContentData(List<List<CH>> contentData) {
+    public void setContentData(ExcelSheetContent<CH> contentData) {
         this.contentData = contentData;
-        contentRecyclerViewAdapter.setExcelSheetData(contentData);
+        if (contentRecyclerViewAdapter != null && contentRecyclerViewAdapter instanceof ContentHolderRecyclerViewAdapter) {
+            ((ContentHolderRecyclerViewAdapter) contentRecyclerViewAdapter).setContentSize(
+                    contentData != null ? getRowCount() : 0,
+                    contentData != null ? Utils.size(headerData) : 0);
+        }
+        invalidateCanvas();
+    }
+
+    /**
+     * Rebinds only the cells, rows or columns named by the change.
+     */
+    public void notifyContentChanged(ExcelSheetContent<CH> contentData, ExcelSheetChange excelSheetChange) {
+        this.contentData = contentData;
+        if (contentRecyclerViewAdapter != null && contentRecyclerViewAdapter instanceof ContentHolderRecyclerViewAdapter) {
+            ((ContentHolderRecyclerViewAdapter) contentRecyclerViewAdapter).notifyContentChanged(rowOrder.toViewChange(excelSheetChange));
+        }
+        invalidateCanvas();
+    }
+
+    /**
+     * Rebinds the previously and newly selected cells named by the change.
+     */
+    public void notifySelectionChanged(Selection selection, ExcelSheetChange excelSheetChange) {
+        this.selection = selection;
+        if (contentRecyclerViewAdapter != null && contentRecyclerViewAdapter instanceof ContentHolderRecyclerViewAdapter) {
+            ((ContentHolderRecyclerViewAdapter) contentRecyclerViewAdapter).notifyContentChanged(rowOrder.toViewChange(excelSheetChange));
+        }
+        invalidateCanvas();
+    }
+
+    /**
+     * Shows the rows in the new order. The row titles follow their rows, so a row keeps its number.
+     * When filters change how many rows are shown the cells are bound again at the new size.
+     */
+    public void setRowOrder(RowOrder rowOrder) {
+        int previousRowCount = getRowCount();
+        this.rowOrder = rowOrder;
+        if (columnRecyclerViewAdapter != null && columnRecyclerViewAdapter instanceof ColumnRecyclerViewAdapter) {
+            ((ColumnRecyclerViewAdapter) columnRecyclerViewAdapter).setRowCount(
+                    rowOrder.isFiltered() ? getRowCount() : ColumnRecyclerViewAdapter.ALL_ROWS);
+        }
+        if (getRowCount() != previousRowCount) {
+            setContentData(contentData);
+        } else if (contentRecyclerViewAdapter != null && contentRecyclerViewAdapter instanceof ContentHolderRecyclerViewAdapter) {
+            ((ContentHolderRecyclerViewAdapter) contentRecyclerViewAdapter).notifyContentChanged(
+                    new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addRows(0, Integer.MAX_VALUE));
+        }
+        invalidateCanvas();
+    }
+
+    /**
+     * A sheet drawn on a canvas has no views to rebind, it is drawn again as a whole.
+     */
+    private void invalidateCanvas() {
+        if (excelSheetView != null) {
+            excelSheetView.invalidateCanvas();
+        }
+    }
+
+    /**
+     * @return the number of rows shown, fewer than the sheet has while filtered.
+     */
+    public int getRowCount() {
+        return rowOrder.getRowCount(Utils.size(columnData));
     }
 
-    public void setAllData(List<H> headerData, List<C> columnData, List<List<CH>> contentData) {
+    public int getColumnCount() {
+        return Utils.size(headerData);
+    }
+
+    /**
+     * @return the stored row shown at the position, edits and selections use stored rows.
+     */
+    protected int getModelRow(int position) {
+        return rowOrder.getModelRow(position);
+    }
+
+    /**
+     * @return the position the stored row is shown at, -1 when it is filtered out.
+     */
+    public int getViewRow(int modelRow) {
+        return rowOrder.getViewRow(modelRow);
+    }
+
+    public boolean isCellSelected(int row, int column) {
+        return selection.contains(rowOrder.getModelRow(row), column);
+    }
+
+    public void setAllData(List<H> headerData, List<C> columnData, ExcelSheetContent<CH> contentData) {
+        //A loaded sheet starts without a selection, unsorted and unfiltered.
+        selection = Selection.NONE;
+        rowOrder = RowOrder.IDENTITY;
+        if (columnRecyclerViewAdapter != null && columnRecyclerViewAdapter instanceof ColumnRecyclerViewAdapter) {
+            ((ColumnRecyclerViewAdapter) columnRecyclerViewAdapter).setRowCount(ColumnRecyclerViewAdapter.ALL_ROWS);
+        }
         setHeaderData(headerData);
         setColumnData(columnData);
         setContentData(contentData);
-        excelSheetView.scrollBy(0);
-        excelSheetView.fastScrollVerticalLeft();
+        if (excelSheetView != null) {
+            //Sizes belong to the rows and columns of the sheet that was shown.
+            excelSheetView.clearCellSizes();
+            excelSheetView.syncScrollPosition();
+        }
         if (!Utils.isEmpty(columnData) && !Utils.isEmpty(headerData) && excelSheetView != null
-                && !Utils.isEmpty(contentData) && leftTopView == null) {
+                && contentData != null && leftTopView == null) {
             leftTopView = onCreateTopLeftView();
             excelSheetView.addView(leftTopView, new FrameLayout.LayoutParams(columnWidth, headerHeight));
         } else if (leftTopView != null) {
@@ -101,23 +194,39 @@ public abstract class MainExcelSheetRecyclerViewAdapter<H, C, CH> implements Exc
         this.headerHeight = headerHeight;
     }
 
-    public void setOnScrollListener(RecyclerView.OnScrollListener onScrollListener) {
-        this.onScrollListener = onScrollListener;
-        if (contentRecyclerViewAdapter != null && contentRecyclerViewAdapter instanceof ContentHolderRecyclerViewAdapter) {
-            ((ContentHolderRecyclerViewAdapter) contentRecyclerViewAdapter).setOnScrollListener(onScrollListener);
-        }
+    public void setExcelSheetView(ExcelSheetView excelSheetView) {
+        this.excelSheetView = excelSheetView;
+
     }
 
-    public void setAmountAxisY(int amountAxisY) {
-        this.amountAxisY = amountAxisY;
-        if (contentRecyclerViewAdapter != null && contentRecyclerViewAdapter instanceof ContentHolderRecyclerViewAdapter) {
-            ((ContentHolderRecyclerViewAdapter) contentRecyclerViewAdapter).setAmountAxisY(amountAxisY);
+    /**
+     * Sizes the column and row titles like the cells, the rows by the position they are shown at.
+     */
+    public void setCellSizes(AxisSizes rowSizes, AxisSizes columnSizes) {
+        if (headerRecyclerViewAdapter != null && headerRecyclerViewAdapter instanceof HeaderRecyclerViewAdapter) {
+            ((HeaderRecyclerViewAdapter) headerRecyclerViewAdapter).setColumnSizes(columnSizes);
+        }
+        if (columnRecyclerViewAdapter != null && columnRecyclerViewAdapter instanceof ColumnRecyclerViewAdapter) {
+            ((ColumnRecyclerViewAdapter) columnRecyclerViewAdapter).setRowSizes(rowSizes);
         }
     }
 
-    public void setExcelSheetView(ExcelSheetView excelSheetView) {
-        this.excelSheetView = excelSheetView;
+    /**
+     * Sizes the title of a resized column again, the cells are laid out again by their layout
+     * manager.
+     */
+    public void notifyColumnResized(int column) {
+        if (headerRecyclerViewAdapter != null) {
+            headerRecyclerViewAdapter.notifyItemChanged(column);
+        }
+        invalidateCanvas();
+    }
 
+    public void notifyRowResized(int row) {
+        if (columnRecyclerViewAdapter != null) {
+            columnRecyclerViewAdapter.notifyItemChanged(row);
+        }
+        invalidateCanvas();
     }
 
     protected H getHeaderItem(int position) {
@@ -128,83 +237,52 @@ public abstract class MainExcelSheetRecyclerViewAdapter<H, C, CH> implements Exc
     }
 
     protected C getColumnItem(int position) {
-        if (Utils.isEmpty(columnData) || position < 0 || position >= columnData.size()) {
+        if (Utils.isEmpty(columnData) || position < 0 || position >= getRowCount()) {
             return null;
         }
-        return columnData.get(position);
+        return columnData.get(rowOrder.getModelRow(position));
     }
 
     protected CH getContentItem(int row, int column) {
-        if (Utils.isEmpty(contentData) || row < 0 || row >= contentData.size() || Utils
-                .isEmpty(contentData.get(row)) || column < 0 || column >= contentData.get(row).size()) {
+        if (contentData == null || row < 0 || row >= getRowCount() || column < 0 || column >= Utils.size(headerData)) {
             return null;
         }
-        return contentData.get(row).get(column);
+        return contentData.get(rowOrder.getModelRow(row), column);
     }
 
-    private View createTopStaticView() {
-        View topStaticView = new View(context);
-        int loadingWidth = Utils.dp2px(LOADING_VIEW_WIDTH, context);
-        topStaticView.setLayoutParams(new ViewGroup.LayoutParams(loadingWidth, headerHeight));
-
-        return topStaticView;
+    /**
+     * Text of a column title drawn on a canvas, see {@link ExcelSheetView#RENDER_MODE_CANVAS}.
+     */
+    public CharSequence getHeaderText(int position) {
+        H headerItem = getHeaderItem(position);
+        return headerItem != null ? headerItem.toString() : null;
     }
 
-    private View createContentLoadingView() {
-        int loadingWidth = Utils.dp2px(LOADING_VIEW_WIDTH, context);
-        LinearLayout loadingView = new LinearLayout(context);
-        loadingView.setOrientation(LinearLayout.VERTICAL);
-        loadingView.setGravity(Gravity.CENTER);
-        LinearLayout.LayoutParams lpp = new LinearLayout.LayoutParams(loadingWidth, ViewGroup.LayoutParams.MATCH_PARENT);
-        loadingView.setLayoutParams(lpp);
-
-        ProgressBar progressBar = new ProgressBar(context);
-        LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(new ViewGroup.LayoutParams(
-                Utils.dp2px(16, context), Utils.dp2px(16, context)));
-        progressBar.setLayoutParams(lp);
-
-        loadingView.addView(progressBar, lp);
-
-        return loadingView;
+    /**
+     * Text of a row title drawn on a canvas.
+     */
+    public CharSequence getColumnText(int position) {
+        C columnItem = getColumnItem(position);
+        return columnItem != null ? columnItem.toString() : null;
     }
 
-    public void enableHeader() {
-        if (headerRecyclerViewAdapter != null && contentRecyclerViewAdapter != null && excelSheetView != null &&
-                (headerRecyclerViewAdapter.getHeaderViewsCount() <= 0 || contentRecyclerViewAdapter.getHeaderViewsCount() <= 0)) {
-            headerRecyclerViewAdapter.setHeaderView(createTopStaticView());
-            contentRecyclerViewAdapter.setHeaderView(createContentLoadingView());
-            excelSheetView.setHasHeader(true);
-            excelSheetView.scrollBy(Utils.dp2px(LOADING_VIEW_WIDTH, context));
-        }
+    /**
+     * Text of a cell drawn on a canvas.
+     */
+    public CharSequence getCellText(int row, int column) {
+        CH contentItem = getContentItem(row, column);
+        return contentItem != null ? contentItem.toString() : null;
     }
 
-    public void enableFooter() {
-        if (headerRecyclerViewAdapter != null && contentRecyclerViewAdapter != null && excelSheetView != null &&
-                (contentRecyclerViewAdapter.getFooterViewsCount() <= 0 || contentRecyclerViewAdapter.getFooterViewsCount() <= 0)) {
-            headerRecyclerViewAdapter.setFooterView(createTopStaticView());
-            contentRecyclerViewAdapter.setFooterView(createContentLoadingView());
-            //excelSheetView.setHasFooter(true);
-        }
+    /**
+     * Called when a cell drawn on a canvas is tapped, the row is the position it is shown at.
+     */
+    public void onCellClicked(int row, int column) {
     }
 
-    public void disableHeader() {
-        if (headerRecyclerViewAdapter != null && contentRecyclerViewAdapter != null && excelSheetView != null &&
-                (contentRecyclerViewAdapter.getHeaderViewsCount() > 0 || contentRecyclerViewAdapter.getHeaderViewsCount() > 0)) {
-            headerRecyclerViewAdapter.setHeaderView(null);
-            contentRecyclerViewAdapter.setHeaderView(null);
-            excelSheetView.setHasHeader(false);
-            excelSheetView.scrollBy(-Utils.dp2px(LOADING_VIEW_WIDTH, context));
-        }
-    }
-
-    public void disableFooter() {
-        if (headerRecyclerViewAdapter != null && contentRecyclerViewAdapter != null && excelSheetView != null &&
-                (contentRecyclerViewAdapter.getHeaderViewsCount() > 0 || contentRecyclerViewAdapter.getHeaderViewsCount() > 0)) {
-            headerRecyclerViewAdapter.setFooterView(null);
-            contentRecyclerViewAdapter.setFooterView(null);
-            //excelSheetView.setHasFooter(false);
-
-        }
+    @Override
+    public void onBindCellDataViewHolder(RecyclerView.ViewHolder holder, int horizontalPosition, int verticalPosition, List<Object> payloads) {
+        onBindCellDataViewHolder(holder, horizontalPosition, verticalPosition);
     }
 
     @Override
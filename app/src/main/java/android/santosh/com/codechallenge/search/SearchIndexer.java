@@ -0,0 +1,278 @@
+package android.santosh.com.codechallenge.search;
+
+import android.santosh.com.codechallenge.formula.FormulaEngine;
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Created by Santosh on 9/2/17.
+ * <p>
+ * Keeps a {@link TrigramIndex} of the values shown in the cells. The index of a loaded sheet is built
+ * on a thread of its own from the immutable snapshot, edits made meanwhile are remembered and
+ * applied once it is handed back to the owner executor. After that every change only re-indexes
+ * the cells it names. An index growing past the memory limit is dropped and searches scan the
+ * cells instead. Used from the owner executor only, apart from the build itself.
+ */
+
+public class SearchIndexer {
+    private static String TAG = SearchIndexer.class.getSimpleName();
+    public static final long DEFAULT_MEMORY_LIMIT = 32 * 1024 * 1024;
+    //Cells indexed between two checks of the memory limit and of a newer build.
+    private static final int BUILD_CHECK_INTERVAL = 4096;
+
+    public interface MatchVisitor {
+        /**
+         * @return false to stop at this match.
+         */
+        boolean onMatch(int row, int column);
+    }
+
+    private final Executor ownerExecutor;
+    private final ExecutorService buildExecutorService;
+    private volatile long memoryLimit = DEFAULT_MEMORY_LIMIT;
+    private volatile int buildGeneration;
+    private volatile long memoryBytes;
+    //Null while building and once dropped for the memory limit.
+    private TrigramIndex trigramIndex;
+    //The version trigramIndex reflects, the values to remove when a cell changes.
+    private ExcelSheetSnapshot indexedSnapshot;
+    private ExcelSheetSnapshot latestSnapshot;
+    private boolean building;
+    private SparseCellStore<Boolean> cellsChangedWhileBuilding = new SparseCellStore<>();
+
+    public SearchIndexer(Executor ownerExecutor) {
+        this.ownerExecutor = ownerExecutor;
+        this.buildExecutorService = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Applies from the next build on.
+     */
+    public void setMemoryLimit(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * @return the estimated size of the index, 0 while it is built or when it was dropped. Safe to
+     * read from any thread.
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public boolean isIndexed() {
+        return trigramIndex != null;
+    }
+
+    /**
+     * Indexes the snapshot in the background. Searches scan the cells until it is done.
+     */
+    public void rebuild(final ExcelSheetSnapshot snapshot) {
+        trigramIndex = null;
+        indexedSnapshot = null;
+        latestSnapshot = snapshot;
+        memoryBytes = 0;
+        building = true;
+        cellsChangedWhileBuilding.clear();
+        final int generation = ++buildGeneration;
+        final long limit = memoryLimit;
+        buildExecutorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                final TrigramIndex builtIndex = build(snapshot, generation, limit);
+                ownerExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        install(generation, builtIndex, snapshot);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Re-indexes the cells named by the change, a row or column range indexes the sheet again.
+     *
+     * @param snapshot the snapshot with the change applied.
+     */
+    public void update(ExcelSheetSnapshot snapshot, ExcelSheetChange excelSheetChange) {
+        if (excelSheetChange.isEmpty()) {
+            return;
+        }
+        if (excelSheetChange.hasRows() || excelSheetChange.hasColumns()) {
+            rebuild(snapshot);
+            return;
+        }
+        latestSnapshot = snapshot;
+        if (building) {
+            for (int i = 0; i < excelSheetChange.getCellCount(); i++) {
+                cellsChangedWhileBuilding.put(excelSheetChange.getCellRow(i), excelSheetChange.getCellColumn(i), Boolean.TRUE);
+            }
+            return;
+        }
+        if (trigramIndex == null) {
+            return;
+        }
+        long[] keys = new long[excelSheetChange.getCellCount()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SparseCellStore.key(excelSheetChange.getCellRow(i), excelSheetChange.getCellColumn(i));
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i - 1] != keys[i]) {
+                reindex(SparseCellStore.row(keys[i]), SparseCellStore.column(keys[i]), snapshot);
+            }
+        }
+        indexedSnapshot = snapshot;
+        checkMemory();
+    }
+
+    /**
+     * Visits the cells of the snapshot matching the query in row-major order, starting at the cell
+     * with the key fromKey, see {@link SparseCellStore#key(int, int)}.
+     */
+    public void forEachMatch(SearchQuery query, ExcelSheetSnapshot snapshot, long fromKey, MatchVisitor matchVisitor) {
+        if (query.isEmpty()) {
+            return;
+        }
+        if (trigramIndex != null && indexedSnapshot == snapshot
+                && query.getText().length() >= TrigramIndex.getMinQueryLength(query.isPrefix())) {
+            TrigramIndex.Candidates candidates = trigramIndex.findCandidates(query, fromKey);
+            for (long key = candidates.next(); key >= 0; key = candidates.next()) {
+                int row = SparseCellStore.row(key);
+                int column = SparseCellStore.column(key);
+                if (query.matches(snapshot.getDisplayData(row, column)) && !matchVisitor.onMatch(row, column)) {
+                    return;
+                }
+            }
+            return;
+        }
+        long[] keys = scan(query, snapshot, fromKey);
+        for (long key : keys) {
+            if (!matchVisitor.onMatch(SparseCellStore.row(key), SparseCellStore.column(key))) {
+                return;
+            }
+        }
+    }
+
+    private void install(int generation, TrigramIndex builtIndex, ExcelSheetSnapshot builtSnapshot) {
+        if (generation != buildGeneration) {
+            return;
+        }
+        building = false;
+        if (builtIndex == null) {
+            Log.w(TAG, "search index over its memory limit of " + memoryLimit / 1024 + " KB, searches scan the cells");
+            cellsChangedWhileBuilding.clear();
+            return;
+        }
+        trigramIndex = builtIndex;
+        indexedSnapshot = builtSnapshot;
+        final ExcelSheetSnapshot snapshot = latestSnapshot;
+        cellsChangedWhileBuilding.forEach(new SparseCellStore.CellVisitor<Boolean>() {
+            @Override
+            public void onVisitCell(int row, int column, Boolean value) {
+                reindex(row, column, snapshot);
+            }
+        });
+        cellsChangedWhileBuilding.clear();
+        indexedSnapshot = snapshot;
+        checkMemory();
+        if (trigramIndex != null) {
+            Log.i(TAG, "search index: " + trigramIndex.getCellCount() + " cells, " + trigramIndex.getTrigramCount()
+                    + " trigrams, " + memoryBytes / 1024 + " KB");
+        }
+    }
+
+    private void reindex(int row, int column, ExcelSheetSnapshot snapshot) {
+        String oldText = textOf(indexedSnapshot, row, column);
+        String newText = textOf(snapshot, row, column);
+        if (oldText == null ? newText == null : oldText.equals(newText)) {
+            return;
+        }
+        if (oldText != null) {
+            trigramIndex.remove(row, column, oldText);
+        }
+        if (newText != null) {
+            trigramIndex.add(row, column, newText);
+        }
+    }
+
+    private void checkMemory() {
+        long size = trigramIndex.getMemoryBytes();
+        if (size > memoryLimit) {
+            Log.w(TAG, "search index grew to " + size / 1024 + " KB, over its limit, searches scan the cells");
+            trigramIndex = null;
+            indexedSnapshot = null;
+            size = 0;
+        }
+        memoryBytes = size;
+    }
+
+    /**
+     * Runs on the build thread.
+     *
+     * @return null when a newer build started or the index would not fit the limit.
+     */
+    private TrigramIndex build(final ExcelSheetSnapshot snapshot, final int generation, final long limit) {
+        final TrigramIndex index = new TrigramIndex();
+        final boolean[] abandoned = {false};
+        final int[] visitedCount = {0};
+        snapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                if (abandoned[0]) {
+                    return;
+                }
+                index.add(row, column, textOf(snapshot, row, column, value));
+                if (++visitedCount[0] % BUILD_CHECK_INTERVAL == 0
+                        && (generation != buildGeneration || index.getMemoryBytes() > limit)) {
+                    abandoned[0] = true;
+                }
+            }
+        });
+        return abandoned[0] || index.getMemoryBytes() > limit ? null : index;
+    }
+
+    /**
+     * O(cells). Used for queries too short for the index and while it is not available.
+     *
+     * @return the keys of the matching cells from fromKey on, ascending.
+     */
+    private static long[] scan(final SearchQuery query, final ExcelSheetSnapshot snapshot, final long fromKey) {
+        final long[][] keys = {new long[16]};
+        final int[] keyCount = {0};
+        snapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                long key = SparseCellStore.key(row, column);
+                if (key >= fromKey && query.matches(textOf(snapshot, row, column, value))) {
+                    if (keyCount[0] == keys[0].length) {
+                        keys[0] = Arrays.copyOf(keys[0], keyCount[0] * 2);
+                    }
+                    keys[0][keyCount[0]++] = key;
+                }
+            }
+        });
+        long[] result = Arrays.copyOf(keys[0], keyCount[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static String textOf(ExcelSheetSnapshot snapshot, int row, int column) {
+        return snapshot.getDisplayData(row, column);
+    }
+
+    /**
+     * @return the value shown for the cell data visited, formulas show their result.
+     */
+    private static String textOf(ExcelSheetSnapshot snapshot, int row, int column, String data) {
+        return FormulaEngine.isFormula(data) ? snapshot.getDisplayData(row, column) : data;
+    }
+}
@@ -0,0 +1,76 @@
+package android.santosh.com.codechallenge.search;
+
+/**
+ * Created by Santosh on 9/2/17.
+ * <p>
+ * Text to look for in the cells, ignoring case. A substring query matches anywhere in the value
+ * shown in a cell, a prefix query only at its start. Immutable.
+ */
+
+public final class SearchQuery {
+    private final String text;
+    private final boolean prefix;
+
+    public SearchQuery(String text, boolean prefix) {
+        this.text = text;
+        this.prefix = prefix;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isPrefix() {
+        return prefix;
+    }
+
+    public boolean isEmpty() {
+        return text == null || text.length() == 0;
+    }
+
+    public boolean matches(String value) {
+        if (value == null || isEmpty()) {
+            return false;
+        }
+        if (prefix) {
+            return value.regionMatches(true, 0, text, 0, text.length());
+        }
+        return indexIn(value, 0) >= 0;
+    }
+
+    /**
+     * @return where the next match starts at or after fromIndex, -1 if there is none.
+     */
+    public int indexIn(String value, int fromIndex) {
+        if (value == null || isEmpty()) {
+            return -1;
+        }
+        if (prefix) {
+            return fromIndex == 0 && value.regionMatches(true, 0, text, 0, text.length()) ? 0 : -1;
+        }
+        for (int i = fromIndex; i + text.length() <= value.length(); i++) {
+            if (value.regionMatches(true, i, text, 0, text.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the value with every match replaced, the first one only for a prefix query.
+     */
+    public String replaceIn(String value, String replacement) {
+        int index = indexIn(value, 0);
+        if (index < 0) {
+            return value;
+        }
+        StringBuilder stringBuilder = new StringBuilder(value.length() + replacement.length());
+        int copiedTo = 0;
+        while (index >= 0) {
+            stringBuilder.append(value, copiedTo, index).append(replacement);
+            copiedTo = index + text.length();
+            index = indexIn(value, copiedTo);
+        }
+        return stringBuilder.append(value, copiedTo, value.length()).toString();
+    }
+}
@@ -0,0 +1,299 @@
+package android.santosh.com.codechallenge.search;
+
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Created by Santosh on 9/2/17.
+ * <p>
+ * Inverted index from every three character sequence of a cell's text, ignoring case, to the cells
+ * containing it. A query only verifies the cells holding all of its trigrams. Cells are keyed as in
+ * {@link SparseCellStore#key(int, int)}, so walking a posting list visits them in row-major order.
+ * The text is indexed with a start marker in front, which also answers prefix queries of two
+ * characters.
+ * <p>
+ * Trigrams live in an open addressing table of primitive keys and each posting list is a long[],
+ * so the index costs about 8 bytes per trigram of a cell and no object per cell. Not thread safe.
+ */
+
+public class TrigramIndex {
+    static final char START = '\u0002';
+    //Bytes of a table slot, a posting list object and its array header, used to estimate the size.
+    private static final int TRIGRAM_OVERHEAD = 8 + 4 + 24 + 16;
+    private static final int POSTING_SIZE = 8;
+
+    private long[] trigrams = new long[256];
+    private PostingList[] postingLists = new PostingList[256];
+    private int trigramCount;
+    private long postingCapacity;
+    private int cellCount;
+
+    /**
+     * @return the shortest query the index answers, shorter ones have to scan the cells.
+     */
+    public static int getMinQueryLength(boolean prefix) {
+        return prefix ? 2 : 3;
+    }
+
+    public void add(int row, int column, String text) {
+        long[] cellTrigrams = trigramsOf(text, true);
+        if (cellTrigrams.length == 0) {
+            return;
+        }
+        long key = SparseCellStore.key(row, column);
+        for (long trigram : cellTrigrams) {
+            PostingList postingList = getOrCreate(trigram);
+            postingCapacity -= postingList.keys.length;
+            postingList.add(key);
+            postingCapacity += postingList.keys.length;
+        }
+        cellCount++;
+    }
+
+    public void remove(int row, int column, String text) {
+        long[] cellTrigrams = trigramsOf(text, true);
+        if (cellTrigrams.length == 0) {
+            return;
+        }
+        long key = SparseCellStore.key(row, column);
+        for (long trigram : cellTrigrams) {
+            int slot = slotOf(trigram);
+            PostingList postingList = postingLists[slot];
+            if (postingList != null) {
+                postingList.remove(key);
+                if (postingList.size == 0) {
+                    //An edited sheet would otherwise keep every trigram it ever held.
+                    postingCapacity -= postingList.keys.length;
+                    removeSlot(slot);
+                }
+            }
+        }
+        cellCount--;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public int getTrigramCount() {
+        return trigramCount;
+    }
+
+    public long getMemoryBytes() {
+        return (long) trigrams.length * (8 + 4) + (long) trigramCount * TRIGRAM_OVERHEAD + postingCapacity * POSTING_SIZE;
+    }
+
+    /**
+     * Lists, in row-major order, the cells that may match a query of at least
+     * {@link #getMinQueryLength(boolean)} characters. Each one still has to be checked against the
+     * query, a cell can hold every trigram without holding them in sequence.
+     */
+    public Candidates findCandidates(SearchQuery query, long fromKey) {
+        long[] queryTrigrams = trigramsOf(query.getText(), query.isPrefix());
+        PostingList[] lists = new PostingList[queryTrigrams.length];
+        for (int i = 0; i < queryTrigrams.length; i++) {
+            lists[i] = get(queryTrigrams[i]);
+            if (lists[i] == null) {
+                return new Candidates(new PostingList[0], fromKey);
+            }
+            lists[i].ensureSorted();
+        }
+        //Walk the shortest list, the others are only probed.
+        Arrays.sort(lists, new Comparator<PostingList>() {
+            @Override
+            public int compare(PostingList lhs, PostingList rhs) {
+                return lhs.size < rhs.size ? -1 : (lhs.size == rhs.size ? 0 : 1);
+            }
+        });
+        return new Candidates(lists, fromKey);
+    }
+
+    /**
+     * Row-major stream of the keys present in every posting list of a query.
+     */
+    public static class Candidates {
+        private final PostingList[] lists;
+        private int position;
+
+        private Candidates(PostingList[] lists, long fromKey) {
+            this.lists = lists;
+            this.position = lists.length == 0 ? 0 : lists[0].lowerBound(fromKey);
+        }
+
+        /**
+         * @return the next key, -1 when there are no more.
+         */
+        public long next() {
+            if (lists.length == 0) {
+                return -1;
+            }
+            PostingList first = lists[0];
+            while (position < first.size) {
+                long key = first.keys[position++];
+                boolean inAll = true;
+                for (int i = 1; i < lists.length && inAll; i++) {
+                    inAll = lists[i].contains(key);
+                }
+                if (inAll) {
+                    return key;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * @return the distinct trigrams of the text, lower cased, with the start marker in front when
+     * withStart is set.
+     */
+    static long[] trigramsOf(String text, boolean withStart) {
+        if (text == null) {
+            return new long[0];
+        }
+        int offset = withStart ? 1 : 0;
+        int length = text.length() + offset;
+        if (length < 3) {
+            return new long[0];
+        }
+        long[] result = new long[length - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((long) charAt(text, i - offset) << 32)
+                    | ((long) charAt(text, i + 1 - offset) << 16)
+                    | charAt(text, i + 2 - offset);
+        }
+        Arrays.sort(result);
+        int distinctCount = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (distinctCount == 0 || result[distinctCount - 1] != result[i]) {
+                result[distinctCount++] = result[i];
+            }
+        }
+        return distinctCount == result.length ? result : Arrays.copyOf(result, distinctCount);
+    }
+
+    private static char charAt(String text, int index) {
+        return index < 0 ? START : Character.toLowerCase(text.charAt(index));
+    }
+
+    private PostingList get(long trigram) {
+        int slot = slotOf(trigram);
+        return postingLists[slot];
+    }
+
+    private PostingList getOrCreate(long trigram) {
+        int slot = slotOf(trigram);
+        if (postingLists[slot] == null) {
+            trigrams[slot] = trigram;
+            postingLists[slot] = new PostingList();
+            postingCapacity += postingLists[slot].keys.length;
+            trigramCount++;
+            if (trigramCount * 2 > trigrams.length) {
+                grow();
+                slot = slotOf(trigram);
+            }
+        }
+        return postingLists[slot];
+    }
+
+    /**
+     * @return the slot holding the trigram, or the empty slot it would go in.
+     */
+    private int slotOf(long trigram) {
+        int mask = trigrams.length - 1;
+        int slot = homeSlotOf(trigram);
+        while (postingLists[slot] != null && trigrams[slot] != trigram) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int homeSlotOf(long trigram) {
+        long hash = trigram * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (trigrams.length - 1);
+    }
+
+    /**
+     * Backward shift deletion, as in {@link SparseCellStore}, keeps probe chains intact without
+     * tombstones.
+     */
+    private void removeSlot(int slot) {
+        int mask = trigrams.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (postingLists[next] != null) {
+            int home = homeSlotOf(trigrams[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                trigrams[hole] = trigrams[next];
+                postingLists[hole] = postingLists[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        postingLists[hole] = null;
+        trigramCount--;
+    }
+
+    private void grow() {
+        long[] oldTrigrams = trigrams;
+        PostingList[] oldPostingLists = postingLists;
+        trigrams = new long[oldTrigrams.length * 2];
+        postingLists = new PostingList[oldPostingLists.length * 2];
+        for (int i = 0; i < oldTrigrams.length; i++) {
+            if (oldPostingLists[i] != null) {
+                int slot = slotOf(oldTrigrams[i]);
+                trigrams[slot] = oldTrigrams[i];
+                postingLists[slot] = oldPostingLists[i];
+            }
+        }
+    }
+
+    /**
+     * Cell keys containing one trigram. Appended in any order and sorted when first read, a load
+     * visits the cells in storage order.
+     */
+    static class PostingList {
+        long[] keys = new long[2];
+        int size;
+        private boolean sorted = true;
+
+        void add(long key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size + (size >> 1) + 1);
+            }
+            if (size > 0 && keys[size - 1] >= key) {
+                sorted = false;
+            }
+            keys[size++] = key;
+        }
+
+        void remove(long key) {
+            ensureSorted();
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index >= 0) {
+                System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+                size--;
+            }
+        }
+
+        boolean contains(long key) {
+            return Arrays.binarySearch(keys, 0, size, key) >= 0;
+        }
+
+        /**
+         * @return the index of the first key at or after the key.
+         */
+        int lowerBound(long key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        void ensureSorted() {
+            if (!sorted) {
+                Arrays.sort(keys, 0, size);
+                sorted = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package android.santosh.com.codechallenge.sort;
+
+/**
+ * Created by Santosh on 8/31/17.
+ * <p>
+ * Stable merge sort of key indices, compared through {@link SortKeys}. Sorting indices keeps the
+ * keys in place, and an int[] sorts without boxing.
+ */
+
+final class IndexMergeSort {
+    private static final int INSERTION_SORT_SIZE = 32;
+
+    private IndexMergeSort() {
+    }
+
+    /**
+     * Sorts order[from, to) using buffer[from, to) as scratch space.
+     */
+    static void sort(int[] order, int[] buffer, int from, int to, SortKeys sortKeys) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            insertionSort(order, from, to, sortKeys);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(order, buffer, from, middle, sortKeys);
+        sort(order, buffer, middle, to, sortKeys);
+        merge(order, buffer, from, middle, to, sortKeys);
+    }
+
+    /**
+     * Merges the sorted runs order[from, middle) and order[middle, to).
+     */
+    static void merge(int[] order, int[] buffer, int from, int middle, int to, SortKeys sortKeys) {
+        if (sortKeys.compare(order[middle - 1], order[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && sortKeys.compare(buffer[left], buffer[right]) <= 0)) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static void insertionSort(int[] order, int from, int to, SortKeys sortKeys) {
+        for (int i = from + 1; i < to; i++) {
+            int index = order[i];
+            int j = i - 1;
+            while (j >= from && sortKeys.compare(order[j], index) > 0) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = index;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package android.santosh.com.codechallenge.sort;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Created by Santosh on 8/31/17.
+ * <p>
+ * {@link IndexMergeSort} with the halves sorted in parallel on a bounded ForkJoinPool. ForkJoinPool
+ * is only available from Lollipop, the sorter sorts on its own thread before that.
+ */
+
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class ParallelMergeSort {
+    //Runs this short are sorted by one task without splitting further.
+    private static final int TASK_SIZE = 8192;
+
+    private final ForkJoinPool forkJoinPool;
+
+    ParallelMergeSort(int parallelism) {
+        this.forkJoinPool = new ForkJoinPool(parallelism);
+    }
+
+    void sort(int[] order, SortKeys sortKeys) {
+        forkJoinPool.invoke(new SortTask(order, new int[order.length], 0, order.length, sortKeys));
+    }
+
+    void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] order;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final SortKeys sortKeys;
+
+        SortTask(int[] order, int[] buffer, int from, int to, SortKeys sortKeys) {
+            this.order = order;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.sortKeys = sortKeys;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_SIZE) {
+                IndexMergeSort.sort(order, buffer, from, to, sortKeys);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortTask(order, buffer, from, middle, sortKeys),
+                    new SortTask(order, buffer, middle, to, sortKeys));
+            IndexMergeSort.merge(order, buffer, from, middle, to, sortKeys);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package android.santosh.com.codechallenge.sort;
+
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.RowOrder;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Created by Santosh on 8/31/17.
+ * <p>
+ * Builds the {@link RowOrder} of a sort by one or more columns and keeps it up to date while the
+ * sheet is edited. A sort reads the key of every sorted row once and orders indices into those
+ * keys, in parallel for large sheets. An edit only moves the rows it touched, each found its new
+ * place by binary search, instead of sorting again. Only used from the controller's executor.
+ */
+
+public class RowSorter {
+    //Smaller sorts run on the calling thread, splitting them costs more than it saves.
+    private static final int MIN_PARALLEL_ROW_COUNT = 16384;
+    //Changes touching more rows than this sort again instead of moving rows one by one.
+    private static final int MAX_INCREMENTAL_ROW_COUNT = 256;
+
+    private final ParallelMergeSort parallelMergeSort;
+
+    public RowSorter() {
+        this(1);
+    }
+
+    /**
+     * @param parallelism threads sorting a large sheet, 1 sorts on the calling thread. Anything
+     *                    above 1 needs ForkJoinPool, so Lollipop or later.
+     */
+    public RowSorter(int parallelism) {
+        this.parallelMergeSort = parallelism > 1 ? new ParallelMergeSort(parallelism) : null;
+    }
+
+    public RowOrder sort(ExcelSheetSnapshot snapshot, int[] sortColumns, boolean[] ascending) {
+        if (sortColumns.length == 0) {
+            return RowOrder.IDENTITY;
+        }
+        int[] rows = collectSortedRows(snapshot, sortColumns);
+        SortKeys sortKeys = new SortKeys(sortColumns, ascending, rows.length);
+        int[] order = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            sortKeys.set(i, snapshot, rows[i]);
+            order[i] = i;
+        }
+        if (parallelMergeSort != null && rows.length >= MIN_PARALLEL_ROW_COUNT) {
+            parallelMergeSort.sort(order, sortKeys);
+        } else {
+            IndexMergeSort.sort(order, new int[order.length], 0, order.length, sortKeys);
+        }
+        int[] sortedRows = new int[rows.length];
+        for (int viewRow = 0; viewRow < order.length; viewRow++) {
+            sortedRows[viewRow] = rows[order[viewRow]];
+        }
+        return RowOrder.of(sortColumns, ascending, sortedRows);
+    }
+
+    /**
+     * Moves the rows whose sort columns the change touched to their new place.
+     *
+     * @param snapshot the snapshot with the change applied.
+     * @return the same order when no row moved, otherwise an order without filters.
+     */
+    public RowOrder update(RowOrder rowOrder, ExcelSheetSnapshot snapshot, ExcelSheetChange excelSheetChange) {
+        if (!rowOrder.isSorted() || excelSheetChange.isEmpty()) {
+            return rowOrder;
+        }
+        int[] sortColumns = new int[rowOrder.getSortColumnCount()];
+        boolean[] ascending = new boolean[sortColumns.length];
+        for (int c = 0; c < sortColumns.length; c++) {
+            sortColumns[c] = rowOrder.getSortColumn(c);
+            ascending[c] = rowOrder.isAscending(c);
+        }
+        if (touchesSortColumns(excelSheetChange, sortColumns)
+                || (excelSheetChange.hasRows() && excelSheetChange.getLastRow() - excelSheetChange.getFirstRow() >= MAX_INCREMENTAL_ROW_COUNT)) {
+            return sort(snapshot, sortColumns, ascending);
+        }
+        int[] changedRows = collectChangedRows(excelSheetChange, rowOrder);
+        if (changedRows.length == 0) {
+            return rowOrder;
+        }
+        if (changedRows.length > MAX_INCREMENTAL_ROW_COUNT) {
+            return sort(snapshot, sortColumns, ascending);
+        }
+
+        int sortedRowCount = 0;
+        int[] sortedRows = new int[rowOrder.getSortedRowCount() + changedRows.length];
+        for (int viewRow = 0; viewRow < rowOrder.getSortedRowCount(); viewRow++) {
+            int row = rowOrder.getSortedRow(viewRow);
+            if (Arrays.binarySearch(changedRows, row) < 0) {
+                sortedRows[sortedRowCount++] = row;
+            }
+        }
+        //Key 0 is the moved row, key 1 the row it is compared with.
+        SortKeys sortKeys = new SortKeys(sortColumns, ascending, 2);
+        for (int row : changedRows) {
+            sortKeys.set(0, snapshot, row);
+            if (!sortKeys.hasValue(0)) {
+                continue;
+            }
+            int low = 0;
+            int high = sortedRowCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                sortKeys.set(1, snapshot, sortedRows[middle]);
+                if (sortKeys.compare(1, 0) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            System.arraycopy(sortedRows, low, sortedRows, low + 1, sortedRowCount - low);
+            sortedRows[low] = row;
+            sortedRowCount++;
+        }
+        sortedRows = Arrays.copyOf(sortedRows, sortedRowCount);
+        if (sortedRowCount == rowOrder.getSortedRowCount() && isSameOrder(rowOrder, sortedRows)) {
+            return rowOrder;
+        }
+        return RowOrder.of(sortColumns, ascending, sortedRows);
+    }
+
+    public void shutdown() {
+        if (parallelMergeSort != null) {
+            parallelMergeSort.shutdown();
+        }
+    }
+
+    /**
+     * @return ascending model rows with a value in one of the sort columns.
+     */
+    private static int[] collectSortedRows(ExcelSheetSnapshot snapshot, final int[] sortColumns) {
+        final BitSet rowBits = new BitSet();
+        snapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                for (int sortColumn : sortColumns) {
+                    if (sortColumn == column) {
+                        rowBits.set(row);
+                        return;
+                    }
+                }
+            }
+        });
+        int[] rows = new int[rowBits.cardinality()];
+        int index = 0;
+        for (int row = rowBits.nextSetBit(0); row >= 0; row = rowBits.nextSetBit(row + 1)) {
+            rows[index++] = row;
+        }
+        return rows;
+    }
+
+    private static boolean touchesSortColumns(ExcelSheetChange excelSheetChange, int[] sortColumns) {
+        if (!excelSheetChange.hasColumns()) {
+            return false;
+        }
+        for (int sortColumn : sortColumns) {
+            if (sortColumn >= excelSheetChange.getFirstColumn() && sortColumn <= excelSheetChange.getLastColumn()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return ascending distinct rows of the change that may have moved.
+     */
+    private static int[] collectChangedRows(ExcelSheetChange excelSheetChange, RowOrder rowOrder) {
+        int rowRangeSize = excelSheetChange.hasRows() ? excelSheetChange.getLastRow() - excelSheetChange.getFirstRow() + 1 : 0;
+        int[] changedRows = new int[excelSheetChange.getCellCount() + rowRangeSize];
+        int changedRowCount = 0;
+        for (int i = 0; i < excelSheetChange.getCellCount(); i++) {
+            if (rowOrder.isSortColumn(excelSheetChange.getCellColumn(i))) {
+                changedRows[changedRowCount++] = excelSheetChange.getCellRow(i);
+            }
+        }
+        for (int i = 0; i < rowRangeSize; i++) {
+            changedRows[changedRowCount++] = excelSheetChange.getFirstRow() + i;
+        }
+        Arrays.sort(changedRows, 0, changedRowCount);
+        int distinctCount = 0;
+        for (int i = 0; i < changedRowCount; i++) {
+            if (distinctCount == 0 || changedRows[distinctCount - 1] != changedRows[i]) {
+                changedRows[distinctCount++] = changedRows[i];
+            }
+        }
+        return Arrays.copyOf(changedRows, distinctCount);
+    }
+
+    private static boolean isSameOrder(RowOrder rowOrder, int[] sortedRows) {
+        for (int viewRow = 0; viewRow < sortedRows.length; viewRow++) {
+            if (rowOrder.getSortedRow(viewRow) != sortedRows[viewRow]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+package android.santosh.com.codechallenge.sort;
+
+import android.santosh.com.codechallenge.model.CellValue;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+
+/**
+ * Created by Santosh on 8/31/17.
+ * <p>
+ * Sort keys of a list of rows, read from the snapshot once and kept in primitive arrays so comparing
+ * two rows never goes back to the snapshot. Formula cells sort by their result. Within a column
+ * numbers come before text and text before booleans, reversed for a descending column, and empty
+ * cells always come last. Equal rows keep their model order.
+ */
+
+class SortKeys {
+    private static final byte RANK_NUMBER = 0;
+    private static final byte RANK_TEXT = 1;
+    private static final byte RANK_BOOLEAN = 2;
+    private static final byte RANK_EMPTY = 3;
+
+    private final int[] sortColumns;
+    private final boolean[] ascending;
+    private final int[] rows;
+    //Key of column c of key i at i * sortColumns.length + c.
+    private final byte[] ranks;
+    private final double[] numbers;
+    private final String[] texts;
+
+    SortKeys(int[] sortColumns, boolean[] ascending, int capacity) {
+        this.sortColumns = sortColumns;
+        this.ascending = ascending;
+        this.rows = new int[capacity];
+        this.ranks = new byte[capacity * sortColumns.length];
+        this.numbers = new double[capacity * sortColumns.length];
+        this.texts = new String[capacity * sortColumns.length];
+    }
+
+    void set(int index, ExcelSheetSnapshot snapshot, int row) {
+        rows[index] = row;
+        for (int c = 0; c < sortColumns.length; c++) {
+            int slot = index * sortColumns.length + c;
+            int column = sortColumns[c];
+            int type = snapshot.getType(row, column);
+            double number = 0;
+            String text = null;
+            if (type == CellValue.TYPE_NUMBER || type == CellValue.TYPE_BOOLEAN) {
+                number = snapshot.getNumber(row, column);
+            } else if (type == CellValue.TYPE_TEXT) {
+                //Formulas are text until their result is looked at.
+                text = snapshot.getDisplayData(row, column);
+                type = CellValue.typeOf(text);
+                if (type == CellValue.TYPE_NUMBER || type == CellValue.TYPE_BOOLEAN) {
+                    number = CellValue.toNumber(text, type);
+                    text = null;
+                }
+            }
+            ranks[slot] = rank(type);
+            numbers[slot] = number;
+            texts[slot] = text;
+        }
+    }
+
+    int getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * @return true when the row has a value in one of the sort columns.
+     */
+    boolean hasValue(int index) {
+        for (int c = 0; c < sortColumns.length; c++) {
+            if (ranks[index * sortColumns.length + c] != RANK_EMPTY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int compare(int lhs, int rhs) {
+        for (int c = 0; c < sortColumns.length; c++) {
+            int lhsSlot = lhs * sortColumns.length + c;
+            int rhsSlot = rhs * sortColumns.length + c;
+            byte lhsRank = ranks[lhsSlot];
+            byte rhsRank = ranks[rhsSlot];
+            int result;
+            if (lhsRank != rhsRank) {
+                if (lhsRank == RANK_EMPTY || rhsRank == RANK_EMPTY) {
+                    return lhsRank == RANK_EMPTY ? 1 : -1;
+                }
+                result = lhsRank < rhsRank ? -1 : 1;
+            } else if (lhsRank == RANK_EMPTY) {
+                continue;
+            } else if (lhsRank == RANK_TEXT) {
+                result = String.CASE_INSENSITIVE_ORDER.compare(texts[lhsSlot], texts[rhsSlot]);
+            } else {
+                result = Double.compare(numbers[lhsSlot], numbers[rhsSlot]);
+            }
+            if (result != 0) {
+                return ascending[c] ? result : -result;
+            }
+        }
+        return rows[lhs] < rows[rhs] ? -1 : (rows[lhs] == rows[rhs] ? 0 : 1);
+    }
+
+    private static byte rank(int type) {
+        switch (type) {
+            case CellValue.TYPE_NUMBER:
+                return RANK_NUMBER;
+            case CellValue.TYPE_TEXT:
+                return RANK_TEXT;
+            case CellValue.TYPE_BOOLEAN:
+                return RANK_BOOLEAN;
+            default:
+                return RANK_EMPTY;
+        }
+    }
+}
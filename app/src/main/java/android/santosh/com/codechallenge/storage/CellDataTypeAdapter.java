@@ -0,0 +1,57 @@
+package android.santosh.com.codechallenge.storage;
+
+import android.santosh.com.codechallenge.model.TableData;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Created by Santosh on 8/23/17.
+ * <p>
+ * Reads and writes CellData without reflection. Field names match what Gson wrote for the class,
+ * so sheets saved under the "table_data" preference still read back. The "isSelected" field those
+ * sheets carry is skipped, selection is not part of the saved data.
+ */
+
+public class CellDataTypeAdapter extends TypeAdapter<TableData.CellData> {
+    private static final String DATA = "data";
+
+    @Override
+    public void write(JsonWriter out, TableData.CellData cellData) throws IOException {
+        if (cellData == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (cellData.getData() != null) {
+            out.name(DATA).value(cellData.getData());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public TableData.CellData read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        TableData.CellData cellData = new TableData.CellData();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (DATA.equals(name)) {
+                cellData.setData(in.nextString());
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return cellData;
+    }
+}
@@ -0,0 +1,61 @@
+package android.santosh.com.codechallenge.storage;
+
+import android.santosh.com.codechallenge.model.CellEntry;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Created by Santosh on 8/23/17.
+ */
+
+public class CellEntryTypeAdapter extends TypeAdapter<CellEntry> {
+    private static final String ROW = "row";
+    private static final String COLUMN = "column";
+    private static final String DATA = "data";
+
+    @Override
+    public void write(JsonWriter out, CellEntry cellEntry) throws IOException {
+        if (cellEntry == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name(ROW).value(cellEntry.getRow());
+        out.name(COLUMN).value(cellEntry.getColumn());
+        out.name(DATA).value(cellEntry.getData());
+        out.endObject();
+    }
+
+    @Override
+    public CellEntry read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int row = -1;
+        int column = -1;
+        String data = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (ROW.equals(name)) {
+                row = in.nextInt();
+            } else if (COLUMN.equals(name)) {
+                column = in.nextInt();
+            } else if (DATA.equals(name)) {
+                data = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new CellEntry(row, column, data);
+    }
+}
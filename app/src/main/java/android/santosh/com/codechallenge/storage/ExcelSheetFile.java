@@ -0,0 +1,303 @@
+package android.santosh.com.codechallenge.storage;
+
+import android.santosh.com.codechallenge.model.CellValue;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by Santosh on 8/22/17.
+ * <p>
+ * Read only binary sheet file, accessed through a MappedByteBuffer so only the pages holding the
+ * looked up cells are read from disk. Layout, all values big endian ints:
+ * <pre>
+ * header          magic, version, rowCount, cellCount, stringCount
+ * row index       rowCount x (row, firstCellIndex), sorted by row
+ * cell index      cellCount x (column, stringId), sorted by row then column
+ * string offsets  (stringCount + 1) x offset into the string data
+ * string data     UTF-8 bytes of every distinct cell value
+ * </pre>
+ * Files are written to a temp file and renamed into place, so a reader never sees a partial file.
+ */
+
+public class ExcelSheetFile {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x45585332;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int ROW_ENTRY_SIZE = 8;
+    private static final int CELL_ENTRY_SIZE = 8;
+    private static final Object TEXT = new Object();
+
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final int cellCount;
+    private final int stringCount;
+    private final int cellIndexOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+    //Parsed type of every distinct string, filled on first use: a Double, a Boolean or TEXT. Racing
+    //readers store equal immutable values, so the array needs no lock.
+    private final Object[] parsedStrings;
+
+    private ExcelSheetFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not an excel sheet file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported excel sheet file version " + buffer.getInt(4));
+        }
+        rowCount = buffer.getInt(8);
+        cellCount = buffer.getInt(12);
+        stringCount = buffer.getInt(16);
+        cellIndexOffset = HEADER_SIZE + rowCount * ROW_ENTRY_SIZE;
+        stringOffsetsOffset = cellIndexOffset + cellCount * CELL_ENTRY_SIZE;
+        stringDataOffset = stringOffsetsOffset + (stringCount + 1) * 4;
+        if (stringDataOffset > buffer.capacity()
+                || stringDataOffset + buffer.getInt(stringOffsetsOffset + stringCount * 4) > buffer.capacity()) {
+            throw new IOException("truncated excel sheet file");
+        }
+        parsedStrings = new Object[stringCount];
+    }
+
+    public static ExcelSheetFile open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel fileChannel = randomAccessFile.getChannel();
+            //The mapping stays valid after the channel is closed.
+            MappedByteBuffer mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            return new ExcelSheetFile(mappedByteBuffer);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * @return the cell value or null when the cell is empty.
+     */
+    public String get(int row, int column) {
+        int cell = findCell(row, column);
+        return cell < 0 ? null : readString(buffer.getInt(cellIndexOffset + cell * CELL_ENTRY_SIZE + 4));
+    }
+
+    /**
+     * @return the {@link CellValue} type of the cell, parsed once per distinct value.
+     */
+    public int getType(int row, int column) {
+        int cell = findCell(row, column);
+        if (cell < 0) {
+            return CellValue.TYPE_EMPTY;
+        }
+        Object parsedString = parseString(buffer.getInt(cellIndexOffset + cell * CELL_ENTRY_SIZE + 4));
+        if (parsedString instanceof Double) {
+            return CellValue.TYPE_NUMBER;
+        }
+        return parsedString instanceof Boolean ? CellValue.TYPE_BOOLEAN : CellValue.TYPE_TEXT;
+    }
+
+    /**
+     * @return the value of a number or boolean cell, 0 for any other cell.
+     */
+    public double getNumber(int row, int column) {
+        int cell = findCell(row, column);
+        if (cell < 0) {
+            return 0;
+        }
+        Object parsedString = parseString(buffer.getInt(cellIndexOffset + cell * CELL_ENTRY_SIZE + 4));
+        if (parsedString instanceof Double) {
+            return (Double) parsedString;
+        }
+        return Boolean.TRUE.equals(parsedString) ? 1 : 0;
+    }
+
+    public boolean contains(int row, int column) {
+        return findCell(row, column) >= 0;
+    }
+
+    /**
+     * Visits every cell in row major order.
+     */
+    public void forEach(SparseCellStore.CellVisitor<String> cellVisitor) {
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            int row = buffer.getInt(HEADER_SIZE + rowIndex * ROW_ENTRY_SIZE);
+            int end = firstCellOf(rowIndex + 1);
+            for (int cell = firstCellOf(rowIndex); cell < end; cell++) {
+                int offset = cellIndexOffset + cell * CELL_ENTRY_SIZE;
+                cellVisitor.onVisitCell(row, buffer.getInt(offset), readString(buffer.getInt(offset + 4)));
+            }
+        }
+    }
+
+    private int findCell(int row, int column) {
+        int rowIndex = findRow(row);
+        if (rowIndex < 0) {
+            return -1;
+        }
+        int low = firstCellOf(rowIndex);
+        int high = firstCellOf(rowIndex + 1) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleColumn = buffer.getInt(cellIndexOffset + middle * CELL_ENTRY_SIZE);
+            if (middleColumn < column) {
+                low = middle + 1;
+            } else if (middleColumn > column) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int findRow(int row) {
+        int low = 0;
+        int high = rowCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleRow = buffer.getInt(HEADER_SIZE + middle * ROW_ENTRY_SIZE);
+            if (middleRow < row) {
+                low = middle + 1;
+            } else if (middleRow > row) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int firstCellOf(int rowIndex) {
+        return rowIndex >= rowCount ? cellCount : buffer.getInt(HEADER_SIZE + rowIndex * ROW_ENTRY_SIZE + 4);
+    }
+
+    private Object parseString(int stringId) {
+        Object parsedString = parsedStrings[stringId];
+        if (parsedString == null) {
+            String data = readString(stringId);
+            int type = CellValue.typeOf(data);
+            if (type == CellValue.TYPE_NUMBER) {
+                parsedString = CellValue.toNumber(data, type);
+            } else if (type == CellValue.TYPE_BOOLEAN) {
+                parsedString = CellValue.toNumber(data, type) != 0;
+            } else {
+                parsedString = TEXT;
+            }
+            parsedStrings[stringId] = parsedString;
+        }
+        return parsedString;
+    }
+
+    private String readString(int stringId) {
+        int start = buffer.getInt(stringOffsetsOffset + stringId * 4);
+        int end = buffer.getInt(stringOffsetsOffset + (stringId + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        //A duplicate keeps concurrent readers from sharing the buffer position.
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(stringDataOffset + start);
+        duplicate.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes the cells of the snapshot to a temp file next to the target and renames it into place.
+     * The snapshot never changes, so it is read twice instead of copied: once for the cell keys,
+     * sorted as longs, then in key order for the values.
+     */
+    public static void write(File file, final ExcelSheetSnapshot excelSheetSnapshot) throws IOException {
+        final long[][] keys = {new long[Math.max(16, excelSheetSnapshot.getCellCountEstimate())]};
+        final int[] cellCount = {0};
+        excelSheetSnapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                if (cellCount[0] == keys[0].length) {
+                    keys[0] = Arrays.copyOf(keys[0], keys[0].length * 2);
+                }
+                keys[0][cellCount[0]++] = SparseCellStore.key(row, column);
+            }
+        });
+        long[] sortedKeys = keys[0];
+        int sortedCellCount = cellCount[0];
+        Arrays.sort(sortedKeys, 0, sortedCellCount);
+
+        int rowCount = 0;
+        int previousRow = -1;
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> stringBytes = new ArrayList<>();
+        int[] cellStringIds = new int[sortedCellCount];
+        for (int i = 0; i < sortedCellCount; i++) {
+            int row = SparseCellStore.row(sortedKeys[i]);
+            if (row != previousRow) {
+                rowCount++;
+                previousRow = row;
+            }
+            String data = excelSheetSnapshot.getData(row, SparseCellStore.column(sortedKeys[i]));
+            Integer stringId = stringIds.get(data);
+            if (stringId == null) {
+                stringId = stringBytes.size();
+                stringIds.put(data, stringId);
+                stringBytes.add(data.getBytes(UTF_8));
+            }
+            cellStringIds[i] = stringId;
+        }
+
+        File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+        FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+        DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+        try {
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(rowCount);
+            outputStream.writeInt(sortedCellCount);
+            outputStream.writeInt(stringBytes.size());
+            previousRow = -1;
+            for (int i = 0; i < sortedCellCount; i++) {
+                if (SparseCellStore.row(sortedKeys[i]) != previousRow) {
+                    previousRow = SparseCellStore.row(sortedKeys[i]);
+                    outputStream.writeInt(previousRow);
+                    outputStream.writeInt(i);
+                }
+            }
+            for (int i = 0; i < sortedCellCount; i++) {
+                outputStream.writeInt(SparseCellStore.column(sortedKeys[i]));
+                outputStream.writeInt(cellStringIds[i]);
+            }
+            int offset = 0;
+            for (byte[] bytes : stringBytes) {
+                outputStream.writeInt(offset);
+                offset += bytes.length;
+            }
+            outputStream.writeInt(offset);
+            for (byte[] bytes : stringBytes) {
+                outputStream.write(bytes);
+            }
+            outputStream.flush();
+            fileOutputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("unable to rename " + tempFile + " to " + file);
+        }
+    }
+}
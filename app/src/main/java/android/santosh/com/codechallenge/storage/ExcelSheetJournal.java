@@ -0,0 +1,398 @@
+package android.santosh.com.codechallenge.storage;
+
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Created by Santosh on 8/21/17.
+ * <p>
+ * Write-ahead journal of cell mutations. Every edit is appended to the journal of the current
+ * generation and a save only appends a commit marker, so the cost of a save follows the number of
+ * edits since the last one and not the size of the sheet.
+ * <p>
+ * Once a committed journal grows past the compaction threshold the next generation is started and
+ * the sheet is written as a snapshot of that generation on a background thread. The sheet is
+ * rebuilt from the latest snapshot, a mapped {@link ExcelSheetFile}, plus the committed records of every journal from that
+ * generation on. Records after the last commit marker are dropped on load.
+ * <p>
+ * A clear is a single record. Replay starts after the last committed clear of a journal, so the
+ * records before it are never read, and committing a clear compacts right away so the files
+ * holding the cleared cells are deleted in the background. Undoing a clear of the current journal
+ * is a single restore record too: replay skips from the clear to it, so the cells before the clear
+ * come back without being written again.
+ * <p>
+ * All methods except the background snapshot write are expected to run on the controller's executor.
+ */
+
+public class ExcelSheetJournal implements ExcelSheetStorage {
+    private static String TAG = ExcelSheetJournal.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String JOURNAL_PREFIX = "sheet_";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private static final byte RECORD_CELL_DATA = 1;
+    private static final byte RECORD_CLEAR = 2;
+    private static final byte RECORD_COMMIT = 3;
+    private static final byte RECORD_RESTORE = 4;
+
+    private File directory;
+    private long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private int generation;
+    private DataOutputStream journalOutputStream;
+    private long journalSize;
+    private long committedJournalSize;
+    //Clears appended to the current journal that a restore record can still undo.
+    private int undoableClearCount;
+    private ExecutorService compactionExecutorService;
+    private Future<?> pendingCompaction;
+
+    public ExcelSheetJournal(File directory) {
+        this.directory = directory;
+        this.compactionExecutorService = Executors.newSingleThreadExecutor();
+    }
+
+    public void setCompactionThreshold(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public boolean hasData() {
+        return latestGeneration(SNAPSHOT_SUFFIX) >= 0 || latestGeneration(JOURNAL_SUFFIX) >= 0;
+    }
+
+    /**
+     * Maps the latest snapshot, replays the committed journal records written after it into the
+     * callback, drops any uncommitted tail and opens the current journal for appending.
+     */
+    @Override
+    public ExcelSheetFile load(ReplayCallback replayCallback) throws IOException {
+        waitForPendingCompaction();
+        closeJournal();
+        int snapshotGeneration = Math.max(latestGeneration(SNAPSHOT_SUFFIX), 0);
+        int journalGeneration = Math.max(latestGeneration(JOURNAL_SUFFIX), snapshotGeneration);
+        File snapshotFile = file(snapshotGeneration, SNAPSHOT_SUFFIX);
+        ExcelSheetFile excelSheetFile = snapshotFile.exists() ? ExcelSheetFile.open(snapshotFile) : null;
+        long committedSize = 0;
+        for (int i = snapshotGeneration; i <= journalGeneration; i++) {
+            File journalFile = file(i, JOURNAL_SUFFIX);
+            committedSize = journalFile.exists() ? replayJournal(journalFile, replayCallback) : 0;
+        }
+        generation = journalGeneration;
+        openJournal(committedSize);
+        //Nothing loaded can be undone, the edit history does not survive a reload.
+        undoableClearCount = 0;
+        return excelSheetFile;
+    }
+
+    @Override
+    public void appendCellData(int row, int column, String data) throws IOException {
+        ensureJournalOpen();
+        journalOutputStream.writeByte(RECORD_CELL_DATA);
+        journalOutputStream.writeInt(row);
+        journalOutputStream.writeInt(column);
+        journalSize += 9 + writeString(journalOutputStream, data);
+    }
+
+    @Override
+    public void appendClear() throws IOException {
+        ensureJournalOpen();
+        journalOutputStream.writeByte(RECORD_CLEAR);
+        journalSize += 1;
+        undoableClearCount++;
+    }
+
+    /**
+     * Appends a restore record, which undoes the last clear not undone yet.
+     *
+     * @return false when that clear is not in the current journal, it was compacted away.
+     */
+    @Override
+    public boolean appendRestore() throws IOException {
+        if (undoableClearCount == 0) {
+            return false;
+        }
+        ensureJournalOpen();
+        journalOutputStream.writeByte(RECORD_RESTORE);
+        journalSize += 1;
+        undoableClearCount--;
+        return true;
+    }
+
+    /**
+     * Marks everything appended so far as saved.
+     *
+     * @return true when the journal has grown past the compaction threshold or a clear that was not
+     * undone was committed, either way most of what is on disk is no longer needed.
+     */
+    @Override
+    public boolean commit() throws IOException {
+        ensureJournalOpen();
+        journalOutputStream.writeByte(RECORD_COMMIT);
+        journalOutputStream.flush();
+        journalSize += 1;
+        committedJournalSize = journalSize;
+        return committedJournalSize > compactionThreshold || undoableClearCount > 0;
+    }
+
+    /**
+     * Starts a new journal generation and writes the committed cells of the snapshot as its sheet
+     * file in the background. Older snapshots and journals are deleted once the snapshot is in place.
+     */
+    @Override
+    public void compact(final ExcelSheetSnapshot excelSheetSnapshot) throws IOException {
+        waitForPendingCompaction();
+        closeJournal();
+        final int snapshotGeneration = generation + 1;
+        generation = snapshotGeneration;
+        openJournal(0);
+        undoableClearCount = 0;
+        pendingCompaction = compactionExecutorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ExcelSheetFile.write(file(snapshotGeneration, SNAPSHOT_SUFFIX), excelSheetSnapshot);
+                    deleteGenerationsBefore(snapshotGeneration);
+                } catch (IOException e) {
+                    Log.e(TAG, "compaction failed, keeping older generations", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the offset right after the last commit marker.
+     */
+    private long replayJournal(File journalFile, ReplayCallback replayCallback) throws IOException {
+        //Records are only applied up to the last commit marker, so find it before replaying anything.
+        JournalScan journalScan = scanJournal(journalFile);
+        long committedOffset = journalScan.committedOffset;
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        long offset = 0;
+        try {
+            if (journalScan.clearOffset >= 0) {
+                //Everything before the last clear is empty anyway.
+                replayCallback.onSheetCleared();
+                offset = journalScan.clearOffset + 1;
+                skipFully(inputStream, offset);
+            }
+            while (offset < committedOffset) {
+                byte type = inputStream.readByte();
+                offset += 1;
+                if (type == RECORD_CELL_DATA) {
+                    int row = inputStream.readInt();
+                    int column = inputStream.readInt();
+                    int length = inputStream.readInt();
+                    String data = null;
+                    if (length >= 0) {
+                        byte[] bytes = new byte[length];
+                        inputStream.readFully(bytes);
+                        data = new String(bytes, UTF_8);
+                    }
+                    offset += 12 + Math.max(length, 0);
+                    replayCallback.onCellDataReplayed(row, column, data);
+                } else if (type == RECORD_CLEAR) {
+                    //Every clear after the one replay started from was undone, skip to its restore.
+                    Long restoreEnd = journalScan.restoreEnds.get(offset - 1);
+                    if (restoreEnd != null) {
+                        skipFully(inputStream, restoreEnd - offset);
+                        offset = restoreEnd;
+                    } else {
+                        replayCallback.onSheetCleared();
+                    }
+                }
+            }
+        } finally {
+            inputStream.close();
+        }
+        return committedOffset;
+    }
+
+    private JournalScan scanJournal(File journalFile) throws IOException {
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        long offset = 0;
+        long committedOffset = 0;
+        //Offsets of the clears not undone so far, the last one on top.
+        Deque<Long> clearOffsets = new ArrayDeque<>();
+        Map<Long, Long> restoreEnds = new HashMap<>();
+        long committedClearOffset = -1;
+        try {
+            while (true) {
+                byte type = inputStream.readByte();
+                offset += 1;
+                if (type == RECORD_CELL_DATA) {
+                    inputStream.readInt();
+                    inputStream.readInt();
+                    int length = inputStream.readInt();
+                    if (length > 0 && inputStream.skipBytes(length) != length) {
+                        throw new EOFException();
+                    }
+                    offset += 12 + Math.max(length, 0);
+                } else if (type == RECORD_COMMIT) {
+                    committedOffset = offset;
+                    committedClearOffset = clearOffsets.isEmpty() ? -1 : clearOffsets.peek();
+                } else if (type == RECORD_CLEAR) {
+                    clearOffsets.push(offset - 1);
+                } else if (type == RECORD_RESTORE) {
+                    if (!clearOffsets.isEmpty()) {
+                        restoreEnds.put(clearOffsets.pop(), offset);
+                    }
+                } else {
+                    Log.w(TAG, "unknown journal record " + type + " in " + journalFile + ", ignoring the rest");
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            //Torn write at the end of the journal, everything before the last commit is intact.
+        } finally {
+            inputStream.close();
+        }
+        return new JournalScan(committedOffset, committedClearOffset, restoreEnds);
+    }
+
+    private static void skipFully(DataInputStream inputStream, long count) throws IOException {
+        while (count > 0) {
+            long skipped = inputStream.skip(count);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            count -= skipped;
+        }
+    }
+
+    private void openJournal(long committedSize) throws IOException {
+        File journalFile = file(generation, JOURNAL_SUFFIX);
+        if (journalFile.exists() && journalFile.length() != committedSize) {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(journalFile, "rw");
+            try {
+                randomAccessFile.setLength(committedSize);
+            } finally {
+                randomAccessFile.close();
+            }
+        }
+        journalOutputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+        journalSize = committedSize;
+        committedJournalSize = committedSize;
+    }
+
+    private void ensureJournalOpen() throws IOException {
+        if (journalOutputStream == null) {
+            openJournal(file(generation, JOURNAL_SUFFIX).length());
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        if (journalOutputStream != null) {
+            journalOutputStream.close();
+            journalOutputStream = null;
+        }
+    }
+
+    private void waitForPendingCompaction() {
+        if (pendingCompaction != null) {
+            try {
+                pendingCompaction.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Log.e(TAG, "compaction failed", e);
+            }
+            pendingCompaction = null;
+        }
+    }
+
+    private void deleteGenerationsBefore(int snapshotGeneration) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            int fileGeneration = generationOf(file.getName());
+            if (fileGeneration >= 0 && fileGeneration < snapshotGeneration && !file.delete()) {
+                Log.w(TAG, "unable to delete " + file);
+            }
+        }
+    }
+
+    private int latestGeneration(String suffix) {
+        int latest = -1;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(suffix)) {
+                    latest = Math.max(latest, generationOf(file.getName()));
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static int generationOf(String fileName) {
+        if (!fileName.startsWith(JOURNAL_PREFIX)) {
+            return -1;
+        }
+        int end = fileName.indexOf('.');
+        if (end < 0) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(fileName.substring(JOURNAL_PREFIX.length(), end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private File file(int generation, String suffix) {
+        return new File(directory, JOURNAL_PREFIX + generation + suffix);
+    }
+
+    private static class JournalScan {
+        //Offset right after the last commit marker.
+        final long committedOffset;
+        //Offset of the last clear record before that marker not undone by then, -1 when there is none.
+        final long clearOffset;
+        //Offset right after the restore record that undid the clear at the key offset.
+        final Map<Long, Long> restoreEnds;
+
+        JournalScan(long committedOffset, long clearOffset, Map<Long, Long> restoreEnds) {
+            this.committedOffset = committedOffset;
+            this.clearOffset = clearOffset;
+            this.restoreEnds = restoreEnds;
+        }
+    }
+
+    /**
+     * @return the number of bytes written.
+     */
+    private static int writeString(DataOutputStream outputStream, String value) throws IOException {
+        if (value == null) {
+            outputStream.writeInt(-1);
+            return 4;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+        return 4 + bytes.length;
+    }
+}
@@ -0,0 +1,104 @@
+package android.santosh.com.codechallenge.storage;
+
+import android.santosh.com.codechallenge.model.CellEntry;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+import android.santosh.com.codechallenge.model.TableData;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Created by Santosh on 8/23/17.
+ * <p>
+ * Streams sheets to and from JSON one cell at a time, the document is never held in memory.
+ * Reads both the sparse [{row, column, data}] format and the older nested row lists.
+ */
+
+public class ExcelSheetJsonCodec {
+    private final TypeAdapter<TableData.CellData> cellDataTypeAdapter;
+    private final TypeAdapter<CellEntry> cellEntryTypeAdapter;
+
+    public ExcelSheetJsonCodec() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(TableData.CellData.class, new CellDataTypeAdapter())
+                .registerTypeAdapter(CellEntry.class, new CellEntryTypeAdapter())
+                .create();
+        this.cellDataTypeAdapter = gson.getAdapter(TableData.CellData.class);
+        this.cellEntryTypeAdapter = gson.getAdapter(CellEntry.class);
+    }
+
+    /**
+     * Visits every cell with data in the document.
+     */
+    public void read(Reader reader, SparseCellStore.CellVisitor<String> cellVisitor) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.beginArray();
+        if (jsonReader.hasNext() && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+            readRowLists(jsonReader, cellVisitor);
+        } else {
+            while (jsonReader.hasNext()) {
+                CellEntry cellEntry = cellEntryTypeAdapter.read(jsonReader);
+                if (cellEntry != null && cellEntry.getData() != null) {
+                    cellVisitor.onVisitCell(cellEntry.getRow(), cellEntry.getColumn(), cellEntry.getData());
+                }
+            }
+        }
+        jsonReader.endArray();
+    }
+
+    private void readRowLists(JsonReader jsonReader, SparseCellStore.CellVisitor<String> cellVisitor) throws IOException {
+        int row = 0;
+        while (jsonReader.hasNext()) {
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+            } else {
+                jsonReader.beginArray();
+                int column = 0;
+                while (jsonReader.hasNext()) {
+                    TableData.CellData cellData = cellDataTypeAdapter.read(jsonReader);
+                    if (cellData != null && cellData.getData() != null) {
+                        cellVisitor.onVisitCell(row, column, cellData.getData());
+                    }
+                    column++;
+                }
+                jsonReader.endArray();
+            }
+            row++;
+        }
+    }
+
+    /**
+     * Writes every populated cell in the sparse format.
+     */
+    public void write(Writer writer, ExcelSheetSnapshot excelSheetSnapshot) throws IOException {
+        final JsonWriter jsonWriter = new JsonWriter(writer);
+        final IOException[] writeException = new IOException[1];
+        jsonWriter.beginArray();
+        excelSheetSnapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                if (writeException[0] == null) {
+                    try {
+                        cellEntryTypeAdapter.write(jsonWriter, new CellEntry(row, column, value));
+                    } catch (IOException e) {
+                        writeException[0] = e;
+                    }
+                }
+            }
+        });
+        if (writeException[0] != null) {
+            throw writeException[0];
+        }
+        jsonWriter.endArray();
+        jsonWriter.flush();
+    }
+}
@@ -0,0 +1,53 @@
+package android.santosh.com.codechallenge.storage;
+
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+
+import java.io.IOException;
+
+/**
+ * Created by Santosh on 8/22/17.
+ */
+
+public interface ExcelSheetStorage {
+
+    interface ReplayCallback {
+        void onCellDataReplayed(int row, int column, String data);
+
+        void onSheetCleared();
+    }
+
+    boolean hasData();
+
+    /**
+     * Opens the last saved sheet. Edits saved after the returned file was written are replayed
+     * into the callback, in order.
+     *
+     * @return the saved sheet file, or null when only replayed edits exist.
+     */
+    ExcelSheetFile load(ReplayCallback replayCallback) throws IOException;
+
+    void appendCellData(int row, int column, String data) throws IOException;
+
+    void appendClear() throws IOException;
+
+    /**
+     * Undoes the last clear appended and not undone yet, bringing back the cells it hid without
+     * writing them again.
+     *
+     * @return false when the clear's cells are no longer stored, they have to be written again.
+     */
+    boolean appendRestore() throws IOException;
+
+    /**
+     * Marks everything appended so far as saved.
+     *
+     * @return true when the saved edits should be compacted into a new sheet file.
+     */
+    boolean commit() throws IOException;
+
+    /**
+     * Writes the snapshot as the new sheet file. It is read on a background thread, so only an
+     * immutable snapshot is passed, never a copy of its cells.
+     */
+    void compact(ExcelSheetSnapshot excelSheetSnapshot) throws IOException;
+}
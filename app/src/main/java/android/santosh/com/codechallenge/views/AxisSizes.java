@@ -0,0 +1,156 @@
+package android.santosh.com.codechallenge.views;
+
+import android.util.SparseIntArray;
+
+/**
+ * Created by Santosh on 9/3/17.
+ * <p>
+ * Sizes of the rows or the columns of the sheet: a default size, and the sizes of the ones resized
+ * kept as overrides. The pixel offset of an index and the index at an offset are answered in
+ * O(log n) from a Fenwick tree of the differences to the default, which is only allocated once a
+ * size is overridden and only as long as the last overridden index, so an unresized axis of a
+ * million rows costs nothing.
+ */
+
+public class AxisSizes {
+    private static final int MIN_CAPACITY = 64;
+
+    private final int defaultSize;
+    private final SparseIntArray sizes = new SparseIntArray();
+    //1 based, tree[i] sums the differences of the indices (i - lowbit(i), i]. Null while no size is
+    //overridden.
+    private int[] tree;
+    private int capacity;
+    private int totalDifference;
+
+    public AxisSizes(int defaultSize) {
+        this.defaultSize = defaultSize;
+    }
+
+    public int getDefaultSize() {
+        return defaultSize;
+    }
+
+    public int getSize(int index) {
+        //Most axes are never resized, skip the lookup for them.
+        if (sizes.size() == 0) {
+            return defaultSize;
+        }
+        return sizes.get(index, defaultSize);
+    }
+
+    public boolean isEmpty() {
+        return sizes.size() == 0;
+    }
+
+    /**
+     * @param size at least one pixel, offsets would not map back to a single index otherwise.
+     */
+    public void setSize(int index, int size) {
+        size = Math.max(1, size);
+        int difference = size - getSize(index);
+        if (difference == 0) {
+            return;
+        }
+        if (size == defaultSize) {
+            sizes.delete(index);
+        } else {
+            sizes.put(index, size);
+        }
+        if (index >= capacity) {
+            grow(index + 1);
+        } else {
+            add(index, difference);
+        }
+        totalDifference += difference;
+    }
+
+    /**
+     * Puts every index back to the default size.
+     */
+    public void clear() {
+        sizes.clear();
+        tree = null;
+        capacity = 0;
+        totalDifference = 0;
+    }
+
+    /**
+     * @return the offset of the start of the index, the sum of the sizes before it.
+     */
+    public int getOffset(int index) {
+        if (index <= 0) {
+            return 0;
+        }
+        if (index >= capacity) {
+            return index * defaultSize + totalDifference;
+        }
+        int difference = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            difference += tree[i];
+        }
+        return index * defaultSize + difference;
+    }
+
+    /**
+     * @return the index whose span holds the offset, 0 for a negative offset.
+     */
+    public int getIndexAt(int offset) {
+        if (offset <= 0) {
+            return 0;
+        }
+        int treeSize = capacity * defaultSize + totalDifference;
+        if (offset >= treeSize) {
+            return capacity + (offset - treeSize) / defaultSize;
+        }
+        //Walks down the tree keeping the sum of the sizes before index at most the offset.
+        int index = 0;
+        int remaining = offset;
+        for (int step = capacity; step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= capacity) {
+                int span = step * defaultSize + tree[next];
+                if (span <= remaining) {
+                    index = next;
+                    remaining -= span;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the sum of the sizes of the first count indices.
+     */
+    public int getTotalSize(int count) {
+        return getOffset(count);
+    }
+
+    private void add(int index, int difference) {
+        for (int i = index + 1; i <= capacity; i += i & -i) {
+            tree[i] += difference;
+        }
+    }
+
+    /**
+     * Builds the tree again, long enough for the index count and doubling to keep rebuilds rare.
+     */
+    private void grow(int count) {
+        int newCapacity = Math.max(capacity, MIN_CAPACITY);
+        while (newCapacity < count) {
+            newCapacity <<= 1;
+        }
+        capacity = newCapacity;
+        tree = new int[capacity + 1];
+        for (int i = 0; i < sizes.size(); i++) {
+            tree[sizes.keyAt(i) + 1] = sizes.valueAt(i) - defaultSize;
+        }
+        //Linear build, each node adds its sum to its parent.
+        for (int i = 1; i <= capacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
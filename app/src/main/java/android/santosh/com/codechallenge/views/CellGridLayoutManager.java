@@ -0,0 +1,458 @@
+package android.santosh.com.codechallenge.views;
+
+import android.content.Context;
+import android.os.Trace;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Created by Santosh on 9/3/17.
+ * <p>
+ * Lays out the cells of the sheet on both axes in a single RecyclerView. Only the cells on screen
+ * are attached, a scroll moves them and then recycles the strip that left the screen and binds the
+ * strip that came in, so its cost depends on the visible cells and not on the size of the sheet.
+ * <p>
+ * A sheet has more cells than an adapter has positions, so positions repeat every
+ * {@link #MAX_WRAP_ROWS} rows and {@link #MAX_WRAP_COLUMNS} columns. The screen is always smaller
+ * than that, so a position names exactly one of the cells laid out, see {@link #rowOf(int)}.
+ * <p>
+ * Rows and columns take their sizes from {@link AxisSizes}, the cells at an offset and the offset of
+ * a cell are found in O(log n) whatever the size of the sheet.
+ */
+
+public class CellGridLayoutManager extends RecyclerView.LayoutManager {
+    private static String TAG = CellGridLayoutManager.class.getSimpleName();
+    static final int MAX_WRAP_ROWS = 1024;
+    static final int MAX_WRAP_COLUMNS = 256;
+    //Fills timed before their average is logged.
+    private static final int FILL_LOG_INTERVAL = 240;
+    private static final String TRACE_FILL = "CellGridLayoutManager#fill";
+
+    private final AxisSizes rowSizes;
+    private final AxisSizes columnSizes;
+    private int rowCount;
+    private int columnCount;
+    private int wrapRows = 1;
+    private int wrapColumns = 1;
+    private int scrollX;
+    private int scrollY;
+    private boolean jumped;
+    //Cells laid out, inclusive. No cells when firstRow > lastRow.
+    private int firstRow;
+    private int lastRow = -1;
+    private int firstColumn;
+    private int lastColumn = -1;
+    private OnScrollOffsetChangedListener onScrollOffsetChangedListener;
+
+    private long lastFillNanos;
+    private long fillNanos;
+    private long maxFillNanos;
+    private int fillCount;
+
+    public interface OnScrollOffsetChangedListener {
+        void onScrollOffsetChanged(int scrollX, int scrollY);
+    }
+
+    public CellGridLayoutManager(AxisSizes rowSizes, AxisSizes columnSizes) {
+        this.rowSizes = rowSizes;
+        this.columnSizes = columnSizes;
+    }
+
+    public void setOnScrollOffsetChangedListener(OnScrollOffsetChangedListener onScrollOffsetChangedListener) {
+        this.onScrollOffsetChangedListener = onScrollOffsetChangedListener;
+    }
+
+    /**
+     * Changes the number of rows and columns. The adapter has to be notified of the data set change
+     * right after, positions map to other cells from now on.
+     */
+    public void setGridSize(int rowCount, int columnCount) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.wrapRows = Math.max(1, Math.min(rowCount, MAX_WRAP_ROWS));
+        this.wrapColumns = Math.max(1, Math.min(columnCount, MAX_WRAP_COLUMNS));
+    }
+
+    /**
+     * @return the item count of the adapter for the current grid size.
+     */
+    public int getPositionCount() {
+        return rowCount == 0 || columnCount == 0 ? 0 : wrapRows * wrapColumns;
+    }
+
+    public int positionOf(int row, int column) {
+        return (row % wrapRows) * wrapColumns + column % wrapColumns;
+    }
+
+    /**
+     * @return the row of the cell laid out at the position.
+     */
+    public int rowOf(int position) {
+        return resolve(position / wrapColumns, firstRow, wrapRows);
+    }
+
+    /**
+     * @return the column of the cell laid out at the position.
+     */
+    public int columnOf(int position) {
+        return resolve(position % wrapColumns, firstColumn, wrapColumns);
+    }
+
+    /**
+     * @return the index in [first, first + wrap) that repeats at the residue.
+     */
+    private static int resolve(int residue, int first, int wrap) {
+        int index = first - first % wrap + residue;
+        return index < first ? index + wrap : index;
+    }
+
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    public int getLastColumn() {
+        return lastColumn;
+    }
+
+    public int getScrollX() {
+        return scrollX;
+    }
+
+    public int getScrollY() {
+        return scrollY;
+    }
+
+    /**
+     * Scrolls the cell to the top left corner, or as close to it as the end of the sheet allows.
+     */
+    public void scrollToCell(int row, int column) {
+        if (row < 0 || row >= rowCount || column < 0 || column >= columnCount) {
+            return;
+        }
+        scrollToOffset(getColumnLeft(column), getRowTop(row));
+    }
+
+    /**
+     * Scrolls the content to the offsets, or as close to them as the end of the sheet allows.
+     */
+    public void scrollToOffset(int scrollX, int scrollY) {
+        this.scrollX = scrollX;
+        this.scrollY = scrollY;
+        clampScroll();
+        //The new cells may repeat the positions of the old ones, they must not be taken from scrap.
+        jumped = true;
+        requestLayout();
+        dispatchScrollOffsetChanged();
+    }
+
+    /**
+     * Lays the cells out again after a row or column was resized, keeping the scroll offsets.
+     */
+    public void onCellSizesChanged() {
+        requestLayout();
+    }
+
+    /**
+     * Only exact while the grid does not wrap, see {@link #scrollToCell(int, int)}.
+     */
+    @Override
+    public void scrollToPosition(int position) {
+        scrollToCell(position / wrapColumns, position % wrapColumns);
+    }
+
+    /**
+     * @return the most cells of the default size laid out at once in a space of the size, a partly
+     * shown cell at both ends of each axis included.
+     */
+    public int getMaxCellCount(int width, int height) {
+        int cellWidth = columnSizes.getDefaultSize();
+        int cellHeight = rowSizes.getDefaultSize();
+        return ((width + cellWidth - 1) / cellWidth + 1) * ((height + cellHeight - 1) / cellHeight + 1);
+    }
+
+    /**
+     * @return nanoseconds spent laying out and binding cells in the last scroll or layout.
+     */
+    public long getLastFillNanos() {
+        return lastFillNanos;
+    }
+
+    /**
+     * @return the average of {@link #getLastFillNanos()} since it was last logged.
+     */
+    public long getAverageFillNanos() {
+        return fillCount == 0 ? 0 : fillNanos / fillCount;
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(Context context, AttributeSet attrs) {
+        return new LayoutParams(context, attrs);
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(ViewGroup.LayoutParams layoutParams) {
+        if (layoutParams instanceof ViewGroup.MarginLayoutParams) {
+            return new LayoutParams((ViewGroup.MarginLayoutParams) layoutParams);
+        }
+        return new LayoutParams(layoutParams);
+    }
+
+    @Override
+    public boolean checkLayoutParams(RecyclerView.LayoutParams layoutParams) {
+        return layoutParams instanceof LayoutParams;
+    }
+
+    @Override
+    public boolean canScrollHorizontally() {
+        return true;
+    }
+
+    @Override
+    public boolean canScrollVertically() {
+        return true;
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (state.getItemCount() == 0 || getPositionCount() == 0) {
+            removeAndRecycleAllViews(recycler);
+            firstRow = firstColumn = 0;
+            lastRow = lastColumn = -1;
+            return;
+        }
+        if (state.isPreLayout()) {
+            return;
+        }
+        int oldScrollX = scrollX;
+        int oldScrollY = scrollY;
+        clampScroll();
+        if (jumped) {
+            removeAndRecycleAllViews(recycler);
+            jumped = false;
+        } else {
+            //Cells still on screen come back from scrap, rebound only when they changed.
+            detachAndScrapAttachedViews(recycler);
+        }
+        lastRow = lastColumn = -1;
+        fill(recycler);
+        if (scrollX != oldScrollX || scrollY != oldScrollY) {
+            dispatchScrollOffsetChanged();
+        }
+    }
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        int maxScrollX = Math.max(0, getContentWidth() - getHorizontalSpace());
+        int consumed = Math.max(0, Math.min(scrollX + dx, maxScrollX)) - scrollX;
+        if (consumed == 0) {
+            return 0;
+        }
+        scrollX += consumed;
+        offsetChildrenHorizontal(-consumed);
+        fill(recycler);
+        dispatchScrollOffsetChanged();
+        return consumed;
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        int maxScrollY = Math.max(0, getContentHeight() - getVerticalSpace());
+        int consumed = Math.max(0, Math.min(scrollY + dy, maxScrollY)) - scrollY;
+        if (consumed == 0) {
+            return 0;
+        }
+        scrollY += consumed;
+        offsetChildrenVertical(-consumed);
+        fill(recycler);
+        dispatchScrollOffsetChanged();
+        return consumed;
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(RecyclerView.State state) {
+        return scrollX;
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(RecyclerView.State state) {
+        return getHorizontalSpace();
+    }
+
+    @Override
+    public int computeHorizontalScrollRange(RecyclerView.State state) {
+        return getContentWidth();
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        return scrollY;
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return getVerticalSpace();
+    }
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        return getContentHeight();
+    }
+
+    /**
+     * Recycles the cells that are no longer on screen, then lays out the ones that were not yet.
+     * Recycling first lets the new cells reuse the views of the old ones.
+     */
+    private void fill(RecyclerView.Recycler recycler) {
+        long start = System.nanoTime();
+        Trace.beginSection(TRACE_FILL);
+        int newFirstRow = getRowAt(scrollY);
+        int newLastRow = getVerticalSpace() > 0 ? Math.min(getRowAt(scrollY + getVerticalSpace() - 1), rowCount - 1) : -1;
+        int newFirstColumn = getColumnAt(scrollX);
+        int newLastColumn = getHorizontalSpace() > 0 ? Math.min(getColumnAt(scrollX + getHorizontalSpace() - 1), columnCount - 1) : -1;
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            LayoutParams layoutParams = (LayoutParams) child.getLayoutParams();
+            if (layoutParams.row < newFirstRow || layoutParams.row > newLastRow
+                    || layoutParams.column < newFirstColumn || layoutParams.column > newLastColumn) {
+                removeAndRecycleView(child, recycler);
+            }
+        }
+        int oldFirstRow = firstRow;
+        int oldLastRow = lastRow;
+        int oldFirstColumn = firstColumn;
+        int oldLastColumn = lastColumn;
+        firstRow = newFirstRow;
+        lastRow = newLastRow;
+        firstColumn = newFirstColumn;
+        lastColumn = newLastColumn;
+        for (int row = newFirstRow; row <= newLastRow; row++) {
+            boolean oldRow = row >= oldFirstRow && row <= oldLastRow;
+            for (int column = newFirstColumn; column <= newLastColumn; column++) {
+                if (!oldRow || column < oldFirstColumn || column > oldLastColumn) {
+                    addCell(recycler, row, column);
+                }
+            }
+        }
+        Trace.endSection();
+        onFillFinished(System.nanoTime() - start);
+    }
+
+    private void addCell(RecyclerView.Recycler recycler, int row, int column) {
+        View view = recycler.getViewForPosition(positionOf(row, column));
+        addView(view);
+        LayoutParams layoutParams = (LayoutParams) view.getLayoutParams();
+        layoutParams.row = row;
+        layoutParams.column = column;
+        int left = getPaddingLeft() + getColumnLeft(column) - scrollX;
+        int top = getPaddingTop() + getRowTop(row) - scrollY;
+        int cellWidth = columnSizes.getSize(column);
+        int cellHeight = rowSizes.getSize(row);
+        view.measure(View.MeasureSpec.makeMeasureSpec(cellWidth, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(cellHeight, View.MeasureSpec.EXACTLY));
+        layoutDecorated(view, left, top, left + cellWidth, top + cellHeight);
+    }
+
+    private void onFillFinished(long nanos) {
+        lastFillNanos = nanos;
+        fillNanos += nanos;
+        maxFillNanos = Math.max(maxFillNanos, nanos);
+        fillCount++;
+        if (fillCount == FILL_LOG_INTERVAL) {
+            Log.d(TAG, "fill of " + getChildCount() + " cells on a " + rowCount + "x" + columnCount + " grid, average "
+                    + getAverageFillNanos() / 1000 + " us, max " + maxFillNanos / 1000 + " us");
+            fillNanos = 0;
+            maxFillNanos = 0;
+            fillCount = 0;
+        }
+    }
+
+    private void clampScroll() {
+        scrollX = Math.max(0, Math.min(scrollX, getContentWidth() - getHorizontalSpace()));
+        scrollY = Math.max(0, Math.min(scrollY, getContentHeight() - getVerticalSpace()));
+    }
+
+    private void dispatchScrollOffsetChanged() {
+        if (onScrollOffsetChangedListener != null) {
+            onScrollOffsetChangedListener.onScrollOffsetChanged(scrollX, scrollY);
+        }
+    }
+
+    private int getColumnLeft(int column) {
+        return columnSizes.getOffset(column);
+    }
+
+    private int getColumnAt(int x) {
+        return columnSizes.getIndexAt(x);
+    }
+
+    private int getRowTop(int row) {
+        return rowSizes.getOffset(row);
+    }
+
+    private int getRowAt(int y) {
+        return rowSizes.getIndexAt(y);
+    }
+
+    private int getContentWidth() {
+        return columnSizes.getTotalSize(columnCount);
+    }
+
+    private int getContentHeight() {
+        return rowSizes.getTotalSize(rowCount);
+    }
+
+    private int getHorizontalSpace() {
+        return getWidth() - getPaddingLeft() - getPaddingRight();
+    }
+
+    private int getVerticalSpace() {
+        return getHeight() - getPaddingTop() - getPaddingBottom();
+    }
+
+    /**
+     * Remembers the cell a child is laid out for, its adapter position only names it together with
+     * the cells on screen.
+     */
+    public static class LayoutParams extends RecyclerView.LayoutParams {
+        int row;
+        int column;
+
+        public LayoutParams(Context context, AttributeSet attrs) {
+            super(context, attrs);
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(ViewGroup.MarginLayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package android.santosh.com.codechallenge.views;
+
+import android.santosh.com.codechallenge.recyclerviewadapters.MainExcelSheetRecyclerViewAdapter;
+
+/**
+ * Created by Santosh on 9/3/17.
+ * <p>
+ * Lays out ahead, through {@link TextLayoutCache#prewarm(String[], int[], int)}, the text of the
+ * cells next to the visible ones in the direction of the scroll.
+ */
+
+class CellTextPrewarmer {
+    //Rows or columns laid out ahead of the visible ones.
+    private static final int PREWARM_STRIPS = 2;
+
+    private final TextLayoutCache textLayoutCache;
+    private final AxisSizes columnSizes;
+    private int lastScrollX;
+    private int lastScrollY;
+    //Cells of the last request, it is only made again once they change.
+    private int firstRow;
+    private int lastRow = -1;
+    private int firstColumn;
+    private int lastColumn = -1;
+
+    CellTextPrewarmer(TextLayoutCache textLayoutCache, AxisSizes columnSizes) {
+        this.textLayoutCache = textLayoutCache;
+        this.columnSizes = columnSizes;
+    }
+
+    /**
+     * @param firstRow the first visible row, the others likewise and inclusive.
+     */
+    void onScrolled(MainExcelSheetRecyclerViewAdapter mainExcelSheetRecyclerViewAdapter, int scrollX, int scrollY,
+                    int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        int dx = scrollX - lastScrollX;
+        int dy = scrollY - lastScrollY;
+        lastScrollX = scrollX;
+        lastScrollY = scrollY;
+        if (mainExcelSheetRecyclerViewAdapter == null || (dx == 0 && dy == 0) || lastRow < firstRow || lastColumn < firstColumn) {
+            return;
+        }
+        if (Math.abs(dx) >= Math.abs(dy)) {
+            firstColumn = dx > 0 ? lastColumn + 1 : firstColumn - PREWARM_STRIPS;
+            lastColumn = firstColumn + PREWARM_STRIPS - 1;
+        } else {
+            firstRow = dy > 0 ? lastRow + 1 : firstRow - PREWARM_STRIPS;
+            lastRow = firstRow + PREWARM_STRIPS - 1;
+        }
+        firstRow = Math.max(firstRow, 0);
+        lastRow = Math.min(lastRow, mainExcelSheetRecyclerViewAdapter.getRowCount() - 1);
+        firstColumn = Math.max(firstColumn, 0);
+        lastColumn = Math.min(lastColumn, mainExcelSheetRecyclerViewAdapter.getColumnCount() - 1);
+        if (lastRow < firstRow || lastColumn < firstColumn || (firstRow == this.firstRow && lastRow == this.lastRow
+                && firstColumn == this.firstColumn && lastColumn == this.lastColumn)) {
+            return;
+        }
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.firstColumn = firstColumn;
+        this.lastColumn = lastColumn;
+        int cellCount = (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+        String[] texts = new String[cellCount];
+        int[] widths = new int[cellCount];
+        int index = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                CharSequence text = mainExcelSheetRecyclerViewAdapter.getCellText(row, column);
+                texts[index] = text != null ? text.toString() : null;
+                widths[index++] = columnSizes.getSize(column);
+            }
+        }
+        textLayoutCache.prewarm(texts, widths, TextLayoutCache.STYLE_CELL);
+    }
+}
@@ -0,0 +1,67 @@
+package android.santosh.com.codechallenge.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.Layout;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * Created by Santosh on 9/3/17.
+ * <p>
+ * Draws the text of a cell centered, from a layout shared through {@link TextLayoutCache}. Unlike a
+ * TextView it is sized by its parent, so setting the text neither measures it nor requests a layout.
+ */
+
+public class CellTextView extends View {
+    private TextLayoutCache textLayoutCache;
+    private CharSequence text;
+    private Layout layout;
+
+    public CellTextView(Context context) {
+        super(context);
+        textLayoutCache = TextLayoutCache.getInstance(context);
+    }
+
+    public CellTextView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        textLayoutCache = TextLayoutCache.getInstance(context);
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    public void setText(CharSequence text) {
+        if (TextUtils.equals(this.text, text) && (layout != null || TextUtils.isEmpty(text))) {
+            return;
+        }
+        this.text = text;
+        updateLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateLayout();
+    }
+
+    private void updateLayout() {
+        layout = textLayoutCache.get(text, getWidth() - getPaddingLeft() - getPaddingRight(), TextLayoutCache.STYLE_CELL);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (layout == null) {
+            return;
+        }
+        int height = getHeight() - getPaddingTop() - getPaddingBottom();
+        canvas.save();
+        canvas.clipRect(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+        canvas.translate(getPaddingLeft(), getPaddingTop() + Math.max(0, (height - layout.getHeight()) / 2));
+        layout.draw(canvas);
+        canvas.restore();
+    }
+}
@@ -0,0 +1,290 @@
+package android.santosh.com.codechallenge.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.santosh.com.codechallenge.R;
+import android.santosh.com.codechallenge.recyclerviewadapters.MainExcelSheetRecyclerViewAdapter;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
+import android.text.Layout;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.OverScroller;
+
+/**
+ * Created by Santosh on 9/3/17.
+ * <p>
+ * Read only rendering of the sheet that draws the grid lines, titles, cell text and selection of the
+ * visible cells straight onto the canvas, without a view per cell. The text comes from the same
+ * accessors of {@link MainExcelSheetRecyclerViewAdapter} the cell views are bound from, laid out
+ * through the {@link TextLayoutCache} they share. A tapped cell is handed to the adapter, which opens it in the sheet's editor.
+ */
+
+public class ExcelSheetCanvasView extends View {
+    private static String TAG = ExcelSheetCanvasView.class.getSimpleName();
+
+    private final int columnWidth;
+    private final int headerHeight;
+    private final AxisSizes rowSizes;
+    private final AxisSizes columnSizes;
+    private final int cellPadding;
+    private MainExcelSheetRecyclerViewAdapter mainExcelSheetRecyclerViewAdapter;
+    private int contentOffsetX;
+    private int contentOffsetY;
+
+    private final OverScroller scroller;
+    private final GestureDetector gestureDetector;
+    private final Paint cellPaint;
+    private final Paint headerPaint;
+    private final Paint selectionPaint;
+    private final Paint linePaint;
+    private final TextLayoutCache textLayoutCache;
+    private final CellTextPrewarmer cellTextPrewarmer;
+    //Reused for the grid lines of every frame.
+    private float[] lines = new float[0];
+
+    public ExcelSheetCanvasView(Context context, int columnWidth, int headerHeight, AxisSizes rowSizes, AxisSizes columnSizes) {
+        super(context);
+        this.columnWidth = columnWidth;
+        this.headerHeight = headerHeight;
+        this.rowSizes = rowSizes;
+        this.columnSizes = columnSizes;
+        this.cellPadding = getResources().getDimensionPixelSize(R.dimen.cell_padding);
+        this.scroller = new OverScroller(context);
+        this.gestureDetector = new GestureDetector(context, gestureListener);
+
+        cellPaint = new Paint();
+        cellPaint.setColor(ContextCompat.getColor(context, R.color.data_cell_bacground_color));
+        headerPaint = new Paint();
+        headerPaint.setColor(ContextCompat.getColor(context, R.color.header_cell_background_color));
+        selectionPaint = new Paint();
+        selectionPaint.setColor(ContextCompat.getColor(context, R.color.selected_cell_color));
+        linePaint = new Paint();
+        linePaint.setColor(ContextCompat.getColor(context, R.color.cell_border_color));
+        //A hairline, one pixel like the borders of the cell views.
+        linePaint.setStrokeWidth(0);
+        textLayoutCache = TextLayoutCache.getInstance(context);
+        cellTextPrewarmer = new CellTextPrewarmer(textLayoutCache, columnSizes);
+    }
+
+    public void setAdapter(MainExcelSheetRecyclerViewAdapter mainExcelSheetRecyclerViewAdapter) {
+        this.mainExcelSheetRecyclerViewAdapter = mainExcelSheetRecyclerViewAdapter;
+        invalidate();
+    }
+
+    public int getContentOffsetX() {
+        return contentOffsetX;
+    }
+
+    public int getContentOffsetY() {
+        return contentOffsetY;
+    }
+
+    public void setContentOffset(int contentOffsetX, int contentOffsetY) {
+        scroller.forceFinished(true);
+        this.contentOffsetX = contentOffsetX;
+        this.contentOffsetY = contentOffsetY;
+        clampContentOffset();
+        invalidate();
+    }
+
+    /**
+     * Scrolls the cell to the top left corner of the content.
+     */
+    public void scrollToCell(int row, int column) {
+        setContentOffset(columnSizes.getOffset(column), rowSizes.getOffset(row));
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    private GestureDetector.SimpleOnGestureListener gestureListener = new GestureDetector.SimpleOnGestureListener() {
+        @Override
+        public boolean onDown(MotionEvent e) {
+            scroller.forceFinished(true);
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            contentOffsetX += (int) distanceX;
+            contentOffsetY += (int) distanceY;
+            clampContentOffset();
+            invalidate();
+            return true;
+        }
+
+        @Override
+        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+            scroller.fling(contentOffsetX, contentOffsetY, (int) -velocityX, (int) -velocityY,
+                    0, getMaxContentOffsetX(), 0, getMaxContentOffsetY());
+            ViewCompat.postInvalidateOnAnimation(ExcelSheetCanvasView.this);
+            return true;
+        }
+
+        @Override
+        public boolean onSingleTapUp(MotionEvent e) {
+            if (mainExcelSheetRecyclerViewAdapter == null || e.getX() < columnWidth || e.getY() < headerHeight) {
+                return false;
+            }
+            int row = rowSizes.getIndexAt((int) e.getY() - headerHeight + contentOffsetY);
+            int column = columnSizes.getIndexAt((int) e.getX() - columnWidth + contentOffsetX);
+            if (row < mainExcelSheetRecyclerViewAdapter.getRowCount() && column < mainExcelSheetRecyclerViewAdapter.getColumnCount()) {
+                mainExcelSheetRecyclerViewAdapter.onCellClicked(row, column);
+            }
+            return true;
+        }
+    };
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            contentOffsetX = scroller.getCurrX();
+            contentOffsetY = scroller.getCurrY();
+            clampContentOffset();
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        clampContentOffset();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mainExcelSheetRecyclerViewAdapter == null) {
+            return;
+        }
+        //Filters change the row count, so clamp on every frame.
+        clampContentOffset();
+        int width = getWidth();
+        int height = getHeight();
+        int firstRow = rowSizes.getIndexAt(contentOffsetY);
+        int lastRow = Math.min(rowSizes.getIndexAt(contentOffsetY + height - headerHeight - 1), mainExcelSheetRecyclerViewAdapter.getRowCount() - 1);
+        int firstColumn = columnSizes.getIndexAt(contentOffsetX);
+        int lastColumn = Math.min(columnSizes.getIndexAt(contentOffsetX + width - columnWidth - 1), mainExcelSheetRecyclerViewAdapter.getColumnCount() - 1);
+        int firstTop = headerHeight + rowSizes.getOffset(firstRow) - contentOffsetY;
+        int firstLeft = columnWidth + columnSizes.getOffset(firstColumn) - contentOffsetX;
+
+        //Cells
+        canvas.save();
+        canvas.clipRect(columnWidth, headerHeight, width, height);
+        canvas.drawRect(columnWidth, headerHeight, width, height, cellPaint);
+        for (int row = firstRow, top = firstTop; row <= lastRow; top += rowSizes.getSize(row), row++) {
+            int cellHeight = rowSizes.getSize(row);
+            for (int column = firstColumn, left = firstLeft; column <= lastColumn; left += columnSizes.getSize(column), column++) {
+                int cellWidth = columnSizes.getSize(column);
+                if (mainExcelSheetRecyclerViewAdapter.isCellSelected(row, column)) {
+                    canvas.drawRect(left, top, left + cellWidth, top + cellHeight, selectionPaint);
+                }
+                drawText(canvas, mainExcelSheetRecyclerViewAdapter.getCellText(row, column), TextLayoutCache.STYLE_CELL,
+                        left, top, cellWidth, cellHeight);
+            }
+        }
+        drawGridLines(canvas, firstRow, lastRow, firstColumn, lastColumn, columnWidth, headerHeight);
+        canvas.restore();
+
+        //Column titles, pinned to the top
+        canvas.save();
+        canvas.clipRect(columnWidth, 0, width, headerHeight);
+        canvas.drawRect(columnWidth, 0, width, headerHeight, headerPaint);
+        for (int column = firstColumn, left = firstLeft; column <= lastColumn; left += columnSizes.getSize(column), column++) {
+            drawText(canvas, mainExcelSheetRecyclerViewAdapter.getHeaderText(column), TextLayoutCache.STYLE_TITLE,
+                    left, 0, columnSizes.getSize(column), headerHeight);
+        }
+        drawGridLines(canvas, 0, -1, firstColumn, lastColumn, columnWidth, headerHeight);
+        canvas.restore();
+
+        //Row titles, pinned to the left
+        canvas.save();
+        canvas.clipRect(0, headerHeight, columnWidth, height);
+        canvas.drawRect(0, headerHeight, columnWidth, height, headerPaint);
+        for (int row = firstRow, top = firstTop; row <= lastRow; top += rowSizes.getSize(row), row++) {
+            drawText(canvas, mainExcelSheetRecyclerViewAdapter.getColumnText(row), TextLayoutCache.STYLE_TITLE,
+                    0, top, columnWidth, rowSizes.getSize(row));
+        }
+        drawGridLines(canvas, firstRow, lastRow, 0, -1, columnWidth, headerHeight);
+        canvas.restore();
+
+        //Top left corner
+        canvas.drawRect(0, 0, columnWidth, headerHeight, headerPaint);
+        canvas.drawLine(columnWidth - 0.5f, 0, columnWidth - 0.5f, headerHeight, linePaint);
+        canvas.drawLine(0, headerHeight - 0.5f, columnWidth, headerHeight - 0.5f, linePaint);
+
+        cellTextPrewarmer.onScrolled(mainExcelSheetRecyclerViewAdapter, contentOffsetX, contentOffsetY,
+                firstRow, lastRow, firstColumn, lastColumn);
+    }
+
+    /**
+     * Draws the right border of each column and the bottom border of each row, across the clip.
+     */
+    private void drawGridLines(Canvas canvas, int firstRow, int lastRow, int firstColumn, int lastColumn,
+                               int originX, int originY) {
+        int columnCount = Math.max(0, lastColumn - firstColumn + 1);
+        int rowCount = Math.max(0, lastRow - firstRow + 1);
+        //Plus the borders along the cells, only inside the clip of a title strip.
+        int lineCount = columnCount + rowCount + 2;
+        if (lines.length < lineCount * 4) {
+            lines = new float[lineCount * 4];
+        }
+        int index = 0;
+        float x = originX + columnSizes.getOffset(firstColumn) - contentOffsetX - 0.5f;
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            x += columnSizes.getSize(column);
+            index = putLine(index, x, 0, x, getHeight());
+        }
+        float y = originY + rowSizes.getOffset(firstRow) - contentOffsetY - 0.5f;
+        for (int row = firstRow; row <= lastRow; row++) {
+            y += rowSizes.getSize(row);
+            index = putLine(index, 0, y, getWidth(), y);
+        }
+        index = putLine(index, 0, originY - 0.5f, getWidth(), originY - 0.5f);
+        index = putLine(index, originX - 0.5f, 0, originX - 0.5f, getHeight());
+        canvas.drawLines(lines, 0, index, linePaint);
+    }
+
+    private int putLine(int index, float startX, float startY, float stopX, float stopY) {
+        lines[index] = startX;
+        lines[index + 1] = startY;
+        lines[index + 2] = stopX;
+        lines[index + 3] = stopY;
+        return index + 4;
+    }
+
+    /**
+     * Draws the text centered in the cell like the cell views' TextView, clipped to the cell less its
+     * vertical padding.
+     */
+    private void drawText(Canvas canvas, CharSequence text, int style, int left, int top, int width, int height) {
+        Layout layout = textLayoutCache.get(text, width, style);
+        if (layout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.clipRect(left, top + cellPadding, left + width, top + height - cellPadding);
+        canvas.translate(left, top + Math.max(cellPadding, (height - layout.getHeight()) / 2));
+        layout.draw(canvas);
+        canvas.restore();
+    }
+
+    private int getMaxContentOffsetX() {
+        int columnCount = mainExcelSheetRecyclerViewAdapter != null ? mainExcelSheetRecyclerViewAdapter.getColumnCount() : 0;
+        return Math.max(0, columnSizes.getTotalSize(columnCount) - (getWidth() - columnWidth));
+    }
+
+    private int getMaxContentOffsetY() {
+        int rowCount = mainExcelSheetRecyclerViewAdapter != null ? mainExcelSheetRecyclerViewAdapter.getRowCount() : 0;
+        return Math.max(0, rowSizes.getTotalSize(rowCount) - (getHeight() - headerHeight));
+    }
+
+    private void clampContentOffset() {
+        contentOffsetX = Math.max(0, Math.min(contentOffsetX, getMaxContentOffsetX()));
+        contentOffsetY = Math.max(0, Math.min(contentOffsetY, getMaxContentOffsetY()));
+    }
+}
@@ -75,4 +75,23 @@ public class ExcelSheetEditText extends AppCompatEditText {
         this.dispatchTouchEvent(MotionEvent.obtain(SystemClock.uptimeMillis(), SystemClock.uptimeMillis(), MotionEvent.ACTION_UP, 0, 0, 0));
 
     }
+
+    /**
+     * Shows new data for the current cell, e.g. after an undo, without reporting it back as an edit.
+     */
+    public void refreshData(String data) {
+        removeTextChangedListener(watcher);
+        this.data = data;
+        setText(TextUtils.isEmpty(data) ? "" : data);
+        setSelection(getText().length());
+        addTextChangedListener(watcher);
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
 }
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.santosh.com.codechallenge.R;
 import android.santosh.com.codechallenge.Utils;
+import android.santosh.com.codechallenge.recyclerviewadapters.ExcelSheetRecyclerViewAdapter;
 import android.santosh.com.codechallenge.recyclerviewadapters.MainExcelSheetRecyclerViewAdapter;
 import android.support.v4.content.ContextCompat;
 import android.support.v7.widget.LinearLayoutManager;
@@ -16,25 +17,41 @@ import android.widget.FrameLayout;
 
 /**
  * Created by Santosh on 8/11/17.
+ * <p>
+ * The cells scroll on both axes in one RecyclerView laid out by {@link CellGridLayoutManager}. The
+ * column titles above and the row titles left of it stay pinned and follow its scroll offsets.
+ * <p>
+ * Rows and columns can be resized by dragging the edge of their title. The sizes are kept in
+ * {@link AxisSizes}, which the cells, the titles and the scroll sync all lay out from.
+ * <p>
+ * In {@link #RENDER_MODE_CANVAS} the sheet is drawn by {@link ExcelSheetCanvasView} instead, with
+ * no view per cell, for sheets that are only looked at.
  */
 
-public class ExcelSheetView extends FrameLayout implements ViewTreeObserver.OnGlobalLayoutListener {
+public class ExcelSheetView extends FrameLayout implements ViewTreeObserver.OnGlobalLayoutListener,
+        CellGridLayoutManager.OnScrollOffsetChangedListener {
     private static String TAG = ExcelSheetView.class.getSimpleName();
     public static final int DEFAULT_LENGTH = 56;
-    public static final int LOADING_VIEW_WIDTH = 30;
+    public static final int RENDER_MODE_VIEWS = 0;
+    public static final int RENDER_MODE_CANVAS = 1;
+    //Dp a row or column can be shrunk to, enough to keep a screen under a wrap of the cell positions.
+    public static final int MIN_CELL_LENGTH = 16;
 
     private int columnWidth;
     private int headerHeight;
     private int cellWidth;
-    private int loadingViewWidth;
-    private int amountAxisX = 0;
-    private int amountAxisY = 0;
     private int dividerHeight;
-    private boolean hasHeader;
     private boolean dividerLineVisible;
+    private int renderMode = RENDER_MODE_VIEWS;
+    private AxisSizes rowSizes;
+    private AxisSizes columnSizes;
 
     private View dividerLine;
     private RecyclerView contentRecyclerView;
+    private CellGridLayoutManager cellGridLayoutManager;
+    private RecyclerView.RecycledViewPool cellViewPool;
+    private ExcelSheetCanvasView canvasView;
+    private CellTextPrewarmer cellTextPrewarmer;
     private RecyclerView headerRecyclerView;
     private RecyclerView columnRecyclerView;
 
@@ -54,14 +71,21 @@ public class ExcelSheetView extends FrameLayout implements ViewTreeObserver.OnGl
             columnWidth = (int) a.getDimension(R.styleable.ExcelSheetDimensions_column_width, Utils.dp2px(DEFAULT_LENGTH, getContext()));
             headerHeight = (int) a.getDimension(R.styleable.ExcelSheetDimensions_header_height, Utils.dp2px(DEFAULT_LENGTH, getContext()));
             cellWidth = (int) a.getDimension(R.styleable.ExcelSheetDimensions_cell_width, Utils.dp2px(DEFAULT_LENGTH, getContext()));
+            renderMode = a.getInt(R.styleable.ExcelSheetDimensions_render_mode, RENDER_MODE_VIEWS);
         } finally {
             a.recycle();
         }
-        loadingViewWidth = Utils.dp2px(LOADING_VIEW_WIDTH, getContext());
         buildView();
+        if (renderMode == RENDER_MODE_CANVAS) {
+            showCanvas(0, 0);
+        }
     }
 
     private void buildView() {
+        //Cells are as high as they are wide until resized.
+        rowSizes = new AxisSizes(cellWidth);
+        columnSizes = new AxisSizes(cellWidth);
+
         //content's RecyclerView
         contentRecyclerView = createContent();
         addView(contentRecyclerView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
@@ -97,7 +121,15 @@ public class ExcelSheetView extends FrameLayout implements ViewTreeObserver.OnGl
         LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
         layoutManager.setOrientation(LinearLayoutManager.HORIZONTAL);
         recyclerView.setLayoutManager(layoutManager);
-        recyclerView.addOnScrollListener(contentScrollListener);
+        recyclerView.addOnScrollListener(headerScrollListener);
+        recyclerView.addOnItemTouchListener(new TitleResizeTouchListener(columnSizes, LinearLayoutManager.HORIZONTAL,
+                getResources().getDimensionPixelSize(R.dimen.title_resize_slop),
+                new TitleResizeTouchListener.OnTitleResizeListener() {
+                    @Override
+                    public void onTitleResized(int index, int size) {
+                        setColumnWidth(index, size);
+                    }
+                }));
         return recyclerView;
     }
 
@@ -107,15 +139,31 @@ public class ExcelSheetView extends FrameLayout implements ViewTreeObserver.OnGl
         layoutManager.setOrientation(LinearLayoutManager.VERTICAL);
         recyclerView.setLayoutManager(layoutManager);
         recyclerView.addOnScrollListener(columnScrollListener);
+        recyclerView.addOnItemTouchListener(new TitleResizeTouchListener(rowSizes, LinearLayoutManager.VERTICAL,
+                getResources().getDimensionPixelSize(R.dimen.title_resize_slop),
+                new TitleResizeTouchListener.OnTitleResizeListener() {
+                    @Override
+                    public void onTitleResized(int index, int size) {
+                        setRowHeight(index, size);
+                    }
+                }));
         return recyclerView;
     }
 
     private RecyclerView createContent() {
         RecyclerView recyclerView = new RecyclerView(getContext());
-        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
-        layoutManager.setOrientation(LinearLayoutManager.HORIZONTAL);
-        recyclerView.setLayoutManager(layoutManager);
-        recyclerView.addOnScrollListener(contentScrollListener);
+        cellGridLayoutManager = new CellGridLayoutManager(rowSizes, columnSizes);
+        cellGridLayoutManager.setOnScrollOffsetChangedListener(this);
+        recyclerView.setLayoutManager(cellGridLayoutManager);
+        cellTextPrewarmer = new CellTextPrewarmer(TextLayoutCache.getInstance(getContext()), columnSizes);
+        cellViewPool = new RecyclerView.RecycledViewPool();
+        recyclerView.setRecycledViewPool(cellViewPool);
+        recyclerView.setHasFixedSize(true);
+        //A position names another cell once it scrolled a wrap away, so views are only reused
+        //through the pool, which binds them again.
+        recyclerView.setItemViewCacheSize(0);
+        //Changed cells are bound in place, a cross fade would need a second view per cell.
+        recyclerView.setItemAnimator(null);
         return recyclerView;
     }
 
@@ -126,19 +174,123 @@ public class ExcelSheetView extends FrameLayout implements ViewTreeObserver.OnGl
         return view;
     }
 
-    public void setHasHeader(boolean hasHeader) {
-        this.hasHeader = hasHeader;
-    }
-
     public void setAdapter(MainExcelSheetRecyclerViewAdapter mainExcelSheetRecyclerViewAdapter) {
         if (mainExcelSheetRecyclerViewAdapter != null) {
             this.mainExcelSheetRecyclerViewAdapter = mainExcelSheetRecyclerViewAdapter;
             this.mainExcelSheetRecyclerViewAdapter.setColumnWidth(columnWidth);
             this.mainExcelSheetRecyclerViewAdapter.setHeaderHeight(headerHeight);
-            this.mainExcelSheetRecyclerViewAdapter.setOnScrollListener(columnScrollListener);
             this.mainExcelSheetRecyclerViewAdapter.setExcelSheetView(this);
+            this.mainExcelSheetRecyclerViewAdapter.setCellSizes(rowSizes, columnSizes);
             buildAdapter();
+            if (canvasView != null) {
+                canvasView.setAdapter(mainExcelSheetRecyclerViewAdapter);
+            }
+        }
+    }
+
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * Switches between cell views and drawing on a canvas, keeping the scroll position.
+     */
+    public void setRenderMode(int renderMode) {
+        if (renderMode == this.renderMode || cellGridLayoutManager == null) {
+            return;
+        }
+        this.renderMode = renderMode;
+        if (renderMode == RENDER_MODE_CANVAS) {
+            showCanvas(cellGridLayoutManager.getScrollX(), cellGridLayoutManager.getScrollY());
+        } else {
+            canvasView.setVisibility(GONE);
+            setRecyclerViewsVisibility(VISIBLE);
+            cellGridLayoutManager.scrollToOffset(canvasView.getContentOffsetX(), canvasView.getContentOffsetY());
+        }
+    }
+
+    private void showCanvas(int contentOffsetX, int contentOffsetY) {
+        if (canvasView == null) {
+            canvasView = new ExcelSheetCanvasView(getContext(), columnWidth, headerHeight, rowSizes, columnSizes);
+            addView(canvasView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+            canvasView.setAdapter(mainExcelSheetRecyclerViewAdapter);
         }
+        canvasView.setContentOffset(contentOffsetX, contentOffsetY);
+        canvasView.setVisibility(VISIBLE);
+        setRecyclerViewsVisibility(GONE);
+    }
+
+    private void setRecyclerViewsVisibility(int visibility) {
+        contentRecyclerView.setVisibility(visibility);
+        headerRecyclerView.setVisibility(visibility);
+        columnRecyclerView.setVisibility(visibility);
+    }
+
+    /**
+     * Draws the canvas again after its content changed, cell views are rebound by their adapter.
+     */
+    public void invalidateCanvas() {
+        if (canvasView != null && renderMode == RENDER_MODE_CANVAS) {
+            canvasView.invalidate();
+        }
+    }
+
+    public int getColumnWidth(int column) {
+        return columnSizes.getSize(column);
+    }
+
+    public int getRowHeight(int row) {
+        return rowSizes.getSize(row);
+    }
+
+    /**
+     * Resizes a column, no narrower than {@link #MIN_CELL_LENGTH}.
+     */
+    public void setColumnWidth(int column, int width) {
+        if (column < 0 || columnSizes == null) {
+            return;
+        }
+        columnSizes.setSize(column, Math.max(width, Utils.dp2px(MIN_CELL_LENGTH, getContext())));
+        if (mainExcelSheetRecyclerViewAdapter != null) {
+            mainExcelSheetRecyclerViewAdapter.notifyColumnResized(column);
+        }
+        onCellSizesChanged();
+    }
+
+    /**
+     * Resizes the row shown at the position, no lower than {@link #MIN_CELL_LENGTH}.
+     */
+    public void setRowHeight(int row, int height) {
+        if (row < 0 || rowSizes == null) {
+            return;
+        }
+        rowSizes.setSize(row, Math.max(height, Utils.dp2px(MIN_CELL_LENGTH, getContext())));
+        if (mainExcelSheetRecyclerViewAdapter != null) {
+            mainExcelSheetRecyclerViewAdapter.notifyRowResized(row);
+        }
+        onCellSizesChanged();
+    }
+
+    /**
+     * Puts every row and column back to the default size.
+     */
+    public void clearCellSizes() {
+        if (rowSizes == null || (rowSizes.isEmpty() && columnSizes.isEmpty())) {
+            return;
+        }
+        rowSizes.clear();
+        columnSizes.clear();
+        if (mainExcelSheetRecyclerViewAdapter != null) {
+            //Binds the titles again at the default size.
+            mainExcelSheetRecyclerViewAdapter.setCellSizes(rowSizes, columnSizes);
+        }
+        invalidateCanvas();
+        onCellSizesChanged();
+    }
+
+    private void onCellSizesChanged() {
+        cellGridLayoutManager.onCellSizesChanged();
+        syncScrollPosition();
     }
 
     private void buildAdapter() {
@@ -153,87 +305,101 @@ public class ExcelSheetView extends FrameLayout implements ViewTreeObserver.OnGl
         }
     }
 
-    private RecyclerView.OnScrollListener contentScrollListener
+    //The title strips can be dragged too, they scroll the cells and are then put back in sync.
+    private RecyclerView.OnScrollListener headerScrollListener
             = new RecyclerView.OnScrollListener() {
-        @Override
-        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
-            super.onScrollStateChanged(recyclerView, newState);
-        }
-
         @Override
         public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
             super.onScrolled(recyclerView, dx, dy);
-            //Log.d(TAG,"contentScrollListener onScrolled");
-            amountAxisX += dx;
-            fastScrollTo(amountAxisX, contentRecyclerView, loadingViewWidth, hasHeader);
-            fastScrollTo(amountAxisX, headerRecyclerView, loadingViewWidth, hasHeader);
-//            LinearLayoutManager manager = (LinearLayoutManager) recyclerView.getLayoutManager();
-//            int visibleItemCount = recyclerView.getChildCount();
-//            int totalItemCount = manager.getItemCount();
-//            int firstVisibleItem = manager.findFirstVisibleItemPosition();
-//            if (totalItemCount - visibleItemCount <= firstVisibleItem && onLoadMoreListener != null && hasFooter) {
-//                onLoadMoreListener.onLoadMore();
-//            }
-//            if (amountAxisX < loadingViewWidth && onLoadMoreListener != null && hasHeader) {
-//                onLoadMoreListener.onLoadHistory();
-//            }
-            if (((hasHeader && amountAxisX > loadingViewWidth) || (!hasHeader && amountAxisX > 0)) && dividerLineVisible) {
-                dividerLine.setVisibility(VISIBLE);
-            } else {
-                dividerLine.setVisibility(GONE);
+            if (dx != 0) {
+                contentRecyclerView.scrollBy(dx, 0);
             }
         }
     };
 
     private RecyclerView.OnScrollListener columnScrollListener
             = new RecyclerView.OnScrollListener() {
-        @Override
-        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
-            super.onScrollStateChanged(recyclerView, newState);
-        }
-
         @Override
         public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
             super.onScrolled(recyclerView, dx, dy);
-            amountAxisY += dy;
-            for (int i = 0; i < contentRecyclerView.getChildCount(); i++) {
-                if (contentRecyclerView.getChildAt(i) instanceof RecyclerView) {
-                    RecyclerView recyclerView1 = (RecyclerView) contentRecyclerView.getChildAt(i);
-                    fastScrollVertical(amountAxisY, recyclerView1);
-                }
-            }
-            fastScrollVertical(amountAxisY, columnRecyclerView);
-            if (mainExcelSheetRecyclerViewAdapter != null) {
-                mainExcelSheetRecyclerViewAdapter.setAmountAxisY(amountAxisY);
+            if (dy != 0) {
+                contentRecyclerView.scrollBy(0, dy);
             }
         }
     };
 
-    public static void fastScrollVertical(int amountAxis, RecyclerView recyclerView) {
-        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
-        //call this method the OnScrollListener's onScrolled will be called，but dx and dy always be zero.
-        linearLayoutManager.scrollToPositionWithOffset(0, -amountAxis);
+    private Runnable syncScrollPositionRunnable = new Runnable() {
+        @Override
+        public void run() {
+            syncScrollPosition();
+        }
+    };
+
+    @Override
+    public void onScrollOffsetChanged(int scrollX, int scrollY) {
+        cellTextPrewarmer.onScrolled(mainExcelSheetRecyclerViewAdapter, scrollX, scrollY,
+                cellGridLayoutManager.getFirstRow(), cellGridLayoutManager.getLastRow(),
+                cellGridLayoutManager.getFirstColumn(), cellGridLayoutManager.getLastColumn());
+        if (contentRecyclerView != null && contentRecyclerView.isComputingLayout()) {
+            //The strips cannot be laid out again while the cells are.
+            removeCallbacks(syncScrollPositionRunnable);
+            post(syncScrollPositionRunnable);
+        } else {
+            syncScrollPosition();
+        }
     }
 
-    private void fastScrollTo(int amountAxis, RecyclerView recyclerView, int offset, boolean hasHeader) {
-        int position = 0, width = cellWidth;
-        if (amountAxis >= offset && hasHeader) {
-            amountAxis -= offset;
-            position++;
+    /**
+     * Scrolls the column and row titles to the scroll offsets of the cells.
+     */
+    public void syncScrollPosition() {
+        if (cellGridLayoutManager == null) {
+            return;
+        }
+        int scrollX = cellGridLayoutManager.getScrollX();
+        fastScrollTo(scrollX, headerRecyclerView, columnSizes);
+        fastScrollTo(cellGridLayoutManager.getScrollY(), columnRecyclerView, rowSizes);
+        if (scrollX > 0 && dividerLineVisible) {
+            dividerLine.setVisibility(VISIBLE);
+        } else {
+            dividerLine.setVisibility(GONE);
         }
-        position += amountAxis / width;
-        amountAxis %= width;
+    }
+
+    private static void fastScrollTo(int amountAxis, RecyclerView recyclerView, AxisSizes sizes) {
         LinearLayoutManager linearLayoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int position = sizes.getIndexAt(amountAxis);
         //call this method the OnScrollListener's onScrolled will be called，but dx and dy always be zero.
-        linearLayoutManager.scrollToPositionWithOffset(position, -amountAxis);
+        linearLayoutManager.scrollToPositionWithOffset(position, -(amountAxis - sizes.getOffset(position)));
     }
 
-    public void fastScrollVerticalLeft() {
-        fastScrollVertical(amountAxisY, columnRecyclerView);
+    /**
+     * Scrolls the cell to the top left corner of the content.
+     */
+    public void scrollToCell(int row, int column) {
+        if (row < 0 || column < 0 || cellGridLayoutManager == null) {
+            return;
+        }
+        if (renderMode == RENDER_MODE_CANVAS) {
+            canvasView.scrollToCell(row, column);
+        } else {
+            cellGridLayoutManager.scrollToCell(row, column);
+        }
     }
 
-    public void scrollBy(int dx) {
-        contentScrollListener.onScrolled(contentRecyclerView, dx, 0);
+    /**
+     * The pool keeps 5 views of a type by default, less than a strip of cells. Holding a screen of
+     * cells lets every cell that scrolls in reuse the view of one that scrolled out, even when a
+     * fling moves several strips in a frame, so scrolling stops inflating once the screen is full.
+     * Cell types other than {@link ExcelSheetRecyclerViewAdapter#TYPE_NORMAL} keep the default.
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (cellViewPool != null) {
+            cellViewPool.setMaxRecycledViews(ExcelSheetRecyclerViewAdapter.TYPE_NORMAL,
+                    cellGridLayoutManager.getMaxCellCount(Math.max(0, w - columnWidth), Math.max(0, h - headerHeight)));
+        }
     }
 
     @Override
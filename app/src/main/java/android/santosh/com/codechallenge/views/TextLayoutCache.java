@@ -0,0 +1,220 @@
+package android.santosh.com.codechallenge.views;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.santosh.com.codechallenge.R;
+import android.support.v4.content.ContextCompat;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Created by Santosh on 9/3/17.
+ * <p>
+ * Bounded LRU cache of laid out cell text, keyed by the text, the width it is laid out in and its
+ * style, and shared by every cell view and the canvas. A cell scrolling back in draws its cached
+ * layout instead of measuring the text again. Texts of the cells about to scroll in can be laid out
+ * ahead on a background thread, see {@link #prewarm(String[], int[], int)}.
+ * <p>
+ * {@link #get(CharSequence, int, int)} is only called from the main thread, the background thread
+ * lays out with its own copies of the paints.
+ */
+
+public class TextLayoutCache {
+    private static String TAG = TextLayoutCache.class.getSimpleName();
+    public static final int STYLE_CELL = 0;
+    public static final int STYLE_TITLE = 1;
+    public static final int DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+    //Bytes of the key, the entry and the layout object, used to estimate the size.
+    private static final int LAYOUT_OVERHEAD = 160;
+    private static final int LINE_SIZE = 32;
+
+    private static TextLayoutCache instance;
+
+    private final TextPaint[] paints;
+    private final TextPaint[] prewarmPaints;
+    private final ExecutorService prewarmExecutorService;
+    //Only the latest request is laid out, the cells of older ones scrolled past already.
+    private final AtomicReference<PrewarmRequest> pendingPrewarmRequest = new AtomicReference<>();
+    private final Key lookupKey = new Key(null, 0, 0);
+    private volatile LruCache<Key, Layout> layouts;
+    private int maxBytes;
+    private long hitCount;
+    private long missCount;
+    private volatile long prewarmCount;
+
+    public static synchronized TextLayoutCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new TextLayoutCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private TextLayoutCache(Context context) {
+        TextPaint cellPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        cellPaint.setColor(ContextCompat.getColor(context, android.R.color.black));
+        cellPaint.setTextSize(context.getResources().getDimension(R.dimen.cell_text_size));
+        cellPaint.setTypeface(Typeface.defaultFromStyle(Typeface.ITALIC));
+        TextPaint titlePaint = new TextPaint(cellPaint);
+        titlePaint.setTypeface(Typeface.defaultFromStyle(Typeface.BOLD));
+        this.paints = new TextPaint[]{cellPaint, titlePaint};
+        this.prewarmPaints = new TextPaint[]{new TextPaint(cellPaint), new TextPaint(titlePaint)};
+        this.prewarmExecutorService = Executors.newSingleThreadExecutor();
+        setMaxBytes(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Drops the cached layouts when the budget changes.
+     */
+    public void setMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+        this.layouts = new LruCache<Key, Layout>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Layout layout) {
+                return LAYOUT_OVERHEAD + key.text.length() * 2 + layout.getLineCount() * LINE_SIZE;
+            }
+        };
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getSizeBytes() {
+        return layouts.size();
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the layouts added ahead by {@link #prewarm(String[], int[], int)}.
+     */
+    public long getPrewarmCount() {
+        return prewarmCount;
+    }
+
+    public TextPaint getPaint(int style) {
+        return paints[style];
+    }
+
+    /**
+     * @return the text laid out centered in the width, null for empty text.
+     */
+    public Layout get(CharSequence text, int width, int style) {
+        if (TextUtils.isEmpty(text) || width <= 0) {
+            return null;
+        }
+        String string = text.toString();
+        LruCache<Key, Layout> layouts = this.layouts;
+        lookupKey.set(string, width, style);
+        Layout layout = layouts.get(lookupKey);
+        if (layout != null) {
+            hitCount++;
+            return layout;
+        }
+        missCount++;
+        layout = createLayout(string, paints[style], width);
+        layouts.put(new Key(string, width, style), layout);
+        return layout;
+    }
+
+    /**
+     * Lays out the texts not cached yet on the background thread, each in the width at its index,
+     * replacing a request that has not started.
+     */
+    public void prewarm(String[] texts, int[] widths, int style) {
+        if (texts.length == 0) {
+            return;
+        }
+        if (pendingPrewarmRequest.getAndSet(new PrewarmRequest(texts, widths, style)) != null) {
+            //The task already queued picks up the new request.
+            return;
+        }
+        prewarmExecutorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                PrewarmRequest prewarmRequest = pendingPrewarmRequest.getAndSet(null);
+                if (prewarmRequest != null) {
+                    prewarm(prewarmRequest);
+                }
+            }
+        });
+    }
+
+    private void prewarm(PrewarmRequest prewarmRequest) {
+        LruCache<Key, Layout> layouts = this.layouts;
+        TextPaint paint = prewarmPaints[prewarmRequest.style];
+        for (int i = 0; i < prewarmRequest.texts.length; i++) {
+            String text = prewarmRequest.texts[i];
+            int width = prewarmRequest.widths[i];
+            if (TextUtils.isEmpty(text) || width <= 0) {
+                continue;
+            }
+            Key key = new Key(text, width, prewarmRequest.style);
+            //Not counted as a hit or a miss, those count the cells drawn.
+            if (layouts.get(key) == null) {
+                layouts.put(key, createLayout(text, paint, width));
+                prewarmCount++;
+            }
+        }
+    }
+
+    private static Layout createLayout(String text, TextPaint paint, int width) {
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_CENTER, 1f, 0f, false);
+    }
+
+    private static class PrewarmRequest {
+        final String[] texts;
+        final int[] widths;
+        final int style;
+
+        PrewarmRequest(String[] texts, int[] widths, int style) {
+            this.texts = texts;
+            this.widths = widths;
+            this.style = style;
+        }
+    }
+
+    private static class Key {
+        String text;
+        int width;
+        int style;
+
+        Key(String text, int width, int style) {
+            set(text, width, style);
+        }
+
+        void set(String text, int width, int style) {
+            this.text = text;
+            this.width = width;
+            this.style = style;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return width == key.width && style == key.style && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return (text.hashCode() * 31 + width) * 31 + style;
+        }
+    }
+}
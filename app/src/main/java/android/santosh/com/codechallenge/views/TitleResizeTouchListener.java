@@ -0,0 +1,91 @@
+package android.santosh.com.codechallenge.views;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Created by Santosh on 9/3/17.
+ * <p>
+ * Resizes a column or row by dragging the far edge of its title. A touch that starts on an edge is
+ * taken from the title strip, so it resizes instead of scrolling; any other touch scrolls as before.
+ */
+
+class TitleResizeTouchListener implements RecyclerView.OnItemTouchListener {
+    private final AxisSizes sizes;
+    private final int orientation;
+    private final int edgeSlop;
+    private final OnTitleResizeListener onTitleResizeListener;
+    //The index being resized, -1 while not dragging an edge.
+    private int resizingIndex = -1;
+    private float downCoordinate;
+    private int downSize;
+
+    interface OnTitleResizeListener {
+        void onTitleResized(int index, int size);
+    }
+
+    /**
+     * @param orientation the orientation of the strip, {@link LinearLayoutManager#HORIZONTAL} for
+     *                    the column titles.
+     * @param edgeSlop    how far from an edge a touch still grabs it.
+     */
+    TitleResizeTouchListener(AxisSizes sizes, int orientation, int edgeSlop, OnTitleResizeListener onTitleResizeListener) {
+        this.sizes = sizes;
+        this.orientation = orientation;
+        this.edgeSlop = edgeSlop;
+        this.onTitleResizeListener = onTitleResizeListener;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(RecyclerView recyclerView, MotionEvent e) {
+        if (e.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            resizingIndex = findEdge(recyclerView, coordinateOf(e));
+            if (resizingIndex >= 0) {
+                downCoordinate = coordinateOf(e);
+                downSize = sizes.getSize(resizingIndex);
+                recyclerView.getParent().requestDisallowInterceptTouchEvent(true);
+            }
+        }
+        return resizingIndex >= 0;
+    }
+
+    @Override
+    public void onTouchEvent(RecyclerView recyclerView, MotionEvent e) {
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                onTitleResizeListener.onTitleResized(resizingIndex, downSize + Math.round(coordinateOf(e) - downCoordinate));
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                resizingIndex = -1;
+                break;
+        }
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    }
+
+    /**
+     * @return the index of the title whose far edge is at the coordinate, -1 when there is none.
+     */
+    private int findEdge(RecyclerView recyclerView, float coordinate) {
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            int edge = orientation == LinearLayoutManager.HORIZONTAL ? child.getRight() : child.getBottom();
+            if (Math.abs(coordinate - edge) <= edgeSlop) {
+                int position = recyclerView.getChildAdapterPosition(child);
+                if (position != RecyclerView.NO_POSITION) {
+                    return position;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private float coordinateOf(MotionEvent e) {
+        return orientation == LinearLayoutManager.HORIZONTAL ? e.getX() : e.getY();
+    }
+}
@@ -0,0 +1,96 @@
+package android.santosh.com.codechallenge.filter;
+
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses conditions as the user types them and tests them against number, text, boolean, empty and
+ * formula cells of row 0.
+ */
+public class ColumnFilterTest {
+    @Test
+    public void parse_readsTheOperator() throws Exception {
+        ColumnFilter greaterThan = ColumnFilter.parse(2, " > 5 ");
+        assertEquals(ColumnFilter.GREATER_THAN, greaterThan.getOperator());
+        assertEquals(2, greaterThan.getColumn());
+        assertEquals(ColumnFilter.LESS_THAN, ColumnFilter.parse(0, "<-2.5").getOperator());
+        ColumnFilter equalTo = ColumnFilter.parse(0, "= Foo ");
+        assertEquals(ColumnFilter.EQUAL_TO, equalTo.getOperator());
+        assertEquals("Foo", equalTo.getText());
+        ColumnFilter contains = ColumnFilter.parse(0, " an ");
+        assertEquals(ColumnFilter.CONTAINS, contains.getOperator());
+        assertEquals("an", contains.getText());
+    }
+
+    @Test
+    public void parse_rejectsMissingOrNonNumericOperands() throws Exception {
+        assertNull(ColumnFilter.parse(0, null));
+        assertNull(ColumnFilter.parse(0, ""));
+        assertNull(ColumnFilter.parse(0, "   "));
+        assertNull(ColumnFilter.parse(0, ">"));
+        assertNull(ColumnFilter.parse(0, ">abc"));
+        assertNull(ColumnFilter.parse(0, "<TRUE"));
+        assertNull(ColumnFilter.parse(0, "= "));
+    }
+
+    @Test
+    public void greaterAndLessThan_onlyMatchNumbers() throws Exception {
+        ColumnFilter greaterThan = ColumnFilter.parse(0, ">5");
+        assertTrue(greaterThan.matches(cell("6"), 0));
+        assertTrue(greaterThan.matches(cell(" 5.5 "), 0));
+        assertFalse(greaterThan.matches(cell("5"), 0));
+        assertFalse(greaterThan.matches(cell("text"), 0));
+        assertFalse(greaterThan.matches(cell("TRUE"), 0));
+        assertFalse(greaterThan.matches(ExcelSheetSnapshot.empty(), 0));
+
+        ColumnFilter lessThan = ColumnFilter.parse(0, "<-2.5");
+        assertTrue(lessThan.matches(cell("-3"), 0));
+        assertFalse(lessThan.matches(cell("-2.5"), 0));
+        assertFalse(lessThan.matches(ExcelSheetSnapshot.empty(), 0));
+    }
+
+    @Test
+    public void equalTo_comparesNumbersByValueAndTextIgnoringCase() throws Exception {
+        ColumnFilter number = ColumnFilter.parse(0, "=10");
+        assertTrue(number.matches(cell("10"), 0));
+        assertTrue(number.matches(cell("10.0"), 0));
+        assertFalse(number.matches(cell("10a"), 0));
+        assertFalse(number.matches(cell("100"), 0));
+
+        ColumnFilter text = ColumnFilter.parse(0, "=foo");
+        assertTrue(text.matches(cell("FOO"), 0));
+        assertTrue(text.matches(cell(" foo "), 0));
+        assertFalse(text.matches(cell("food"), 0));
+        assertFalse(text.matches(cell("1"), 0));
+
+        assertTrue(ColumnFilter.parse(0, "=true").matches(cell("TRUE"), 0));
+    }
+
+    @Test
+    public void contains_ignoresCase() throws Exception {
+        ColumnFilter contains = ColumnFilter.parse(0, "an");
+        assertTrue(contains.matches(cell("Banana"), 0));
+        assertTrue(contains.matches(cell("AN"), 0));
+        assertFalse(contains.matches(cell("a n"), 0));
+        assertFalse(contains.matches(ExcelSheetSnapshot.empty(), 0));
+        assertTrue(ColumnFilter.parse(0, "12").matches(cell("3120"), 0));
+    }
+
+    @Test
+    public void formulas_areTestedByTheirResult() throws Exception {
+        ExcelSheetSnapshot snapshot = cell("=A2*2").withComputedValue(0, 0, "8");
+        assertTrue(ColumnFilter.parse(0, ">5").matches(snapshot, 0));
+        assertTrue(ColumnFilter.parse(0, "=8").matches(snapshot, 0));
+        assertFalse(ColumnFilter.parse(0, "A2").matches(snapshot, 0));
+    }
+
+    private static ExcelSheetSnapshot cell(String data) {
+        return ExcelSheetSnapshot.empty().withData(0, 0, data);
+    }
+}
@@ -0,0 +1,170 @@
+package android.santosh.com.codechallenge.filter;
+
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.VisibleRows;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Adds, removes and updates filters and checks the visible rows against every remaining filter
+ * tested on every row.
+ */
+public class RowFilterTest {
+    private static final int ROW_COUNT = 1500;
+
+    private final RowFilter rowFilter = new RowFilter();
+    //The filters expected to be applied, in the order they were added.
+    private final List<ColumnFilter> columnFilters = new ArrayList<>();
+    //The snapshot the filters were last checked against.
+    private ExcelSheetSnapshot lastSnapshot;
+
+    @Test
+    public void addAndRemove_andTheFilters() throws Exception {
+        ExcelSheetSnapshot snapshot = randomSnapshot(new Random(18));
+        assertNull(rowFilter.getVisibleRows());
+
+        add(snapshot, ColumnFilter.parse(0, ">20"));
+        add(snapshot, ColumnFilter.parse(1, "a"));
+        add(snapshot, ColumnFilter.parse(0, "<80"));
+        add(snapshot, ColumnFilter.parse(2, "=1"));
+        assertEquals(4, rowFilter.getColumnFilterCount());
+
+        remove(0);
+        assertEquals(2, rowFilter.getColumnFilterCount());
+        assertEquals(1, rowFilter.getColumnFilter(0).getColumn());
+        remove(2);
+        //Removing a column without a filter changes nothing.
+        VisibleRows visibleRows = rowFilter.getVisibleRows();
+        assertSame(visibleRows, rowFilter.removeColumnFilters(5));
+        remove(1);
+        assertNull(rowFilter.getVisibleRows());
+    }
+
+    @Test
+    public void update_retestsTheEditedRows() throws Exception {
+        Random random = new Random(19);
+        ExcelSheetSnapshot snapshot = randomSnapshot(random);
+        add(snapshot, ColumnFilter.parse(0, ">50"));
+        add(snapshot, ColumnFilter.parse(1, "b"));
+        for (int round = 0; round < 100; round++) {
+            ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA);
+            for (int i = 0; i < 5; i++) {
+                int row = random.nextInt(ROW_COUNT);
+                int column = random.nextInt(3);
+                snapshot = snapshot.withData(row, column, randomValue(random, column));
+                excelSheetChange.addCell(row, column);
+            }
+            if (round % 10 == 0) {
+                //A row range, small enough to be retested row by row, or large enough for every filter.
+                int rangeSize = round % 20 == 0 ? 40 : 400;
+                int firstRow = random.nextInt(ROW_COUNT - rangeSize);
+                for (int row = firstRow; row < firstRow + rangeSize; row += 3) {
+                    snapshot = snapshot.withData(row, 1, randomValue(random, 1));
+                }
+                excelSheetChange.addRows(firstRow, firstRow + rangeSize - 1);
+            }
+            rowFilter.update(snapshot, excelSheetChange);
+            assertVisibleRows(snapshot);
+        }
+    }
+
+    @Test
+    public void update_retestsAFilteredColumnRange() throws Exception {
+        ExcelSheetSnapshot snapshot = randomSnapshot(new Random(20));
+        add(snapshot, ColumnFilter.parse(0, "<30"));
+        for (int row = 0; row < ROW_COUNT; row += 2) {
+            snapshot = snapshot.withData(row, 0, "1");
+        }
+        rowFilter.update(snapshot, new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addColumns(0, 0));
+        assertVisibleRows(snapshot);
+    }
+
+    @Test
+    public void update_keepsTheVisibleRowsWhenNothingIsShownOrHidden() throws Exception {
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty().withData(0, 0, "10").withData(1, 0, "1");
+        VisibleRows visibleRows = add(snapshot, ColumnFilter.parse(0, ">5"));
+        snapshot = snapshot.withData(0, 0, "11").withData(0, 1, "other column");
+        assertSame(visibleRows, rowFilter.update(snapshot,
+                new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addCell(0, 0).addCell(0, 1)));
+        snapshot = snapshot.withData(0, 0, "4");
+        VisibleRows updated = rowFilter.update(snapshot,
+                new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addCell(0, 0));
+        assertEquals(0, updated.getCount());
+    }
+
+    private VisibleRows add(ExcelSheetSnapshot snapshot, ColumnFilter columnFilter) {
+        columnFilters.add(columnFilter);
+        VisibleRows visibleRows = rowFilter.addColumnFilter(snapshot, columnFilter);
+        assertSame(visibleRows, rowFilter.getVisibleRows());
+        assertVisibleRows(snapshot);
+        return visibleRows;
+    }
+
+    private void remove(int column) {
+        for (int i = columnFilters.size() - 1; i >= 0; i--) {
+            if (columnFilters.get(i).getColumn() == column) {
+                columnFilters.remove(i);
+            }
+        }
+        rowFilter.removeColumnFilters(column);
+        if (!columnFilters.isEmpty()) {
+            assertVisibleRows(null);
+        }
+    }
+
+    /**
+     * @param snapshot null to check against the snapshot of the last check.
+     */
+    private void assertVisibleRows(ExcelSheetSnapshot snapshot) {
+        if (snapshot != null) {
+            lastSnapshot = snapshot;
+        }
+        VisibleRows visibleRows = rowFilter.getVisibleRows();
+        int count = 0;
+        for (int row = 0; row < ROW_COUNT; row++) {
+            boolean visible = true;
+            for (ColumnFilter columnFilter : columnFilters) {
+                visible &= columnFilter.matches(lastSnapshot, row);
+            }
+            assertEquals("row " + row, visible, visibleRows.contains(row));
+            count += visible ? 1 : 0;
+        }
+        assertEquals(count, visibleRows.getCount());
+    }
+
+    /**
+     * @return numbers in column 0, words in column 1 and booleans or numbers in column 2, with gaps.
+     */
+    private static ExcelSheetSnapshot randomSnapshot(Random random) {
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+        for (int row = 0; row < ROW_COUNT; row++) {
+            for (int column = 0; column < 3; column++) {
+                snapshot = snapshot.withData(row, column, randomValue(random, column));
+            }
+        }
+        return snapshot;
+    }
+
+    private static String randomValue(Random random, int column) {
+        if (random.nextInt(8) == 0) {
+            return null;
+        }
+        switch (column) {
+            case 0:
+                return String.valueOf(random.nextInt(100));
+            case 1:
+                return new String[]{"apple", "Banana", "cherry", "kiwi", "42"}[random.nextInt(5)];
+            default:
+                return new String[]{"TRUE", "FALSE", "1", "0"}[random.nextInt(4)];
+        }
+    }
+}
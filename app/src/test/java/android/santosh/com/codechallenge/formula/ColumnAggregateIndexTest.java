@@ -0,0 +1,203 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the aggregates of indexed ranges against a plain scan of the same rows, and the results of
+ * formulas over an indexed column against an engine reading every cell.
+ */
+public class ColumnAggregateIndexTest {
+    private static final int ROW_COUNT = 1000000;
+    //Past the 1024 rows a column starts with, so the tree grows.
+    private static final int USED_ROW_COUNT = 5000;
+
+    @Test
+    public void aggregate_matchesAScan() throws Exception {
+        Random random = new Random(15);
+        ColumnAggregateIndex aggregateIndex = new ColumnAggregateIndex(ROW_COUNT);
+        aggregateIndex.addColumn(2);
+        //Null for an empty row.
+        Double[] values = new Double[USED_ROW_COUNT];
+        for (int i = 0; i < USED_ROW_COUNT * 2; i++) {
+            int row = random.nextInt(USED_ROW_COUNT);
+            if (random.nextInt(5) == 0) {
+                aggregateIndex.remove(row, 2);
+                values[row] = null;
+            } else {
+                double value = random.nextInt(2001) - 1000;
+                aggregateIndex.putNumber(row, 2, value);
+                values[row] = value;
+            }
+            if (i % 100 == 0) {
+                assertRangesMatch(random, aggregateIndex, values, 10);
+            }
+        }
+        assertRangesMatch(random, aggregateIndex, values, 2000);
+        //Block boundaries and a range running past the last used row.
+        int[][] ranges = {{0, 0}, {0, 31}, {31, 32}, {32, 63}, {0, 1023}, {1023, 1024}, {1000, 4000},
+                {USED_ROW_COUNT - 1, ROW_COUNT - 1}, {0, ROW_COUNT - 1}};
+        for (int[] range : ranges) {
+            assertRangeMatches(aggregateIndex, values, range[0], range[1]);
+        }
+    }
+
+    @Test
+    public void aggregate_failsOverAnError() throws Exception {
+        ColumnAggregateIndex aggregateIndex = new ColumnAggregateIndex(ROW_COUNT);
+        aggregateIndex.addColumn(0);
+        for (int row = 0; row < 3000; row++) {
+            aggregateIndex.putNumber(row, 0, 1);
+        }
+        aggregateIndex.putError(1500, 0);
+        Expression.Aggregate aggregate = new Expression.Aggregate();
+        aggregate.onVisitNumber(7);
+        //In a partial block, in a whole block and at the edge of the range.
+        assertFalse(aggregateIndex.aggregate(0, 1490, 1510, aggregate));
+        assertFalse(aggregateIndex.aggregate(0, 0, 2999, aggregate));
+        assertFalse(aggregateIndex.aggregate(0, 1500, 1500, aggregate));
+        //A failed range leaves the aggregate as it was.
+        assertEquals(7, aggregate.sum, 0);
+        assertEquals(1, aggregate.count);
+
+        assertTrue(aggregateIndex.aggregate(0, 0, 1499, aggregate));
+        assertTrue(aggregateIndex.aggregate(0, 1501, ROW_COUNT - 1, aggregate));
+        assertEquals(7 + 2999, aggregate.sum, 0);
+        aggregateIndex.putNumber(1500, 0, 1);
+        assertTrue(aggregateIndex.aggregate(0, 0, 2999, new Expression.Aggregate()));
+        //A column that is not indexed is never answered.
+        assertFalse(aggregateIndex.aggregate(1, 0, 10, new Expression.Aggregate()));
+    }
+
+    @Test
+    public void clearValues_keepsTheColumns() throws Exception {
+        ColumnAggregateIndex aggregateIndex = new ColumnAggregateIndex(ROW_COUNT);
+        aggregateIndex.addColumn(0);
+        aggregateIndex.putNumber(2000, 0, 5);
+        aggregateIndex.clearValues();
+        assertTrue(aggregateIndex.isIndexed(0));
+        Expression.Aggregate aggregate = new Expression.Aggregate();
+        assertTrue(aggregateIndex.aggregate(0, 0, ROW_COUNT - 1, aggregate));
+        assertEquals(0, aggregate.count);
+        aggregateIndex.removeColumn(0);
+        assertFalse(aggregateIndex.hasIndexedColumns());
+    }
+
+    @Test
+    public void formulas_overAnIndexedColumnMatchAScan() throws Exception {
+        Random random = new Random(16);
+        EngineUnderTest indexed = new EngineUnderTest();
+        EngineUnderTest scanned = new EngineUnderTest();
+        //Half the column before it is indexed, half after.
+        for (int row = 0; row < USED_ROW_COUNT / 2; row++) {
+            editBoth(indexed, scanned, row, 0, randomValue(random));
+        }
+        indexed.formulaEngine.setColumnIndexed(indexed.snapshot, 0, true);
+        for (int row = USED_ROW_COUNT / 2; row < USED_ROW_COUNT; row++) {
+            editBoth(indexed, scanned, row, 0, randomValue(random));
+        }
+        String[] formulas = {"=SUM(A1:A5000)", "=AVERAGE(A1:A5000)", "=MIN(A1:A5000)", "=MAX(A1:A5000)",
+                "=COUNT(A1:A5000)", "=SUM(A17:A1040)", "=AVERAGE(A33:A64)", "=MIN(A1000:A1000000)",
+                "=MAX(A2:A3)", "=COUNT(A1:B5000)", "=SUM(A1:A5000,A10)"};
+        for (int i = 0; i < formulas.length; i++) {
+            editBoth(indexed, scanned, i, 4, formulas[i]);
+        }
+        assertResultsMatch(indexed, scanned, formulas.length);
+
+        for (int i = 0; i < 200; i++) {
+            int row = random.nextInt(USED_ROW_COUNT);
+            editBoth(indexed, scanned, row, 0, randomValue(random));
+            assertResultsMatch(indexed, scanned, formulas.length);
+        }
+
+        //A failed formula in the column fails the ranges holding it, and only those.
+        editBoth(indexed, scanned, 40, 0, "=1/0");
+        assertResultsMatch(indexed, scanned, formulas.length);
+        assertEquals(FormulaException.ERROR_DIV_ZERO, indexed.snapshot.getDisplayData(0, 4));
+        assertEquals(FormulaException.ERROR_DIV_ZERO, indexed.snapshot.getDisplayData(6, 4));
+        assertNotEquals(FormulaException.ERROR_DIV_ZERO, indexed.snapshot.getDisplayData(8, 4));
+        editBoth(indexed, scanned, 40, 0, "3");
+        assertResultsMatch(indexed, scanned, formulas.length);
+    }
+
+    /**
+     * @return a number, a formula, text, a boolean or nothing.
+     */
+    private static String randomValue(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return "=" + (random.nextInt(201) - 100) + "*2+1";
+            case 1:
+                return "text";
+            case 2:
+                return "TRUE";
+            case 3:
+                return null;
+            default:
+                return String.valueOf(random.nextInt(2001) - 1000);
+        }
+    }
+
+    private static void editBoth(EngineUnderTest indexed, EngineUnderTest scanned, int row, int column, String data) {
+        indexed.edit(row, column, data);
+        scanned.edit(row, column, data);
+    }
+
+    private static void assertResultsMatch(EngineUnderTest indexed, EngineUnderTest scanned, int formulaCount) {
+        for (int row = 0; row < formulaCount; row++) {
+            assertEquals(scanned.snapshot.getData(row, 4), scanned.snapshot.getDisplayData(row, 4),
+                    indexed.snapshot.getDisplayData(row, 4));
+        }
+    }
+
+    private static void assertRangesMatch(Random random, ColumnAggregateIndex aggregateIndex, Double[] values,
+                                          int rangeCount) {
+        for (int i = 0; i < rangeCount; i++) {
+            int firstRow = random.nextInt(USED_ROW_COUNT);
+            //Mostly short ranges, within a block or across a few.
+            int length = random.nextInt(4) == 0 ? random.nextInt(USED_ROW_COUNT) : random.nextInt(100);
+            assertRangeMatches(aggregateIndex, values, firstRow, firstRow + length);
+        }
+    }
+
+    private static void assertRangeMatches(ColumnAggregateIndex aggregateIndex, Double[] values, int firstRow,
+                                           int lastRow) {
+        Expression.Aggregate expected = new Expression.Aggregate();
+        for (int row = firstRow; row <= Math.min(lastRow, values.length - 1); row++) {
+            if (values[row] != null) {
+                expected.onVisitNumber(values[row]);
+            }
+        }
+        Expression.Aggregate aggregate = new Expression.Aggregate();
+        assertTrue(aggregateIndex.aggregate(2, firstRow, lastRow, aggregate));
+        String range = firstRow + ":" + lastRow;
+        //Whole numbers, so the sums are exact in any order.
+        assertEquals(range, expected.sum, aggregate.sum, 0);
+        assertEquals(range, expected.count, aggregate.count);
+        assertEquals(range, expected.min, aggregate.min, 0);
+        assertEquals(range, expected.max, aggregate.max, 0);
+    }
+
+    /**
+     * An engine and the snapshot it keeps up to date, edited cell by cell as the controller does.
+     */
+    private static class EngineUnderTest {
+        final FormulaEngine formulaEngine = new FormulaEngine(ROW_COUNT, 16384);
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+
+        void edit(int row, int column, String data) {
+            snapshot = snapshot.withData(row, column, data);
+            snapshot = formulaEngine.onCellsChanged(snapshot,
+                    new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addCell(row, column));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Edits a sheet cell by cell through the engine, as the controller does, and checks the published
+ * results and which cells each recalculation touched.
+ */
+public class FormulaEngineTest {
+    private FormulaEngine formulaEngine;
+    private ExcelSheetSnapshot snapshot;
+    //The change of the last edit, with the formulas it recalculated.
+    private ExcelSheetChange lastChange;
+
+    @Before
+    public void setUp() throws Exception {
+        formulaEngine = new FormulaEngine(1000000, 16384);
+        snapshot = ExcelSheetSnapshot.empty();
+    }
+
+    @Test
+    public void rebuild_evaluatesChainsInDependencyOrder() throws Exception {
+        //Written in reverse so the storage order is not the evaluation order.
+        snapshot = snapshot.withData(0, 3, "=C1+B1")
+                .withData(0, 2, "=A1+B1")
+                .withData(0, 1, "=A1*2")
+                .withData(0, 0, "3");
+        ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA);
+        snapshot = formulaEngine.rebuild(snapshot, excelSheetChange);
+        assertEquals("6", snapshot.getDisplayData(0, 1));
+        assertEquals("9", snapshot.getDisplayData(0, 2));
+        assertEquals("15", snapshot.getDisplayData(0, 3));
+        assertEquals(3, excelSheetChange.getCellCount());
+        //The formula is still the data of the cell.
+        assertEquals("=A1*2", snapshot.getData(0, 1));
+    }
+
+    @Test
+    public void edit_recalculatesEveryDependentOnce() throws Exception {
+        edit(0, 0, "1");
+        edit(0, 1, "=A1+1");
+        edit(0, 2, "=A1+B1");
+        edit(0, 3, "=C1+B1");
+        assertEquals("5", snapshot.getDisplayData(0, 3));
+
+        edit(0, 0, "10");
+        assertEquals("11", snapshot.getDisplayData(0, 1));
+        assertEquals("21", snapshot.getDisplayData(0, 2));
+        assertEquals("32", snapshot.getDisplayData(0, 3));
+        //A1 and the three formulas below it.
+        assertEquals(4, lastChange.getCellCount());
+    }
+
+    @Test
+    public void cycle_evaluatesToCycleError() throws Exception {
+        edit(0, 0, "=B1");
+        edit(0, 1, "=A1+1");
+        assertEquals(FormulaException.ERROR_CYCLE, snapshot.getDisplayData(0, 0));
+        assertEquals(FormulaException.ERROR_CYCLE, snapshot.getDisplayData(0, 1));
+
+        edit(0, 2, "=A1*2");
+        assertEquals("a formula reading a cycle is part of its error",
+                FormulaException.ERROR_CYCLE, snapshot.getDisplayData(0, 2));
+
+        //Breaking the cycle recalculates all three.
+        edit(0, 1, "4");
+        assertEquals("4", snapshot.getDisplayData(0, 0));
+        assertEquals("4", snapshot.getDisplayData(0, 1));
+        assertEquals("8", snapshot.getDisplayData(0, 2));
+    }
+
+    @Test
+    public void cycle_includesSelfReferencesAndRanges() throws Exception {
+        edit(0, 0, "=A1+1");
+        assertEquals(FormulaException.ERROR_CYCLE, snapshot.getDisplayData(0, 0));
+
+        edit(5, 1, "=SUM(B1:B10)");
+        assertEquals(FormulaException.ERROR_CYCLE, snapshot.getDisplayData(5, 1));
+        edit(5, 1, "=SUM(B1:B5)");
+        assertEquals("0", snapshot.getDisplayData(5, 1));
+    }
+
+    @Test
+    public void rangeEdit_recalculatesOnlyDownstreamFormulas() throws Exception {
+        for (int row = 0; row < 10; row++) {
+            edit(row, 0, String.valueOf(row + 1));
+        }
+        edit(0, 3, "=SUM(A1:A10)");
+        edit(0, 4, "=D1*2");
+        edit(1, 3, "=SUM(A6:A10)");
+        edit(0, 5, "=B5+1");
+        edit(0, 6, "=SUM(A20:A30)");
+        edit(0, 7, "=MAX(A1:A3)");
+        assertEquals("55", snapshot.getDisplayData(0, 3));
+        assertEquals("110", snapshot.getDisplayData(0, 4));
+        assertEquals("40", snapshot.getDisplayData(1, 3));
+        assertEquals("3", snapshot.getDisplayData(0, 7));
+
+        edit(4, 0, "100");
+        assertEquals("150", snapshot.getDisplayData(0, 3));
+        assertEquals("300", snapshot.getDisplayData(0, 4));
+        assertEquals("40", snapshot.getDisplayData(1, 3));
+        assertTrue(lastChange.contains(4, 0));
+        assertTrue(lastChange.contains(0, 3));
+        assertTrue(lastChange.contains(0, 4));
+        //Ranges that do not hold A5, and a cell next to it.
+        assertFalse(lastChange.contains(1, 3));
+        assertFalse(lastChange.contains(0, 5));
+        assertFalse(lastChange.contains(0, 6));
+        assertFalse(lastChange.contains(0, 7));
+        assertEquals(3, lastChange.getCellCount());
+    }
+
+    @Test
+    public void errors_propagateToDependents() throws Exception {
+        edit(0, 0, "0");
+        edit(0, 1, "=1/A1");
+        edit(0, 2, "=B1+1");
+        edit(0, 3, "=SUM(B1:B2)");
+        assertEquals(FormulaException.ERROR_DIV_ZERO, snapshot.getDisplayData(0, 1));
+        assertEquals(FormulaException.ERROR_DIV_ZERO, snapshot.getDisplayData(0, 2));
+        assertEquals(FormulaException.ERROR_DIV_ZERO, snapshot.getDisplayData(0, 3));
+
+        edit(0, 0, "4");
+        assertEquals("0.25", snapshot.getDisplayData(0, 1));
+        assertEquals("1.25", snapshot.getDisplayData(0, 2));
+        assertEquals("0.25", snapshot.getDisplayData(0, 3));
+    }
+
+    @Test
+    public void parseErrors_showTheirErrorCode() throws Exception {
+        edit(0, 0, "=1+");
+        assertEquals(FormulaException.ERROR_SYNTAX, snapshot.getDisplayData(0, 0));
+        edit(0, 1, "=NOPE(1)");
+        assertEquals(FormulaException.ERROR_NAME, snapshot.getDisplayData(0, 1));
+        edit(0, 2, "=A1+1");
+        assertEquals(FormulaException.ERROR_SYNTAX, snapshot.getDisplayData(0, 2));
+    }
+
+    @Test
+    public void replacingAFormula_dropsItsResultAndDependencies() throws Exception {
+        edit(0, 0, "1");
+        edit(0, 1, "=A1+1");
+        edit(0, 1, "plain");
+        assertEquals("plain", snapshot.getDisplayData(0, 1));
+        edit(0, 0, "2");
+        assertEquals("plain", snapshot.getDisplayData(0, 1));
+        assertEquals(1, lastChange.getCellCount());
+
+        edit(0, 2, "=A1");
+        edit(0, 2, null);
+        assertNull(snapshot.getDisplayData(0, 2));
+    }
+
+    private void edit(int row, int column, String data) {
+        snapshot = snapshot.withData(row, column, data);
+        lastChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addCell(row, column);
+        snapshot = formulaEngine.onCellsChanged(snapshot, lastChange);
+    }
+}
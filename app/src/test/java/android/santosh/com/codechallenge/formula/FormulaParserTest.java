@@ -0,0 +1,140 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Parses formulas and evaluates them against a few fixed cells. Precedence follows Excel, which
+ * differs from the usual math convention for unary minus and ^.
+ */
+public class FormulaParserTest {
+    private final FormulaParser formulaParser = new FormulaParser(1000000, 16384);
+    private final MapEvaluationContext evaluationContext = new MapEvaluationContext();
+
+    @Test
+    public void arithmetic_followsPrecedenceAndAssociativity() throws Exception {
+        assertEquals(7, evaluate("=1+2*3"), 0);
+        assertEquals(9, evaluate("=(1+2)*3"), 0);
+        assertEquals(3, evaluate("=10-4-3"), 0);
+        assertEquals(1, evaluate("=8/4/2"), 0);
+        assertEquals(18, evaluate("=2*3^2"), 0);
+        assertEquals(2, evaluate("=1--1"), 0);
+        assertEquals(6, evaluate("=-2*-3"), 0);
+        assertEquals(7, evaluate("= 1 + 2 * 3 "), 0);
+    }
+
+    @Test
+    public void power_isLeftAssociativeAsInExcel() throws Exception {
+        //(2^3)^2, where the math convention would give 2^(3^2) = 512.
+        assertEquals(64, evaluate("=2^3^2"), 0);
+        assertEquals(512, evaluate("=2^(3^2)"), 0);
+    }
+
+    @Test
+    public void unaryMinus_bindsTighterThanPowerAsInExcel() throws Exception {
+        //(-2)^2, where the math convention would give -(2^2) = -4.
+        assertEquals(4, evaluate("=-2^2"), 0);
+        assertEquals(-4, evaluate("=-(2^2)"), 0);
+        assertEquals(-4, evaluate("=0-2^2"), 0);
+        assertEquals(0.5, evaluate("=2^-1"), 0);
+    }
+
+    @Test
+    public void numbers_acceptDecimalsAndExponents() throws Exception {
+        assertEquals(0.5, evaluate("=.5"), 0);
+        assertEquals(1500, evaluate("=1.5e3"), 0);
+        assertEquals(0.015, evaluate("=1.5E-2"), 0);
+    }
+
+    @Test
+    public void references_readCellsWithOrWithoutDollars() throws Exception {
+        evaluationContext.put(0, 0, 2.0);
+        evaluationContext.put(1, 1, 3.0);
+        evaluationContext.put(2, 27, true);
+        assertEquals(5, evaluate("=A1+B2"), 0);
+        assertEquals(5, evaluate("=$A$1+b$2"), 0);
+        assertEquals(1, evaluate("=AB3"), 0);
+        //An empty cell counts as 0.
+        assertEquals(2, evaluate("=A1+C3"), 0);
+        assertEquals(4, evaluate("=A1+XFD1000000+2"), 0);
+    }
+
+    @Test
+    public void functions_aggregateRangesAndArguments() throws Exception {
+        evaluationContext.put(0, 0, 1.0);
+        evaluationContext.put(1, 0, 2.0);
+        evaluationContext.put(2, 0, 6.0);
+        evaluationContext.put(0, 1, "text");
+        assertEquals(9, evaluate("=SUM(A1:A3)"), 0);
+        assertEquals(9, evaluate("=SUM(A3:A1)"), 0);
+        assertEquals(19, evaluate("=sum(A1:B3, 10)"), 0);
+        assertEquals(3, evaluate("=AVERAGE(A1:A3)"), 0);
+        assertEquals(1, evaluate("=MIN(A1:B3)"), 0);
+        assertEquals(6, evaluate("=MAX(A1:A3)"), 0);
+        //Text is skipped in a range.
+        assertEquals(3, evaluate("=COUNT(A1:B3)"), 0);
+        assertEquals(10, evaluate("=SUM(A1:A3)+1"), 0);
+        assertEquals(2, evaluate("=SUM(A1:A3)/COUNT(A1:A3)-1"), 0);
+    }
+
+    @Test
+    public void errors_haveTheirErrorCodes() throws Exception {
+        assertError(FormulaException.ERROR_SYNTAX, "=1+");
+        assertError(FormulaException.ERROR_SYNTAX, "=(1");
+        assertError(FormulaException.ERROR_SYNTAX, "=1)");
+        assertError(FormulaException.ERROR_SYNTAX, "=1 2");
+        assertError(FormulaException.ERROR_NAME, "=FOO(1)");
+        assertError(FormulaException.ERROR_NAME, "=ABC");
+        assertError(FormulaException.ERROR_REF, "=A0");
+        assertError(FormulaException.ERROR_REF, "=A1000001");
+        assertError(FormulaException.ERROR_REF, "=XFE1");
+        assertError(FormulaException.ERROR_VALUE, "=A1:A2");
+        assertError(FormulaException.ERROR_NUM, "=1e400");
+        assertError(FormulaException.ERROR_DIV_ZERO, "=1/0");
+        assertError(FormulaException.ERROR_NUM, "=10^400");
+        evaluationContext.put(0, 0, "text");
+        assertError(FormulaException.ERROR_VALUE, "=A1+1");
+    }
+
+    private double evaluate(String formula) throws FormulaException {
+        return formulaParser.parse(formula).evaluate(evaluationContext);
+    }
+
+    private void assertError(String errorCode, String formula) {
+        try {
+            double value = evaluate(formula);
+            fail(formula + " gave " + value + " instead of " + errorCode);
+        } catch (FormulaException e) {
+            assertEquals(formula, errorCode, e.getErrorCode());
+        }
+    }
+
+    private static class MapEvaluationContext implements Expression.EvaluationContext {
+        private final SparseCellStore<Object> values = new SparseCellStore<>();
+
+        void put(int row, int column, Object value) {
+            values.put(row, column, value);
+        }
+
+        @Override
+        public Object getValue(int row, int column) {
+            return values.get(row, column);
+        }
+
+        @Override
+        public void visitRange(int firstRow, int firstColumn, int lastRow, int lastColumn, Expression.RangeVisitor rangeVisitor) {
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    Object value = values.get(row, column);
+                    if (value instanceof Double) {
+                        rangeVisitor.onVisitNumber((Double) value);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times how recalculation scales with the number of evaluation threads. One input feeds
+ * {@link #FORMULA_COUNT} formulas that do not read each other, each summing {@link #RANGE_SIZE}
+ * cells, so a change to the input is one large level. Ignored so it stays out of the unit test
+ * run, remove the annotation locally and read the timings from the test output. The computed values
+ * are checked by {@link ParallelEvaluatorTest}.
+ */
+public class FormulaRecalculationBenchmark {
+    private static final int ROW_COUNT = 1000000;
+    private static final int COLUMN_COUNT = 16384;
+    private static final int FORMULA_COUNT = 10000;
+    private static final int RANGE_SIZE = 200;
+    private static final int WARM_UP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Ignore("Benchmark, takes seconds and only prints timings")
+    @Test
+    public void recalculation_scalesWithParallelism() throws Exception {
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        String expected = null;
+        for (int parallelism = 1; parallelism <= availableProcessors; parallelism *= 2) {
+            String result = run(parallelism);
+            if (expected == null) {
+                expected = result;
+            }
+            assertEquals(expected, result);
+        }
+    }
+
+    private static String run(int parallelism) {
+        FormulaEngine formulaEngine = new FormulaEngine(ROW_COUNT, COLUMN_COUNT, parallelism);
+        try {
+            ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+            for (int row = 0; row < RANGE_SIZE; row++) {
+                snapshot = snapshot.withData(row, 2, String.valueOf(row));
+            }
+            snapshot = snapshot.withData(0, 0, "1");
+            for (int row = 0; row < FORMULA_COUNT; row++) {
+                snapshot = snapshot.withData(row, 1, "=$A$1*SUM($C$1:$C$" + RANGE_SIZE + ")+" + row);
+            }
+            snapshot = formulaEngine.rebuild(snapshot, null);
+
+            long totalNanos = 0;
+            for (int round = 0; round < WARM_UP_ROUNDS + MEASURED_ROUNDS; round++) {
+                snapshot = snapshot.withData(0, 0, String.valueOf(round + 2));
+                long start = System.nanoTime();
+                snapshot = formulaEngine.onCellsChanged(snapshot, new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addCell(0, 0));
+                if (round >= WARM_UP_ROUNDS) {
+                    totalNanos += System.nanoTime() - start;
+                }
+            }
+            System.out.println(String.format("parallelism %d: %.2f ms per recalculation of %d formulas",
+                    parallelism, totalNanos / 1e6 / MEASURED_ROUNDS, FORMULA_COUNT));
+            return snapshot.getDisplayData(0, 1) + " " + snapshot.getDisplayData(FORMULA_COUNT - 1, 1);
+        } finally {
+            formulaEngine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package android.santosh.com.codechallenge.formula;
+
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Recalculates a level large enough to be split across threads and checks every result, against
+ * the value it should have and against the same sheet recalculated on the calling thread.
+ */
+public class ParallelEvaluatorTest {
+    private static final int ROW_COUNT = 1000000;
+    private static final int COLUMN_COUNT = 16384;
+    //Several times the smallest level that is evaluated in parallel.
+    private static final int FORMULA_COUNT = FormulaEngine.MIN_PARALLEL_LEVEL_SIZE * 4;
+    private static final int RANGE_SIZE = 200;
+    //SUM of 0..RANGE_SIZE - 1 in C1:C200.
+    private static final int RANGE_SUM = RANGE_SIZE * (RANGE_SIZE - 1) / 2;
+
+    @Test
+    public void rebuild_computesEveryFormula() throws Exception {
+        FormulaEngine formulaEngine = new FormulaEngine(ROW_COUNT, COLUMN_COUNT, 4);
+        try {
+            ExcelSheetSnapshot snapshot = formulaEngine.rebuild(createSheet(), null);
+            assertResults(snapshot, 1);
+        } finally {
+            formulaEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void onCellsChanged_recomputesEveryDependent() throws Exception {
+        FormulaEngine formulaEngine = new FormulaEngine(ROW_COUNT, COLUMN_COUNT, 4);
+        try {
+            ExcelSheetSnapshot snapshot = formulaEngine.rebuild(createSheet(), null);
+            snapshot = snapshot.withData(0, 0, "3");
+            ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addCell(0, 0);
+            snapshot = formulaEngine.onCellsChanged(snapshot, excelSheetChange);
+            assertResults(snapshot, 3);
+            //The input plus every formula.
+            assertEquals(FORMULA_COUNT + 1, excelSheetChange.getCellCount());
+        } finally {
+            formulaEngine.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelAndSerialRecalculation_agree() throws Exception {
+        FormulaEngine serialEngine = new FormulaEngine(ROW_COUNT, COLUMN_COUNT, 1);
+        FormulaEngine parallelEngine = new FormulaEngine(ROW_COUNT, COLUMN_COUNT, 4);
+        try {
+            ExcelSheetSnapshot serialSnapshot = serialEngine.rebuild(createSheet(), null);
+            ExcelSheetSnapshot parallelSnapshot = parallelEngine.rebuild(createSheet(), null);
+            for (int round = 2; round < 5; round++) {
+                serialSnapshot = serialEngine.onCellsChanged(serialSnapshot.withData(0, 0, String.valueOf(round)),
+                        new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addCell(0, 0));
+                parallelSnapshot = parallelEngine.onCellsChanged(parallelSnapshot.withData(0, 0, String.valueOf(round)),
+                        new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addCell(0, 0));
+                for (int row = 0; row < FORMULA_COUNT; row++) {
+                    assertEquals(serialSnapshot.getDisplayData(row, 1), parallelSnapshot.getDisplayData(row, 1));
+                }
+            }
+            assertResults(parallelSnapshot, 4);
+        } finally {
+            serialEngine.shutdown();
+            parallelEngine.shutdown();
+        }
+    }
+
+    /**
+     * A1 holds 1, C1:C200 hold 0..199 and every Bn is =$A$1*SUM($C$1:$C$200)+(n-1), so the formulas
+     * only read inputs and make up one level.
+     */
+    private static ExcelSheetSnapshot createSheet() {
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+        for (int row = 0; row < RANGE_SIZE; row++) {
+            snapshot = snapshot.withData(row, 2, String.valueOf(row));
+        }
+        snapshot = snapshot.withData(0, 0, "1");
+        for (int row = 0; row < FORMULA_COUNT; row++) {
+            snapshot = snapshot.withData(row, 1, "=$A$1*SUM($C$1:$C$" + RANGE_SIZE + ")+" + row);
+        }
+        return snapshot;
+    }
+
+    private static void assertResults(ExcelSheetSnapshot snapshot, int input) {
+        for (int row = 0; row < FORMULA_COUNT; row++) {
+            assertEquals("B" + (row + 1), String.valueOf((long) input * RANGE_SUM + row), snapshot.getDisplayData(row, 1));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package android.santosh.com.codechallenge.model;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the packed keys and the open-addressing table against a HashMap, across probe chains,
+ * backward-shift deletions and resizes.
+ */
+public class SparseCellStoreTest {
+    private static final int LAST_ROW = 999999;
+    private static final int LAST_COLUMN = 16383;
+
+    @Test
+    public void key_packsAndUnpacksTheLastCell() throws Exception {
+        long key = SparseCellStore.key(LAST_ROW, LAST_COLUMN);
+        assertEquals(LAST_ROW, SparseCellStore.row(key));
+        assertEquals(LAST_COLUMN, SparseCellStore.column(key));
+        assertEquals(0, SparseCellStore.row(SparseCellStore.key(0, LAST_COLUMN)));
+        assertEquals(0, SparseCellStore.column(SparseCellStore.key(LAST_ROW, 0)));
+    }
+
+    @Test
+    public void key_isUniquePerCell() throws Exception {
+        assertFalse(SparseCellStore.key(1, 0) == SparseCellStore.key(0, 1));
+        assertFalse(SparseCellStore.key(LAST_ROW, LAST_COLUMN) == SparseCellStore.key(LAST_COLUMN, LAST_ROW));
+    }
+
+    @Test
+    public void putGetRemove_singleCell() throws Exception {
+        SparseCellStore<String> store = new SparseCellStore<>();
+        assertTrue(store.isEmpty());
+        assertNull(store.put(LAST_ROW, LAST_COLUMN, "a"));
+        assertEquals("a", store.get(LAST_ROW, LAST_COLUMN));
+        assertTrue(store.contains(LAST_ROW, LAST_COLUMN));
+        assertEquals("a", store.put(LAST_ROW, LAST_COLUMN, "b"));
+        assertEquals(1, store.size());
+        assertEquals("b", store.remove(LAST_ROW, LAST_COLUMN));
+        assertNull(store.get(LAST_ROW, LAST_COLUMN));
+        assertNull(store.remove(LAST_ROW, LAST_COLUMN));
+        assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void put_nullRemovesTheCell() throws Exception {
+        SparseCellStore<String> store = new SparseCellStore<>();
+        store.put(3, 4, "a");
+        assertEquals("a", store.put(3, 4, null));
+        assertFalse(store.contains(3, 4));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void putAndRemove_matchAHashMapAcrossResizes() throws Exception {
+        //Starts at the smallest table so the chains are long and it grows several times.
+        SparseCellStore<Integer> store = new SparseCellStore<>(1);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            //A small key space keeps hitting cells that are already there.
+            int row = random.nextInt(200) * 4999;
+            int column = random.nextInt(60) * 273;
+            long key = SparseCellStore.key(row, column);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), store.remove(row, column));
+            } else {
+                assertEquals(expected.put(key, i), store.put(row, column, i));
+            }
+            assertEquals(expected.size(), store.size());
+        }
+        assertMatches(expected, store);
+    }
+
+    @Test
+    public void remove_keepsTheRestOfAProbeChainReachable() throws Exception {
+        SparseCellStore<Integer> store = new SparseCellStore<>(1);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int row = 0; row < 1000; row++) {
+            store.put(row, 0, row);
+            expected.put(SparseCellStore.key(row, 0), row);
+        }
+        //Removing every other cell shifts the ones after each hole back along its chain.
+        for (int row = 0; row < 1000; row += 2) {
+            assertEquals(Integer.valueOf(row), store.remove(row, 0));
+            expected.remove(SparseCellStore.key(row, 0));
+        }
+        assertMatches(expected, store);
+        for (int row = 0; row < 1000; row += 2) {
+            assertNull(store.get(row, 0));
+        }
+    }
+
+    @Test
+    public void clear_emptiesTheStoreAndKeepsItUsable() throws Exception {
+        SparseCellStore<String> store = new SparseCellStore<>();
+        for (int row = 0; row < 100; row++) {
+            store.put(row, row, "x");
+        }
+        store.clear();
+        assertEquals(0, store.size());
+        assertNull(store.get(5, 5));
+        store.put(5, 5, "y");
+        assertEquals("y", store.get(5, 5));
+        assertEquals(1, store.size());
+    }
+
+    private static void assertMatches(final Map<Long, Integer> expected, SparseCellStore<Integer> store) {
+        assertEquals(expected.size(), store.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), store.get(entry.getKey()));
+        }
+        final int[] visitedCount = new int[1];
+        store.forEach(new SparseCellStore.CellVisitor<Integer>() {
+            @Override
+            public void onVisitCell(int row, int column, Integer value) {
+                assertEquals(expected.get(SparseCellStore.key(row, column)), value);
+                visitedCount[0]++;
+            }
+        });
+        assertEquals(expected.size(), visitedCount[0]);
+    }
+}
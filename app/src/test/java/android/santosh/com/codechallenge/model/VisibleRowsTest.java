@@ -0,0 +1,101 @@
+package android.santosh.com.codechallenge.model;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks rank, select and nextRow against a plain walk over the bitset, around the edges of words
+ * and of the 512 row blocks.
+ */
+public class VisibleRowsTest {
+    private static final int BLOCK_ROW_COUNT = 512;
+
+    @Test
+    public void rankAndSelect_atWordAndBlockBoundaries() throws Exception {
+        BitSet rows = new BitSet();
+        for (int row : new int[]{0, 1, 63, 64, 65, 511, 512, 513, 1023, 1024, 1535, 4095, 4096}) {
+            rows.set(row);
+        }
+        assertMatches(rows);
+    }
+
+    @Test
+    public void rankAndSelect_skipEmptyBlocks() throws Exception {
+        BitSet rows = new BitSet();
+        rows.set(3, 10);
+        //Blocks 1 to 9 hold no row.
+        rows.set(BLOCK_ROW_COUNT * 10 + 5);
+        rows.set(BLOCK_ROW_COUNT * 11 - 1);
+        assertMatches(rows);
+    }
+
+    @Test
+    public void rankAndSelect_fullBlocks() throws Exception {
+        BitSet rows = new BitSet();
+        rows.set(0, BLOCK_ROW_COUNT * 3);
+        assertMatches(rows);
+        rows.clear(BLOCK_ROW_COUNT * 3 - 1);
+        assertMatches(rows);
+    }
+
+    @Test
+    public void rankAndSelect_randomRows() throws Exception {
+        Random random = new Random(18);
+        for (int round = 0; round < 20; round++) {
+            BitSet rows = new BitSet();
+            int rowCount = 1 + random.nextInt(BLOCK_ROW_COUNT * 8);
+            //From nearly empty to nearly full.
+            int density = 1 + random.nextInt(64);
+            for (int row = 0; row < rowCount; row++) {
+                if (random.nextInt(64) < density) {
+                    rows.set(row);
+                }
+            }
+            assertMatches(rows);
+        }
+    }
+
+    @Test
+    public void noVisibleRow() throws Exception {
+        VisibleRows visibleRows = VisibleRows.of(new BitSet());
+        assertEquals(0, visibleRows.getCount());
+        assertEquals(-1, visibleRows.select(0));
+        assertEquals(0, visibleRows.rank(100));
+        assertEquals(-1, visibleRows.nextRow(0));
+        assertFalse(visibleRows.contains(0));
+    }
+
+    @Test
+    public void of_copiesTheBitset() throws Exception {
+        BitSet rows = new BitSet();
+        rows.set(5);
+        VisibleRows visibleRows = VisibleRows.of(rows);
+        rows.set(6);
+        assertEquals(1, visibleRows.getCount());
+        assertFalse(visibleRows.contains(6));
+    }
+
+    private static void assertMatches(BitSet rows) {
+        VisibleRows visibleRows = VisibleRows.of(rows);
+        assertEquals(rows.cardinality(), visibleRows.getCount());
+        int lastRow = rows.length() + BLOCK_ROW_COUNT;
+        int rank = 0;
+        for (int row = -1; row <= lastRow; row++) {
+            assertEquals("row " + row, rows.get(Math.max(row, 0)) && row >= 0, visibleRows.contains(row));
+            assertEquals("rank of row " + row, rank, visibleRows.rank(row));
+            int nextRow = row < 0 ? rows.nextSetBit(0) : rows.nextSetBit(row);
+            assertEquals("next row of " + row, nextRow, visibleRows.nextRow(row));
+            if (row >= 0 && rows.get(row)) {
+                assertEquals("select " + rank, row, visibleRows.select(rank));
+                rank++;
+            }
+        }
+        assertEquals(-1, visibleRows.select(-1));
+        assertEquals(-1, visibleRows.select(rows.cardinality()));
+    }
+}
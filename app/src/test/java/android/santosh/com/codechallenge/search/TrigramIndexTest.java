@@ -0,0 +1,156 @@
+package android.santosh.com.codechallenge.search;
+
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Indexes cells, re-indexes them as edits do and checks the verified candidates of each query
+ * against the scan a {@link SearchIndexer} without an index does.
+ */
+public class TrigramIndexTest {
+    private static final int ROW_COUNT = 200;
+    private static final int COLUMN_COUNT = 5;
+    private static final String[] WORDS = {"apple", "Apricot", "banana", "BAND", "bandana", "can", "ana", "an",
+            "a", "nab", "pineapple"};
+
+    @Test
+    public void findCandidates_followsTheCellThroughEdits() throws Exception {
+        TrigramIndex trigramIndex = new TrigramIndex();
+        long emptyMemoryBytes = trigramIndex.getMemoryBytes();
+        trigramIndex.add(3, 1, "Hello World");
+        assertEquals(1, trigramIndex.getCellCount());
+        assertKeys(trigramIndex, new SearchQuery("wor", false), SparseCellStore.key(3, 1));
+        assertKeys(trigramIndex, new SearchQuery("he", true), SparseCellStore.key(3, 1));
+        assertKeys(trigramIndex, new SearchQuery("wo", true));
+
+        trigramIndex.remove(3, 1, "Hello World");
+        trigramIndex.add(3, 1, "goodbye");
+        assertKeys(trigramIndex, new SearchQuery("wor", false));
+        assertKeys(trigramIndex, new SearchQuery("BYE", false), SparseCellStore.key(3, 1));
+
+        //Nothing of a removed cell stays behind.
+        trigramIndex.remove(3, 1, "goodbye");
+        assertEquals(0, trigramIndex.getCellCount());
+        assertEquals(0, trigramIndex.getTrigramCount());
+        assertEquals(emptyMemoryBytes, trigramIndex.getMemoryBytes());
+        assertKeys(trigramIndex, new SearchQuery("goo", false));
+    }
+
+    @Test
+    public void remove_keepsTheOtherTrigramsReachable() throws Exception {
+        //Enough trigrams to share probe chains, half of them removed again.
+        TrigramIndex trigramIndex = new TrigramIndex();
+        for (int i = 0; i < 2000; i++) {
+            trigramIndex.add(i, 0, "w" + i + "x");
+        }
+        int trigramCount = trigramIndex.getTrigramCount();
+        for (int i = 0; i < 2000; i += 2) {
+            trigramIndex.remove(i, 0, "w" + i + "x");
+        }
+        assertTrue(trigramIndex.getTrigramCount() < trigramCount);
+        for (int i = 0; i < 2000; i++) {
+            //Candidates are not verified, "w11x" also lists "w111x".
+            List<Long> keys = candidates(trigramIndex, new SearchQuery("w" + i + "x", false));
+            assertEquals("w" + i + "x", i % 2 != 0, keys.contains(SparseCellStore.key(i, 0)));
+        }
+    }
+
+    @Test
+    public void verifiedCandidates_areTheMatchesOfAScan() throws Exception {
+        Random random = new Random(19);
+        TrigramIndex trigramIndex = new TrigramIndex();
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+        for (int i = 0; i < 600; i++) {
+            int row = random.nextInt(ROW_COUNT);
+            int column = random.nextInt(COLUMN_COUNT);
+            //Re-index the cell as SearchIndexer does for an edit.
+            String oldText = snapshot.getDisplayData(row, column);
+            String newText = randomText(random);
+            if (oldText != null) {
+                trigramIndex.remove(row, column, oldText);
+            }
+            snapshot = snapshot.withData(row, column, newText);
+            trigramIndex.add(row, column, newText);
+        }
+        SearchIndexer searchIndexer = new SearchIndexer(null);
+        String[] queries = {"an", "AP", "ba", "na", "ana", "ANA", "and", "ban", "band", "pple", "ple ", "e b", "xyz",
+                "a nab", "pineapple"};
+        long[] fromKeys = {0, SparseCellStore.key(ROW_COUNT / 2, 2)};
+        for (String text : queries) {
+            for (boolean prefix : new boolean[]{false, true}) {
+                SearchQuery query = new SearchQuery(text, prefix);
+                if (text.length() < TrigramIndex.getMinQueryLength(prefix)) {
+                    continue;
+                }
+                for (long fromKey : fromKeys) {
+                    assertEquals(text + (prefix ? " as prefix" : "") + " from " + fromKey,
+                            scan(searchIndexer, query, snapshot, fromKey),
+                            verifiedCandidates(trigramIndex, query, snapshot, fromKey));
+                }
+            }
+        }
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder stringBuilder = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        int wordCount = random.nextInt(3);
+        for (int i = 0; i < wordCount; i++) {
+            stringBuilder.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * @return the matches as SearchIndexer finds them while it has no index.
+     */
+    private static List<Long> scan(SearchIndexer searchIndexer, SearchQuery query, ExcelSheetSnapshot snapshot,
+                                   long fromKey) {
+        final List<Long> keys = new ArrayList<>();
+        searchIndexer.forEachMatch(query, snapshot, fromKey, new SearchIndexer.MatchVisitor() {
+            @Override
+            public boolean onMatch(int row, int column) {
+                keys.add(SparseCellStore.key(row, column));
+                return true;
+            }
+        });
+        return keys;
+    }
+
+    private static List<Long> verifiedCandidates(TrigramIndex trigramIndex, SearchQuery query,
+                                                 ExcelSheetSnapshot snapshot, long fromKey) {
+        List<Long> keys = new ArrayList<>();
+        TrigramIndex.Candidates candidates = trigramIndex.findCandidates(query, fromKey);
+        for (long key = candidates.next(); key >= 0; key = candidates.next()) {
+            if (query.matches(snapshot.getDisplayData(SparseCellStore.row(key), SparseCellStore.column(key)))) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static void assertKeys(TrigramIndex trigramIndex, SearchQuery query, long... expectedKeys) {
+        List<Long> expected = new ArrayList<>();
+        for (long key : expectedKeys) {
+            expected.add(key);
+        }
+        assertEquals(query.getText(), expected, candidates(trigramIndex, query));
+    }
+
+    private static List<Long> candidates(TrigramIndex trigramIndex, SearchQuery query) {
+        List<Long> keys = new ArrayList<>();
+        TrigramIndex.Candidates candidates = trigramIndex.findCandidates(query, 0);
+        for (long key = candidates.next(); key >= 0; key = candidates.next()) {
+            keys.add(key);
+        }
+        return keys;
+    }
+}
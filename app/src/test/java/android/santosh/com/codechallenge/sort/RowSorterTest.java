@@ -0,0 +1,204 @@
+package android.santosh.com.codechallenge.sort;
+
+import android.santosh.com.codechallenge.model.ExcelSheetChange;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.RowOrder;
+import android.santosh.com.codechallenge.model.VisibleRows;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sorts snapshots, keeps the order up to date through edits and checks it against a full sort, and
+ * maps rows both ways through the resulting order.
+ */
+public class RowSorterTest {
+    private static final int ROW_COUNT = 2000;
+    //Past RowSorter.MAX_INCREMENTAL_ROW_COUNT, the changes that sort again.
+    private static final int LARGE_CHANGE_ROW_COUNT = 300;
+    private static final String[] VALUES = {"-3", "0", "2.5", "10", "apple", "Banana", "cherry", "TRUE",
+            "false", null};
+
+    private final RowSorter rowSorter = new RowSorter();
+
+    @Test
+    public void sort_ordersNumbersThenTextThenBooleansWithEmptiesLast() throws Exception {
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty()
+                .withData(0, 0, "TRUE")
+                .withData(1, 0, "banana")
+                .withData(2, 0, "10")
+                .withData(3, 1, "only in another column")
+                .withData(4, 0, "Apple")
+                .withData(5, 0, "-1")
+                .withData(6, 0, "FALSE")
+                .withData(7, 0, "2.5")
+                .withData(8, 0, "apple");
+
+        RowOrder ascending = rowSorter.sort(snapshot, new int[]{0}, new boolean[]{true});
+        //Equal text keeps model order, the row with nothing in the column is not sorted.
+        assertArrayEquals(new int[]{5, 7, 2, 4, 8, 1, 6, 0}, sortedRows(ascending));
+        assertEquals(3, ascending.getModelRow(8));
+
+        RowOrder descending = rowSorter.sort(snapshot, new int[]{0}, new boolean[]{false});
+        assertArrayEquals(new int[]{0, 6, 1, 4, 8, 2, 7, 5}, sortedRows(descending));
+
+        //An empty cell of a sorted row still comes last in the second column, in either direction.
+        snapshot = snapshot.withData(0, 1, "x").withData(6, 1, "5").withData(4, 1, "b").withData(8, 1, "a");
+        RowOrder byTwoColumns = rowSorter.sort(snapshot, new int[]{1, 0}, new boolean[]{false, true});
+        assertArrayEquals(new int[]{0, 3, 4, 8, 6, 5, 7, 2, 1}, sortedRows(byTwoColumns));
+    }
+
+    @Test
+    public void update_givesTheOrderOfAFullSortAfterSmallEdits() throws Exception {
+        Random random = new Random(17);
+        int[] sortColumns = {1, 0};
+        boolean[] ascending = {true, false};
+        ExcelSheetSnapshot snapshot = randomSnapshot(random, 500);
+        RowOrder rowOrder = rowSorter.sort(snapshot, sortColumns, ascending);
+        for (int round = 0; round < 200; round++) {
+            ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA);
+            int editCount = 1 + random.nextInt(5);
+            for (int i = 0; i < editCount; i++) {
+                int row = random.nextInt(ROW_COUNT);
+                int column = random.nextInt(3);
+                snapshot = snapshot.withData(row, column, VALUES[random.nextInt(VALUES.length)]);
+                excelSheetChange.addCell(row, column);
+            }
+            if (round % 10 == 0) {
+                //A small row range, as an undo of a replace-all gives, moves row by row as well.
+                int firstRow = random.nextInt(ROW_COUNT - 50);
+                for (int row = firstRow; row < firstRow + 50; row += 7) {
+                    snapshot = snapshot.withData(row, 1, VALUES[random.nextInt(VALUES.length)]);
+                }
+                excelSheetChange.addRows(firstRow, firstRow + 49);
+            }
+            rowOrder = rowSorter.update(rowOrder, snapshot, excelSheetChange);
+            assertArrayEquals("round " + round, sortedRows(rowSorter.sort(snapshot, sortColumns, ascending)),
+                    sortedRows(rowOrder));
+        }
+    }
+
+    @Test
+    public void update_givesTheOrderOfAFullSortAfterLargeEdits() throws Exception {
+        Random random = new Random(18);
+        int[] sortColumns = {0};
+        boolean[] ascending = {true};
+        ExcelSheetSnapshot snapshot = randomSnapshot(random, 800);
+        RowOrder rowOrder = rowSorter.sort(snapshot, sortColumns, ascending);
+        for (int round = 0; round < 20; round++) {
+            ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA);
+            for (int i = 0; i < LARGE_CHANGE_ROW_COUNT; i++) {
+                int row = random.nextInt(ROW_COUNT);
+                snapshot = snapshot.withData(row, 0, VALUES[random.nextInt(VALUES.length)]);
+                excelSheetChange.addCell(row, 0);
+            }
+            rowOrder = rowSorter.update(rowOrder, snapshot, excelSheetChange);
+            assertArrayEquals("round " + round, sortedRows(rowSorter.sort(snapshot, sortColumns, ascending)),
+                    sortedRows(rowOrder));
+        }
+    }
+
+    @Test
+    public void update_movesRowsUpToTheLimitAndSortsAgainPastIt() throws Exception {
+        int[] sortColumns = {0};
+        boolean[] ascending = {true};
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+        for (int row = 0; row < ROW_COUNT; row++) {
+            snapshot = snapshot.withData(row, 0, String.valueOf(row));
+        }
+        RowOrder rowOrder = rowSorter.sort(snapshot, sortColumns, ascending);
+
+        //Nothing moves, so moving rows one by one keeps the order while sorting again builds a new
+        //one.
+        assertSame(rowOrder, rowSorter.update(rowOrder, snapshot, cellChange(0, 256, 0)));
+        assertNotSame(rowOrder, rowSorter.update(rowOrder, snapshot, cellChange(0, 257, 0)));
+        assertSame(rowOrder, rowSorter.update(rowOrder, snapshot,
+                new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addRows(100, 355)));
+        assertNotSame(rowOrder, rowSorter.update(rowOrder, snapshot,
+                new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addRows(100, 356)));
+        //Columns a sort does not read never move a row, a column range over a sort column sorts again.
+        assertSame(rowOrder, rowSorter.update(rowOrder, snapshot, cellChange(0, ROW_COUNT, 1)));
+        assertSame(rowOrder, rowSorter.update(rowOrder, snapshot,
+                new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addColumns(1, 5)));
+        assertNotSame(rowOrder, rowSorter.update(rowOrder, snapshot,
+                new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA).addColumns(0, 5)));
+        assertSame(RowOrder.IDENTITY, rowSorter.update(RowOrder.IDENTITY, snapshot, cellChange(0, 10, 0)));
+    }
+
+    @Test
+    public void rowOrder_mapsViewAndModelRowsBothWays() throws Exception {
+        Random random = new Random(19);
+        ExcelSheetSnapshot snapshot = randomSnapshot(random, 300);
+        RowOrder sorted = rowSorter.sort(snapshot, new int[]{0}, new boolean[]{false});
+        BitSet rows = new BitSet();
+        for (int row = 0; row < ROW_COUNT; row++) {
+            if (random.nextInt(3) != 0) {
+                rows.set(row);
+            }
+        }
+        VisibleRows visibleRows = VisibleRows.of(rows);
+        RowOrder[] rowOrders = {RowOrder.IDENTITY, sorted, RowOrder.IDENTITY.withVisibleRows(visibleRows),
+                sorted.withVisibleRows(visibleRows)};
+        for (RowOrder rowOrder : rowOrders) {
+            int rowCount = rowOrder.getRowCount(ROW_COUNT);
+            BitSet seenModelRows = new BitSet();
+            for (int viewRow = 0; viewRow < rowCount; viewRow++) {
+                int modelRow = rowOrder.getModelRow(viewRow);
+                assertEquals(viewRow, rowOrder.getViewRow(modelRow));
+                seenModelRows.set(modelRow);
+            }
+            assertEquals(rowCount, seenModelRows.cardinality());
+            for (int modelRow = 0; modelRow < ROW_COUNT; modelRow++) {
+                int viewRow = rowOrder.getViewRow(modelRow);
+                if (rowOrder.isFiltered() && !visibleRows.contains(modelRow)) {
+                    assertEquals(-1, viewRow);
+                } else {
+                    assertEquals(modelRow, rowOrder.getModelRow(viewRow));
+                }
+            }
+        }
+        //The rows after the sorted ones keep their model order.
+        int previousModelRow = -1;
+        for (int viewRow = sorted.getSortedRowCount(); viewRow < ROW_COUNT; viewRow++) {
+            int modelRow = sorted.getModelRow(viewRow);
+            assertTrue(modelRow > previousModelRow);
+            previousModelRow = modelRow;
+        }
+    }
+
+    /**
+     * @return a sheet with cellCount random cells in columns 0 to 2.
+     */
+    private static ExcelSheetSnapshot randomSnapshot(Random random, int cellCount) {
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+        for (int i = 0; i < cellCount; i++) {
+            snapshot = snapshot.withData(random.nextInt(ROW_COUNT), random.nextInt(3),
+                    VALUES[random.nextInt(VALUES.length)]);
+        }
+        return snapshot;
+    }
+
+    private static ExcelSheetChange cellChange(int firstRow, int rowCount, int column) {
+        ExcelSheetChange excelSheetChange = new ExcelSheetChange(ExcelSheetChange.PAYLOAD_CELL_DATA);
+        for (int row = firstRow; row < firstRow + rowCount; row++) {
+            excelSheetChange.addCell(row, column);
+        }
+        return excelSheetChange;
+    }
+
+    private static int[] sortedRows(RowOrder rowOrder) {
+        int[] sortedRows = new int[rowOrder.getSortedRowCount()];
+        for (int viewRow = 0; viewRow < sortedRows.length; viewRow++) {
+            sortedRows[viewRow] = rowOrder.getSortedRow(viewRow);
+        }
+        return sortedRows;
+    }
+}
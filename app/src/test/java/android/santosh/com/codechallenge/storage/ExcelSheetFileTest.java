@@ -0,0 +1,182 @@
+package android.santosh.com.codechallenge.storage;
+
+import android.santosh.com.codechallenge.model.CellValue;
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes snapshots to the binary sheet format and reads every cell back through the mapping,
+ * including the lookups that miss a row or a column.
+ */
+public class ExcelSheetFileTest {
+    private static final int LAST_ROW = 999999;
+    private static final int LAST_COLUMN = 16383;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void write_roundTripsSparseRowsAndRepeatedStrings() throws Exception {
+        TreeMap<Long, String> expected = new TreeMap<>();
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+        int[] rows = {0, 1, 7, 1000, 65536, 500000, LAST_ROW};
+        for (int rowIndex = 0; rowIndex < rows.length; rowIndex++) {
+            for (int column = rowIndex; column <= LAST_COLUMN; column += 1000 + rowIndex) {
+                //Every third cell shares its value with cells of other rows.
+                String data = column % 3 == 0 ? "same" : "r" + rows[rowIndex] + "c" + column + " \u00e9\u20ac";
+                snapshot = snapshot.withData(rows[rowIndex], column, data);
+                expected.put(SparseCellStore.key(rows[rowIndex], column), data);
+            }
+        }
+        snapshot = snapshot.withData(LAST_ROW, LAST_COLUMN, "last");
+        expected.put(SparseCellStore.key(LAST_ROW, LAST_COLUMN), "last");
+
+        ExcelSheetFile excelSheetFile = writeAndOpen(snapshot);
+        assertEquals(expected.size(), excelSheetFile.getCellCount());
+        assertCells(expected, excelSheetFile);
+        for (int rowIndex = 0; rowIndex < rows.length; rowIndex++) {
+            //Columns before, between and after the stored ones of a stored row.
+            assertNull(excelSheetFile.get(rows[rowIndex], rowIndex - 1));
+            assertNull(excelSheetFile.get(rows[rowIndex], rowIndex + 1));
+            assertNull(excelSheetFile.get(rows[rowIndex], LAST_COLUMN + 1));
+            assertFalse(excelSheetFile.contains(rows[rowIndex], rowIndex + 999));
+        }
+        //Rows between and around the stored ones.
+        for (int row : new int[]{2, 6, 8, 999, 1001, 65535, 65537, 499999, 500001, LAST_ROW - 1}) {
+            assertNull(excelSheetFile.get(row, 0));
+            assertFalse(excelSheetFile.contains(row, 3));
+        }
+        assertNull(excelSheetFile.get(-1, 0));
+        assertNull(excelSheetFile.get(LAST_ROW + 1, 0));
+        assertEquals(CellValue.TYPE_EMPTY, excelSheetFile.getType(2, 0));
+        assertEquals(0, excelSheetFile.getNumber(2, 0), 0);
+    }
+
+    @Test
+    public void write_leavesOutEmptiedAndHiddenCells() throws Exception {
+        ExcelSheetSnapshot saved = ExcelSheetSnapshot.empty()
+                .withData(0, 0, "kept")
+                .withData(0, 1, "hidden")
+                .withData(3, 0, "hidden")
+                .withData(4, 4, "edited");
+        ExcelSheetFile savedFile = writeAndOpen(saved);
+        //Emptying a saved cell keeps an empty edit that hides it, emptying a new cell removes it.
+        ExcelSheetSnapshot edited = ExcelSheetSnapshot.empty().withExcelSheetFile(savedFile)
+                .withData(0, 1, null)
+                .withData(3, 0, "")
+                .withData(4, 4, "changed")
+                .withData(5, 5, "new")
+                .withData(5, 5, null)
+                .withData(6, 6, "added");
+
+        TreeMap<Long, String> expected = new TreeMap<>();
+        expected.put(SparseCellStore.key(0, 0), "kept");
+        expected.put(SparseCellStore.key(4, 4), "changed");
+        expected.put(SparseCellStore.key(6, 6), "added");
+        ExcelSheetFile excelSheetFile = writeAndOpen(edited);
+        assertEquals(expected.size(), excelSheetFile.getCellCount());
+        assertCells(expected, excelSheetFile);
+        assertFalse(excelSheetFile.contains(0, 1));
+        //The whole row is gone, not kept with no cells.
+        assertFalse(excelSheetFile.contains(3, 0));
+        assertNull(excelSheetFile.get(5, 5));
+    }
+
+    @Test
+    public void write_emptySnapshot() throws Exception {
+        ExcelSheetFile excelSheetFile = writeAndOpen(ExcelSheetSnapshot.empty());
+        assertEquals(0, excelSheetFile.getCellCount());
+        assertNull(excelSheetFile.get(0, 0));
+        assertCells(new TreeMap<Long, String>(), excelSheetFile);
+    }
+
+    @Test
+    public void getType_parsesNumbersAndBooleans() throws Exception {
+        ExcelSheetFile excelSheetFile = writeAndOpen(ExcelSheetSnapshot.empty()
+                .withData(0, 0, "1.5")
+                .withData(0, 1, "TRUE")
+                .withData(0, 2, "false")
+                .withData(0, 3, "text")
+                .withData(1, 0, "1.5"));
+        assertEquals(CellValue.TYPE_NUMBER, excelSheetFile.getType(0, 0));
+        assertEquals(1.5, excelSheetFile.getNumber(0, 0), 0);
+        assertEquals(1.5, excelSheetFile.getNumber(1, 0), 0);
+        assertEquals(CellValue.TYPE_BOOLEAN, excelSheetFile.getType(0, 1));
+        assertEquals(1, excelSheetFile.getNumber(0, 1), 0);
+        assertEquals(0, excelSheetFile.getNumber(0, 2), 0);
+        assertEquals(CellValue.TYPE_TEXT, excelSheetFile.getType(0, 3));
+        assertEquals(0, excelSheetFile.getNumber(0, 3), 0);
+    }
+
+    @Test
+    public void open_rejectsATruncatedFile() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "sheet.snapshot");
+        ExcelSheetFile.write(file, ExcelSheetSnapshot.empty().withData(0, 0, "some text"));
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(file.length() - 2);
+        } finally {
+            randomAccessFile.close();
+        }
+        try {
+            ExcelSheetFile.open(file);
+            fail("a truncated file must not open");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void write_replacesTheFileWithoutLeavingATempFile() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "sheet.snapshot");
+        ExcelSheetFile.write(file, ExcelSheetSnapshot.empty().withData(0, 0, "first"));
+        ExcelSheetFile.write(file, ExcelSheetSnapshot.empty().withData(0, 0, "second"));
+        assertEquals("second", ExcelSheetFile.open(file).get(0, 0));
+        assertEquals(1, temporaryFolder.getRoot().listFiles().length);
+    }
+
+    private ExcelSheetFile writeAndOpen(ExcelSheetSnapshot snapshot) throws IOException {
+        File file = temporaryFolder.newFile();
+        ExcelSheetFile.write(file, snapshot);
+        return ExcelSheetFile.open(file);
+    }
+
+    /**
+     * Every expected cell reads back, and forEach visits exactly them in row major order.
+     */
+    private static void assertCells(TreeMap<Long, String> expected, ExcelSheetFile excelSheetFile) {
+        for (Long key : expected.keySet()) {
+            int row = SparseCellStore.row(key);
+            int column = SparseCellStore.column(key);
+            assertTrue(excelSheetFile.contains(row, column));
+            assertEquals(expected.get(key), excelSheetFile.get(row, column));
+        }
+        final List<Long> visitedKeys = new ArrayList<>();
+        final List<String> visitedValues = new ArrayList<>();
+        excelSheetFile.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                visitedKeys.add(SparseCellStore.key(row, column));
+                visitedValues.add(value);
+            }
+        });
+        assertEquals(new ArrayList<>(expected.keySet()), visitedKeys);
+        assertEquals(new ArrayList<>(expected.values()), visitedValues);
+    }
+}
@@ -0,0 +1,374 @@
+package android.santosh.com.codechallenge.storage;
+
+import android.santosh.com.codechallenge.model.ExcelSheetSnapshot;
+import android.santosh.com.codechallenge.model.SparseCellStore;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Saves through the journal and loads the sheet back with a new journal on the same directory, the
+ * way the app does after being killed. Checks what survives: committed records, not the tail after
+ * the last commit marker, not a record torn by a crash, clears and undone clears, and the same cells
+ * after a compaction.
+ */
+public class ExcelSheetJournalTest {
+    //Enough uncommitted bytes to get past the journal's output buffer and onto disk.
+    private static final int UNCOMMITTED_RECORD_COUNT = 200;
+    private static final String LONG_DATA = new String(new char[100]).replace('\0', 'x');
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void load_replaysCommittedRecords() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        assertFalse(journal.hasData());
+        journal.appendCellData(0, 0, "a");
+        journal.appendCellData(999999, 16383, "b");
+        journal.appendCellData(0, 0, "c");
+        journal.appendCellData(5, 5, "d");
+        journal.appendCellData(5, 5, null);
+        journal.commit();
+        assertTrue(journal.hasData());
+
+        LoadedSheet loadedSheet = reload();
+        assertNull(loadedSheet.excelSheetFile);
+        assertEquals("c", loadedSheet.snapshot.getData(0, 0));
+        assertEquals("b", loadedSheet.snapshot.getData(999999, 16383));
+        assertNull(loadedSheet.snapshot.getData(5, 5));
+        assertFalse(loadedSheet.cleared);
+    }
+
+    @Test
+    public void load_dropsUncommittedRecords() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "saved");
+        journal.commit();
+        File journalFile = onlyFile(".journal");
+        long committedLength = journalFile.length();
+        appendUncommitted(journal, 1);
+        assertTrue(journalFile.length() > committedLength);
+
+        LoadedSheet loadedSheet = reload();
+        assertEquals("saved", loadedSheet.snapshot.getData(0, 0));
+        for (int row = 1; row <= UNCOMMITTED_RECORD_COUNT; row++) {
+            assertNull(loadedSheet.snapshot.getData(row, 0));
+        }
+        //The tail is cut off, so records appended after the reload are not mixed with it.
+        assertEquals(committedLength, journalFile.length());
+        loadedSheet.journal.appendCellData(1, 0, "after");
+        loadedSheet.journal.commit();
+        LoadedSheet reloadedSheet = reload();
+        assertEquals("saved", reloadedSheet.snapshot.getData(0, 0));
+        assertEquals("after", reloadedSheet.snapshot.getData(1, 0));
+        assertNull(reloadedSheet.snapshot.getData(2, 0));
+    }
+
+    @Test
+    public void load_dropsATornTailRecord() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "kept");
+        journal.commit();
+        File journalFile = onlyFile(".journal");
+        long committedLength = journalFile.length();
+        journal.appendCellData(1, 0, LONG_DATA);
+        journal.commit();
+        //Cut through the middle of the second record, as a crash during the write would.
+        truncate(journalFile, committedLength + 20);
+
+        LoadedSheet loadedSheet = reload();
+        assertEquals("kept", loadedSheet.snapshot.getData(0, 0));
+        assertNull(loadedSheet.snapshot.getData(1, 0));
+        assertEquals(committedLength, journalFile.length());
+    }
+
+    @Test
+    public void load_dropsARecordWhoseCommitMarkerIsMissing() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "kept");
+        journal.commit();
+        journal.appendCellData(1, 0, "lost");
+        journal.commit();
+        File journalFile = onlyFile(".journal");
+        truncate(journalFile, journalFile.length() - 1);
+
+        LoadedSheet loadedSheet = reload();
+        assertEquals("kept", loadedSheet.snapshot.getData(0, 0));
+        assertNull(loadedSheet.snapshot.getData(1, 0));
+    }
+
+    @Test
+    public void load_replaysFromTheLastCommittedClear() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "before");
+        journal.appendCellData(1, 0, "before");
+        journal.commit();
+        journal.appendClear();
+        journal.appendCellData(1, 0, "after");
+        assertTrue("a committed clear asks for a compaction", journal.commit());
+
+        LoadedSheet loadedSheet = reload();
+        assertTrue(loadedSheet.cleared);
+        assertNull(loadedSheet.snapshot.getData(0, 0));
+        assertEquals("after", loadedSheet.snapshot.getData(1, 0));
+        //Records before the clear are skipped, not replayed and then cleared.
+        assertEquals(1, loadedSheet.replayedRecordCount);
+    }
+
+    @Test
+    public void load_ignoresAnUncommittedClear() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "saved");
+        journal.commit();
+        journal.appendClear();
+        appendUncommitted(journal, 0);
+
+        LoadedSheet loadedSheet = reload();
+        assertFalse(loadedSheet.cleared);
+        assertEquals("saved", loadedSheet.snapshot.getData(0, 0));
+    }
+
+    @Test
+    public void load_skipsAnUndoneClear() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "before");
+        journal.commit();
+        journal.appendClear();
+        journal.appendCellData(1, 0, "undone with the clear");
+        journal.appendCellData(1, 0, null);
+        assertTrue(journal.appendRestore());
+        journal.appendCellData(2, 0, "after");
+        assertFalse("an undone clear leaves nothing to compact", journal.commit());
+
+        LoadedSheet loadedSheet = reload();
+        assertFalse(loadedSheet.cleared);
+        assertEquals("before", loadedSheet.snapshot.getData(0, 0));
+        assertNull(loadedSheet.snapshot.getData(1, 0));
+        assertEquals("after", loadedSheet.snapshot.getData(2, 0));
+        assertEquals(2, loadedSheet.replayedRecordCount);
+    }
+
+    @Test
+    public void load_undoesNestedClearsInOrder() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "first");
+        journal.appendClear();
+        journal.appendCellData(1, 0, "second");
+        journal.appendClear();
+        journal.appendCellData(2, 0, "third");
+        assertTrue(journal.appendRestore());
+        journal.commit();
+
+        LoadedSheet loadedSheet = reload();
+        assertTrue(loadedSheet.cleared);
+        assertNull(loadedSheet.snapshot.getData(0, 0));
+        assertEquals("second", loadedSheet.snapshot.getData(1, 0));
+        assertNull(loadedSheet.snapshot.getData(2, 0));
+
+        assertFalse("the history does not survive a reload", loadedSheet.journal.appendRestore());
+    }
+
+    @Test
+    public void load_undoesBothOfTwoNestedClears() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "first");
+        journal.appendClear();
+        journal.appendCellData(1, 0, "second");
+        journal.appendClear();
+        assertTrue(journal.appendRestore());
+        assertTrue(journal.appendRestore());
+        assertFalse(journal.appendRestore());
+        journal.commit();
+
+        LoadedSheet loadedSheet = reload();
+        assertFalse(loadedSheet.cleared);
+        assertEquals("first", loadedSheet.snapshot.getData(0, 0));
+        assertNull(loadedSheet.snapshot.getData(1, 0));
+    }
+
+    @Test
+    public void load_keepsAClearWhoseRestoreIsUncommitted() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "before");
+        journal.appendClear();
+        journal.commit();
+        assertTrue(journal.appendRestore());
+        appendUncommitted(journal, 1);
+
+        LoadedSheet loadedSheet = reload();
+        assertTrue(loadedSheet.cleared);
+        assertNull(loadedSheet.snapshot.getData(0, 0));
+    }
+
+    @Test
+    public void appendRestore_failsOnceTheClearWasCompacted() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        assertFalse(journal.appendRestore());
+        journal.appendCellData(0, 0, "before");
+        journal.appendClear();
+        assertTrue(journal.commit());
+        journal.compact(ExcelSheetSnapshot.empty().withData(0, 0, "before").cleared());
+        assertFalse(journal.appendRestore());
+    }
+
+    @Test
+    public void load_afterCompactionGivesTheSameSheet() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        Map<Long, String> expected = new HashMap<>();
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty();
+        for (int i = 0; i < 500; i++) {
+            int row = (i * 7919) % 100000;
+            int column = i % 37;
+            String data = i % 5 == 0 ? "repeated" : "cell " + i;
+            journal.appendCellData(row, column, data);
+            snapshot = snapshot.withData(row, column, data);
+            expected.put(SparseCellStore.key(row, column), data);
+        }
+        journal.commit();
+        journal.compact(snapshot);
+        //Edits after the compaction go to the journal of the next generation.
+        journal.appendCellData(0, 0, "new");
+        expected.put(SparseCellStore.key(0, 0), "new");
+        int emptiedRow = (3 * 7919) % 100000;
+        journal.appendCellData(emptiedRow, 3, null);
+        expected.remove(SparseCellStore.key(emptiedRow, 3));
+        journal.commit();
+
+        //Loading through the same journal waits for the snapshot to be written.
+        LoadedSheet sameJournalSheet = new LoadedSheet(journal);
+        assertNotNull(sameJournalSheet.excelSheetFile);
+        assertSheet(expected, sameJournalSheet.snapshot);
+        assertEquals(2, sameJournalSheet.replayedRecordCount);
+        assertEquals(1, countFiles(".snapshot"));
+        assertEquals(1, countFiles(".journal"));
+
+        assertSheet(expected, reload().snapshot);
+    }
+
+    @Test
+    public void load_keepsEditsOfACompactedClear() throws Exception {
+        ExcelSheetJournal journal = new ExcelSheetJournal(temporaryFolder.getRoot());
+        journal.appendCellData(0, 0, "before");
+        journal.commit();
+        ExcelSheetSnapshot snapshot = ExcelSheetSnapshot.empty().withData(0, 0, "before");
+        journal.compact(snapshot);
+        journal.appendClear();
+        journal.appendCellData(1, 1, "after");
+        journal.commit();
+        journal.compact(snapshot.cleared().withData(1, 1, "after"));
+
+        LoadedSheet loadedSheet = new LoadedSheet(journal);
+        assertNull(loadedSheet.snapshot.getData(0, 0));
+        assertEquals("after", loadedSheet.snapshot.getData(1, 1));
+        assertEquals(1, countFiles(".snapshot"));
+    }
+
+    private LoadedSheet reload() throws IOException {
+        return new LoadedSheet(new ExcelSheetJournal(temporaryFolder.getRoot()));
+    }
+
+    /**
+     * Appends records without a commit marker until some of them are on disk.
+     */
+    private static void appendUncommitted(ExcelSheetJournal journal, int column) throws IOException {
+        for (int row = 1; row <= UNCOMMITTED_RECORD_COUNT; row++) {
+            journal.appendCellData(row, column, LONG_DATA);
+        }
+    }
+
+    private File onlyFile(String suffix) {
+        File found = null;
+        for (File file : temporaryFolder.getRoot().listFiles()) {
+            if (file.getName().endsWith(suffix)) {
+                assertNull("more than one " + suffix, found);
+                found = file;
+            }
+        }
+        assertNotNull(found);
+        return found;
+    }
+
+    private int countFiles(String suffix) {
+        int count = 0;
+        for (File file : temporaryFolder.getRoot().listFiles()) {
+            if (file.getName().endsWith(suffix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void assertSheet(final Map<Long, String> expected, ExcelSheetSnapshot snapshot) {
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), snapshot.getData(SparseCellStore.row(entry.getKey()), SparseCellStore.column(entry.getKey())));
+        }
+        final int[] cellCount = new int[1];
+        snapshot.forEach(new SparseCellStore.CellVisitor<String>() {
+            @Override
+            public void onVisitCell(int row, int column, String value) {
+                assertEquals(expected.get(SparseCellStore.key(row, column)), value);
+                cellCount[0]++;
+            }
+        });
+        assertEquals(expected.size(), cellCount[0]);
+    }
+
+    /**
+     * Builds the sheet from a load the way the controller does: the saved file unless a clear was
+     * replayed, with the replayed cells on top.
+     */
+    private static class LoadedSheet implements ExcelSheetStorage.ReplayCallback {
+        final ExcelSheetJournal journal;
+        final ExcelSheetFile excelSheetFile;
+        final ExcelSheetSnapshot snapshot;
+        private final Map<Long, String> replayedCells = new HashMap<>();
+        boolean cleared;
+        int replayedRecordCount;
+
+        LoadedSheet(ExcelSheetJournal journal) throws IOException {
+            this.journal = journal;
+            excelSheetFile = journal.load(this);
+            ExcelSheetSnapshot loadedSnapshot = ExcelSheetSnapshot.empty().withExcelSheetFile(cleared ? null : excelSheetFile);
+            for (Map.Entry<Long, String> entry : replayedCells.entrySet()) {
+                loadedSnapshot = loadedSnapshot.withData(SparseCellStore.row(entry.getKey()), SparseCellStore.column(entry.getKey()),
+                        entry.getValue());
+            }
+            snapshot = loadedSnapshot;
+        }
+
+        @Override
+        public void onCellDataReplayed(int row, int column, String data) {
+            replayedCells.put(SparseCellStore.key(row, column), data);
+            replayedRecordCount++;
+        }
+
+        @Override
+        public void onSheetCleared() {
+            replayedCells.clear();
+            cleared = true;
+        }
+    }
+}